@@ -3,6 +3,13 @@ package com.example.android;
 import android.content.Context;
 import android.util.Log;
 
+import com.example.android.engine.AttackMap;
+import com.example.android.engine.BitboardPosition;
+import com.example.android.engine.Bitboards;
+import com.example.android.engine.Fen;
+import com.example.android.engine.Move;
+import com.example.android.engine.MoveGenerator;
+import com.example.android.engine.StaticExchange;
 import com.example.android.model.Bishop;
 import com.example.android.model.GameSaver;
 import com.example.android.model.GameStates;
@@ -21,17 +28,20 @@ import java.util.List;
 import java.util.Random;
 
 /**
- * Implementation of the Chess game board, which is represented as a 2D array of Cells.
+ * Implementation of the Chess game board. The position itself is kept in a BitboardPosition,
+ * and the 2D array of Cells is a view of it that is used by the CellAdapter.
  * @author Krysti Leong, April Dizon
  */
 public class Board {
 
     public static final int BOARD_SIZE = 8;
     private Cell[][] board;
+    private BitboardPosition bitboards;
+    private AttackMap attackMap;
     private int[][] prevMove;
-    private List<Piece> pieces;
-    private boolean[][] cellsThreatenedByWhite;
-    private boolean[][] cellsThreatenedByBlack;
+    private int promotionType = BitboardPosition.QUEEN;
+    private final int[] legalMoves = new int[MoveGenerator.MAX_MOVES];
+    private final Random random = new Random();
     private boolean whiteInCheck;
     private boolean blackInCheck;
     private boolean whiteInCheckmate;
@@ -55,9 +65,6 @@ public class Board {
         // Instantiate the variables
         prevMove = new int[2][2];
         board = new Cell[BOARD_SIZE][BOARD_SIZE];
-        pieces = new ArrayList<Piece>();
-        cellsThreatenedByWhite = new boolean[BOARD_SIZE][BOARD_SIZE];
-        cellsThreatenedByBlack = new boolean[BOARD_SIZE][BOARD_SIZE];
         whiteInCheck = false;
         whiteInCheckmate = false;
         blackInCheck = false;
@@ -81,24 +88,21 @@ public class Board {
                     else if (col == 6) newCell = new Cell(position, new Knight(color,position), toColor);
                     else newCell = new Cell(position, new Rook(color,position), toColor);
 
-                    // Add this piece to the list
-                    pieces.add(newCell.piece);
-
                 } else if (row == 1 || row == 6) { // pawns
                     String color = row == 1 ? "Black" : "White";
                     newCell = new Cell(position, new Pawn(color,position), toColor);
-
-                    // Add this piece to the list
-                    pieces.add(newCell.piece);
                 } else {
                     newCell = new Cell(position, toColor);
                 }
                 board[row][col] = newCell;
             }
         }
-        findThreats();
+        bitboards = new BitboardPosition();
+        attackMap = new AttackMap();
+        bitboards.setAttackMap(attackMap);
+        loadBitboards();
         states = new GameStates();
-        states.addState(board, pieces, 0, "Game start!");
+        states.addState(board, getPieces(), 0, "Game start!", hashKey());
         turn = 1;
     }
 
@@ -117,7 +121,6 @@ public class Board {
     public void setBoard(Cell[][] board, List<Piece> pieces){
 
         Board.Cell[][] boardState = new Board.Cell[Board.BOARD_SIZE][Board.BOARD_SIZE];
-        List<Piece> piecesState = new ArrayList<Piece>();
         for (int i = 0; i < Board.BOARD_SIZE; i++){
             for (int j = 0; j < Board.BOARD_SIZE; j++){
                 Board.Cell srcCell = board[i][j];
@@ -130,7 +133,6 @@ public class Board {
                     else if (srcPiece instanceof Pawn) piece = new Pawn(srcPiece.color, new Position(srcPiece.getPosition().rank, srcPiece.getPosition().file));
                     else if (srcPiece instanceof Queen) piece = new Queen(srcPiece.color, new Position(srcPiece.getPosition().rank, srcPiece.getPosition().file));
                     else if (srcPiece instanceof Rook) piece = new Rook(srcPiece.color, new Position(srcPiece.getPosition().rank, srcPiece.getPosition().file));
-                    piecesState.add(piece);
                 }
                 Board.Cell cell = new Board.Cell(srcCell.position, piece, srcCell.isColored);
                 boardState[i][j] = cell;
@@ -138,8 +140,7 @@ public class Board {
         }
 
         this.board = boardState;
-        this.pieces = piecesState;
-        findThreats();
+        loadBitboards();
     }
 
     /**
@@ -150,6 +151,275 @@ public class Board {
         return board;
     }
 
+    /**
+     * Get the pieces on the game board.
+     * @return List of the pieces, in the order of the cells.
+     */
+    public List<Piece> getPieces(){
+        List<Piece> pieces = new ArrayList<Piece>();
+        for (int rank = 0; rank < BOARD_SIZE; rank++){
+            for (int file = 0; file < BOARD_SIZE; file++){
+                if (board[rank][file].piece != null){
+                    pieces.add(board[rank][file].piece);
+                }
+            }
+        }
+        return pieces;
+    }
+
+    //endregion
+
+    //region BITBOARD CORE
+
+    /**
+     * Get the bitboard position that backs this board.
+     * @return The bitboard position.
+     */
+    public BitboardPosition getBitboards(){
+        return bitboards;
+    }
+
+    /**
+     * Get the Zobrist key of the current position, which is kept up to date by every move, promotion
+     * and undo. Two positions with the same pieces, side to move, castling rights and en passant
+     * file have the same key.
+     * @return 64-bit key of the position.
+     */
+    public long hashKey(){
+        return bitboards.getKey();
+    }
+
+    /**
+     * Set up the board from a FEN string, and start a new game from that position.
+     * @param fen FEN string of the position.
+     * @throws IllegalArgumentException If the string isn't valid FEN.
+     */
+    public void setPosition(String fen) throws IllegalArgumentException{
+        Fen.parse(fen, bitboards);
+        updateCells(-1L);
+        states = new GameStates();
+        states.addState(board, getPieces(), 0, "Game start!", hashKey());
+        turn = 1;
+    }
+
+    /**
+     * Rebuild the bitboard position from the cells. Only needed when the cells are replaced as a
+     * whole (a new game, an undo, or a replay). The side to move is kept as it was.
+     */
+    private void loadBitboards(){
+        int sideToMove = bitboards.getSideToMove();
+        bitboards.clear();
+        for (int rank = 0; rank < BOARD_SIZE; rank++){
+            for (int file = 0; file < BOARD_SIZE; file++){
+                Piece piece = board[rank][file].piece;
+                if (piece != null){
+                    bitboards.putPiece(Bitboards.square(rank, file), pieceCode(piece));
+                }
+            }
+        }
+
+        // The kings and rooks that haven't moved yet can still castle.
+        int castlingRights = 0;
+        if (hasNotMoved(7, 4, "King", "White")){
+            if (hasNotMoved(7, 7, "Rook", "White")) castlingRights |= BitboardPosition.WHITE_KINGSIDE;
+            if (hasNotMoved(7, 0, "Rook", "White")) castlingRights |= BitboardPosition.WHITE_QUEENSIDE;
+        }
+        if (hasNotMoved(0, 4, "King", "Black")){
+            if (hasNotMoved(0, 7, "Rook", "Black")) castlingRights |= BitboardPosition.BLACK_KINGSIDE;
+            if (hasNotMoved(0, 0, "Rook", "Black")) castlingRights |= BitboardPosition.BLACK_QUEENSIDE;
+        }
+        bitboards.setCastlingRights(castlingRights);
+        bitboards.setSideToMove(sideToMove);
+    }
+
+    /**
+     * Check if the given cell holds a piece of the given name and color that has not moved yet.
+     */
+    private boolean hasNotMoved(int rank, int file, String name, String color){
+        Piece piece = board[rank][file].piece;
+        return piece != null && piece.name.equals(name) && piece.color.equals(color) && !piece.hasMoved;
+    }
+
+    /**
+     * Make a move on the bitboards and update the cells it changed. The move pushes a compact
+     * undo record on the bitboards, so it can be taken back with unmakeMove().
+     * @param move Packed move (see the Move class), which is assumed to be legal.
+     */
+    public void makeMove(int move){
+        bitboards.makeMove(move);
+        updateCells(Move.changedSquares(move));
+    }
+
+    /**
+     * Take back the last move made with makeMove(), and update the cells it changed.
+     * @return The move that was taken back.
+     */
+    public int unmakeMove(){
+        int move = bitboards.unmakeMove();
+        updateCells(Move.changedSquares(move));
+        return move;
+    }
+
+    /**
+     * Generate every legal move of the player whose turn it is, including castling, en passant
+     * and promotions.
+     * @param buffer Buffer the packed moves are written into, with room for at least
+     *               MoveGenerator.MAX_MOVES moves.
+     * @return Number of moves written.
+     */
+    public int generateLegalMoves(int[] buffer){
+        return MoveGenerator.generateLegalMoves(bitboards, buffer);
+    }
+
+    /**
+     * Estimate the material a move wins or loses once both players have made every recapture on
+     * its destination that pays off for them. Pins and checks aren't taken into account.
+     * @param move Packed move of the player whose turn it is, for example from toMove().
+     * @return Material won in centipawns, negative if the move loses material.
+     */
+    public int staticExchange(int move){
+        return StaticExchange.evaluate(bitboards, move);
+    }
+
+    /**
+     * Build the packed move for a piece moving from a source cell to a destination cell,
+     * working out from the bitboards if it captures, castles, or takes en passant.
+     * @param srcFile Source file
+     * @param srcRank Source rank
+     * @param destFile Destination file
+     * @param destRank Destination rank
+     * @return The packed move.
+     */
+    public int toMove(int srcFile, int srcRank, int destFile, int destRank){
+        int from = Bitboards.square(srcRank, srcFile);
+        int to = Bitboards.square(destRank, destFile);
+        int type = BitboardPosition.typeOf(bitboards.pieceAt(from));
+        boolean capture = bitboards.pieceAt(to) != BitboardPosition.NO_PIECE;
+
+        if (type == BitboardPosition.PAWN){
+            if (destRank == 0 || destRank == 7){
+                return Move.promotion(from, to, promotionType, capture);
+            }
+            if (Math.abs(from - to) == 16){
+                return Move.encode(from, to, Move.DOUBLE_PUSH);
+            }
+            if (to == bitboards.getEnPassantSquare()){
+                return Move.encode(from, to, Move.EN_PASSANT);
+            }
+        }
+        else if (type == BitboardPosition.KING && Math.abs(srcFile - destFile) == 2){
+            return Move.encode(from, to, destFile > srcFile ? Move.KING_CASTLE : Move.QUEEN_CASTLE);
+        }
+        return Move.encode(from, to, capture ? Move.CAPTURE : Move.QUIET);
+    }
+
+    /**
+     * Update the given cells so that they show what is on the bitboards.
+     * @param squares Bitboard of the squares to update.
+     */
+    private void updateCells(long squares){
+        while (squares != 0){
+            int square = Long.numberOfTrailingZeros(squares);
+            int rank = Bitboards.boardRank(square);
+            int file = Bitboards.file(square);
+            Cell cell = board[rank][file];
+            int code = bitboards.pieceAt(square);
+            if (code == BitboardPosition.NO_PIECE){
+                cell.piece = null;
+            }
+            else if (cell.piece == null || pieceCode(cell.piece) != code){
+                cell.piece = createPiece(code, rank, file);
+                cell.piece.setHasMoved(!canCastle(code, rank, file));
+            }
+            squares &= squares - 1;
+        }
+    }
+
+    /**
+     * Check if a king or rook can still castle, going by the castling rights of the bitboards, so
+     * that pieces put back by unmakeMove() keep their rights.
+     * @param code Piece code used by the BitboardPosition.
+     * @param rank Rank of the piece.
+     * @param file File of the piece.
+     * @return True if it's a king or rook on its starting square with a castling right left.
+     */
+    private boolean canCastle(int code, int rank, int file){
+        int color = BitboardPosition.colorOf(code);
+        int type = BitboardPosition.typeOf(code);
+        if (rank != (color == BitboardPosition.WHITE ? 7 : 0)){
+            return false;
+        }
+        int kingside = color == BitboardPosition.WHITE ? BitboardPosition.WHITE_KINGSIDE : BitboardPosition.BLACK_KINGSIDE;
+        int queenside = color == BitboardPosition.WHITE ? BitboardPosition.WHITE_QUEENSIDE : BitboardPosition.BLACK_QUEENSIDE;
+        int rights = bitboards.getCastlingRights();
+        if (type == BitboardPosition.KING && file == 4){
+            return (rights & (kingside | queenside)) != 0;
+        }
+        if (type == BitboardPosition.ROOK && file == 7){
+            return (rights & kingside) != 0;
+        }
+        if (type == BitboardPosition.ROOK && file == 0){
+            return (rights & queenside) != 0;
+        }
+        return false;
+    }
+
+    /**
+     * Create the piece for the given piece code.
+     * @param code Piece code used by the BitboardPosition.
+     * @param rank Rank of the piece.
+     * @param file File of the piece.
+     * @return The new piece.
+     */
+    private static Piece createPiece(int code, int rank, int file){
+        String color = BitboardPosition.colorOf(code) == BitboardPosition.WHITE ? "White" : "Black";
+        Position position = new Position(rank, file);
+        switch (BitboardPosition.typeOf(code)){
+            case BitboardPosition.PAWN: return new Pawn(color, position);
+            case BitboardPosition.KNIGHT: return new Knight(color, position);
+            case BitboardPosition.BISHOP: return new Bishop(color, position);
+            case BitboardPosition.ROOK: return new Rook(color, position);
+            case BitboardPosition.QUEEN: return new Queen(color, position);
+            default: return new King(color, position);
+        }
+    }
+
+    /**
+     * Check if cells, such as those of a saved state, hold the same pieces as a position.
+     * @param board Cells of a board, by rank and file.
+     * @param position Position to compare with, which is not changed.
+     * @return True if every square has the same piece, or none in both.
+     */
+    public static boolean samePieces(Cell[][] board, BitboardPosition position){
+        for (int rank = 0; rank < BOARD_SIZE; rank++){
+            for (int file = 0; file < BOARD_SIZE; file++){
+                Piece piece = board[rank][file].piece;
+                int code = piece == null ? BitboardPosition.NO_PIECE : pieceCode(piece);
+                if (position.pieceAt(Bitboards.square(rank, file)) != code){
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the piece code used by the BitboardPosition for the given piece.
+     * @param piece Piece on the board.
+     * @return The piece code.
+     */
+    private static int pieceCode(Piece piece){
+        int color = piece.color.equals("White") ? BitboardPosition.WHITE : BitboardPosition.BLACK;
+        int type;
+        if (piece instanceof Pawn) type = BitboardPosition.PAWN;
+        else if (piece instanceof Knight) type = BitboardPosition.KNIGHT;
+        else if (piece instanceof Bishop) type = BitboardPosition.BISHOP;
+        else if (piece instanceof Rook) type = BitboardPosition.ROOK;
+        else if (piece instanceof Queen) type = BitboardPosition.QUEEN;
+        else type = BitboardPosition.KING;
+        return BitboardPosition.piece(color, type);
+    }
+
     //endregion
 
     //region GAMESTATE OPERATIONS
@@ -169,18 +439,30 @@ public class Board {
      * @param title Title for this state to show on the UI.
      */
     public void addNoMoveState(String title){
-        states.addState(board, pieces, turn, title);
+        states.addState(board, getPieces(), turn, title, hashKey());
         turn++;
     }
 
     /**
-     * Undo the move made by simply setting the board with the previous state
+     * Undo the move made. Moves are taken back with unmakeMove(), which only touches the cells
+     * that changed, or by setting the board with the previous state if the position has no
+     * history to take them back with. States without a move (such as a resign) left the
+     * position as it was, so only the state itself is dropped.
      * @return True if successful, false elsewise, and there were no previous moves made.
      */
     public boolean undoPrevMove(){
         try{
+            GameStates.State undone = states.getCurrentState();
             GameStates.State state = states.undoCurrentState();
-            setBoard(state.board, state.pieces);
+            if (undone.move != Move.NONE){
+                if (bitboards.getPly() > 0){
+                    unmakeMove();
+                }
+                else{
+                    setBoard(state.board, state.pieces);
+                    bitboards.setSideToMove(bitboards.getSideToMove() ^ 1);
+                }
+            }
             turn = state.turn;
             //Log.d("STATES UPON UNDO", states.statesToString());
         } catch (IndexOutOfBoundsException e){
@@ -192,9 +474,9 @@ public class Board {
     //endregion
 
     /**
-     * Checks if the game defined in the board has ended by seeing if there are any kings in checkmate.
-     * @return 0 if no kings are in checkmate, 1 if the white king is in checkmate, 2 if the black
-     * king is in checkmate.
+     * Checks if the game defined in the board has ended by seeing if there are any kings in checkmate,
+     * or if the player to move is stalemated: not in check, but without a legal move.
+     * @return Whether a king is in check or checkmate, STALEMATE, or NOCHECKS.
      */
     public BoardStatus checkGameProgress(){
 
@@ -210,6 +492,9 @@ public class Board {
         else if (blackInCheck){
             return BoardStatus.BLACKINCHECK;
         }
+        else if (generateLegalMoves(legalMoves) == 0){
+            return BoardStatus.STALEMATE;
+        }
         else{
             return BoardStatus.NOCHECKS;
         }
@@ -218,41 +503,31 @@ public class Board {
 
 
     /**
-     * Choose a random move for the player. This move is checked to make sure its valid.
+     * Choose a random move for the player out of its legal moves.
      * There is assumed to be at least one move. If there is none, then the game should have already
-     * ended????
+     * ended.
      * @param forWhitePlayer True if we're finding the move for the white player, False if we're
      *                       finding it for the black player.
-     * @return An array with the random move, where Position[0] is the source and Position[1] is the
-     * destination.
      */
     public void makeRandomMove(boolean forWhitePlayer){
-        //Proposal to infinite loop question: we can keep a visited set to keep track of repeats
-        String currPlayer = forWhitePlayer ? "White" : "Black";
-        while (true){
-            // Pick a random piece.
-            int random = new Random().nextInt(pieces.size());
-            Piece randomPiece = pieces.get(random);
-
-            // Check if we can use this piece.
-            if (randomPiece == null || !randomPiece.color.equals(currPlayer)) continue;
-
-            int srcRank = randomPiece.getPosition().rank;
-            int srcFile = randomPiece.getPosition().file;
-            List<Position> moves = randomPiece.getAllMoves(this);
-
-            if(moves == null || moves.size() == 0) continue;
-
-            // Get a random move from this piece.
-            random = new Random().nextInt(moves.size());
-            Position destination = moves.get(random);
-            int destFile = destination.file;
-            int destRank = destination.rank;
-            if (canMovePiece(srcFile, srcRank, destFile, destRank, forWhitePlayer)){
-                movePiece(srcFile, srcRank, destFile, destRank, forWhitePlayer);
-                break; //terminating condition
-            }
+        int count = generateLegalMoves(legalMoves);
+        if (count == 0) return;
+
+        playMove(legalMoves[random.nextInt(count)], forWhitePlayer);
+    }
+
+    /**
+     * Play a packed move, such as one chosen by the engine, just like movePiece() would.
+     * @param move Packed move (see the Move class), which is assumed to be legal.
+     * @param whitesTurn True if the move is made by the white player.
+     */
+    public void playMove(int move, boolean whitesTurn){
+        int from = Move.from(move);
+        int to = Move.to(move);
+        if (Move.isPromotion(move)){
+            promotionType = Move.promotionType(move);
         }
+        movePiece(Bitboards.file(from), Bitboards.boardRank(from), Bitboards.file(to), Bitboards.boardRank(to), whitesTurn);
     }
 
 
@@ -291,83 +566,54 @@ public class Board {
             Log.d("Illegal", "3");
             return false;
         }
-        else if (!sourcePiece.canReachDestination(this, new Position(destRank, destFile))){
-            //System.out.println("Can't reach");
-            Log.d("Illegal", "4");
-            return false;
-        }
-        else if (canThreatenKing(srcRank,srcFile,destRank,destFile)){
-            // The player cannot threaten its own king!
-            //System.out.println("threatens king");
-            Log.d("Illegal", "5");
-            return false;
-        }
 
-        // Everything is valid!
-        return true;
+        // The move is valid if it's one of the legal moves, which already leaves out the moves
+        // that would threaten the player's own king.
+        int from = Bitboards.square(srcRank, srcFile);
+        int to = Bitboards.square(destRank, destFile);
+        int count = generateLegalMoves(legalMoves);
+        for (int i = 0; i < count; i++){
+            if (Move.from(legalMoves[i]) == from && Move.to(legalMoves[i]) == to){
+                // Everything is valid!
+                return true;
+            }
+        }
+        //System.out.println("Can't reach");
+        Log.d("Illegal", "4");
+        return false;
     }
 
     /**
-     *
+     * Move a piece on the board, keeping the bitboard position and the cells in sync.
      * @param srcFile
      * @param srcRank
      * @param destFile
      * @param destRank
      */
     public void movePiece(int srcFile, int srcRank, int destFile, int destRank, Boolean whitesTurn){
-        Cell sourceCell = board[srcRank][srcFile];
-        Piece sourcePiece = sourceCell.piece;
-
-
-        if(sourcePiece.name.equals("Pawn") && Pawn.enPassant(srcRank, destFile, prevMove)){ // Perform en passant:
-            //remove the "captured piece"
-            board[prevMove[1][1]][prevMove[1][0]].piece = null;
-        } else if(sourcePiece.name.equals("King") && King.castling(srcFile, srcRank, destFile, destRank, whitesTurn, this)) { // Perform castling
-            // move rook
-            int rookSrcFile;
-            int rookDestFile;
-            if(srcFile - destFile > 0){
-                rookSrcFile = 0;
-                rookDestFile = 3;
-            }else{
-                rookSrcFile = 7;
-                rookDestFile = 5;
-            }
-            Cell sourceRookCell = board[srcRank][rookSrcFile];
-            Cell destRookCell = board[destRank][rookDestFile];
-            Piece rookPiece = sourceRookCell.piece;
-
-            sourceRookCell.piece = null;
-            destRookCell.piece = rookPiece;
-            rookPiece.setPosition(destRank, rookDestFile);
-        }
-        // Perform the actual move and capture.
-        sourceCell.piece = null;
-        pieces.remove(board[destRank][destFile].piece); // Capture?
-        board[destRank][destFile].piece = sourcePiece;
-        sourcePiece.setPosition(destRank,destFile);
-        board[destRank][destFile].piece.setHasMoved(true);
+        // Perform the actual move, capture, castling or en passant.
+        int move = toMove(srcFile, srcRank, destFile, destRank);
+        makeMove(move);
+        promotionType = BitboardPosition.QUEEN;
         recordCurrentMove(srcFile, srcRank,destFile,destRank);
 
-        // Update the threats array.
-        findThreats();
+        // The attack maps were updated along with the bitboards.
         Log.d("Threats", threatsToString());
 
         // Update the status of the king
         if (isKingInCheckmate(whitesTurn) || isKingInCheckmate(!whitesTurn)){
             System.out.println("Checkmate");
-            return;
         }
-        if (isKingInCheck(whitesTurn) || isKingInCheck(!whitesTurn)){
+        else if (isKingInCheck(whitesTurn) || isKingInCheck(!whitesTurn)){
             System.out.println("Check");
         }
 
 
         //Log.d("STATES BEFORE MOVE", states.statesToString());
 
-        // Add the state to the states.
+        // Add the state to the states, along with the move so that it can be undone.
         String title = whitesTurn? "White's turn" : "Black's turn";
-        states.addState(board, pieces, turn, title);
+        states.addState(board, getPieces(), turn, title, move, hashKey());
         //Log.d("STATES AFTER MOVE", states.statesToString());
         turn++;
     }
@@ -383,138 +629,31 @@ public class Board {
 
 
 
-    /**
-     * Iterate through the board and pieces to find all cells that are under threat by another piece.
-     * Populates the cellsThreatenedByWhite and the cellsThreatenedByBlack, which are mainly
-     * used to see if the king is in check or in checkmate.
-     */
-    private void findThreats(){
-
-        // Iterate through the board and set all cells to false
-        for (int rank = 0; rank < BOARD_SIZE; rank++){
-            for (int file = 0; file < BOARD_SIZE; file++){
-                cellsThreatenedByWhite[rank][file] = false;
-                cellsThreatenedByBlack[rank][file] = false;
-            }
-        }
-
-        // Look at all the current pieces on the pieces list
-        for (Piece piece: pieces){
-            if(piece == null) continue;
-            // Get all this piece's possible movements
-            //System.out.println("Threats for:" + piece);
-            List<Position> movements = piece.getAllMoves(this);
-            //System.out.println(movements);
-
-            if (movements == null){
-                continue;
-            }
-
-            // Mark the cellsThreatenedBy according to these positions
-            for (Position move : movements){
-                //System.out.println(move);
-                // test
-                if (move.file == 0 && move.rank == 2){
-                    //Log.d("This piece is making the threat:", piece + "");
-                }
-                if (piece.color.equals("White")){
-                    if (!cellsThreatenedByWhite[move.rank][move.file]){
-                        cellsThreatenedByWhite[move.rank][move.file] = true;
-                    }
-                }
-                else{
-                    if (!cellsThreatenedByBlack[move.rank][move.file]){
-                        cellsThreatenedByBlack[move.rank][move.file] = true;
-                    }
-                }
-            }
-        }
-
-
-        // Done!
-        //System.out.println(threatsToString());
-    }
-
-
-    /**
-     * Check if the given move will threaten the king and put it in check. This method assumes that
-     * the given move is already valid.
-     * @param srcRank Source rank.
-     * @param srcFile Source file.
-     * @param destRank Destination rank.
-     * @param destFile Destination file.
-     * @return True if the king will be in check, false elsewise.
-     */
-    private boolean canThreatenKing(int srcRank, int srcFile, int destRank, int destFile){
-
-        Cell srcCell = board[srcRank][srcFile];
-        Cell destCell = board[destRank][destFile];
-        Piece srcPiece = srcCell.piece;
-        Piece destPiece = destCell.piece;
-
-        // If this piece is a king, see if this move will threaten itself.
-        boolean isWhite = srcPiece.color.equals("White");
-        if (srcPiece.name.equals("King") && underThreat(isWhite, destRank, destFile)){
-            // The king is about to put itself under threat!
-            return true;
-        }
-
-        // If this isn't a king, pretend to make the move to see if it'll threaten the king.
-        destCell.piece = srcPiece;
-        srcPiece.setPosition(destRank, destFile);
-        pieces.remove(destPiece);
-        srcCell.piece = null;
-        //System.out.println("IMAGING MOVE");
-        findThreats();
-        //System.out.println(threatsToString());
-
-        boolean result = isKingInCheck(isWhite);
-
-        // Undo the move.
-        srcCell.piece = srcPiece;
-        srcPiece.setPosition(srcRank,srcFile);
-        destCell.piece = destPiece;
-        pieces.add(destPiece);
-        findThreats();
-        isKingInCheck(isWhite);
-
-        return result;
-    }
-
-
     /**
      * Check if a certain cell on the board is under threat by a white piece or a black piece.
+     * This is a single read from the attack maps, which are kept up to date as pieces move.
      * @param isWhite true if the king we're examining is white. False if i's black.
      * @param rank Rank of the cell in question.
      * @param file File of the cell in question.
      * @return True if the cell is under threat, false elsewise.
      */
     public boolean underThreat(boolean isWhite, int rank, int file){
-
-        if (!isWhite){
-            return cellsThreatenedByWhite[rank][file];
-        }
-        else{
-            return cellsThreatenedByBlack[rank][file];
-        }
-
+        int attacker = isWhite ? BitboardPosition.BLACK : BitboardPosition.WHITE;
+        return attackMap.isAttacked(attacker, Bitboards.square(rank, file));
     }
 
     /**
-     * Get the king of the specified color in the pieces array.
+     * Get the king of the specified color.
      * @param isWhite Color of the king we'd like to get.
      * @return the King Piece found, or null if none found.
      */
     private Piece getKing(boolean isWhite){
-        String color = isWhite? "White" : "Black";
-        // Locate the king of the given color in the pieces array.
-        for (Piece piece: pieces){
-            if (piece == null) continue;
-            if (piece.name.equals("King") && piece.color.equals(color)){
-                return piece;
-            }
+        // Locate the king of the given color on the bitboards.
+        int square = bitboards.kingSquare(isWhite ? BitboardPosition.WHITE : BitboardPosition.BLACK);
+        if (square == BitboardPosition.NO_SQUARE){
+            return null;
         }
-        return null;
+        return board[Bitboards.boardRank(square)][Bitboards.file(square)].piece;
     }
 
     /**
@@ -556,7 +695,7 @@ public class Board {
 
     /**
      * Check if the king of a given color is in checkmate, meaning that it is not only threatened
-     * by a piece of the opposing color, but it also cannot move to a cell that is not threatened.
+     * by a piece of the opposing color, but its player also has no legal move to get out of it.
      * Note that checkmate will end the game.
      * @param isWhite True if the king we are looking at is white. Else, false if it's black.
      * @return True if the king is in checkmate, false elsewise.
@@ -568,33 +707,11 @@ public class Board {
             // The king is still safe!
             return false;
         }
-        // The king is threatened! See if it can move to any of its surrounding cells (this is it's valid movements).
-        Piece king = getKing(isWhite);
-        String color = isWhite? "White" : "Black";
-        // Iterate!
-        List<Position> moves = king.getAllMoves(this);
-        if (moves != null){
-            for (Position move: moves){
-                if (!underThreat(isWhite, move.rank, move.file)){
-                    // Double check if the king can move to this cell.
-                    Cell cell = board[move.rank][move.file];
-                    if (cell.piece != null){
-                        if (!cell.piece.color.equals(color)){
-                            // The king can actual move here through capture!
-                            return false;
-                        }
-                        else{
-                            continue;
-                        }
-                    }else{
-                        // The king can move here!
-                        return false;
-                    }
-                }
-                else{
-
-                }
-            }
+        // The king is threatened! It's checkmate if it's this player's turn and there are no
+        // legal moves, meaning nothing can capture or block the threat, and the king can't get away.
+        int color = isWhite ? BitboardPosition.WHITE : BitboardPosition.BLACK;
+        if (bitboards.getSideToMove() != color || generateLegalMoves(legalMoves) > 0){
+            return false;
         }
         // The king cannot move anywhere to be safe!
         if(isWhite){
@@ -624,7 +741,8 @@ public class Board {
     }
 
     /**
-     * Promote a Pawn to another type of piece.
+     * Choose the type of piece a Pawn promotes to. The promotion itself happens with the next call
+     * to movePiece(), so that it is part of the move and can be undone with it.
      * @param srcRank Current rank of the pawn.
      * @param srcFile Current file of the pawn.
      * @param whitesTurn If it's currently whitesTurn.
@@ -632,26 +750,18 @@ public class Board {
      */
     public void promote(int srcRank, int srcFile, boolean whitesTurn, Character promotion){
 
-        // Setups.
-        String playerColor = whitesTurn? "White" : "Black";
-        Piece piece = board[srcRank][srcFile].piece;
-
-        // Make the promotion.
         if (promotion == 'Q'){
-            piece = new Queen(playerColor, new Position(srcRank, srcFile));
+            promotionType = BitboardPosition.QUEEN;
         }
         else if (promotion == 'R'){
-            piece = new Rook(playerColor, new Position(srcRank, srcFile));
+            promotionType = BitboardPosition.ROOK;
         }
         else if (promotion == 'B'){
-            piece = new Bishop(playerColor, new Position(srcRank, srcFile));
+            promotionType = BitboardPosition.BISHOP;
         }
         else if (promotion == 'N'){
-            piece = new Knight(playerColor, new Position(srcRank, srcFile));
+            promotionType = BitboardPosition.KNIGHT;
         }
-
-        // Set this piece to the board.
-        board[srcRank][srcFile].piece = piece;
     }
 
 
@@ -689,16 +799,16 @@ public class Board {
     }
 
     /**
-     * Express the cellsThreatenedBy arrays as strings to print out to the console.
+     * Express the attack maps as strings to print out to the console.
      * Used for debugging and testing only.
-     * @return cellsThreatenedByWhite and cellsThreatenedByBlack as strings.
+     * @return Cells threatened by white and cells threatened by black as strings.
      */
     public String threatsToString(){
         String s ="";
         s = "Cells threatened by white:" + System.lineSeparator();
         for (int i = 0; i < BOARD_SIZE; i++){
             for (int j = 0; j < BOARD_SIZE; j++){
-                if (cellsThreatenedByWhite[i][j]){
+                if (underThreat(false, i, j)){
                     s += " T ";
                 }
                 else{
@@ -712,7 +822,7 @@ public class Board {
         s += System.lineSeparator();
         for (int i = 0; i < BOARD_SIZE; i++){
             for (int j = 0; j < BOARD_SIZE; j++){
-                if (cellsThreatenedByBlack[i][j]){
+                if (underThreat(true, i, j)){
                     s += " T ";
                 }
                 else{
@@ -729,6 +839,7 @@ public class Board {
         WHITEINCHECKMATE,
         BLACKINCHECK,
         BLACKINCHECKMATE,
+        STALEMATE,
         NOCHECKS
     }
 
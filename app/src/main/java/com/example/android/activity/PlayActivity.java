@@ -5,6 +5,7 @@ import android.content.DialogInterface;
 import android.content.Intent;
 import android.graphics.Color;
 import android.os.Bundle;
+import android.os.Handler;
 
 import androidx.appcompat.app.AppCompatActivity;
 
@@ -18,17 +19,79 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import com.example.android.Board;
+import com.example.android.engine.BackgroundSearch;
+import com.example.android.engine.Bitbase;
+import com.example.android.engine.BitbaseGenerator;
+import com.example.android.engine.BitboardPosition;
+import com.example.android.engine.Bitbases;
+import com.example.android.engine.BookBuilder;
+import com.example.android.engine.ChessClock;
+import com.example.android.engine.Move;
+import com.example.android.engine.PolyglotBook;
+import com.example.android.engine.PolyglotKeys;
+import com.example.android.engine.SearchLimits;
+import com.example.android.engine.SearchResult;
+import com.example.android.engine.TablebaseGenerator;
+import com.example.android.engine.Tablebases;
+import com.example.android.engine.TimeManager;
+import com.example.android.engine.TranspositionTable;
 import com.example.android.model.CellAdapter;
+import com.example.android.model.GameSaver;
 import com.example.android.R;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
 
 public class PlayActivity extends AppCompatActivity implements AdapterView.OnItemClickListener{
 
+    // Strengths of the "choose for me" button. Random picks any legal move, and the others search
+    // within the given limits so that a move never takes more than a few seconds. Hard has no
+    // fixed limits, it plays on the clock.
+    private static final String[] STRENGTHS = {"Random", "Easy", "Medium", "Hard"};
+    private static final SearchLimits[] STRENGTH_LIMITS = {
+            null,
+            new SearchLimits(2, 20000, 500),
+            new SearchLimits(4, 200000, 1000),
+            null
+    };
+    private static final int RANDOM = 0;
+    private static final int HARD = 3;
+
+    // Who the player plays against. The engine opponent plays Hard.
+    private static final String[] OPPONENTS = {"Another player", "The engine, playing Black", "The engine, playing White"};
+    private static final int NO_ENGINE = -1;
+
+    // Time control of a game: 10 minutes each, plus 5 seconds a move.
+    private static final long CLOCK_BASE_MILLIS = 10 * 60 * 1000;
+    private static final long CLOCK_INCREMENT_MILLIS = 5 * 1000;
+    private static final long CLOCK_TICK_MILLIS = 200;
+
+    // Opening book in the app's files, and the key table of Polyglot, for a book that was made
+    // with it rather than by this engine. Without one, the engine uses a book it builds from the
+    // saved games.
+    private static final String BOOK_FILENAME = "book.bin";
+    private static final String BOOK_KEYS_FILENAME = "polyglot-keys.bin";
+    private static final String SAVED_GAMES_BOOK_FILENAME = "savedGamesBook.bin";
+    private static final String BITBASES_FILENAME = "bitbases.bin";
+
+    /** Intent extra with the path of the directory of tablebase files to play endgames from. */
+    public static final String EXTRA_TABLEBASE_DIRECTORY = "tablebaseDirectory";
+    // Without the extra, the tablebases are looked for in this directory of the app's external
+    // files, where they are generated from the bitbases the first time.
+    private static final String TABLEBASE_DIRECTORY = "tablebases";
+
     // UI elements in the app
     private GridView gridView;
     private CellAdapter cellAdapter;
     private TextView playTitle;
+    private TextView clockText;
 
     // TEST ONLY
     //private Button testButton;
@@ -41,6 +104,21 @@ public class PlayActivity extends AppCompatActivity implements AdapterView.OnIte
     private Board.Cell srcCell;
     private View srcCellView;
     private boolean madeUndo;
+    private BackgroundSearch engine;
+    private Tablebases tablebases;
+    private Future<?> engineMove;
+    // Whether the engine plays from a Polyglot book rather than the book of the saved games.
+    private boolean externalBook;
+    private int engineColor = NO_ENGINE;
+    private int strength = -1;
+    private ChessClock clock;
+    private final Handler clockHandler = new Handler();
+    private final Runnable clockTicker = new Runnable() {
+        @Override
+        public void run() {
+            updateClock();
+        }
+    };
 
 
     @Override
@@ -50,6 +128,7 @@ public class PlayActivity extends AppCompatActivity implements AdapterView.OnIte
         setContentView(R.layout.activity_play);
         gridView = findViewById(R.id.gridView);
         playTitle = findViewById(R.id.play_title);
+        clockText = findViewById(R.id.clock_text);
 
         // Set up the board
         board = Board.getNewInstance();
@@ -63,8 +142,35 @@ public class PlayActivity extends AppCompatActivity implements AdapterView.OnIte
         gridView.setAdapter(cellAdapter);
         gridView.setOnItemClickListener(this);
 
+        // Set up the engine. It searches on its own thread and posts its moves back to this one,
+        // and thinks on the other player's time when it plays Hard. Holding the "choose for me"
+        // button changes its strength.
+        engine = new BackgroundSearch(new TranspositionTable(16), new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                runOnUiThread(command);
+            }
+        });
+        engine.setBook(openBook());
+        updateSavedGamesBook();
+        loadBitbases();
+        tablebases = openTablebases();
+        engine.setTablebases(tablebases);
+        findViewById(R.id.random_button).setOnLongClickListener(new View.OnLongClickListener() {
+            @Override
+            public boolean onLongClick(View v) {
+                displayChooseStrength();
+                return true;
+            }
+        });
+
         playTitle.setText("Game start!" + System.lineSeparator() + "White's turn");
 
+        // The clock starts once the opponent is chosen
+        clock = ChessClock.increment(CLOCK_BASE_MILLIS, CLOCK_INCREMENT_MILLIS);
+        updateClock();
+        displayChooseOpponent();
+
         //test only
 //        testButton = findViewById(R.id.test_button);
 //        testButton.setOnClickListener(new View.OnClickListener() {
@@ -76,9 +182,20 @@ public class PlayActivity extends AppCompatActivity implements AdapterView.OnIte
 
     }
 
+    @Override
+    protected void onDestroy() {
+        clockHandler.removeCallbacks(clockTicker);
+        engine.shutdown();
+        super.onDestroy();
+    }
+
     @Override
     public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
         Log.d("Adapter's list on item click", cellAdapter.toString());
+        if (engineMove != null){
+            Toast.makeText(this, "The engine is thinking", Toast.LENGTH_SHORT).show();
+            return;
+        }
 
         playerColor = whitesTurn? "White" : "Black";
         Board.Cell cell = cells[position];
@@ -147,12 +264,329 @@ public class PlayActivity extends AppCompatActivity implements AdapterView.OnIte
     }
 
     public void handleRandomButton(View v){
-        board.makeRandomMove(whitesTurn);
-        changeState();
-        whitesTurn = !whitesTurn;
-        String title = whitesTurn? "White's turn" : "Black's turn";
-        playTitle.setText(title);
-        madeUndo = false;
+        if (engineMove != null){
+            return;
+        }
+        if (strength < 0){
+            displayChooseStrength();
+            return;
+        }
+        if (strength == RANDOM){
+            board.makeRandomMove(whitesTurn);
+            changeState();
+            finishTurn();
+            return;
+        }
+        startEngineMove(strength);
+    }
+
+    /**
+     * Let the engine find a move for the player whose turn it is. The engine searches on its own
+     * thread, so the board stays responsive, and the move is played when it comes back, unless
+     * the search was cancelled by then.
+     * @param strength Index in STRENGTHS, other than RANDOM.
+     */
+    private void startEngineMove(int strength){
+        SearchLimits limits = strength == HARD ? TimeManager.limits(clock, sideToMove()) : STRENGTH_LIMITS[strength];
+        playTitle.setText((whitesTurn? "White" : "Black") + " is thinking...");
+        engineMove = engine.think(board, limits, strength == HARD, new BackgroundSearch.Callback() {
+            @Override
+            public void onResult(SearchResult result) {
+                engineMove = null;
+                Log.d("Engine", result.toString());
+                if (tablebases != null){
+                    Log.d("Engine", String.format("Tablebases: %d probes, %.1f%% cache hits, %.1f us a probe",
+                            tablebases.getProbes(), 100 * tablebases.getCacheHitRate(), tablebases.getAverageProbeMicros()));
+                }
+                if (result.bestMove == Move.NONE){
+                    // No legal move, which finishTurn() ends the game on before asking
+                    return;
+                }
+                board.playMove(result.bestMove, whitesTurn);
+                changeState();
+                finishTurn();
+            }
+        });
+    }
+
+    /**
+     * Open the opening book in the app's files, if there is one: a Polyglot book from another
+     * program, or else the book of the saved games. The book is memory mapped, so this is cheap
+     * even for a large book.
+     * @return The book, or null.
+     */
+    private PolyglotBook openBook(){
+        File bookFile = new File(getFilesDir(), BOOK_FILENAME);
+        externalBook = bookFile.exists() && hasPolyglotKeys();
+        if (!externalBook){
+            bookFile = new File(getFilesDir(), SAVED_GAMES_BOOK_FILENAME);
+        }
+        if (!bookFile.exists()){
+            return null;
+        }
+        try{
+            PolyglotKeys keys = externalBook ? readPolyglotKeys() : PolyglotKeys.ENGINE;
+            PolyglotBook book = PolyglotBook.open(bookFile, keys);
+            Log.d("Engine", "Opening book with " + book.size() + " entries");
+            return book;
+        } catch (IOException e){
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * A Polyglot book is hashed with Polyglot's key table, since with the engine's own keys the
+     * book never finds a position. The table is looked for in the app's files next to the book,
+     * and then in the app's assets, where a build can bundle it.
+     * @return True if the table is there and gives the reference keys of the book format.
+     */
+    private boolean hasPolyglotKeys(){
+        try{
+            PolyglotKeys keys = readPolyglotKeys();
+            if (keys != null && keys.isPolyglot()){
+                return true;
+            }
+        } catch (IOException e){
+            e.printStackTrace();
+        }
+        Log.w("Engine", BOOK_FILENAME + " is not used without Polyglot's key table in " + BOOK_KEYS_FILENAME);
+        return false;
+    }
+
+    /**
+     * @return Keys read from the app's files, or else from its assets, or null if neither has them.
+     */
+    private PolyglotKeys readPolyglotKeys() throws IOException{
+        File keysFile = new File(getFilesDir(), BOOK_KEYS_FILENAME);
+        if (keysFile.exists()){
+            try (InputStream in = new FileInputStream(keysFile)){
+                return PolyglotKeys.read(in);
+            }
+        }
+        try (InputStream in = getAssets().open(BOOK_KEYS_FILENAME)){
+            return PolyglotKeys.read(in);
+        } catch (FileNotFoundException e){
+            return null;
+        }
+    }
+
+    /**
+     * Build the book of the saved games again if they changed since it was last built, unless
+     * there is another book to play from. Runs on its own thread, and hands the new book to the
+     * engine once it's written.
+     */
+    private void updateSavedGamesBook(){
+        final File bookFile = new File(getFilesDir(), SAVED_GAMES_BOOK_FILENAME);
+        File savedGames = GameSaver.getSavedGamesFile(this);
+        if (externalBook || !savedGames.exists()
+                || savedGames.lastModified() <= bookFile.lastModified()){
+            return;
+        }
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try{
+                    long start = System.currentTimeMillis();
+                    int entries = new BookBuilder().build(new GameSaver().getAllGameStates(PlayActivity.this), bookFile);
+                    Log.d("Engine", "Built a book of " + entries + " entries from the saved games in "
+                            + (System.currentTimeMillis() - start) + " ms");
+                    engine.setBook(PolyglotBook.open(bookFile, PolyglotKeys.ENGINE));
+                } catch (IOException e){
+                    e.printStackTrace();
+                }
+            }
+        }, "book-builder").start();
+    }
+
+    /**
+     * Open the endgame bitbases in the app's files, copying them from the app's assets the first
+     * time, or generating them if the assets have none, and then the tablebases made from them.
+     * Runs on its own thread, and hands both to the engine once they're ready.
+     */
+    private void loadBitbases(){
+        final File bitbasesFile = new File(getFilesDir(), BITBASES_FILENAME);
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try{
+                    Bitbases bitbases = null;
+                    if (bitbasesFile.exists() || copyBitbasesAsset(bitbasesFile)){
+                        try{
+                            bitbases = Bitbases.open(bitbasesFile);
+                        } catch (IOException e){
+                            // Left by another version, so generate them again.
+                            Log.d("Engine", "Bitbases need generating again: " + e.getMessage());
+                        }
+                    }
+                    if (bitbases == null){
+                        long start = System.currentTimeMillis();
+                        bitbases = new BitbaseGenerator().generateAll();
+                        Log.d("Engine", "Generated the bitbases in " + (System.currentTimeMillis() - start) + " ms");
+                        engine.setBitbases(bitbases);
+                        // Memory mapped from the next game on.
+                        bitbases.write(bitbasesFile);
+                    }
+                    else{
+                        engine.setBitbases(bitbases);
+                    }
+                    generateTablebases(bitbases);
+                } catch (IOException e){
+                    e.printStackTrace();
+                }
+            }
+        }, "bitbases").start();
+    }
+
+    /**
+     * Copy the bitbases the app ships with into its files, where they can be memory mapped.
+     * @return True if they were copied, false if the assets have none.
+     */
+    private boolean copyBitbasesAsset(File bitbasesFile) throws IOException{
+        try (InputStream in = getAssets().open(BITBASES_FILENAME)){
+            Files.copy(in, bitbasesFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            return true;
+        } catch (FileNotFoundException e){
+            return false;
+        }
+    }
+
+    /**
+     * Write the tablebases of every endgame there is a bitbase of into the app's external files,
+     * unless they are there already or the intent gives another directory, and hand them to the
+     * engine. Called on the thread of loadBitbases().
+     * @param bitbases The bitbases, which the tablebases are made from.
+     * @throws IOException If a file can't be written.
+     */
+    private void generateTablebases(Bitbases bitbases) throws IOException{
+        final File directory = tablebaseDirectory();
+        if (getIntent().getStringExtra(EXTRA_TABLEBASE_DIRECTORY) != null || hasAllTablebases(directory)){
+            return;
+        }
+        directory.mkdirs();
+        long start = System.currentTimeMillis();
+        new TablebaseGenerator().writeAll(bitbases, directory);
+        Log.d("Engine", "Generated the tablebases in " + (System.currentTimeMillis() - start) + " ms");
+        runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                tablebases = openTablebases();
+                engine.setTablebases(tablebases);
+            }
+        });
+    }
+
+    private static boolean hasAllTablebases(File directory){
+        for (int material = 0; material < Bitbase.COUNT; material++){
+            if (!new File(directory, Tablebases.fileName(material, Tablebases.WDL)).exists()
+                    || !new File(directory, Tablebases.fileName(material, Tablebases.DTZ)).exists()){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Find the tablebases in the directory given by the intent, or else in the app's external
+     * files. Only checks which files there are, so it's cheap.
+     * @return The tablebases, or null if the directory has none.
+     */
+    private Tablebases openTablebases(){
+        File directory = tablebaseDirectory();
+        Tablebases tablebases = new Tablebases(directory, Tablebases.DEFAULT_CACHE_BLOCKS);
+        if (tablebases.getMaxPieces() == 0){
+            return null;
+        }
+        Log.d("Engine", "Tablebases of up to " + tablebases.getMaxPieces() + " pieces in " + directory);
+        return tablebases;
+    }
+
+    /**
+     * @return The directory given by the intent, or else the tablebase directory of the app's
+     * external files, or of its own files when there is no external storage.
+     */
+    private File tablebaseDirectory(){
+        String path = getIntent().getStringExtra(EXTRA_TABLEBASE_DIRECTORY);
+        File directory = path != null ? new File(path) : getExternalFilesDir(TABLEBASE_DIRECTORY);
+        if (directory == null){
+            directory = new File(getFilesDir(), TABLEBASE_DIRECTORY);
+        }
+        return directory;
+    }
+
+    /**
+     * End the game if the tablebases know its result.
+     * @return True if the game was adjudicated.
+     */
+    private boolean adjudicate(){
+        if (tablebases == null){
+            return false;
+        }
+        int result = tablebases.probeWdl(board.getBitboards());
+        if (result == Bitbases.UNKNOWN){
+            return false;
+        }
+        stopClock();
+        playTitle.setText("Tablebase");
+        if (result == Bitbases.DRAW){
+            board.addNoMoveState("Tablebase draw. No one wins.");
+            displayWinner("No one");
+        }
+        else{
+            boolean whiteWins = whitesTurn == (result == Bitbases.WIN);
+            String winner = whiteWins ? "White" : "Black";
+            board.addNoMoveState("Tablebase win. " + winner + " wins!");
+            displayWinner(winner);
+        }
+        displayConfirmSave();
+        return true;
+    }
+
+    /**
+     * Cancel the engine's search, if there is one, and drop its move.
+     */
+    private void cancelEngineMove(){
+        engine.cancel();
+        engineMove = null;
+    }
+
+    /**
+     * Display a dialog for the user to choose to play against another player or the engine, and
+     * then start the game.
+     */
+    protected void displayChooseOpponent(){
+        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+        builder.setTitle("Play against");
+        builder.setCancelable(false);
+        builder.setItems(OPPONENTS, new DialogInterface.OnClickListener(){
+            @Override
+            public void onClick(DialogInterface dialog, int which) {
+                engineColor = which == 1 ? BitboardPosition.BLACK : which == 2 ? BitboardPosition.WHITE : NO_ENGINE;
+                dialog.dismiss();
+                clock.start(BitboardPosition.WHITE);
+                updateClock();
+                if (engineColor == BitboardPosition.WHITE){
+                    startEngineMove(HARD);
+                }
+            }
+        }).create().show();
+    }
+
+    /**
+     * Display a dialog for the user to choose how strong the "choose for me" button plays, and
+     * then make a move with it.
+     */
+    protected void displayChooseStrength(){
+        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+        builder.setTitle("Choose for me");
+        builder.setItems(STRENGTHS, new DialogInterface.OnClickListener(){
+            @Override
+            public void onClick(DialogInterface dialog, int which) {
+                strength = which;
+                dialog.dismiss();
+                handleRandomButton(null);
+            }
+        }).create().show();
     }
 
     /**
@@ -183,11 +617,26 @@ public class PlayActivity extends AppCompatActivity implements AdapterView.OnIte
                             Toast.makeText(PlayActivity.this,"You can't undo this move", Toast.LENGTH_LONG).show();
                             return;
                         }
-                        // Update the board, and change the turn back to the other player's
+                        // A search of the position before the undo is of no use anymore
+                        cancelEngineMove();
+                        // Update the board, and give the turn to whoever moves now, which is
+                        // the same player after undoing a resign or a draw
                         changeState();
-                        whitesTurn = !whitesTurn;
+                        whitesTurn = board.getBitboards().getSideToMove() == BitboardPosition.WHITE;
+                        // Against the engine, take its reply back too, so that it's the
+                        // player's turn again.
+                        if (sideToMove() == engineColor && board.undoPrevMove()){
+                            changeState();
+                            whitesTurn = board.getBitboards().getSideToMove() == BitboardPosition.WHITE;
+                        }
                         madeUndo = true;
-                        playTitle.setText(playerColor + "'s turn");
+                        // The clock goes back to the player who moves again, without the increment
+                        // they got for the undone move being taken back.
+                        clock.start(sideToMove());
+                        playTitle.setText((whitesTurn? "White" : "Black") + "'s turn");
+                        if (sideToMove() == engineColor){
+                            startEngineMove(HARD);
+                        }
                     }
                 });
         alertDialog.show();
@@ -213,8 +662,11 @@ public class PlayActivity extends AppCompatActivity implements AdapterView.OnIte
                 new DialogInterface.OnClickListener() {
                     @Override
                     public void onClick(DialogInterface dialog, int which) {
-                        String winner = whitesTurn? "Black" : "White";
-                        String resignee = whitesTurn? "White" : "Black";
+                        // Against the engine, it's always the player who resigns
+                        boolean whiteResigns = engineColor == NO_ENGINE ? whitesTurn : engineColor == BitboardPosition.BLACK;
+                        String winner = whiteResigns? "Black" : "White";
+                        String resignee = whiteResigns? "White" : "Black";
+                        stopClock();
                         board.addNoMoveState(resignee + " resigns. " + winner + " wins!");
                         displayWinner(winner);
                         displayConfirmSave();
@@ -253,6 +705,7 @@ public class PlayActivity extends AppCompatActivity implements AdapterView.OnIte
         drawPromptDialog.setButton(AlertDialog.BUTTON_POSITIVE, "Accept",
                 new DialogInterface.OnClickListener() {
                     public void onClick(DialogInterface dialog, int which) {
+                        stopClock();
                         displayWinner("No one");
                         board.addNoMoveState("Draw. No one wins.");
                         displayConfirmSave();
@@ -382,7 +835,18 @@ public class PlayActivity extends AppCompatActivity implements AdapterView.OnIte
         cellAdapter.notifyDataSetChanged();
         gridView.setAdapter(cellAdapter);
 
+        // Keep pondering only if this was the move the engine expected
+        engine.opponentMoved(board);
+        finishTurn();
+    }
+
+    /**
+     * Hand the turn to the other player once a move is on the board. Checks for check, checkmate
+     * and stalemate, and lets the engine move if it's its turn.
+     */
+    private void finishTurn(){
         //Switch turn
+        clock.press();
         whitesTurn = !whitesTurn;
         madeUndo = false;
 
@@ -393,22 +857,79 @@ public class PlayActivity extends AppCompatActivity implements AdapterView.OnIte
                 Toast.makeText(this, "Check", Toast.LENGTH_LONG).show();
             }
             else if (status == Board.BoardStatus.BLACKINCHECKMATE){
+                stopClock();
                 playTitle.setText("Checkmate!");
                 displayWinner("White");
                 displayConfirmSave();
                 return;
             }
             else if (status == Board.BoardStatus.WHITEINCHECKMATE){
+                stopClock();
                 playTitle.setText("Checkmate!");
                 displayWinner("Black");
                 displayConfirmSave();
                 return;
             }
+            else if (status == Board.BoardStatus.STALEMATE){
+                // A draw, before the clock can flag the player who can't move
+                stopClock();
+                playTitle.setText("Stalemate!");
+                displayWinner("No one");
+                board.addNoMoveState("Stalemate. No one wins.");
+                displayConfirmSave();
+                return;
+            }
+        }
+        // Endgames the tablebases know are decided on the spot
+        if (adjudicate()){
+            return;
         }
         String title = whitesTurn? "White's turn" : "Black's turn";
         playTitle.setText(title);
 
+        if (sideToMove() == engineColor){
+            startEngineMove(HARD);
+        }
+    }
+
+    /**
+     * @return Color of the player to move, as the engine counts colors.
+     */
+    private int sideToMove(){
+        return whitesTurn ? BitboardPosition.WHITE : BitboardPosition.BLACK;
+    }
+
+    /**
+     * Show the time both players have left, and end the game if the player to move ran out of
+     * time. Runs again every CLOCK_TICK_MILLIS while the clock is running.
+     */
+    private void updateClock(){
+        clockText.setText("White " + ChessClock.format(clock.remainingMillis(BitboardPosition.WHITE))
+                + " - Black " + ChessClock.format(clock.remainingMillis(BitboardPosition.BLACK)));
+        if (clock.getRunning() == ChessClock.NOT_RUNNING){
+            return;
+        }
+        if (clock.isFlagged(sideToMove())){
+            String winner = whitesTurn? "Black" : "White";
+            String loser = whitesTurn? "White" : "Black";
+            stopClock();
+            playTitle.setText("Time!");
+            board.addNoMoveState(loser + " ran out of time. " + winner + " wins!");
+            displayWinner(winner);
+            displayConfirmSave();
+            return;
+        }
+        clockHandler.postDelayed(clockTicker, CLOCK_TICK_MILLIS);
+    }
 
+    /**
+     * Stop the clock when the game is over.
+     */
+    private void stopClock(){
+        cancelEngineMove();
+        clock.stop();
+        clockHandler.removeCallbacks(clockTicker);
+        updateClock();
     }
 
     /**
@@ -0,0 +1,140 @@
+package com.example.android.engine;
+
+/**
+ * Attack maps for both colors that are kept up to date incrementally as pieces are put on,
+ * removed from, or moved around a BitboardPosition. For every square the map knows how many
+ * pieces of each color attack it, so checking whether a cell is threatened is a single read.
+ *
+ * When the occupancy of some squares changes, only the pieces on those squares and the sliding
+ * pieces whose rays touch them (and so may be opened or closed) have their attacks recomputed.
+ * @author Krysti Leong, April Dizon
+ */
+public class AttackMap {
+
+    private final long[] pieceAttacks = new long[64];
+    private final int[][] attackerCounts = new int[2][64];
+    private final long[] attacked = new long[2];
+    private long pending;
+
+    /**
+     * Rebuild the attack maps from scratch.
+     * @param position Position the maps describe.
+     */
+    public void reset(BitboardPosition position){
+        for (int square = 0; square < 64; square++){
+            pieceAttacks[square] = 0L;
+            attackerCounts[BitboardPosition.WHITE][square] = 0;
+            attackerCounts[BitboardPosition.BLACK][square] = 0;
+        }
+        attacked[BitboardPosition.WHITE] = 0L;
+        attacked[BitboardPosition.BLACK] = 0L;
+        pending = 0L;
+
+        long pieces = position.occupied();
+        while (pieces != 0){
+            int square = Long.numberOfTrailingZeros(pieces);
+            addAttacker(square, BitboardPosition.colorOf(position.pieceAt(square)), position.attacksFrom(square));
+            pieces &= pieces - 1;
+        }
+    }
+
+    //region QUERIES
+
+    /**
+     * @param color Color of the attacking side.
+     * @param square Square in question.
+     * @return True if at least one piece of the given color attacks the square.
+     */
+    public boolean isAttacked(int color, int square){
+        return ((attacked[color] >>> square) & 1L) != 0;
+    }
+
+    /**
+     * @param color Color of the attacking side.
+     * @param square Square in question.
+     * @return Number of pieces of the given color that attack the square.
+     */
+    public int attackerCount(int color, int square){
+        return attackerCounts[color][square];
+    }
+
+    /**
+     * @param color Color of the attacking side.
+     * @return Bitboard of every square attacked by the given color.
+     */
+    public long attackedSquares(int color){
+        return attacked[color];
+    }
+
+    //endregion
+
+    //region INCREMENTAL UPDATES
+
+    /**
+     * Called by the position right before the occupancy of the given squares changes. Takes away
+     * the attacks of every piece that may be affected by the change.
+     * @param position Position, still in its state before the change.
+     * @param changed Bitboard of the squares whose occupancy is about to change.
+     */
+    void beforeChange(BitboardPosition position, long changed){
+        long affected = changed & position.occupied();
+        long sliders = position.sliders() & ~affected;
+        while (sliders != 0){
+            int square = Long.numberOfTrailingZeros(sliders);
+            if ((pieceAttacks[square] & changed) != 0){
+                affected |= 1L << square;
+            }
+            sliders &= sliders - 1;
+        }
+
+        while (affected != 0){
+            int square = Long.numberOfTrailingZeros(affected);
+            removeAttacker(square, BitboardPosition.colorOf(position.pieceAt(square)));
+            pending |= 1L << square;
+            affected &= affected - 1;
+        }
+        pending |= changed;
+    }
+
+    /**
+     * Called by the position right after a change announced by beforeChange(). Adds back the
+     * attacks of every affected piece that is (still) on the board.
+     * @param position Position, in its state after the change.
+     */
+    void afterChange(BitboardPosition position){
+        long squares = pending & position.occupied();
+        while (squares != 0){
+            int square = Long.numberOfTrailingZeros(squares);
+            addAttacker(square, BitboardPosition.colorOf(position.pieceAt(square)), position.attacksFrom(square));
+            squares &= squares - 1;
+        }
+        pending = 0L;
+    }
+
+    private void addAttacker(int square, int color, long attacks){
+        pieceAttacks[square] = attacks;
+        int[] counts = attackerCounts[color];
+        while (attacks != 0){
+            int target = Long.numberOfTrailingZeros(attacks);
+            if (counts[target]++ == 0){
+                attacked[color] |= 1L << target;
+            }
+            attacks &= attacks - 1;
+        }
+    }
+
+    private void removeAttacker(int square, int color){
+        long attacks = pieceAttacks[square];
+        pieceAttacks[square] = 0L;
+        int[] counts = attackerCounts[color];
+        while (attacks != 0){
+            int target = Long.numberOfTrailingZeros(attacks);
+            if (--counts[target] == 0){
+                attacked[color] &= ~(1L << target);
+            }
+            attacks &= attacks - 1;
+        }
+    }
+
+    //endregion
+}
@@ -0,0 +1,204 @@
+package com.example.android.engine;
+
+import com.example.android.Board;
+
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the engine's searches on a background thread, so that the caller (the UI thread) never
+ * waits for one. Results are handed back through an Executor of the caller's choosing, such as
+ * one that posts to the UI thread.
+ *
+ * Every search belongs to a generation. think() and cancel() start a new one, and a result is
+ * only delivered if its generation is still the current one when the callback runs. A search
+ * made stale by an undo or a resign is dropped that way, even if it had already finished.
+ * @author Krysti Leong, April Dizon
+ */
+public class BackgroundSearch {
+
+    /**
+     * Receives the result of a search that wasn't cancelled.
+     */
+    public interface Callback {
+        void onResult(SearchResult result);
+    }
+
+    private final TranspositionTable table;
+    private final Search search;
+    private final Ponderer ponderer;
+    private final ExecutorService executor;
+    private final Executor callbackExecutor;
+    private final AtomicInteger generation = new AtomicInteger();
+    private final Random random = new Random();
+    private volatile PolyglotBook book;
+    private Future<?> future;
+
+    /**
+     * Constructor for the BackgroundSearch.
+     * @param table Transposition table, shared by the search and its pondering.
+     * @param callbackExecutor Runs the callbacks, on the thread the caller wants them on.
+     */
+    public BackgroundSearch(TranspositionTable table, Executor callbackExecutor){
+        this.table = table;
+        this.search = new Search(table);
+        this.ponderer = new Ponderer(table);
+        this.callbackExecutor = callbackExecutor;
+        this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable){
+                Thread thread = new Thread(runnable, "engine");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Start searching the position on the board for the player to move, cancelling any search
+     * still running. A position in the opening book gets a book move right away, and if the
+     * position is the one being pondered, the ponder search goes on instead.
+     * @param board Board of the game. The search works on a snapshot taken now, so the board can
+     *              be changed right away.
+     * @param limits Limits on the search.
+     * @param ponder True to ponder on the expected reply after the move is found.
+     * @param callback Gets the result through the callback executor, unless the search is
+     *                 cancelled first.
+     * @return Future of the search, which is done once the search is over. Cancel the search with
+     * cancel() rather than through the Future, so that its result is dropped too.
+     */
+    public synchronized Future<?> think(Board board, final SearchLimits limits, final boolean ponder, final Callback callback){
+        // A new search leaves the pondering alone, it may be what this search needs.
+        cancelSearch();
+        final int id = generation.get();
+        final BitboardPosition snapshot = new BitboardPosition(board.getBitboards());
+        future = executor.submit(new Runnable() {
+            @Override
+            public void run(){
+                if (generation.get() != id){
+                    return;
+                }
+                SearchResult result = null;
+                PolyglotBook openingBook = book;
+                int bookMove = openingBook != null ? openingBook.pickMove(snapshot, random) : Move.NONE;
+                if (bookMove != Move.NONE){
+                    ponderer.stop();
+                    result = new SearchResult(bookMove, 0, 0, 0, 0, new int[]{bookMove});
+                }
+                else if (ponderer.isPondering(snapshot)){
+                    result = ponderer.ponderhit(limits);
+                }
+                if (result == null){
+                    ponderer.stop();
+                    // A cancel() that came before the stop was cleared would be lost, so look
+                    // at the generation again after clearing it.
+                    search.clearStop();
+                    if (generation.get() != id){
+                        return;
+                    }
+                    table.newSearch();
+                    result = search.iterate(snapshot, limits, 1);
+                }
+                if (generation.get() != id){
+                    return;
+                }
+                if (ponder && result.bestMove != Move.NONE){
+                    BitboardPosition after = new BitboardPosition(snapshot);
+                    after.makeMove(result.bestMove);
+                    ponderer.start(after, result.pv.length > 1 ? result.pv[1] : Move.NONE);
+                }
+                deliver(id, result, callback);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Choose the opening book to play from, if any.
+     * @param book The book, or null to always search.
+     */
+    public void setBook(PolyglotBook book){
+        this.book = book;
+    }
+
+    /**
+     * Choose the endgame bitbases to probe, for the search and its pondering. Safe to call while
+     * the engine is thinking.
+     * @param bitbases The bitbases, or null to search every endgame.
+     */
+    public void setBitbases(Bitbases bitbases){
+        search.setBitbases(bitbases);
+        ponderer.setBitbases(bitbases);
+    }
+
+    /**
+     * Choose the endgame tablebases to probe, for the search and its pondering. Safe to call
+     * while the engine is thinking.
+     * @param tablebases The tablebases, or null to search every endgame.
+     */
+    public void setTablebases(Tablebases tablebases){
+        search.setTablebases(tablebases);
+        ponderer.setTablebases(tablebases);
+    }
+
+    private void deliver(final int id, final SearchResult result, final Callback callback){
+        callbackExecutor.execute(new Runnable() {
+            @Override
+            public void run(){
+                if (generation.get() == id){
+                    callback.onResult(result);
+                }
+            }
+        });
+    }
+
+    /**
+     * The other player moved. Pondering goes on if they made the expected move, and is
+     * cancelled otherwise. Never blocks.
+     * @param board Board after the move.
+     */
+    public void opponentMoved(Board board){
+        ponderer.cancelUnless(board.getBitboards());
+    }
+
+    /**
+     * Cancel the running search and pondering, and drop any result not delivered yet. Never
+     * blocks, the search stops on its own thread within a few milliseconds.
+     */
+    public void cancel(){
+        cancelSearch();
+        ponderer.cancel();
+    }
+
+    private void cancelSearch(){
+        generation.incrementAndGet();
+        search.stop();
+        Future<?> running;
+        synchronized (this){
+            running = future;
+        }
+        if (running != null){
+            running.cancel(false);
+        }
+    }
+
+    /**
+     * Stop searching and the background threads. The BackgroundSearch can't be used afterwards.
+     */
+    public void shutdown(){
+        cancel();
+        // After the search that may still be using the ponderer.
+        executor.execute(new Runnable() {
+            @Override
+            public void run(){
+                ponderer.shutdown();
+            }
+        });
+        executor.shutdown();
+    }
+}
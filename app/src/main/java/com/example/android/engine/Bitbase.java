@@ -0,0 +1,155 @@
+package com.example.android.engine;
+
+import java.nio.LongBuffer;
+
+/**
+ * A bitbase of one endgame of a king and one or two pieces against a lone king: one bit for every
+ * position, set when the side with the pieces (the strong side) wins. The strong side is always
+ * white in the index, so positions where black has the pieces are flipped first.
+ *
+ * The index is perfect: every position has exactly one index, computed from its squares alone,
+ * so that a probe is one bit test. Since there is no castling, a pawnless position is mirrored
+ * until the strong king is in the a1-d1-d4 triangle, which leaves 10 squares for that king. A
+ * position with a pawn is only mirrored left to right, until the pawn is on files a to d, which
+ * with its 6 ranks leaves 24 squares for the pawn.
+ * @author Krysti Leong, April Dizon
+ */
+public final class Bitbase {
+
+    public static final int KPK = 0;
+    public static final int KRK = 1;
+    public static final int KQK = 2;
+    public static final int KBNK = 3;
+    public static final int COUNT = 4;
+    static final String[] NAMES = {"KPK", "KRK", "KQK", "KBNK"};
+
+    // Squares of the a1-d1-d4 triangle, and the index of every square in it (or -1).
+    static final int[] TRIANGLE_SQUARES = {0, 1, 2, 3, 9, 10, 11, 18, 19, 27};
+    private static final int[] TRIANGLE = new int[64];
+    private static final int PAWN_SQUARES = 24;
+
+    static {
+        for (int square = 0; square < 64; square++){
+            TRIANGLE[square] = -1;
+        }
+        for (int i = 0; i < TRIANGLE_SQUARES.length; i++){
+            TRIANGLE[TRIANGLE_SQUARES[i]] = i;
+        }
+    }
+
+    private final int material;
+    private final LongBuffer bits;
+
+    /**
+     * Constructor for the Bitbase.
+     * @param material One of KPK, KRK, KQK or KBNK.
+     * @param bits The win bits, size(material) of them, 64 to a long starting from the lowest bit.
+     */
+    Bitbase(int material, LongBuffer bits){
+        this.material = material;
+        this.bits = bits;
+    }
+
+    public int getMaterial(){
+        return material;
+    }
+
+    LongBuffer bits(){
+        return bits.duplicate();
+    }
+
+    /**
+     * @param material One of KPK, KRK, KQK or KBNK.
+     * @return Number of indexes of the endgame, including those of impossible positions.
+     */
+    public static int size(int material){
+        switch (material){
+            case KPK: return 2 * PAWN_SQUARES * 64 * 64;
+            case KBNK: return 2 * TRIANGLE_SQUARES.length * 64 * 64 * 64;
+            default: return 2 * TRIANGLE_SQUARES.length * 64 * 64;
+        }
+    }
+
+    /**
+     * Look up a position, with the strong side as white.
+     * @param strongToMove Whether the strong side is to move.
+     * @param strongKing Square of the strong king.
+     * @param weakKing Square of the weak king.
+     * @param first Square of the pawn, rook or queen, or of the bishop in KBNK.
+     * @param second Square of the knight in KBNK, ignored otherwise.
+     * @return Whether the strong side wins.
+     */
+    public boolean strongWins(boolean strongToMove, int strongKing, int weakKing, int first, int second){
+        return get(index(material, strongToMove, strongKing, weakKing, first, second));
+    }
+
+    /**
+     * @return Whether the strong side wins the position of an index.
+     */
+    boolean get(int index){
+        return (bits.get(index >>> 6) & (1L << index)) != 0;
+    }
+
+    /**
+     * @return The index of a position, with the strong side as white. See strongWins().
+     */
+    static int index(int material, boolean strongToMove, int strongKing, int weakKing, int first, int second){
+        int side = strongToMove ? 0 : 1;
+        if (material == KPK){
+            if (Bitboards.file(first) > 3){
+                strongKing ^= 7;
+                weakKing ^= 7;
+                first ^= 7;
+            }
+            int pawn = (Bitboards.row(first) - 1) * 4 + Bitboards.file(first);
+            return ((side * PAWN_SQUARES + pawn) * 64 + strongKing) * 64 + weakKing;
+        }
+
+        // Mirror left to right, top to bottom and along the a1-h8 diagonal, in that order.
+        int flip = (Bitboards.file(strongKing) > 3 ? 7 : 0) | (Bitboards.row(strongKing) > 3 ? 56 : 0);
+        strongKing ^= flip;
+        weakKing ^= flip;
+        first ^= flip;
+        second ^= flip;
+        if (Bitboards.row(strongKing) > Bitboards.file(strongKing)){
+            strongKing = transpose(strongKing);
+            weakKing = transpose(weakKing);
+            first = transpose(first);
+            second = transpose(second);
+        }
+        int index = ((side * TRIANGLE_SQUARES.length + TRIANGLE[strongKing]) * 64 + weakKing) * 64 + first;
+        return material == KBNK ? index * 64 + (second & 63) : index;
+    }
+
+    /**
+     * Find the position of an index, the inverse of index() for the positions it returns.
+     * @param squares Receives whether the strong side is to move (1 or 0), the strong king, the
+     *                weak king, and the first and second piece (or -1).
+     */
+    static void decode(int material, int index, int[] squares){
+        int second = -1;
+        if (material == KBNK){
+            second = index & 63;
+            index >>>= 6;
+        }
+        if (material == KPK){
+            squares[2] = index & 63;
+            squares[1] = (index >>> 6) & 63;
+            int pawn = (index >>> 12) % PAWN_SQUARES;
+            squares[3] = (pawn / 4 + 1) * 8 + pawn % 4;
+            squares[0] = index / (PAWN_SQUARES * 64 * 64) == 0 ? 1 : 0;
+        }
+        else{
+            squares[3] = index & 63;
+            squares[2] = (index >>> 6) & 63;
+            int king = index >>> 12;
+            squares[1] = TRIANGLE_SQUARES[king % TRIANGLE_SQUARES.length];
+            squares[0] = king / TRIANGLE_SQUARES.length == 0 ? 1 : 0;
+        }
+        squares[4] = second;
+    }
+
+    private static int transpose(int square){
+        return ((square & 7) << 3) | (square >>> 3);
+    }
+}
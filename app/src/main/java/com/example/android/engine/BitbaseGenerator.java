@@ -0,0 +1,259 @@
+package com.example.android.engine;
+
+import java.nio.LongBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Generates the bitbases by retrograde analysis. The first pass finds the positions whose result
+ * is known at once: mates are wins, and stalemates, impossible positions, and positions where
+ * the lone king takes a piece are settled as not wins. Every later pass goes over the positions
+ * that are still open, and marks as wins those where the strong side has a move to a win, and
+ * those where all the moves of the lone king lead to one. When a pass finds nothing new, the
+ * positions that are left are draws.
+ *
+ * A pass splits the index range among the threads of a ForkJoinPool, in runs of whole longs, so
+ * that each long of the win bits is only ever written by one thread. Wins found by one thread
+ * are seen by the others in the same pass or the next one, which only makes the passes fewer.
+ *
+ * KPK needs KQK and KRK for its promotions, so the bitbases are generated in that order.
+ * @author Krysti Leong, April Dizon
+ */
+public class BitbaseGenerator {
+
+    // Longs of win bits one task goes over itself instead of splitting them further.
+    private static final int WORDS_PER_TASK = 64;
+    private static final int[] ORDER = {Bitbase.KQK, Bitbase.KRK, Bitbase.KPK, Bitbase.KBNK};
+
+    private final ForkJoinPool pool;
+    private int passes;
+
+    /**
+     * Constructor for the BitbaseGenerator.
+     * @param pool Pool the passes run on.
+     */
+    public BitbaseGenerator(ForkJoinPool pool){
+        this.pool = pool;
+    }
+
+    /**
+     * Constructor for a BitbaseGenerator on the common pool.
+     */
+    public BitbaseGenerator(){
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Generate all the bitbases.
+     * @return The bitbases, in memory.
+     */
+    public Bitbases generateAll(){
+        Bitbase[] done = new Bitbase[Bitbase.COUNT];
+        for (int material : ORDER){
+            done[material] = generate(material, done);
+        }
+        return new Bitbases(done);
+    }
+
+    /**
+     * Generate one bitbase.
+     * @param material One of the materials of Bitbase.
+     * @param done Bitbases generated before, by material, which for KPK must hold KQK and KRK.
+     * @return The bitbase.
+     */
+    public Bitbase generate(int material, Bitbase[] done){
+        if (material == Bitbase.KPK && (done[Bitbase.KQK] == null || done[Bitbase.KRK] == null)){
+            throw new IllegalArgumentException("KPK needs KQK and KRK");
+        }
+        int size = Bitbase.size(material);
+        int words = Bitbases.words(size);
+        long[] settled = new long[words];
+        AtomicLongArray wins = new AtomicLongArray(words);
+        Endgame endgame = new Endgame(material, done, settled, wins);
+
+        pool.invoke(new PassTask(endgame, 0, words, true));
+        passes = 1;
+        while (pool.invoke(new PassTask(endgame, 0, words, false))){
+            passes++;
+        }
+
+        long[] bits = new long[words];
+        for (int i = 0; i < words; i++){
+            bits[i] = wins.get(i);
+        }
+        return new Bitbase(material, LongBuffer.wrap(bits));
+    }
+
+    /**
+     * @return Number of passes the last call to generate() took.
+     */
+    public int getPasses(){
+        return passes;
+    }
+
+    /**
+     * One pass over a range of the win bits, split in halves as long as it's big.
+     */
+    private static class PassTask extends RecursiveTask<Boolean> {
+
+        private final Endgame endgame;
+        private final int start;
+        private final int end;
+        private final boolean first;
+
+        PassTask(Endgame endgame, int start, int end, boolean first){
+            this.endgame = endgame;
+            this.start = start;
+            this.end = end;
+            this.first = first;
+        }
+
+        @Override
+        protected Boolean compute(){
+            if (end - start <= WORDS_PER_TASK){
+                return first ? endgame.settle(start, end) : endgame.pass(start, end);
+            }
+            int middle = (start + end) >>> 1;
+            PassTask low = new PassTask(endgame, start, middle, first);
+            low.fork();
+            boolean high = new PassTask(endgame, middle, end, first).compute();
+            return low.join() | high;
+        }
+    }
+
+    /**
+     * One endgame being generated: its rules, and the results found so far.
+     */
+    private static final class Endgame {
+
+        // Results of a position in the first pass.
+        private static final int OPEN = 0;
+        private static final int WON = 1;
+        private static final int NOT_WON = 2;
+
+        private final int material;
+        private final int size;
+        private final EndgameMoves moves;
+        private final Bitbase[] done;
+        // Positions that can't be wins, written by the first pass and only read afterwards.
+        private final long[] settled;
+        private final AtomicLongArray wins;
+
+        Endgame(int material, Bitbase[] done, long[] settled, AtomicLongArray wins){
+            this.material = material;
+            this.size = Bitbase.size(material);
+            this.moves = new EndgameMoves(material);
+            this.done = done;
+            this.settled = settled;
+            this.wins = wins;
+        }
+
+        /**
+         * The first pass: settle the impossible positions, and those decided on the spot.
+         */
+        boolean settle(int startWord, int endWord){
+            Scratch scratch = new Scratch();
+            for (int word = startWord; word < endWord; word++){
+                long won = 0;
+                long notWon = 0;
+                for (int bit = 0; bit < 64; bit++){
+                    int index = (word << 6) + bit;
+                    if (index >= size){
+                        notWon |= -1L << bit;
+                        break;
+                    }
+                    Bitbase.decode(material, index, scratch.squares);
+                    int result = !moves.isLegal(scratch.squares) ? NOT_WON
+                            : scratch.squares[0] == 1 ? OPEN : classifyWeak(scratch);
+                    if (result == WON){
+                        won |= 1L << bit;
+                    }
+                    else if (result == NOT_WON){
+                        notWon |= 1L << bit;
+                    }
+                }
+                settled[word] = notWon;
+                wins.set(word, won);
+            }
+            return true;
+        }
+
+        /**
+         * A later pass: look for new wins among the open positions.
+         * @return Whether any were found.
+         */
+        boolean pass(int startWord, int endWord){
+            Scratch scratch = new Scratch();
+            boolean found = false;
+            for (int word = startWord; word < endWord; word++){
+                long known = wins.get(word);
+                long open = ~(settled[word] | known);
+                long won = 0;
+                while (open != 0){
+                    int bit = Long.numberOfTrailingZeros(open);
+                    open &= open - 1;
+                    Bitbase.decode(material, (word << 6) + bit, scratch.squares);
+                    if (scratch.squares[0] == 1 ? strongWins(scratch) : classifyWeak(scratch) == WON){
+                        won |= 1L << bit;
+                    }
+                }
+                if (won != 0){
+                    wins.set(word, known | won);
+                    found = true;
+                }
+            }
+            return found;
+        }
+
+        /**
+         * Whether the strong side, to move, has a move to a position that is won.
+         */
+        private boolean strongWins(Scratch scratch){
+            int count = moves.strongMoves(scratch.squares, scratch.children, scratch.tables, scratch.zeroing);
+            for (int i = 0; i < count; i++){
+                int index = scratch.children[i];
+                boolean won = scratch.tables[i] == material ? isWon(index) : done[scratch.tables[i]].get(index);
+                if (won){
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Classify a position with the lone king to move.
+         * @return WON if it's mate or every move leads to a win, NOT_WON if it's stalemate or the
+         * king can take a piece, OPEN otherwise.
+         */
+        private int classifyWeak(Scratch scratch){
+            int count = moves.weakMoves(scratch.squares, scratch.children);
+            if (count == EndgameMoves.CAPTURE){
+                return NOT_WON;
+            }
+            if (count == 0){
+                return moves.weakInCheck(scratch.squares) ? WON : NOT_WON;
+            }
+            for (int i = 0; i < count; i++){
+                if (!isWon(scratch.children[i])){
+                    return OPEN;
+                }
+            }
+            return WON;
+        }
+
+        private boolean isWon(int index){
+            return (wins.get(index >>> 6) & (1L << index)) != 0;
+        }
+    }
+
+    /**
+     * Buffers of one task.
+     */
+    private static final class Scratch {
+        final int[] squares = new int[5];
+        final int[] children = new int[EndgameMoves.MAX_MOVES];
+        final int[] tables = new int[EndgameMoves.MAX_MOVES];
+        final boolean[] zeroing = new boolean[EndgameMoves.MAX_MOVES];
+    }
+}
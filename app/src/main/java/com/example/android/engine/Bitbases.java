@@ -0,0 +1,240 @@
+package com.example.android.engine;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * The endgame bitbases the engine knows, and the file they are kept in. A probe finds the
+ * bitbase of a position from its material and tests one bit, so it costs about as much as an
+ * evaluation, and the search can use it at every node.
+ *
+ * The file is little endian: the int MAGIC, the int VERSION and the number of bitbases, then for
+ * each one its material, its size in bits, and the bits as longs. It is memory mapped, so that
+ * the bitbases cost no heap.
+ * @author Krysti Leong, April Dizon
+ */
+public final class Bitbases {
+
+    /** "BITB" in ASCII, read as a little endian int. */
+    public static final int MAGIC = 0x42544942;
+    public static final int VERSION = 1;
+
+    // Results of probe(), for the side to move.
+    public static final int LOSS = -1;
+    public static final int DRAW = 0;
+    public static final int WIN = 1;
+    public static final int UNKNOWN = 2;
+
+    private final Bitbase[] bitbases = new Bitbase[Bitbase.COUNT];
+
+    /**
+     * Constructor for Bitbases.
+     * @param bitbases The bitbases, of different materials.
+     */
+    public Bitbases(Bitbase... bitbases){
+        for (Bitbase bitbase : bitbases){
+            this.bitbases[bitbase.getMaterial()] = bitbase;
+        }
+    }
+
+    /**
+     * @param material One of the materials of Bitbase.
+     * @return The bitbase of that material, or null.
+     */
+    public Bitbase get(int material){
+        return bitbases[material];
+    }
+
+    /**
+     * Look up a position in the bitbases. Safe to call from any thread.
+     * @param position Position to look up, which is not changed.
+     * @return WIN, DRAW or LOSS for the side to move, or UNKNOWN if there's no bitbase for it.
+     */
+    public int probe(BitboardPosition position){
+        return probe(position, new int[5]);
+    }
+
+    /**
+     * Look up a position in the bitbases without allocating, for the search.
+     * @param position Position to look up, which is not changed.
+     * @param squares Scratch space of 5 ints, which only the calling thread uses.
+     * @return WIN, DRAW or LOSS for the side to move, or UNKNOWN if there's no bitbase for it.
+     */
+    public int probe(BitboardPosition position, int[] squares){
+        int material = material(position, squares);
+        Bitbase bitbase = material < 0 ? null : bitbases[material];
+        if (bitbase == null){
+            return UNKNOWN;
+        }
+        boolean strongToMove = squares[0] == 1;
+        boolean wins = bitbase.strongWins(strongToMove, squares[1], squares[2], squares[3], squares[4]);
+        return !wins ? DRAW : strongToMove ? WIN : LOSS;
+    }
+
+    /**
+     * Find the endgame of a position, and its squares with the strong side as white.
+     * @param position Position to look at, which is not changed.
+     * @param squares Receives the squares the way Bitbase.decode() does.
+     * @return One of the materials of Bitbase, or -1 if the position isn't one of them.
+     */
+    static int material(BitboardPosition position, int[] squares){
+        long occupied = position.occupied();
+        int count = Long.bitCount(occupied);
+        if (count < 3 || count > 4 || position.getCastlingRights() != 0){
+            return -1;
+        }
+        int strong = Long.bitCount(position.pieces(BitboardPosition.WHITE)) > 1 ? BitboardPosition.WHITE : BitboardPosition.BLACK;
+        if (Long.bitCount(position.pieces(strong ^ 1)) != 1){
+            return -1;
+        }
+
+        // The strong side is white in the bitbases.
+        int flip = strong == BitboardPosition.WHITE ? 0 : 56;
+        int material;
+        int first;
+        int second = -1;
+        if (count == 3){
+            first = Long.numberOfTrailingZeros(occupied & ~position.pieces(BitboardPosition.WHITE, BitboardPosition.KING)
+                    & ~position.pieces(BitboardPosition.BLACK, BitboardPosition.KING));
+            switch (BitboardPosition.typeOf(position.pieceAt(first))){
+                case BitboardPosition.PAWN:
+                    int row = Bitboards.row(first ^ flip);
+                    if (row == 0 || row == 7){
+                        return -1;
+                    }
+                    material = Bitbase.KPK;
+                    break;
+                case BitboardPosition.ROOK: material = Bitbase.KRK; break;
+                case BitboardPosition.QUEEN: material = Bitbase.KQK; break;
+                default: return -1;
+            }
+        }
+        else{
+            long bishops = position.pieces(strong, BitboardPosition.BISHOP);
+            long knights = position.pieces(strong, BitboardPosition.KNIGHT);
+            if (Long.bitCount(bishops) != 1 || Long.bitCount(knights) != 1){
+                return -1;
+            }
+            material = Bitbase.KBNK;
+            first = Long.numberOfTrailingZeros(bishops);
+            second = Long.numberOfTrailingZeros(knights) ^ flip;
+        }
+        squares[0] = position.getSideToMove() == strong ? 1 : 0;
+        squares[1] = position.kingSquare(strong) ^ flip;
+        squares[2] = position.kingSquare(strong ^ 1) ^ flip;
+        squares[3] = first ^ flip;
+        squares[4] = second;
+        return material;
+    }
+
+    /**
+     * Open a bitbase file by memory mapping it.
+     * @param file File written by write().
+     * @return The bitbases in it.
+     * @throws IOException If the file can't be mapped, or isn't a bitbase file of this version.
+     */
+    public static Bitbases open(File file) throws IOException{
+        try (FileInputStream in = new FileInputStream(file); FileChannel channel = in.getChannel()){
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Read bitbases from a buffer in the format of the file.
+     * @param buffer The file's contents, from its position to its limit.
+     * @return The bitbases in it.
+     * @throws IOException If it isn't a bitbase file of this version.
+     */
+    public static Bitbases read(ByteBuffer buffer) throws IOException{
+        buffer = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.remaining() < 12 || buffer.getInt() != MAGIC){
+            throw new IOException("Not a bitbase file");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION){
+            throw new IOException("Unsupported bitbase version " + version);
+        }
+        int count = buffer.getInt();
+        if (count < 0 || count > Bitbase.COUNT){
+            throw new IOException("Bad bitbase count " + count);
+        }
+        Bitbase[] bitbases = new Bitbase[count];
+        for (int i = 0; i < count; i++){
+            if (buffer.remaining() < 8){
+                throw new IOException("Bitbase file is cut short");
+            }
+            int material = buffer.getInt();
+            int size = buffer.getInt();
+            if (material < 0 || material >= Bitbase.COUNT || size != Bitbase.size(material)){
+                throw new IOException("Bad bitbase " + material + " of " + size + " positions");
+            }
+            int bytes = words(size) * 8;
+            if (buffer.remaining() < bytes){
+                throw new IOException("Bitbase file is cut short");
+            }
+            ByteBuffer bits = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+            bits.limit(bytes);
+            bitbases[i] = new Bitbase(material, bits.asLongBuffer());
+            buffer.position(buffer.position() + bytes);
+        }
+        return new Bitbases(bitbases);
+    }
+
+    /**
+     * Write the bitbases to a file, first to a temporary file and then renamed, so that bitbases
+     * that are open (and memory mapped) stay readable meanwhile.
+     * @param file File to write.
+     * @throws IOException If the file can't be written.
+     */
+    public void write(File file) throws IOException{
+        int count = 0;
+        for (Bitbase bitbase : bitbases){
+            if (bitbase != null){
+                count++;
+            }
+        }
+        File temporary = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temporary); FileChannel channel = out.getChannel()){
+            ByteBuffer header = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(count).flip();
+            writeFully(channel, header);
+            for (Bitbase bitbase : bitbases){
+                if (bitbase == null){
+                    continue;
+                }
+                int size = Bitbase.size(bitbase.getMaterial());
+                ByteBuffer buffer = ByteBuffer.allocate(8 + words(size) * 8).order(ByteOrder.LITTLE_ENDIAN);
+                buffer.putInt(bitbase.getMaterial()).putInt(size);
+                LongBuffer bits = bitbase.bits();
+                for (int i = 0; i < words(size); i++){
+                    buffer.putLong(bits.get(i));
+                }
+                buffer.flip();
+                writeFully(channel, buffer);
+            }
+        }
+        if (!temporary.renameTo(file)){
+            temporary.delete();
+            throw new IOException("Could not replace " + file);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException{
+        while (buffer.hasRemaining()){
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * @return Number of longs that hold the given number of bits.
+     */
+    static int words(int bits){
+        return (bits + 63) >>> 6;
+    }
+}
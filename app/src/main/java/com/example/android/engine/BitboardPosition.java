@@ -0,0 +1,716 @@
+package com.example.android.engine;
+
+import java.util.Arrays;
+
+/**
+ * Bitboard representation of a chess position. Keeps one 64-bit bitboard per piece type and
+ * color, occupancy masks for each color, and a mailbox array so that the piece on a square can
+ * be found without scanning the bitboards. The Board class delegates its queries to this core.
+ * @author Krysti Leong, April Dizon
+ */
+public class BitboardPosition {
+
+    public static final int WHITE = 0;
+    public static final int BLACK = 1;
+
+    public static final int PAWN = 0;
+    public static final int KNIGHT = 1;
+    public static final int BISHOP = 2;
+    public static final int ROOK = 3;
+    public static final int QUEEN = 4;
+    public static final int KING = 5;
+
+    public static final int NO_PIECE = -1;
+    public static final int NO_SQUARE = -1;
+
+    public static final int WHITE_KINGSIDE = 1;
+    public static final int WHITE_QUEENSIDE = 2;
+    public static final int BLACK_KINGSIDE = 4;
+    public static final int BLACK_QUEENSIDE = 8;
+
+    private static final int INITIAL_STACK_SIZE = 256;
+
+    /**
+     * Castling rights that survive a piece moving from or to each square. Moving the king or a
+     * rook off of its starting square (or capturing a rook there) clears the matching rights.
+     */
+    private static final int[] CASTLING_MASK = new int[64];
+
+    static {
+        for (int square = 0; square < 64; square++){
+            CASTLING_MASK[square] = 15;
+        }
+        CASTLING_MASK[0] &= ~WHITE_QUEENSIDE;
+        CASTLING_MASK[4] &= ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+        CASTLING_MASK[7] &= ~WHITE_KINGSIDE;
+        CASTLING_MASK[56] &= ~BLACK_QUEENSIDE;
+        CASTLING_MASK[60] &= ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+        CASTLING_MASK[63] &= ~BLACK_KINGSIDE;
+    }
+
+    private final long[] pieceBoards = new long[12];
+    private final long[] colorBoards = new long[2];
+    private long occupied;
+    private final int[] mailbox = new int[64];
+    private int sideToMove;
+    private int castlingRights;
+    private int enPassantSquare;
+    private int halfmoveClock;
+    private int fullmoveNumber;
+    private long key;
+    private long pawnKey;
+    private AttackMap attackMap;
+    private NnueAccumulator accumulator;
+
+    // Piece-square sums for the evaluation, kept up to date like the key.
+    private int middlegameScore;
+    private int endgameScore;
+    private int phase;
+
+    // Undo stack for makeMove() and unmakeMove(). Each record packs the captured piece, the
+    // castling rights, the en passant square and the halfmove clock into one long, and the
+    // Zobrist key before the move is kept alongside it.
+    private int[] moveStack = new int[INITIAL_STACK_SIZE];
+    private long[] undoStack = new long[INITIAL_STACK_SIZE];
+    private long[] keyStack = new long[INITIAL_STACK_SIZE];
+    private int ply;
+
+    /**
+     * Constructor for an empty position with white to move.
+     */
+    public BitboardPosition(){
+        clear();
+    }
+
+    /**
+     * Copy constructor. The copy shares no state with the original and has no attack map. Its
+     * undo stack has the moves since the last capture or pawn move, which are the ones whose
+     * positions can still come up again, so that isRepetition() sees the game before the copy.
+     * @param other Position to copy.
+     */
+    public BitboardPosition(BitboardPosition other){
+        int history = Math.min(other.ply, other.halfmoveClock);
+        if (history > moveStack.length){
+            moveStack = new int[history * 2];
+            undoStack = new long[history * 2];
+            keyStack = new long[history * 2];
+        }
+        System.arraycopy(other.moveStack, other.ply - history, moveStack, 0, history);
+        System.arraycopy(other.undoStack, other.ply - history, undoStack, 0, history);
+        System.arraycopy(other.keyStack, other.ply - history, keyStack, 0, history);
+        ply = history;
+        System.arraycopy(other.pieceBoards, 0, pieceBoards, 0, pieceBoards.length);
+        System.arraycopy(other.colorBoards, 0, colorBoards, 0, colorBoards.length);
+        System.arraycopy(other.mailbox, 0, mailbox, 0, mailbox.length);
+        occupied = other.occupied;
+        sideToMove = other.sideToMove;
+        castlingRights = other.castlingRights;
+        enPassantSquare = other.enPassantSquare;
+        halfmoveClock = other.halfmoveClock;
+        fullmoveNumber = other.fullmoveNumber;
+        key = other.key;
+        pawnKey = other.pawnKey;
+        middlegameScore = other.middlegameScore;
+        endgameScore = other.endgameScore;
+        phase = other.phase;
+    }
+
+    /**
+     * Remove every piece and reset the game state.
+     */
+    public void clear(){
+        for (int i = 0; i < pieceBoards.length; i++){
+            pieceBoards[i] = 0L;
+        }
+        colorBoards[WHITE] = 0L;
+        colorBoards[BLACK] = 0L;
+        occupied = 0L;
+        for (int square = 0; square < 64; square++){
+            mailbox[square] = NO_PIECE;
+        }
+        sideToMove = WHITE;
+        castlingRights = 0;
+        enPassantSquare = NO_SQUARE;
+        halfmoveClock = 0;
+        fullmoveNumber = 1;
+        key = 0L;
+        pawnKey = 0L;
+        middlegameScore = 0;
+        endgameScore = 0;
+        phase = 0;
+        ply = 0;
+        if (attackMap != null){
+            attackMap.reset(this);
+        }
+        if (accumulator != null){
+            accumulator.reset(this);
+        }
+    }
+
+    /**
+     * Attach an NNUE accumulator that will be kept up to date as pieces are put, removed and
+     * moved, and saved and restored by makeMove() and unmakeMove().
+     * @param accumulator Accumulator to maintain, or null to stop maintaining it.
+     */
+    public void setAccumulator(NnueAccumulator accumulator){
+        this.accumulator = accumulator;
+        if (accumulator != null){
+            accumulator.reset(this);
+        }
+    }
+
+    public NnueAccumulator getAccumulator(){
+        return accumulator;
+    }
+
+    /**
+     * Attach attack maps that will be kept up to date as pieces are put, removed and moved.
+     * Positions without one (such as copies used for searching) skip that bookkeeping.
+     * @param attackMap Attack maps to maintain, or null to stop maintaining them.
+     */
+    public void setAttackMap(AttackMap attackMap){
+        this.attackMap = attackMap;
+        if (attackMap != null){
+            attackMap.reset(this);
+        }
+    }
+
+    public AttackMap getAttackMap(){
+        return attackMap;
+    }
+
+    //region PIECE CODES
+
+    /**
+     * @param color WHITE or BLACK.
+     * @param type PAWN, KNIGHT, BISHOP, ROOK, QUEEN or KING.
+     * @return Piece code used by the mailbox, between 0 and 11.
+     */
+    public static int piece(int color, int type){
+        return (type << 1) | color;
+    }
+
+    public static int typeOf(int piece){
+        return piece >>> 1;
+    }
+
+    public static int colorOf(int piece){
+        return piece & 1;
+    }
+
+    //endregion
+
+    //region QUERIES
+
+    public long pieces(int color, int type){
+        return pieceBoards[piece(color, type)];
+    }
+
+    public long pieces(int color){
+        return colorBoards[color];
+    }
+
+    public long occupied(){
+        return occupied;
+    }
+
+    /**
+     * @return Bitboard of every bishop, rook and queen of both colors.
+     */
+    public long sliders(){
+        return pieceBoards[piece(WHITE, BISHOP)] | pieceBoards[piece(BLACK, BISHOP)]
+                | pieceBoards[piece(WHITE, ROOK)] | pieceBoards[piece(BLACK, ROOK)]
+                | pieceBoards[piece(WHITE, QUEEN)] | pieceBoards[piece(BLACK, QUEEN)];
+    }
+
+    /**
+     * @param square Square index.
+     * @return The piece code on this square, or NO_PIECE if it is empty.
+     */
+    public int pieceAt(int square){
+        return mailbox[square];
+    }
+
+    /**
+     * @param color Color of the king.
+     * @return Square of the king, or NO_SQUARE if there is no king of this color.
+     */
+    public int kingSquare(int color){
+        long king = pieceBoards[piece(color, KING)];
+        return king == 0 ? NO_SQUARE : Long.numberOfTrailingZeros(king);
+    }
+
+    public int getSideToMove(){
+        return sideToMove;
+    }
+
+    public int getCastlingRights(){
+        return castlingRights;
+    }
+
+    public int getEnPassantSquare(){
+        return enPassantSquare;
+    }
+
+    public int getHalfmoveClock(){
+        return halfmoveClock;
+    }
+
+    public int getFullmoveNumber(){
+        return fullmoveNumber;
+    }
+
+    /**
+     * @return Zobrist key of the position, which is kept up to date as the position changes.
+     */
+    public long getKey(){
+        return key;
+    }
+
+    /**
+     * @return Zobrist key of the pawns alone, for the pawn structure cache.
+     */
+    public long getPawnKey(){
+        return pawnKey;
+    }
+
+    /**
+     * @return Sum of the middlegame piece-square values (material included), positive for White.
+     */
+    public int getMiddlegameScore(){
+        return middlegameScore;
+    }
+
+    /**
+     * @return Sum of the endgame piece-square values (material included), positive for White.
+     */
+    public int getEndgameScore(){
+        return endgameScore;
+    }
+
+    /**
+     * @return Game phase of the material on the board, PieceSquareTables.MAX_PHASE at the start
+     * and 0 with only kings and pawns left. Can go over the maximum after promotions.
+     */
+    public int getPhase(){
+        return phase;
+    }
+
+    /**
+     * Get the squares the piece on the given square attacks.
+     * @param square Square of the piece.
+     * @return Bitboard of attacked squares, or 0 if the square is empty.
+     */
+    public long attacksFrom(int square){
+        int piece = mailbox[square];
+        if (piece == NO_PIECE){
+            return 0L;
+        }
+        switch (typeOf(piece)){
+            case PAWN: return LeaperAttacks.pawnAttacks(colorOf(piece), square);
+            case KNIGHT: return LeaperAttacks.knightAttacks(square);
+            case BISHOP: return SlidingAttacks.bishopAttacks(square, occupied);
+            case ROOK: return SlidingAttacks.rookAttacks(square, occupied);
+            case QUEEN: return SlidingAttacks.queenAttacks(square, occupied);
+            default: return LeaperAttacks.kingAttacks(square);
+        }
+    }
+
+    /**
+     * Get every piece (of both colors) attacking the given square.
+     * @param square Square in question.
+     * @param occupancy Occupancy to use for the sliding pieces.
+     * @return Bitboard of the attacking pieces.
+     */
+    public long attackersTo(int square, long occupancy){
+        long diagonal = pieceBoards[piece(WHITE, BISHOP)] | pieceBoards[piece(BLACK, BISHOP)]
+                | pieceBoards[piece(WHITE, QUEEN)] | pieceBoards[piece(BLACK, QUEEN)];
+        long straight = pieceBoards[piece(WHITE, ROOK)] | pieceBoards[piece(BLACK, ROOK)]
+                | pieceBoards[piece(WHITE, QUEEN)] | pieceBoards[piece(BLACK, QUEEN)];
+        return (LeaperAttacks.pawnAttacks(BLACK, square) & pieceBoards[piece(WHITE, PAWN)])
+                | (LeaperAttacks.pawnAttacks(WHITE, square) & pieceBoards[piece(BLACK, PAWN)])
+                | (LeaperAttacks.knightAttacks(square) & (pieceBoards[piece(WHITE, KNIGHT)] | pieceBoards[piece(BLACK, KNIGHT)]))
+                | (LeaperAttacks.kingAttacks(square) & (pieceBoards[piece(WHITE, KING)] | pieceBoards[piece(BLACK, KING)]))
+                | (SlidingAttacks.bishopAttacks(square, occupancy) & diagonal)
+                | (SlidingAttacks.rookAttacks(square, occupancy) & straight);
+    }
+
+    /**
+     * Check if a square is attacked by any piece of the given color.
+     * @param square Square in question.
+     * @param byColor Color of the attacking side.
+     * @return True if the square is attacked, false elsewise.
+     */
+    public boolean isSquareAttacked(int square, int byColor){
+        return (attackersTo(square, occupied) & colorBoards[byColor]) != 0;
+    }
+
+    /**
+     * Get every square attacked by the pieces of the given color. Read from the attack map when
+     * there is one, else computed from the bitboards.
+     * @param color Color of the attacking side.
+     * @return Bitboard of attacked squares.
+     */
+    public long attackedSquares(int color){
+        if (attackMap != null){
+            return attackMap.attackedSquares(color);
+        }
+        long attacks = Bitboards.pawnAttacks(pieceBoards[piece(color, PAWN)], color)
+                | Bitboards.knightAttacks(pieceBoards[piece(color, KNIGHT)])
+                | Bitboards.kingAttacks(pieceBoards[piece(color, KING)]);
+        long sliders = pieceBoards[piece(color, BISHOP)] | pieceBoards[piece(color, ROOK)]
+                | pieceBoards[piece(color, QUEEN)];
+        while (sliders != 0){
+            int square = Long.numberOfTrailingZeros(sliders);
+            attacks |= attacksFrom(square);
+            sliders &= sliders - 1;
+        }
+        return attacks;
+    }
+
+    /**
+     * @param color Color of the king in question.
+     * @return True if the king of the given color is attacked.
+     */
+    public boolean isInCheck(int color){
+        int king = kingSquare(color);
+        return king != NO_SQUARE && isSquareAttacked(king, color ^ 1);
+    }
+
+    //endregion
+
+    //region UPDATES
+
+    /**
+     * Put a piece on an empty square.
+     * @param square Square index.
+     * @param piece Piece code.
+     */
+    public void putPiece(int square, int piece){
+        long bit = 1L << square;
+        if (attackMap != null){
+            attackMap.beforeChange(this, bit);
+        }
+        pieceBoards[piece] |= bit;
+        colorBoards[colorOf(piece)] |= bit;
+        occupied |= bit;
+        mailbox[square] = piece;
+        key ^= Zobrist.pieceSquare(piece, square);
+        if (typeOf(piece) == PAWN){
+            pawnKey ^= Zobrist.pieceSquare(piece, square);
+        }
+        middlegameScore += PieceSquareTables.middlegame(piece, square);
+        endgameScore += PieceSquareTables.endgame(piece, square);
+        phase += PieceSquareTables.phase(piece);
+        if (accumulator != null){
+            accumulator.add(this, piece, square);
+        }
+        if (attackMap != null){
+            attackMap.afterChange(this);
+        }
+    }
+
+    /**
+     * Remove the piece on a square, if any.
+     * @param square Square index.
+     * @return The piece code that was removed, or NO_PIECE if the square was empty.
+     */
+    public int removePiece(int square){
+        int piece = mailbox[square];
+        if (piece == NO_PIECE){
+            return NO_PIECE;
+        }
+        long bit = 1L << square;
+        if (attackMap != null){
+            attackMap.beforeChange(this, bit);
+        }
+        pieceBoards[piece] &= ~bit;
+        colorBoards[colorOf(piece)] &= ~bit;
+        occupied &= ~bit;
+        mailbox[square] = NO_PIECE;
+        key ^= Zobrist.pieceSquare(piece, square);
+        if (typeOf(piece) == PAWN){
+            pawnKey ^= Zobrist.pieceSquare(piece, square);
+        }
+        middlegameScore -= PieceSquareTables.middlegame(piece, square);
+        endgameScore -= PieceSquareTables.endgame(piece, square);
+        phase -= PieceSquareTables.phase(piece);
+        if (accumulator != null){
+            accumulator.remove(this, piece, square);
+        }
+        if (attackMap != null){
+            attackMap.afterChange(this);
+        }
+        return piece;
+    }
+
+    /**
+     * Move a piece from one square to an empty square.
+     * @param from Source square.
+     * @param to Destination square, which must be empty.
+     */
+    public void movePiece(int from, int to){
+        int piece = mailbox[from];
+        long fromTo = (1L << from) | (1L << to);
+        if (attackMap != null){
+            attackMap.beforeChange(this, fromTo);
+        }
+        pieceBoards[piece] ^= fromTo;
+        colorBoards[colorOf(piece)] ^= fromTo;
+        occupied ^= fromTo;
+        mailbox[from] = NO_PIECE;
+        mailbox[to] = piece;
+        key ^= Zobrist.pieceSquare(piece, from) ^ Zobrist.pieceSquare(piece, to);
+        if (typeOf(piece) == PAWN){
+            pawnKey ^= Zobrist.pieceSquare(piece, from) ^ Zobrist.pieceSquare(piece, to);
+        }
+        middlegameScore += PieceSquareTables.middlegame(piece, to) - PieceSquareTables.middlegame(piece, from);
+        endgameScore += PieceSquareTables.endgame(piece, to) - PieceSquareTables.endgame(piece, from);
+        if (accumulator != null){
+            accumulator.remove(this, piece, from);
+            accumulator.add(this, piece, to);
+        }
+        if (attackMap != null){
+            attackMap.afterChange(this);
+        }
+    }
+
+    public void setSideToMove(int color){
+        if (color != sideToMove){
+            key ^= Zobrist.blackToMove();
+        }
+        this.sideToMove = color;
+    }
+
+    public void setCastlingRights(int castlingRights){
+        key ^= Zobrist.castling(this.castlingRights) ^ Zobrist.castling(castlingRights);
+        this.castlingRights = castlingRights;
+    }
+
+    /**
+     * Clear the castling rights lost by a piece moving from one square to another.
+     * @param from Source square.
+     * @param to Destination square.
+     */
+    public void updateCastlingRights(int from, int to){
+        setCastlingRights(castlingRights & CASTLING_MASK[from] & CASTLING_MASK[to]);
+    }
+
+    public void setEnPassantSquare(int square){
+        key ^= enPassantKey(enPassantSquare) ^ enPassantKey(square);
+        this.enPassantSquare = square;
+    }
+
+    private static long enPassantKey(int square){
+        return square == NO_SQUARE ? 0L : Zobrist.enPassantFile(Bitboards.file(square));
+    }
+
+    public void setHalfmoveClock(int halfmoveClock){
+        this.halfmoveClock = halfmoveClock;
+    }
+
+    public void setFullmoveNumber(int fullmoveNumber){
+        this.fullmoveNumber = fullmoveNumber;
+    }
+
+    //endregion
+
+    //region MAKE AND UNMAKE
+
+    /**
+     * Make a move, which is assumed to be legal, and push a record so that it can be taken back
+     * with unmakeMove().
+     * @param move Packed move (see the Move class).
+     */
+    public void makeMove(int move){
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int flags = Move.flags(move);
+        int piece = mailbox[from];
+        int color = colorOf(piece);
+
+        if (ply == moveStack.length){
+            moveStack = Arrays.copyOf(moveStack, ply * 2);
+            undoStack = Arrays.copyOf(undoStack, ply * 2);
+            keyStack = Arrays.copyOf(keyStack, ply * 2);
+        }
+        keyStack[ply] = key;
+        if (accumulator != null){
+            accumulator.push();
+        }
+
+        // Capture.
+        int captured = NO_PIECE;
+        if (flags == Move.EN_PASSANT){
+            captured = removePiece(to ^ 8);
+        }
+        else if ((flags & Move.CAPTURE) != 0){
+            captured = removePiece(to);
+        }
+        moveStack[ply] = move;
+        undoStack[ply] = (captured + 1L) | ((long) castlingRights << 4)
+                | ((enPassantSquare + 1L) << 8) | ((long) halfmoveClock << 16);
+        ply++;
+
+        // Move the piece, and the rook too when castling.
+        movePiece(from, to);
+        if ((flags & Move.PROMOTION) != 0){
+            removePiece(to);
+            putPiece(to, piece(color, Move.promotionType(move)));
+        }
+        else if (flags == Move.KING_CASTLE){
+            movePiece(from + 3, from + 1);
+        }
+        else if (flags == Move.QUEEN_CASTLE){
+            movePiece(from - 4, from - 1);
+        }
+
+        // Update the game state, and its part of the key.
+        updateCastlingRights(from, to);
+        setEnPassantSquare(flags == Move.DOUBLE_PUSH ? (from + to) >>> 1 : NO_SQUARE);
+        halfmoveClock = (typeOf(piece) == PAWN || captured != NO_PIECE) ? 0 : halfmoveClock + 1;
+        if (color == BLACK){
+            fullmoveNumber++;
+        }
+        sideToMove = color ^ 1;
+        key ^= Zobrist.blackToMove();
+    }
+
+    /**
+     * Take back the last move made with makeMove().
+     * @return The move that was taken back.
+     */
+    public int unmakeMove(){
+        ply--;
+        int move = moveStack[ply];
+        long record = undoStack[ply];
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int flags = Move.flags(move);
+        int color = sideToMove ^ 1;
+        // The accumulator goes straight back to its saved values instead of following along.
+        NnueAccumulator saved = accumulator;
+        accumulator = null;
+
+        // Put the piece (and the castling rook) back.
+        if ((flags & Move.PROMOTION) != 0){
+            removePiece(to);
+            putPiece(to, piece(color, PAWN));
+        }
+        else if (flags == Move.KING_CASTLE){
+            movePiece(from + 1, from + 3);
+        }
+        else if (flags == Move.QUEEN_CASTLE){
+            movePiece(from - 1, from - 4);
+        }
+        movePiece(to, from);
+
+        // Restore the captured piece.
+        int captured = (int) (record & 15) - 1;
+        if (captured != NO_PIECE){
+            putPiece(flags == Move.EN_PASSANT ? to ^ 8 : to, captured);
+        }
+
+        // Restore the game state.
+        castlingRights = (int) ((record >>> 4) & 15);
+        enPassantSquare = (int) ((record >>> 8) & 127) - 1;
+        halfmoveClock = (int) ((record >>> 16) & 0xFFFF);
+        if (color == BLACK){
+            fullmoveNumber--;
+        }
+        sideToMove = color;
+        key = keyStack[ply];
+        accumulator = saved;
+        if (accumulator != null){
+            accumulator.pop();
+        }
+        return move;
+    }
+
+    /**
+     * Pass the turn without moving, for null move pruning in the search. Take it back with
+     * unmakeNullMove().
+     */
+    public void makeNullMove(){
+        if (ply == moveStack.length){
+            moveStack = Arrays.copyOf(moveStack, ply * 2);
+            undoStack = Arrays.copyOf(undoStack, ply * 2);
+            keyStack = Arrays.copyOf(keyStack, ply * 2);
+        }
+        keyStack[ply] = key;
+        moveStack[ply] = Move.NONE;
+        undoStack[ply] = ((enPassantSquare + 1L) << 8) | ((long) halfmoveClock << 16);
+        ply++;
+        setEnPassantSquare(NO_SQUARE);
+        // A position before the null move can't be repeated after it.
+        halfmoveClock = 0;
+        sideToMove ^= 1;
+        key ^= Zobrist.blackToMove();
+    }
+
+    /**
+     * Take back the last makeNullMove().
+     */
+    public void unmakeNullMove(){
+        ply--;
+        long record = undoStack[ply];
+        enPassantSquare = (int) ((record >>> 8) & 127) - 1;
+        halfmoveClock = (int) ((record >>> 16) & 0xFFFF);
+        sideToMove ^= 1;
+        key = keyStack[ply];
+    }
+
+    /**
+     * Check if the position was already reached since the last capture or pawn move, going
+     * back as far as the undo stack does.
+     * @return True if the position is a repetition.
+     */
+    public boolean isRepetition(){
+        int first = Math.max(0, ply - halfmoveClock);
+        for (int i = ply - 2; i >= first; i -= 2){
+            if (keyStack[i] == key){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return Number of moves on the undo stack.
+     */
+    public int getPly(){
+        return ply;
+    }
+
+    /**
+     * Get a move on the undo stack.
+     * @param index Index between 0 (the oldest move) and getPly() - 1 (the last move made).
+     * @return The move, or Move.NONE for a null move.
+     */
+    public int getMove(int index){
+        return moveStack[index];
+    }
+
+    //endregion
+
+    /**
+     * Express the position as a String, in the same orientation as the Board.
+     * Used for debugging and testing only.
+     * @return String of the position.
+     */
+    @Override
+    public String toString(){
+        StringBuilder sb = new StringBuilder();
+        String symbols = "PpNnBbRrQqKk";
+        for (int row = 7; row >= 0; row--){
+            for (int file = 0; file < 8; file++){
+                int piece = mailbox[(row << 3) | file];
+                sb.append(piece == NO_PIECE ? '.' : symbols.charAt(piece)).append(' ');
+            }
+            sb.append(row + 1);
+            sb.append(System.lineSeparator());
+        }
+        sb.append("a b c d e f g h");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.android.engine;
+
+/**
+ * Static helpers for working with 64-bit bitboards. Bit 0 is a1, bit 7 is h1 and bit 63 is h8.
+ * Note that the Board class numbers its ranks from the top of the screen (rank 0 is the eighth
+ * rank), so use square() and boardRank() to convert between the two.
+ * @author Krysti Leong, April Dizon
+ */
+public final class Bitboards {
+
+    public static final long FILE_A = 0x0101010101010101L;
+    public static final long FILE_B = FILE_A << 1;
+    public static final long FILE_G = FILE_A << 6;
+    public static final long FILE_H = FILE_A << 7;
+    public static final long RANK_1 = 0xFFL;
+    public static final long RANK_2 = RANK_1 << 8;
+    public static final long RANK_3 = RANK_1 << 16;
+    public static final long RANK_4 = RANK_1 << 24;
+    public static final long RANK_5 = RANK_1 << 32;
+    public static final long RANK_6 = RANK_1 << 40;
+    public static final long RANK_7 = RANK_1 << 48;
+    public static final long RANK_8 = RANK_1 << 56;
+    public static final long NOT_FILE_A = ~FILE_A;
+    public static final long NOT_FILE_H = ~FILE_H;
+    public static final long NOT_FILE_AB = ~(FILE_A | FILE_B);
+    public static final long NOT_FILE_GH = ~(FILE_G | FILE_H);
+
+    private Bitboards(){
+    }
+
+    /**
+     * Convert a rank and file as used by the Board class into a square index.
+     * @param rank Rank of the cell, where 0 is the eighth rank.
+     * @param file File of the cell, where 0 is the a-file.
+     * @return Square index between 0 (a1) and 63 (h8).
+     */
+    public static int square(int rank, int file){
+        return ((7 - rank) << 3) | file;
+    }
+
+    /**
+     * @param square Square index.
+     * @return The rank of this square as used by the Board class, where 0 is the eighth rank.
+     */
+    public static int boardRank(int square){
+        return 7 - (square >>> 3);
+    }
+
+    /**
+     * @param square Square index.
+     * @return The row of this square, where 0 is the first rank.
+     */
+    public static int row(int square){
+        return square >>> 3;
+    }
+
+    /**
+     * @param square Square index.
+     * @return The file of this square, where 0 is the a-file.
+     */
+    public static int file(int square){
+        return square & 7;
+    }
+
+    public static long bit(int square){
+        return 1L << square;
+    }
+
+    /**
+     * @param bitboard Non-empty bitboard.
+     * @return Index of the least significant set bit.
+     */
+    public static int lsb(long bitboard){
+        return Long.numberOfTrailingZeros(bitboard);
+    }
+
+    public static int popCount(long bitboard){
+        return Long.bitCount(bitboard);
+    }
+
+    //region SET-WISE SHIFTS
+
+    public static long north(long bitboard){
+        return bitboard << 8;
+    }
+
+    public static long south(long bitboard){
+        return bitboard >>> 8;
+    }
+
+    public static long east(long bitboard){
+        return (bitboard << 1) & NOT_FILE_A;
+    }
+
+    public static long west(long bitboard){
+        return (bitboard >>> 1) & NOT_FILE_H;
+    }
+
+    /**
+     * Get every square attacked by the knights in the given bitboard.
+     * @param knights Bitboard of knights.
+     * @return Bitboard of attacked squares.
+     */
+    public static long knightAttacks(long knights){
+        long l1 = (knights >>> 1) & NOT_FILE_H;
+        long l2 = (knights >>> 2) & NOT_FILE_GH;
+        long r1 = (knights << 1) & NOT_FILE_A;
+        long r2 = (knights << 2) & NOT_FILE_AB;
+        long h1 = l1 | r1;
+        long h2 = l2 | r2;
+        return (h1 << 16) | (h1 >>> 16) | (h2 << 8) | (h2 >>> 8);
+    }
+
+    /**
+     * Get every square attacked by the kings in the given bitboard.
+     * @param kings Bitboard of kings.
+     * @return Bitboard of attacked squares.
+     */
+    public static long kingAttacks(long kings){
+        long row = east(kings) | west(kings) | kings;
+        return (row | north(row) | south(row)) & ~kings;
+    }
+
+    /**
+     * Get every square attacked (diagonally) by the pawns in the given bitboard.
+     * @param pawns Bitboard of pawns.
+     * @param color Color of the pawns, BitboardPosition.WHITE or BitboardPosition.BLACK.
+     * @return Bitboard of attacked squares.
+     */
+    public static long pawnAttacks(long pawns, int color){
+        long forward = color == BitboardPosition.WHITE ? north(pawns) : south(pawns);
+        return east(forward) | west(forward);
+    }
+
+    //endregion
+
+    /**
+     * Express the bitboard as a String, printed in the same orientation as the Board.
+     * Used for debugging and testing only.
+     * @param bitboard Bitboard to print.
+     * @return String of the bitboard.
+     */
+    public static String toString(long bitboard){
+        StringBuilder sb = new StringBuilder();
+        for (int row = 7; row >= 0; row--){
+            for (int file = 0; file < 8; file++){
+                sb.append((bitboard & bit((row << 3) | file)) != 0 ? " X " : " . ");
+            }
+            sb.append(System.lineSeparator());
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,345 @@
+package com.example.android.engine;
+
+import com.example.android.Board;
+import com.example.android.model.GameStates;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Builds a Polyglot opening book from saved games. Every game is replayed from the start, and
+ * every move of its first plies is counted for the position it was played in, together with how
+ * the game ended for the player who made it: by the mate on the board, or else by the title the
+ * game was saved with. Older saves without moves get them back from the boards of their states.
+ * The games are split among the threads of a ForkJoinPool, and the counts of the halves merged
+ * back together.
+ *
+ * A move's weight is 2 for every game its player won and 1 for every draw or unfinished game, so
+ * moves that only ever lost are left out of the book.
+ * @author Krysti Leong, April Dizon
+ */
+public class BookBuilder {
+
+    public static final int DEFAULT_MAX_PLIES = 20;
+    // Games one task replays itself instead of splitting them further.
+    private static final int GAMES_PER_TASK = 32;
+    private static final int MAX_WEIGHT = 0xFFFF;
+
+    private final PolyglotKeys keys;
+    private final int maxPlies;
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructor for the BookBuilder.
+     * @param keys Keys to hash the positions with, which the book must be read with too.
+     * @param maxPlies Plies of every game that go into the book.
+     * @param pool Pool the games are replayed on.
+     */
+    public BookBuilder(PolyglotKeys keys, int maxPlies, ForkJoinPool pool){
+        this.keys = keys;
+        this.maxPlies = maxPlies;
+        this.pool = pool;
+    }
+
+    /**
+     * Constructor for a BookBuilder with the engine's keys, on the common pool.
+     */
+    public BookBuilder(){
+        this(PolyglotKeys.ENGINE, DEFAULT_MAX_PLIES, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Build a book from saved games and write it. The book is written to a temporary file first
+     * and then renamed, so a book that is open (and memory mapped) stays readable meanwhile.
+     * @param games The saved games.
+     * @param file File to write the book to.
+     * @return Number of entries in the book.
+     * @throws IOException If the book can't be written.
+     */
+    public int build(List<GameStates> games, File file) throws IOException{
+        MoveCounts counts = pool.invoke(new CountTask(games, 0, games.size()));
+        File temporary = new File(file.getPath() + ".tmp");
+        int entries;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)))){
+            entries = write(counts, out);
+        }
+        if (!temporary.renameTo(file)){
+            temporary.delete();
+            throw new IOException("Could not replace " + file);
+        }
+        return entries;
+    }
+
+    /**
+     * Count the moves of a range of games, splitting it in halves as long as it's big.
+     */
+    private class CountTask extends RecursiveTask<MoveCounts> {
+
+        private final List<GameStates> games;
+        private final int start;
+        private final int end;
+
+        CountTask(List<GameStates> games, int start, int end){
+            this.games = games;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected MoveCounts compute(){
+            if (end - start <= GAMES_PER_TASK){
+                MoveCounts counts = new MoveCounts();
+                BitboardPosition position = new BitboardPosition();
+                for (int i = start; i < end; i++){
+                    countGame(games.get(i), position, counts);
+                }
+                return counts;
+            }
+            int middle = (start + end) >>> 1;
+            CountTask first = new CountTask(games, start, middle);
+            first.fork();
+            MoveCounts second = new CountTask(games, middle, end).compute();
+            return merge(first.join(), second);
+        }
+    }
+
+    private static MoveCounts merge(MoveCounts a, MoveCounts b){
+        if (a.size < b.size){
+            MoveCounts swap = a;
+            a = b;
+            b = swap;
+        }
+        a.addAll(b);
+        return a;
+    }
+
+    /**
+     * Replay a game and count the moves of its first plies. The rest of the game is replayed too,
+     * since a game that ended in mate only shows it in its final position.
+     */
+    private void countGame(GameStates game, BitboardPosition position, MoveCounts counts){
+        List<GameStates.State> states = game.getStates();
+        if (states.isEmpty()){
+            return;
+        }
+        Fen.parse(Fen.STARTING_POSITION, position);
+        // Only games from the usual start, which older saves may not have a key for.
+        long startKey = states.get(0).hashKey;
+        if (startKey != 0 && startKey != position.getKey()){
+            return;
+        }
+        int plies = Math.min(states.size() - 1, maxPlies);
+        long[] bookKeys = new long[plies];
+        int[] bookMoves = new int[plies];
+        int counted = 0;
+        for (int i = 1; i < states.size(); i++){
+            int move = states.get(i).move;
+            if (move == Move.NONE){
+                // Saved before the states recorded their moves.
+                move = findMove(position, states.get(i).board);
+            }
+            if (move == Move.NONE || !MoveGenerator.isLegal(position, move)){
+                break;
+            }
+            if (counted < plies){
+                bookKeys[counted] = keys.key(position);
+                bookMoves[counted] = move;
+                counted++;
+            }
+            position.makeMove(move);
+        }
+        int result = result(game, position);
+        for (int i = 0; i < counted; i++){
+            // White moves on the even plies.
+            int sign = (i & 1) == 0 ? 1 : -1;
+            counts.add(bookKeys[i], bookMoves[i], result * sign);
+        }
+    }
+
+    /**
+     * Find the move that led to a saved board.
+     * @param position Position before the move, which is left as it was.
+     * @param board Cells of the board after the move, or null.
+     * @return The legal move that gives the same pieces as the board, or Move.NONE if there is
+     * none, such as for the state that records how the game ended.
+     */
+    private static int findMove(BitboardPosition position, Board.Cell[][] board){
+        if (board == null){
+            return Move.NONE;
+        }
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generateLegalMoves(position, moves);
+        for (int i = 0; i < count; i++){
+            position.makeMove(moves[i]);
+            boolean found = Board.samePieces(board, position);
+            position.unmakeMove();
+            if (found){
+                return moves[i];
+            }
+        }
+        return Move.NONE;
+    }
+
+    /**
+     * @param position Final position of the game.
+     * @return 1 if white won the game, -1 if black did, 0 for a draw or a game without a result.
+     */
+    private static int result(GameStates game, BitboardPosition position){
+        int us = position.getSideToMove();
+        if (position.isInCheck(us) && MoveGenerator.generateLegalMoves(position, new int[MoveGenerator.MAX_MOVES]) == 0){
+            return us == BitboardPosition.WHITE ? -1 : 1;
+        }
+        String title = game.getCurrentState().title;
+        if (title == null){
+            return 0;
+        }
+        if (title.contains("White wins")){
+            return 1;
+        }
+        if (title.contains("Black wins")){
+            return -1;
+        }
+        return 0;
+    }
+
+    /**
+     * Write the counted moves as book entries, sorted by key and then by weight, best first.
+     * @return Number of entries written.
+     */
+    private static int write(final MoveCounts counts, DataOutputStream out) throws IOException{
+        Integer[] order = new Integer[counts.size];
+        int n = 0;
+        for (int slot = 0; slot < counts.moves.length; slot++){
+            if (counts.moves[slot] != Move.NONE){
+                order[n++] = slot;
+            }
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b){
+                int byKey = Long.compareUnsigned(counts.keys[a], counts.keys[b]);
+                return byKey != 0 ? byKey : Integer.compare(counts.weight(b), counts.weight(a));
+            }
+        });
+
+        int written = 0;
+        for (int first = 0; first < n; ){
+            // The best move of a position comes first, so it decides the scale of all of them.
+            long key = counts.keys[order[first]];
+            int last = first;
+            while (last < n && counts.keys[order[last]] == key){
+                last++;
+            }
+            int best = counts.weight(order[first]);
+            for (int i = first; i < last; i++){
+                int slot = order[i];
+                int weight = best > MAX_WEIGHT ? (int) ((long) counts.weight(slot) * MAX_WEIGHT / best) : counts.weight(slot);
+                if (weight == 0){
+                    continue;
+                }
+                out.writeLong(key);
+                out.writeShort(PolyglotBook.toPolyglot(counts.moves[slot]));
+                out.writeShort(weight);
+                out.writeInt(0);
+                written++;
+            }
+            first = last;
+        }
+        return written;
+    }
+
+    /**
+     * Open addressing hash map from a position key and a move to the games the move was played
+     * in, in primitive arrays, so that a big archive doesn't become millions of boxed entries.
+     */
+    static final class MoveCounts {
+
+        private static final int INITIAL_CAPACITY = 1024;
+
+        long[] keys = new long[INITIAL_CAPACITY];
+        // Move.NONE marks an empty slot, since it's never counted.
+        int[] moves = new int[INITIAL_CAPACITY];
+        int[] games = new int[INITIAL_CAPACITY];
+        int[] wins = new int[INITIAL_CAPACITY];
+        int[] losses = new int[INITIAL_CAPACITY];
+        int size;
+
+        /**
+         * Count a game a move was played in.
+         * @param result 1 if its player won, -1 if they lost, 0 otherwise.
+         */
+        void add(long key, int move, int result){
+            add(key, move, 1, result > 0 ? 1 : 0, result < 0 ? 1 : 0);
+        }
+
+        void addAll(MoveCounts other){
+            for (int slot = 0; slot < other.moves.length; slot++){
+                if (other.moves[slot] != Move.NONE){
+                    add(other.keys[slot], other.moves[slot], other.games[slot], other.wins[slot], other.losses[slot]);
+                }
+            }
+        }
+
+        int weight(int slot){
+            int draws = games[slot] - wins[slot] - losses[slot];
+            return 2 * wins[slot] + draws;
+        }
+
+        private void add(long key, int move, int gameCount, int winCount, int lossCount){
+            if (2 * (size + 1) > moves.length){
+                grow();
+            }
+            int slot = find(key, move);
+            if (moves[slot] == Move.NONE){
+                keys[slot] = key;
+                moves[slot] = move;
+                size++;
+            }
+            games[slot] += gameCount;
+            wins[slot] += winCount;
+            losses[slot] += lossCount;
+        }
+
+        private int find(long key, int move){
+            int mask = moves.length - 1;
+            long hash = key ^ (move * 0x9E3779B97F4A7C15L);
+            int slot = (int) (hash ^ (hash >>> 32)) & mask;
+            while (moves[slot] != Move.NONE && (keys[slot] != key || moves[slot] != move)){
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void grow(){
+            long[] oldKeys = keys;
+            int[] oldMoves = moves;
+            int[] oldGames = games;
+            int[] oldWins = wins;
+            int[] oldLosses = losses;
+            int capacity = oldMoves.length * 2;
+            keys = new long[capacity];
+            moves = new int[capacity];
+            games = new int[capacity];
+            wins = new int[capacity];
+            losses = new int[capacity];
+            for (int i = 0; i < oldMoves.length; i++){
+                if (oldMoves[i] != Move.NONE){
+                    int slot = find(oldKeys[i], oldMoves[i]);
+                    keys[slot] = oldKeys[i];
+                    moves[slot] = oldMoves[i];
+                    games[slot] = oldGames[i];
+                    wins[slot] = oldWins[i];
+                    losses[slot] = oldLosses[i];
+                }
+            }
+        }
+    }
+}
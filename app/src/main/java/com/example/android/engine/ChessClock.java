@@ -0,0 +1,147 @@
+package com.example.android.engine;
+
+/**
+ * A chess clock for two players. The time control can be sudden death (a base time for the
+ * whole game), have an increment added after every move, and have a number of moves to make
+ * before the base time is added again. Only the clock of the player to move runs.
+ * @author Krysti Leong, April Dizon
+ */
+public class ChessClock {
+
+    /** Value of getRunning() while both clocks are stopped. */
+    public static final int NOT_RUNNING = -1;
+
+    private final long baseMillis;
+    private final long incrementMillis;
+    private final int movesPerPeriod;
+
+    private final long[] remaining = new long[2];
+    private final int[] movesMade = new int[2];
+    private int running = NOT_RUNNING;
+    private long startedAt;
+
+    /**
+     * Constructor for the ChessClock.
+     * @param baseMillis Time each player starts with.
+     * @param incrementMillis Time added to a player's clock after each of their moves.
+     * @param movesPerPeriod Moves after which the base time is added again, or 0 if it never is.
+     */
+    public ChessClock(long baseMillis, long incrementMillis, int movesPerPeriod){
+        this.baseMillis = baseMillis;
+        this.incrementMillis = incrementMillis;
+        this.movesPerPeriod = movesPerPeriod;
+        remaining[BitboardPosition.WHITE] = baseMillis;
+        remaining[BitboardPosition.BLACK] = baseMillis;
+    }
+
+    public static ChessClock suddenDeath(long baseMillis){
+        return new ChessClock(baseMillis, 0, 0);
+    }
+
+    public static ChessClock increment(long baseMillis, long incrementMillis){
+        return new ChessClock(baseMillis, incrementMillis, 0);
+    }
+
+    public static ChessClock movesToGo(long baseMillis, int movesPerPeriod){
+        return new ChessClock(baseMillis, 0, movesPerPeriod);
+    }
+
+    /**
+     * Start (or switch to) the clock of a player, stopping the other one without adding any
+     * time to it. Used to start the game, and to hand the turn back after an undo.
+     * @param color Player whose clock runs.
+     */
+    public synchronized void start(int color){
+        stop();
+        running = color;
+        startedAt = now();
+    }
+
+    /**
+     * The running player finished their move: stop their clock, add their increment (and the
+     * base time when the period is over), and start the opponent's.
+     */
+    public synchronized void press(){
+        if (running == NOT_RUNNING){
+            return;
+        }
+        int color = running;
+        stop();
+        if (remaining[color] > 0){
+            remaining[color] += incrementMillis;
+            movesMade[color]++;
+            if (movesPerPeriod > 0 && movesMade[color] % movesPerPeriod == 0){
+                remaining[color] += baseMillis;
+            }
+        }
+        start(color ^ 1);
+    }
+
+    /**
+     * Stop both clocks, such as when the game is over.
+     */
+    public synchronized void stop(){
+        if (running != NOT_RUNNING){
+            remaining[running] -= now() - startedAt;
+            running = NOT_RUNNING;
+        }
+    }
+
+    /**
+     * @param color A player.
+     * @return Time the player has left, counting the running clock up to now. Never negative.
+     */
+    public synchronized long remainingMillis(int color){
+        long left = remaining[color];
+        if (color == running){
+            left -= now() - startedAt;
+        }
+        return Math.max(0, left);
+    }
+
+    /**
+     * @param color A player.
+     * @return True if the player has run out of time.
+     */
+    public boolean isFlagged(int color){
+        return remainingMillis(color) == 0;
+    }
+
+    /**
+     * @param color A player.
+     * @return Moves the player has to make before the base time is added again, or 0 for
+     * sudden death and increment time controls.
+     */
+    public synchronized int movesToGo(int color){
+        return movesPerPeriod == 0 ? 0 : movesPerPeriod - movesMade[color] % movesPerPeriod;
+    }
+
+    public long getIncrementMillis(){
+        return incrementMillis;
+    }
+
+    /**
+     * @return Color of the player whose clock runs, or NOT_RUNNING.
+     */
+    public synchronized int getRunning(){
+        return running;
+    }
+
+    /**
+     * Format a time the way a clock shows it, as minutes and seconds, and tenths of a second
+     * under 10 seconds.
+     * @param millis Time in milliseconds.
+     * @return The formatted time.
+     */
+    public static String format(long millis){
+        long seconds = millis / 1000;
+        if (seconds < 10){
+            return String.format("%d.%d", seconds, (millis % 1000) / 100);
+        }
+        return String.format("%d:%02d", seconds / 60, seconds % 60);
+    }
+
+    private static long now(){
+        return System.nanoTime() / 1000000;
+    }
+}
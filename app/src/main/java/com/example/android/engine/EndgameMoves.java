@@ -0,0 +1,165 @@
+package com.example.android.engine;
+
+/**
+ * The rules of an endgame of a king and one or two pieces against a lone king, worked out on the
+ * squares of a position and the indexes of Bitbase rather than on a BitboardPosition, which is
+ * what makes the retrograde passes over millions of positions quick. The strong side is white.
+ *
+ * Positions are given as the squares Bitbase.decode() fills in: whether the strong side is to
+ * move (1 or 0), the strong king, the lone king, and the first and second piece (or -1).
+ * @author Krysti Leong, April Dizon
+ */
+final class EndgameMoves {
+
+    /** More than the moves any position of these endgames has. */
+    static final int MAX_MOVES = 64;
+    /** Returned by weakMoves() when the lone king can take a piece, which leaves a draw. */
+    static final int CAPTURE = -1;
+
+    private final int material;
+    private final int[] types;
+
+    EndgameMoves(int material){
+        this.material = material;
+        switch (material){
+            case Bitbase.KPK: types = new int[]{BitboardPosition.PAWN}; break;
+            case Bitbase.KRK: types = new int[]{BitboardPosition.ROOK}; break;
+            case Bitbase.KQK: types = new int[]{BitboardPosition.QUEEN}; break;
+            default: types = new int[]{BitboardPosition.BISHOP, BitboardPosition.KNIGHT}; break;
+        }
+    }
+
+    /**
+     * @return Whether the squares make a position that can come up in a game.
+     */
+    boolean isLegal(int[] squares){
+        long occupied = 0;
+        for (int i = 1; i < 3 + types.length; i++){
+            long bit = 1L << squares[i];
+            if ((occupied & bit) != 0){
+                return false;
+            }
+            occupied |= bit;
+        }
+        if ((LeaperAttacks.kingAttacks(squares[1]) & (1L << squares[2])) != 0){
+            return false;
+        }
+        // The lone king can't be in check with the strong side to move.
+        return squares[0] == 0 || !weakInCheck(squares);
+    }
+
+    boolean weakInCheck(int[] squares){
+        return (attacks(squares, strongPieces(squares)) & (1L << squares[2])) != 0;
+    }
+
+    /**
+     * Find the moves of the strong side. Promotions to a knight or bishop are left out, since
+     * they only draw.
+     * @param children Receives the index of the position after each move.
+     * @param tables Receives the material of the bitbase each of those indexes is in, which is
+     *               KQK or KRK after a promotion.
+     * @param zeroing Receives whether each move is a pawn move.
+     * @return Number of moves.
+     */
+    int strongMoves(int[] squares, int[] children, int[] tables, boolean[] zeroing){
+        int strongKing = squares[1];
+        int weakKing = squares[2];
+        int first = squares[3];
+        int second = squares[4];
+        long own = strongPieces(squares);
+        long occupied = own | (1L << weakKing);
+        int count = 0;
+
+        long targets = LeaperAttacks.kingAttacks(strongKing) & ~own & ~LeaperAttacks.kingAttacks(weakKing);
+        while (targets != 0){
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            count = add(children, tables, zeroing, count, material, false, Bitbase.index(material, false, to, weakKing, first, second));
+        }
+
+        if (material == Bitbase.KPK){
+            int to = first + 8;
+            if ((occupied & (1L << to)) != 0){
+                return count;
+            }
+            if (Bitboards.row(to) == 7){
+                count = add(children, tables, zeroing, count, Bitbase.KQK, true, Bitbase.index(Bitbase.KQK, false, strongKing, weakKing, to, -1));
+                return add(children, tables, zeroing, count, Bitbase.KRK, true, Bitbase.index(Bitbase.KRK, false, strongKing, weakKing, to, -1));
+            }
+            count = add(children, tables, zeroing, count, material, true, Bitbase.index(material, false, strongKing, weakKing, to, -1));
+            if (Bitboards.row(first) == 1 && (occupied & (1L << (to + 8))) == 0){
+                count = add(children, tables, zeroing, count, material, true, Bitbase.index(material, false, strongKing, weakKing, to + 8, -1));
+            }
+            return count;
+        }
+
+        for (int piece = 0; piece < types.length; piece++){
+            targets = pieceAttacks(types[piece], squares[3 + piece], occupied) & ~own & ~(1L << weakKing);
+            while (targets != 0){
+                int to = Long.numberOfTrailingZeros(targets);
+                targets &= targets - 1;
+                int index = piece == 0 ? Bitbase.index(material, false, strongKing, weakKing, to, second)
+                        : Bitbase.index(material, false, strongKing, weakKing, first, to);
+                count = add(children, tables, zeroing, count, material, false, index);
+            }
+        }
+        return count;
+    }
+
+    private static int add(int[] children, int[] tables, boolean[] zeroing, int count, int table, boolean pawnMove, int index){
+        children[count] = index;
+        tables[count] = table;
+        zeroing[count] = pawnMove;
+        return count + 1;
+    }
+
+    /**
+     * Find the moves of the lone king.
+     * @param children Receives the index of the position after each move.
+     * @return Number of moves, or CAPTURE if the king can take a piece, which is never defended
+     * when it's on a square the king can go to.
+     */
+    int weakMoves(int[] squares, int[] children){
+        int strongKing = squares[1];
+        int first = squares[3];
+        int second = squares[4];
+        // Without the king itself, so that it can't step back along the line of a check.
+        long attacked = attacks(squares, strongPieces(squares));
+        int count = 0;
+        long targets = LeaperAttacks.kingAttacks(squares[2]) & ~attacked;
+        while (targets != 0){
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            if (to == first || to == second){
+                return CAPTURE;
+            }
+            children[count++] = Bitbase.index(material, true, strongKing, to, first, second);
+        }
+        return count;
+    }
+
+    private static long strongPieces(int[] squares){
+        return (1L << squares[1]) | (1L << squares[3]) | (squares[4] < 0 ? 0 : 1L << squares[4]);
+    }
+
+    /**
+     * @return Squares the strong side attacks.
+     */
+    private long attacks(int[] squares, long occupied){
+        long attacks = LeaperAttacks.kingAttacks(squares[1]);
+        for (int piece = 0; piece < types.length; piece++){
+            attacks |= pieceAttacks(types[piece], squares[3 + piece], occupied);
+        }
+        return attacks;
+    }
+
+    private static long pieceAttacks(int type, int square, long occupied){
+        switch (type){
+            case BitboardPosition.PAWN: return LeaperAttacks.pawnAttacks(BitboardPosition.WHITE, square);
+            case BitboardPosition.KNIGHT: return LeaperAttacks.knightAttacks(square);
+            case BitboardPosition.BISHOP: return SlidingAttacks.bishopAttacks(square, occupied);
+            case BitboardPosition.ROOK: return SlidingAttacks.rookAttacks(square, occupied);
+            default: return SlidingAttacks.queenAttacks(square, occupied);
+        }
+    }
+}
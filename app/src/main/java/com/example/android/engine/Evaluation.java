@@ -0,0 +1,70 @@
+package com.example.android.engine;
+
+/**
+ * Static evaluation of a position, in centipawns from the point of view of the side to move.
+ *
+ * The evaluation is tapered: the middlegame and endgame piece-square sums, which the position
+ * keeps up to date as it changes, are blended by how much material is left. Only the few terms
+ * that can't be kept that way are computed here, so evaluating a leaf is cheap. The pawn
+ * structure is the most expensive of those, and is cached in a PawnTable when one is given.
+ * @author Krysti Leong, April Dizon
+ */
+public final class Evaluation {
+
+    /** Value of each piece type, indexed by PAWN through KING, for ordering captures. */
+    public static final int[] PIECE_VALUES = {100, 320, 330, 500, 900, 0};
+
+    private static final int BISHOP_PAIR_MIDDLEGAME = 30;
+    private static final int BISHOP_PAIR_ENDGAME = 50;
+    // Bonus for having the move.
+    private static final int TEMPO = 10;
+
+    private Evaluation(){
+    }
+
+    /**
+     * @param position Position to evaluate.
+     * @return Score of the position for the side to move.
+     */
+    public static int evaluate(BitboardPosition position){
+        return evaluate(position, null);
+    }
+
+    /**
+     * @param position Position to evaluate.
+     * @param pawnTable Cache of pawn structures, or null to score the pawns from scratch.
+     * @return Score of the position for the side to move.
+     */
+    public static int evaluate(BitboardPosition position, PawnTable pawnTable){
+        int middlegame = position.getMiddlegameScore();
+        int endgame = position.getEndgameScore();
+
+        long pawnScore;
+        int shieldCover;
+        if (pawnTable != null){
+            int index = pawnTable.probe(position);
+            pawnScore = pawnTable.score(index);
+            shieldCover = pawnTable.shieldCover(index);
+        }
+        else{
+            pawnScore = PawnStructure.evaluate(position);
+            shieldCover = PawnStructure.shieldCover(position);
+        }
+        middlegame += PawnStructure.middlegame(pawnScore)
+                + PawnStructure.shield(shieldCover, BitboardPosition.WHITE, position.kingSquare(BitboardPosition.WHITE))
+                - PawnStructure.shield(shieldCover, BitboardPosition.BLACK, position.kingSquare(BitboardPosition.BLACK));
+        endgame += PawnStructure.endgame(pawnScore);
+
+        int bishopPair = bishopPair(position, BitboardPosition.WHITE) - bishopPair(position, BitboardPosition.BLACK);
+        middlegame += bishopPair * BISHOP_PAIR_MIDDLEGAME;
+        endgame += bishopPair * BISHOP_PAIR_ENDGAME;
+
+        int phase = Math.min(position.getPhase(), PieceSquareTables.MAX_PHASE);
+        int score = (middlegame * phase + endgame * (PieceSquareTables.MAX_PHASE - phase)) / PieceSquareTables.MAX_PHASE;
+        return (position.getSideToMove() == BitboardPosition.WHITE ? score : -score) + TEMPO;
+    }
+
+    private static int bishopPair(BitboardPosition position, int color){
+        return Long.bitCount(position.pieces(color, BitboardPosition.BISHOP)) >= 2 ? 1 : 0;
+    }
+}
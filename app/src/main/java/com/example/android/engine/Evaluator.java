@@ -0,0 +1,28 @@
+package com.example.android.engine;
+
+/**
+ * A static evaluation the search can use, such as the hand-crafted Evaluation or an NNUE. Each
+ * search thread needs an Evaluator of its own, since evaluators keep caches and state that
+ * follow the position being searched.
+ * @author Krysti Leong, April Dizon
+ */
+public interface Evaluator {
+
+    /**
+     * Start following a position, before the search makes any move on it.
+     * @param position The search's own copy of the root position.
+     */
+    void attach(BitboardPosition position);
+
+    /**
+     * @param position The attached position.
+     * @return Score of the position for the side to move, in centipawns.
+     */
+    int evaluate(BitboardPosition position);
+
+    /**
+     * @return A new evaluator of the same kind for another thread, which may share read-only
+     * data such as network weights with this one.
+     */
+    Evaluator newInstance();
+}
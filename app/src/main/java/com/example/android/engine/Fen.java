@@ -0,0 +1,149 @@
+package com.example.android.engine;
+
+/**
+ * Reads and writes positions in Forsyth-Edwards Notation, such as the starting position
+ * "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1".
+ * @author Krysti Leong, April Dizon
+ */
+public final class Fen {
+
+    public static final String STARTING_POSITION = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    private static final String SYMBOLS = "PpNnBbRrQqKk";
+
+    private Fen(){
+    }
+
+    /**
+     * Set up a position from a FEN string. The move counters may be left out.
+     * @param fen FEN string.
+     * @param position Position to set up. It is cleared first.
+     * @throws IllegalArgumentException If the string isn't valid FEN.
+     */
+    public static void parse(String fen, BitboardPosition position) throws IllegalArgumentException{
+        String[] fields = fen.trim().split("\\s+");
+        if (fields.length < 4){
+            throw new IllegalArgumentException("Not enough fields in FEN: " + fen);
+        }
+        position.clear();
+
+        // Piece placement, from the 8th rank down to the 1st.
+        int row = 7;
+        int file = 0;
+        for (int i = 0; i < fields[0].length(); i++){
+            char c = fields[0].charAt(i);
+            if (c == '/'){
+                row--;
+                file = 0;
+            }
+            else if (c >= '1' && c <= '8'){
+                file += c - '0';
+            }
+            else{
+                int piece = SYMBOLS.indexOf(c);
+                if (piece < 0 || row < 0 || file > 7){
+                    throw new IllegalArgumentException("Bad piece placement in FEN: " + fen);
+                }
+                position.putPiece((row << 3) | file, piece);
+                file++;
+            }
+        }
+
+        // Side to move.
+        if (fields[1].equals("w")){
+            position.setSideToMove(BitboardPosition.WHITE);
+        }
+        else if (fields[1].equals("b")){
+            position.setSideToMove(BitboardPosition.BLACK);
+        }
+        else{
+            throw new IllegalArgumentException("Bad side to move in FEN: " + fen);
+        }
+
+        // Castling rights.
+        int rights = 0;
+        if (!fields[2].equals("-")){
+            for (int i = 0; i < fields[2].length(); i++){
+                int right = "KQkq".indexOf(fields[2].charAt(i));
+                if (right < 0){
+                    throw new IllegalArgumentException("Bad castling rights in FEN: " + fen);
+                }
+                rights |= 1 << right;
+            }
+        }
+        position.setCastlingRights(rights);
+
+        // En passant square.
+        position.setEnPassantSquare(fields[3].equals("-") ? BitboardPosition.NO_SQUARE : parseSquare(fields[3]));
+
+        // Move counters.
+        try{
+            position.setHalfmoveClock(fields.length > 4 ? Integer.parseInt(fields[4]) : 0);
+            position.setFullmoveNumber(fields.length > 5 ? Integer.parseInt(fields[5]) : 1);
+        }
+        catch (NumberFormatException e){
+            throw new IllegalArgumentException("Bad move counters in FEN: " + fen);
+        }
+    }
+
+    /**
+     * Express a position as a FEN string.
+     * @param position Position to express.
+     * @return FEN string of the position.
+     */
+    public static String toFen(BitboardPosition position){
+        StringBuilder sb = new StringBuilder();
+        for (int row = 7; row >= 0; row--){
+            int empty = 0;
+            for (int file = 0; file < 8; file++){
+                int piece = position.pieceAt((row << 3) | file);
+                if (piece == BitboardPosition.NO_PIECE){
+                    empty++;
+                    continue;
+                }
+                if (empty > 0){
+                    sb.append(empty);
+                    empty = 0;
+                }
+                sb.append(SYMBOLS.charAt(piece));
+            }
+            if (empty > 0){
+                sb.append(empty);
+            }
+            if (row > 0){
+                sb.append('/');
+            }
+        }
+
+        sb.append(position.getSideToMove() == BitboardPosition.WHITE ? " w " : " b ");
+
+        int rights = position.getCastlingRights();
+        if (rights == 0){
+            sb.append('-');
+        }
+        for (int right = 0; right < 4; right++){
+            if ((rights & (1 << right)) != 0){
+                sb.append("KQkq".charAt(right));
+            }
+        }
+
+        int enPassant = position.getEnPassantSquare();
+        sb.append(' ').append(enPassant == BitboardPosition.NO_SQUARE ? "-" : Move.squareToString(enPassant));
+        sb.append(' ').append(position.getHalfmoveClock());
+        sb.append(' ').append(position.getFullmoveNumber());
+        return sb.toString();
+    }
+
+    /**
+     * @param name Name of the square, such as "e3".
+     * @return Square index.
+     * @throws IllegalArgumentException If the name isn't a square.
+     */
+    public static int parseSquare(String name) throws IllegalArgumentException{
+        if (name.length() != 2 || name.charAt(0) < 'a' || name.charAt(0) > 'h'
+                || name.charAt(1) < '1' || name.charAt(1) > '8'){
+            throw new IllegalArgumentException("Not a square: " + name);
+        }
+        return ((name.charAt(1) - '1') << 3) | (name.charAt(0) - 'a');
+    }
+}
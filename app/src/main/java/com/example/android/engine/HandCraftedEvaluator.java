@@ -0,0 +1,35 @@
+package com.example.android.engine;
+
+/**
+ * The hand-crafted Evaluation as an Evaluator, with a pawn structure cache of its own.
+ * @author Krysti Leong, April Dizon
+ */
+public class HandCraftedEvaluator implements Evaluator {
+
+    private static final int PAWN_TABLE_KILOBYTES = 256;
+
+    private final PawnTable pawnTable = new PawnTable(PAWN_TABLE_KILOBYTES);
+
+    @Override
+    public void attach(BitboardPosition position){
+        pawnTable.resetStats();
+    }
+
+    @Override
+    public int evaluate(BitboardPosition position){
+        return Evaluation.evaluate(position, pawnTable);
+    }
+
+    @Override
+    public Evaluator newInstance(){
+        return new HandCraftedEvaluator();
+    }
+
+    /**
+     * @return Fraction of the evaluations since the last attach() that found their pawn
+     * structure in the cache.
+     */
+    public double getPawnHitRate(){
+        return pawnTable.hitRate();
+    }
+}
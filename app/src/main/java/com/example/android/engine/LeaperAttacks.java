@@ -0,0 +1,45 @@
+package com.example.android.engine;
+
+/**
+ * Precomputed attack tables for the pieces that jump to a fixed set of squares: the knight, the
+ * king and the pawn captures. Every table has one bitboard per square, so looking up an attack
+ * set needs no allocation and no bounds checks.
+ * @author Krysti Leong, April Dizon
+ */
+public final class LeaperAttacks {
+
+    private static final long[] KNIGHT_ATTACKS = new long[64];
+    private static final long[] KING_ATTACKS = new long[64];
+    private static final long[][] PAWN_ATTACKS = new long[2][64];
+
+    static {
+        for (int square = 0; square < 64; square++){
+            long bit = 1L << square;
+            KNIGHT_ATTACKS[square] = Bitboards.knightAttacks(bit);
+            KING_ATTACKS[square] = Bitboards.kingAttacks(bit);
+            PAWN_ATTACKS[BitboardPosition.WHITE][square] = Bitboards.pawnAttacks(bit, BitboardPosition.WHITE);
+            PAWN_ATTACKS[BitboardPosition.BLACK][square] = Bitboards.pawnAttacks(bit, BitboardPosition.BLACK);
+        }
+    }
+
+    private LeaperAttacks(){
+    }
+
+    public static long knightAttacks(int square){
+        return KNIGHT_ATTACKS[square];
+    }
+
+    public static long kingAttacks(int square){
+        return KING_ATTACKS[square];
+    }
+
+    /**
+     * Get the squares a pawn on the given square can capture on.
+     * @param color Color of the pawn.
+     * @param square Square of the pawn.
+     * @return Bitboard of attacked squares.
+     */
+    public static long pawnAttacks(int color, int square){
+        return PAWN_ATTACKS[color][square];
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.android.engine;
+
+/**
+ * Static helpers for moves packed into an int, so that move lists can live in plain int arrays.
+ * Bits 0-5 hold the source square, bits 6-11 the destination square and bits 12-15 the flags.
+ * A promotion has the PROMOTION flag set, the CAPTURE flag if it also captures, and the
+ * promotion piece (knight, bishop, rook or queen) in the two lowest flag bits.
+ * @author Krysti Leong, April Dizon
+ */
+public final class Move {
+
+    public static final int NONE = 0;
+
+    public static final int QUIET = 0;
+    public static final int DOUBLE_PUSH = 1;
+    public static final int KING_CASTLE = 2;
+    public static final int QUEEN_CASTLE = 3;
+    public static final int CAPTURE = 4;
+    public static final int EN_PASSANT = 5;
+    public static final int PROMOTION = 8;
+
+    private Move(){
+    }
+
+    /**
+     * @param from Source square.
+     * @param to Destination square.
+     * @param flags One of the flag constants.
+     * @return The packed move.
+     */
+    public static int encode(int from, int to, int flags){
+        return from | (to << 6) | (flags << 12);
+    }
+
+    /**
+     * @param from Source square.
+     * @param to Destination square.
+     * @param promotionType KNIGHT, BISHOP, ROOK or QUEEN.
+     * @param capture True if the promotion also captures a piece.
+     * @return The packed move.
+     */
+    public static int promotion(int from, int to, int promotionType, boolean capture){
+        int flags = PROMOTION | (promotionType - BitboardPosition.KNIGHT) | (capture ? CAPTURE : 0);
+        return encode(from, to, flags);
+    }
+
+    public static int from(int move){
+        return move & 63;
+    }
+
+    public static int to(int move){
+        return (move >>> 6) & 63;
+    }
+
+    public static int flags(int move){
+        return (move >>> 12) & 15;
+    }
+
+    public static boolean isCapture(int move){
+        return (flags(move) & CAPTURE) != 0;
+    }
+
+    public static boolean isPromotion(int move){
+        return (flags(move) & PROMOTION) != 0;
+    }
+
+    public static boolean isCastle(int move){
+        int flags = flags(move);
+        return flags == KING_CASTLE || flags == QUEEN_CASTLE;
+    }
+
+    /**
+     * @param move A promotion.
+     * @return The piece type the pawn is promoted to.
+     */
+    public static int promotionType(int move){
+        return BitboardPosition.KNIGHT + (flags(move) & 3);
+    }
+
+    /**
+     * Get every square whose contents change when the move is made: the source and destination,
+     * the pawn taken en passant, and the rook's squares when castling.
+     * @param move The move.
+     * @return Bitboard of the changed squares.
+     */
+    public static long changedSquares(int move){
+        int from = from(move);
+        int to = to(move);
+        long squares = (1L << from) | (1L << to);
+        switch (flags(move)){
+            case EN_PASSANT: return squares | (1L << (to ^ 8));
+            case KING_CASTLE: return squares | (1L << (from + 3)) | (1L << (from + 1));
+            case QUEEN_CASTLE: return squares | (1L << (from - 4)) | (1L << (from - 1));
+            default: return squares;
+        }
+    }
+
+    /**
+     * Express the move in coordinate notation, such as "e2e4" or "e7e8q".
+     * @param move The move.
+     * @return String of the move.
+     */
+    public static String toString(int move){
+        if (move == NONE){
+            return "0000";
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append(squareToString(from(move))).append(squareToString(to(move)));
+        if (isPromotion(move)){
+            sb.append("nbrq".charAt(promotionType(move) - BitboardPosition.KNIGHT));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param square Square index.
+     * @return Name of the square, such as "e4".
+     */
+    public static String squareToString(int square){
+        return "" + (char) ('a' + Bitboards.file(square)) + (char) ('1' + Bitboards.row(square));
+    }
+}
@@ -0,0 +1,404 @@
+package com.example.android.engine;
+
+/**
+ * Generates the fully legal moves of the side to move. The checkers and the pinned pieces are
+ * found once up front, so every move that is emitted is legal and nothing has to be tried and
+ * taken back: pinned pieces may only move along the line through their king, and when in check
+ * every piece but the king may only capture the checker or block it.
+ *
+ * Moves are written into a buffer owned by the caller, which keeps generation allocation free.
+ * @author Krysti Leong, April Dizon
+ */
+public final class MoveGenerator {
+
+    /** Upper bound on the number of legal moves in any position, for sizing move buffers. */
+    public static final int MAX_MOVES = 256;
+
+    /** Generate every legal move. */
+    public static final int ALL = 0;
+    /** Generate only the captures, en passant and promotions. */
+    public static final int TACTICAL = 1;
+    /** Generate only the moves that ALL generates and TACTICAL doesn't. */
+    public static final int QUIET = 2;
+
+    // BETWEEN[a][b] holds the squares strictly between two aligned squares, and LINE[a][b] the
+    // whole line through both of them (empty if they aren't on a common rank, file or diagonal).
+    private static final long[][] BETWEEN = new long[64][64];
+    private static final long[][] LINE = new long[64][64];
+
+    static {
+        for (int a = 0; a < 64; a++){
+            for (int b = 0; b < 64; b++){
+                if (a == b){
+                    continue;
+                }
+                long bitB = 1L << b;
+                if ((SlidingAttacks.rookAttacks(a, 0L) & bitB) != 0){
+                    BETWEEN[a][b] = SlidingAttacks.rookAttacks(a, bitB) & SlidingAttacks.rookAttacks(b, 1L << a);
+                    LINE[a][b] = (SlidingAttacks.rookAttacks(a, 0L) & SlidingAttacks.rookAttacks(b, 0L)) | (1L << a) | bitB;
+                }
+                else if ((SlidingAttacks.bishopAttacks(a, 0L) & bitB) != 0){
+                    BETWEEN[a][b] = SlidingAttacks.bishopAttacks(a, bitB) & SlidingAttacks.bishopAttacks(b, 1L << a);
+                    LINE[a][b] = (SlidingAttacks.bishopAttacks(a, 0L) & SlidingAttacks.bishopAttacks(b, 0L)) | (1L << a) | bitB;
+                }
+            }
+        }
+    }
+
+    private MoveGenerator(){
+    }
+
+    /**
+     * @param a Square index.
+     * @param b Square index.
+     * @return Bitboard of the squares strictly between a and b, or 0 if they aren't aligned.
+     */
+    public static long between(int a, int b){
+        return BETWEEN[a][b];
+    }
+
+    /**
+     * @param a Square index.
+     * @param b Square index.
+     * @return Bitboard of the whole line through a and b, or 0 if they aren't aligned.
+     */
+    public static long line(int a, int b){
+        return LINE[a][b];
+    }
+
+    /**
+     * Generate every legal move of the side to move.
+     * @param position Position to generate the moves for.
+     * @param moves Buffer the moves are written into, with room for at least MAX_MOVES moves.
+     * @return Number of moves written.
+     */
+    public static int generateLegalMoves(BitboardPosition position, int[] moves){
+        return generateLegalMoves(position, moves, ALL);
+    }
+
+    /**
+     * Generate the legal moves of the side to move of one kind, so that a search can try the
+     * captures before it pays for generating the quiet moves.
+     * @param position Position to generate the moves for.
+     * @param moves Buffer the moves are written into, with room for at least MAX_MOVES moves.
+     * @param kind ALL, TACTICAL or QUIET.
+     * @return Number of moves written.
+     */
+    public static int generateLegalMoves(BitboardPosition position, int[] moves, int kind){
+        int us = position.getSideToMove();
+        int them = us ^ 1;
+        long ours = position.pieces(us);
+        long theirs = position.pieces(them);
+        long occupied = position.occupied();
+        int king = position.kingSquare(us);
+        int count = 0;
+        if (king == BitboardPosition.NO_SQUARE){
+            return count;
+        }
+        long kindMask = kind == TACTICAL ? theirs : kind == QUIET ? ~occupied : ~ours;
+
+        // The king may go anywhere the opponent doesn't attack. Its own square is taken off the
+        // occupancy so that it can't hide behind itself from a slider.
+        long danger = attackedSquares(position, them, occupied & ~(1L << king));
+        long targets = LeaperAttacks.kingAttacks(king) & kindMask & ~danger;
+        count = addMoves(moves, count, king, targets, theirs);
+
+        long checkers = position.attackersTo(king, occupied) & theirs;
+        if (Long.bitCount(checkers) > 1){
+            // Only the king can get out of a double check.
+            return count;
+        }
+
+        // The squares other pieces may move to: anywhere, or when in check, onto the checker or
+        // in between it and the king.
+        long checkMask = -1L;
+        if (checkers != 0){
+            int checker = Long.numberOfTrailingZeros(checkers);
+            checkMask = checkers | BETWEEN[king][checker];
+        }
+        long pinned = pinnedPieces(position, us, king);
+
+        count = generatePawnMoves(position, moves, count, us, king, checkMask, pinned, checkers, kind);
+
+        long pieces = ours & ~position.pieces(us, BitboardPosition.PAWN) & ~(1L << king);
+        while (pieces != 0){
+            int from = Long.numberOfTrailingZeros(pieces);
+            targets = position.attacksFrom(from) & kindMask & checkMask;
+            if ((pinned & (1L << from)) != 0){
+                targets &= LINE[king][from];
+            }
+            count = addMoves(moves, count, from, targets, theirs);
+            pieces &= pieces - 1;
+        }
+
+        if (checkers == 0 && kind != TACTICAL){
+            count = generateCastling(position, moves, count, us, king, danger);
+        }
+        return count;
+    }
+
+    /**
+     * Check whether a move is legal in a position without generating every move, for moves that
+     * come from somewhere other than the generator, like the transposition table (where another
+     * position with a colliding key may have left it) or the killer moves of a sibling node.
+     * @param position Position in question, which is left as it was.
+     * @param move Move to check.
+     * @return True if the move is one that generateLegalMoves() would emit.
+     */
+    public static boolean isLegal(BitboardPosition position, int move){
+        if (move == Move.NONE){
+            return false;
+        }
+        int us = position.getSideToMove();
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int piece = position.pieceAt(from);
+        if (piece == BitboardPosition.NO_PIECE || BitboardPosition.colorOf(piece) != us){
+            return false;
+        }
+        int target = position.pieceAt(to);
+        if (target != BitboardPosition.NO_PIECE && BitboardPosition.colorOf(target) == us){
+            return false;
+        }
+
+        int flags = Move.flags(move);
+        if (Move.isCastle(move)){
+            // Rare enough that it isn't worth repeating the castling rules here.
+            int[] moves = new int[MAX_MOVES];
+            int count = generateLegalMoves(position, moves, QUIET);
+            for (int i = 0; i < count; i++){
+                if (moves[i] == move){
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (BitboardPosition.typeOf(piece) == BitboardPosition.PAWN){
+            int forward = us == BitboardPosition.WHITE ? 8 : -8;
+            long promotionRank = us == BitboardPosition.WHITE ? Bitboards.RANK_8 : Bitboards.RANK_1;
+            if (Move.isPromotion(move) != (((1L << to) & promotionRank) != 0)
+                    || (!Move.isPromotion(move) && (flags & 2) != 0)){
+                return false;
+            }
+            if (flags == Move.EN_PASSANT){
+                if (to != position.getEnPassantSquare()
+                        || (LeaperAttacks.pawnAttacks(us, from) & (1L << to)) == 0){
+                    return false;
+                }
+            }
+            else if (Move.isCapture(move)){
+                if (target == BitboardPosition.NO_PIECE
+                        || (LeaperAttacks.pawnAttacks(us, from) & (1L << to)) == 0){
+                    return false;
+                }
+            }
+            else if (flags == Move.DOUBLE_PUSH){
+                long doublePushRank = us == BitboardPosition.WHITE ? Bitboards.RANK_4 : Bitboards.RANK_5;
+                if (to != from + 2 * forward || ((1L << to) & doublePushRank) == 0
+                        || position.pieceAt(from + forward) != BitboardPosition.NO_PIECE
+                        || target != BitboardPosition.NO_PIECE){
+                    return false;
+                }
+            }
+            else if (to != from + forward || target != BitboardPosition.NO_PIECE){
+                return false;
+            }
+        }
+        else{
+            if ((flags != Move.QUIET && flags != Move.CAPTURE)
+                    || Move.isCapture(move) != (target != BitboardPosition.NO_PIECE)
+                    || (position.attacksFrom(from) & (1L << to)) == 0){
+                return false;
+            }
+        }
+
+        // The move is possible, so it's legal if it doesn't leave the king in check.
+        position.makeMove(move);
+        boolean legal = !position.isInCheck(us);
+        position.unmakeMove();
+        return legal;
+    }
+
+    /**
+     * Find the pieces of the given color that are pinned to their king by an enemy slider.
+     * @param position Position in question.
+     * @param color Color of the king.
+     * @param king Square of the king.
+     * @return Bitboard of the pinned pieces.
+     */
+    public static long pinnedPieces(BitboardPosition position, int color, int king){
+        int them = color ^ 1;
+        long theirs = position.pieces(them);
+        long queens = position.pieces(them, BitboardPosition.QUEEN);
+        long snipers = (SlidingAttacks.rookAttacks(king, theirs)
+                & (position.pieces(them, BitboardPosition.ROOK) | queens))
+                | (SlidingAttacks.bishopAttacks(king, theirs)
+                & (position.pieces(them, BitboardPosition.BISHOP) | queens));
+        long occupied = position.occupied();
+        long pinned = 0L;
+        while (snipers != 0){
+            int sniper = Long.numberOfTrailingZeros(snipers);
+            long blockers = BETWEEN[king][sniper] & occupied;
+            if (blockers != 0 && (blockers & (blockers - 1)) == 0){
+                pinned |= blockers & position.pieces(color);
+            }
+            snipers &= snipers - 1;
+        }
+        return pinned;
+    }
+
+    /**
+     * Get every square attacked by a color for a given occupancy.
+     * @param position Position in question.
+     * @param color Color of the attacking side.
+     * @param occupied Occupancy the sliding pieces see.
+     * @return Bitboard of the attacked squares.
+     */
+    private static long attackedSquares(BitboardPosition position, int color, long occupied){
+        long attacks = Bitboards.pawnAttacks(position.pieces(color, BitboardPosition.PAWN), color)
+                | Bitboards.kingAttacks(position.pieces(color, BitboardPosition.KING));
+        long knights = position.pieces(color, BitboardPosition.KNIGHT);
+        while (knights != 0){
+            attacks |= LeaperAttacks.knightAttacks(Long.numberOfTrailingZeros(knights));
+            knights &= knights - 1;
+        }
+        long queens = position.pieces(color, BitboardPosition.QUEEN);
+        long rooks = position.pieces(color, BitboardPosition.ROOK) | queens;
+        while (rooks != 0){
+            attacks |= SlidingAttacks.rookAttacks(Long.numberOfTrailingZeros(rooks), occupied);
+            rooks &= rooks - 1;
+        }
+        long bishops = position.pieces(color, BitboardPosition.BISHOP) | queens;
+        while (bishops != 0){
+            attacks |= SlidingAttacks.bishopAttacks(Long.numberOfTrailingZeros(bishops), occupied);
+            bishops &= bishops - 1;
+        }
+        return attacks;
+    }
+
+    private static int generatePawnMoves(BitboardPosition position, int[] moves, int count, int us,
+                                         int king, long checkMask, long pinned, long checkers,
+                                         int kind){
+        long theirs = position.pieces(us ^ 1);
+        long empty = ~position.occupied();
+        long promotionRank = us == BitboardPosition.WHITE ? Bitboards.RANK_8 : Bitboards.RANK_1;
+        long doublePushRank = us == BitboardPosition.WHITE ? Bitboards.RANK_4 : Bitboards.RANK_5;
+        int forward = us == BitboardPosition.WHITE ? 8 : -8;
+        int enPassant = position.getEnPassantSquare();
+
+        long pawns = position.pieces(us, BitboardPosition.PAWN);
+        while (pawns != 0){
+            int from = Long.numberOfTrailingZeros(pawns);
+            pawns &= pawns - 1;
+            long allowed = checkMask;
+            if ((pinned & (1L << from)) != 0){
+                allowed &= LINE[king][from];
+            }
+
+            // Pushes, 1 space forward, and 2 spaces when the first is free too.
+            long single = (1L << (from + forward)) & empty;
+            long pushes = single;
+            if (single != 0){
+                pushes |= (1L << (from + 2 * forward)) & empty & doublePushRank;
+            }
+            pushes &= allowed;
+            // Pushes onto the last rank are promotions, which count as tactical moves.
+            if (kind == TACTICAL){
+                pushes &= promotionRank;
+            }
+            else if (kind == QUIET){
+                pushes &= ~promotionRank;
+            }
+            while (pushes != 0){
+                int to = Long.numberOfTrailingZeros(pushes);
+                if (((1L << to) & promotionRank) != 0){
+                    count = addPromotions(moves, count, from, to, false);
+                }
+                else{
+                    moves[count++] = Move.encode(from, to, to - from == 2 * forward ? Move.DOUBLE_PUSH : Move.QUIET);
+                }
+                pushes &= pushes - 1;
+            }
+
+            if (kind == QUIET){
+                continue;
+            }
+            long attacks = LeaperAttacks.pawnAttacks(us, from);
+            long captures = attacks & theirs & allowed;
+            while (captures != 0){
+                int to = Long.numberOfTrailingZeros(captures);
+                if (((1L << to) & promotionRank) != 0){
+                    count = addPromotions(moves, count, from, to, true);
+                }
+                else{
+                    moves[count++] = Move.encode(from, to, Move.CAPTURE);
+                }
+                captures &= captures - 1;
+            }
+
+            if (enPassant != BitboardPosition.NO_SQUARE && (attacks & (1L << enPassant)) != 0
+                    && isLegalEnPassant(position, us, king, from, enPassant, checkers)){
+                moves[count++] = Move.encode(from, enPassant, Move.EN_PASSANT);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * En passant takes two pieces off a rank at once, which can expose the king in a way the
+     * pin detection doesn't see. Rather than special casing it, look at the occupancy after the
+     * capture and check that no slider sees the king.
+     */
+    private static boolean isLegalEnPassant(BitboardPosition position, int us, int king, int from,
+                                            int to, long checkers){
+        int captured = to ^ 8;
+        // When in check, the capture has to take the checker (or block it, which can't happen
+        // when the checker is a pawn, so the slider test below covers it).
+        if (checkers != 0 && (checkers & (1L << captured)) == 0 && (BETWEEN[king][Long.numberOfTrailingZeros(checkers)] & (1L << to)) == 0){
+            return false;
+        }
+        int them = us ^ 1;
+        long occupied = (position.occupied() ^ (1L << from) ^ (1L << captured)) | (1L << to);
+        long queens = position.pieces(them, BitboardPosition.QUEEN);
+        long rooks = position.pieces(them, BitboardPosition.ROOK) | queens;
+        long bishops = position.pieces(them, BitboardPosition.BISHOP) | queens;
+        return (SlidingAttacks.rookAttacks(king, occupied) & rooks) == 0
+                && (SlidingAttacks.bishopAttacks(king, occupied) & bishops) == 0;
+    }
+
+    private static int generateCastling(BitboardPosition position, int[] moves, int count, int us,
+                                        int king, long danger){
+        int rights = position.getCastlingRights();
+        int kingSide = us == BitboardPosition.WHITE ? BitboardPosition.WHITE_KINGSIDE : BitboardPosition.BLACK_KINGSIDE;
+        int queenSide = us == BitboardPosition.WHITE ? BitboardPosition.WHITE_QUEENSIDE : BitboardPosition.BLACK_QUEENSIDE;
+        long occupied = position.occupied();
+
+        // The king crosses 2 squares, which must be empty and safe. Going queen side the square
+        // next to the rook must be empty too, but may be attacked.
+        if ((rights & kingSide) != 0 && (occupied & (3L << (king + 1))) == 0
+                && (danger & (3L << (king + 1))) == 0){
+            moves[count++] = Move.encode(king, king + 2, Move.KING_CASTLE);
+        }
+        if ((rights & queenSide) != 0 && (occupied & (7L << (king - 3))) == 0
+                && (danger & (3L << (king - 2))) == 0){
+            moves[count++] = Move.encode(king, king - 2, Move.QUEEN_CASTLE);
+        }
+        return count;
+    }
+
+    private static int addMoves(int[] moves, int count, int from, long targets, long theirs){
+        while (targets != 0){
+            int to = Long.numberOfTrailingZeros(targets);
+            moves[count++] = Move.encode(from, to, (theirs & (1L << to)) != 0 ? Move.CAPTURE : Move.QUIET);
+            targets &= targets - 1;
+        }
+        return count;
+    }
+
+    private static int addPromotions(int[] moves, int count, int from, int to, boolean capture){
+        for (int type = BitboardPosition.QUEEN; type >= BitboardPosition.KNIGHT; type--){
+            moves[count++] = Move.promotion(from, to, type, capture);
+        }
+        return count;
+    }
+}
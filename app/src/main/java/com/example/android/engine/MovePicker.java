@@ -0,0 +1,241 @@
+package com.example.android.engine;
+
+/**
+ * Hands out the moves of a node one at a time, best guesses first, in stages: the move from the
+ * transposition table, the captures and promotions by MVV-LVA (most valuable victim, least
+ * valuable attacker), the killer moves, the counter move, the remaining quiet moves by their
+ * history score, and last the captures that the static exchange evaluation says lose material.
+ * Each stage is only generated when the one before it runs out, and the moves of a
+ * stage are picked with a selection sort, so a cutoff early on saves the work on the rest.
+ *
+ * The Search keeps one MovePicker per ply and calls init() on it at every node, or
+ * initQuiescence() in the quiescence search, which only wants the captures that don't lose
+ * material.
+ * @author Krysti Leong, April Dizon
+ */
+public class MovePicker {
+
+    //region STAGES
+
+    private static final int TABLE_MOVE = 0;
+    private static final int GENERATE_TACTICAL = 1;
+    private static final int TACTICAL = 2;
+    private static final int GENERATE_QUIET = 3;
+    private static final int KILLER_1 = 4;
+    private static final int KILLER_2 = 5;
+    private static final int COUNTER_MOVE = 6;
+    private static final int QUIET = 7;
+    private static final int BAD_TACTICAL = 8;
+    private static final int DONE = 9;
+
+    //endregion
+
+    private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+    private final int[] scores = new int[MoveGenerator.MAX_MOVES];
+    private final int[] badMoves = new int[MoveGenerator.MAX_MOVES];
+    private final int[] exchangeGain = new int[StaticExchange.GAIN_SIZE];
+
+    private BitboardPosition position;
+    private int[][] history;
+    private int stage;
+    private int count;
+    private int next;
+    private int badCount;
+    private int badNext;
+    private boolean quiescence;
+    private int tableMove;
+    private int killer1;
+    private int killer2;
+    private int counterMove;
+
+    /**
+     * Get ready to pick the moves of a new node.
+     * @param position Position of the node.
+     * @param tableMove Best move from the transposition table, or Move.NONE.
+     * @param killer1 Latest quiet move that caused a cutoff at this ply, or Move.NONE.
+     * @param killer2 The killer before that, or Move.NONE.
+     * @param counterMove Quiet move that last refuted the opponent's previous move, or Move.NONE.
+     * @param history Butterfly history scores, indexed by side to move and from * 64 + to.
+     */
+    public void init(BitboardPosition position, int tableMove, int killer1, int killer2,
+                     int counterMove, int[][] history){
+        this.position = position;
+        this.tableMove = tableMove;
+        this.killer1 = killer1;
+        this.killer2 = killer2;
+        this.counterMove = counterMove;
+        this.history = history;
+        quiescence = false;
+        stage = TABLE_MOVE;
+        count = 0;
+        next = 0;
+        badCount = 0;
+        badNext = 0;
+    }
+
+    /**
+     * Get ready to pick the captures and promotions of a quiescence search node that isn't in
+     * check. The ones that lose material are left out.
+     * @param position Position of the node.
+     * @param tableMove Best move from the transposition table, or Move.NONE. Only tried if it's
+     * a capture or a promotion.
+     */
+    public void initQuiescence(BitboardPosition position, int tableMove){
+        init(position, Move.isCapture(tableMove) || Move.isPromotion(tableMove) ? tableMove : Move.NONE,
+                Move.NONE, Move.NONE, Move.NONE, null);
+        quiescence = true;
+    }
+
+    /**
+     * @return The next move to search, or Move.NONE when there are none left.
+     */
+    public int next(){
+        while (true){
+            switch (stage){
+                case TABLE_MOVE:
+                    stage = GENERATE_TACTICAL;
+                    if (MoveGenerator.isLegal(position, tableMove)){
+                        return tableMove;
+                    }
+                    tableMove = Move.NONE;
+                    break;
+                case GENERATE_TACTICAL:
+                    count = MoveGenerator.generateLegalMoves(position, moves, MoveGenerator.TACTICAL);
+                    next = 0;
+                    for (int i = 0; i < count; i++){
+                        scores[i] = tacticalScore(moves[i]);
+                    }
+                    stage = TACTICAL;
+                    break;
+                case TACTICAL:
+                    if (next < count){
+                        int move = pickBest();
+                        if (move == tableMove){
+                            break;
+                        }
+                        // Taking a defended piece with a more valuable one is left for later.
+                        if (mayLoseMaterial(move) && StaticExchange.evaluate(position, move, exchangeGain) < 0){
+                            badMoves[badCount++] = move;
+                            break;
+                        }
+                        return move;
+                    }
+                    stage = quiescence ? DONE : GENERATE_QUIET;
+                    break;
+                case GENERATE_QUIET:
+                    // The killers and the counter move are only tried if they are among the
+                    // legal quiet moves, so generate those first.
+                    count = MoveGenerator.generateLegalMoves(position, moves, MoveGenerator.QUIET);
+                    next = 0;
+                    int[] scoreTable = history[position.getSideToMove()];
+                    for (int i = 0; i < count; i++){
+                        scores[i] = scoreTable[Move.from(moves[i]) << 6 | Move.to(moves[i])];
+                    }
+                    stage = KILLER_1;
+                    break;
+                case KILLER_1:
+                    stage = KILLER_2;
+                    if (killer1 != tableMove && take(killer1)){
+                        return killer1;
+                    }
+                    break;
+                case KILLER_2:
+                    stage = COUNTER_MOVE;
+                    if (killer2 != tableMove && killer2 != killer1 && take(killer2)){
+                        return killer2;
+                    }
+                    break;
+                case COUNTER_MOVE:
+                    stage = QUIET;
+                    if (counterMove != tableMove && counterMove != killer1 && counterMove != killer2
+                            && take(counterMove)){
+                        return counterMove;
+                    }
+                    break;
+                case QUIET:
+                    if (next < count){
+                        int move = pickBest();
+                        if (move != tableMove){
+                            return move;
+                        }
+                        break;
+                    }
+                    stage = BAD_TACTICAL;
+                    break;
+                case BAD_TACTICAL:
+                    if (badNext < badCount){
+                        return badMoves[badNext++];
+                    }
+                    stage = DONE;
+                    break;
+                default:
+                    return Move.NONE;
+            }
+        }
+    }
+
+    private int tacticalScore(int move){
+        int score = 0;
+        if (Move.isCapture(move)){
+            int victim = Move.flags(move) == Move.EN_PASSANT ? BitboardPosition.PAWN
+                    : BitboardPosition.typeOf(position.pieceAt(Move.to(move)));
+            int attacker = BitboardPosition.typeOf(position.pieceAt(Move.from(move)));
+            score = Evaluation.PIECE_VALUES[victim] * 8 - attacker;
+        }
+        if (Move.isPromotion(move)){
+            score += Evaluation.PIECE_VALUES[Move.promotionType(move)] * 8;
+        }
+        return score;
+    }
+
+    /**
+     * A capture can only lose material when the piece taking is worth more than the one taken,
+     * which saves most of the static exchange evaluations.
+     */
+    private boolean mayLoseMaterial(int move){
+        if (!Move.isCapture(move) || Move.flags(move) == Move.EN_PASSANT){
+            return false;
+        }
+        int attacker = BitboardPosition.typeOf(position.pieceAt(Move.from(move)));
+        int victim = BitboardPosition.typeOf(position.pieceAt(Move.to(move)));
+        return Evaluation.PIECE_VALUES[attacker] > Evaluation.PIECE_VALUES[victim];
+    }
+
+    /**
+     * Swap the best scored of the remaining moves to the front and return it.
+     */
+    private int pickBest(){
+        int best = next;
+        for (int i = next + 1; i < count; i++){
+            if (scores[i] > scores[best]){
+                best = i;
+            }
+        }
+        int move = moves[best];
+        moves[best] = moves[next];
+        scores[best] = scores[next];
+        moves[next] = move;
+        next++;
+        return move;
+    }
+
+    /**
+     * Remove a move from the remaining quiet moves, so that it isn't returned twice.
+     * @return True if the move was among them.
+     */
+    private boolean take(int move){
+        if (move == Move.NONE){
+            return false;
+        }
+        for (int i = next; i < count; i++){
+            if (moves[i] == move){
+                moves[i] = moves[next];
+                scores[i] = scores[next];
+                moves[next] = move;
+                next++;
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.android.engine;
+
+import java.util.Arrays;
+
+/**
+ * The feature transformer output of an NnueNetwork for both colors, kept up to date by the
+ * BitboardPosition it's attached to. A piece put or removed adds or subtracts one column of
+ * weights, and makeMove() pushes a copy that unmakeMove() pops again, so taking a move back
+ * costs nothing. A king move changes every input of its own color, so that side is marked dirty
+ * and recomputed from the position when it's next needed.
+ * @author Krysti Leong, April Dizon
+ */
+public class NnueAccumulator {
+
+    private static final int INITIAL_STACK_SIZE = 128;
+
+    private final NnueNetwork network;
+    private final int hidden;
+    // values[ply][color] holds the first layer seen from that color after ply moves.
+    private short[][][] values;
+    private boolean[][] dirty;
+    private int top;
+
+    /**
+     * Constructor for the NnueAccumulator.
+     * @param network Network whose first layer is accumulated.
+     */
+    public NnueAccumulator(NnueNetwork network){
+        this.network = network;
+        this.hidden = network.hidden;
+        values = new short[INITIAL_STACK_SIZE][2][hidden];
+        dirty = new boolean[INITIAL_STACK_SIZE][2];
+    }
+
+    /**
+     * Recompute both colors from scratch and empty the stack.
+     * @param position Position the accumulator is attached to.
+     */
+    void reset(BitboardPosition position){
+        top = 0;
+        refresh(position, BitboardPosition.WHITE);
+        refresh(position, BitboardPosition.BLACK);
+    }
+
+    /**
+     * Save the current values before a move changes them.
+     */
+    void push(){
+        if (top + 1 == values.length){
+            int size = values.length * 2;
+            values = Arrays.copyOf(values, size);
+            dirty = Arrays.copyOf(dirty, size);
+            for (int i = top + 1; i < size; i++){
+                values[i] = new short[2][hidden];
+                dirty[i] = new boolean[2];
+            }
+        }
+        for (int color = 0; color < 2; color++){
+            System.arraycopy(values[top][color], 0, values[top + 1][color], 0, hidden);
+            dirty[top + 1][color] = dirty[top][color];
+        }
+        top++;
+    }
+
+    /**
+     * Go back to the values before the last push().
+     */
+    void pop(){
+        top--;
+    }
+
+    /**
+     * A piece was put on a square.
+     */
+    void add(BitboardPosition position, int piece, int square){
+        update(position, piece, square, 1);
+    }
+
+    /**
+     * A piece was removed from a square.
+     */
+    void remove(BitboardPosition position, int piece, int square){
+        update(position, piece, square, -1);
+    }
+
+    private void update(BitboardPosition position, int piece, int square, int sign){
+        if (BitboardPosition.typeOf(piece) == BitboardPosition.KING){
+            dirty[top][BitboardPosition.colorOf(piece)] = true;
+            return;
+        }
+        for (int color = 0; color < 2; color++){
+            if (dirty[top][color]){
+                continue;
+            }
+            int king = position.kingSquare(color);
+            if (king == BitboardPosition.NO_SQUARE){
+                dirty[top][color] = true;
+                continue;
+            }
+            int offset = NnueNetwork.featureIndex(color, king, piece, square) * hidden;
+            short[] accumulated = values[top][color];
+            short[] weights = network.featureWeights;
+            if (sign > 0){
+                for (int i = 0; i < hidden; i++){
+                    accumulated[i] += weights[offset + i];
+                }
+            }
+            else{
+                for (int i = 0; i < hidden; i++){
+                    accumulated[i] -= weights[offset + i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the first layer seen from one color, recomputing it first if a king move left it dirty.
+     * @param position Position the accumulator is attached to.
+     * @param color The color.
+     * @return The values, which must not be changed.
+     */
+    short[] get(BitboardPosition position, int color){
+        if (dirty[top][color]){
+            refresh(position, color);
+        }
+        return values[top][color];
+    }
+
+    private void refresh(BitboardPosition position, int color){
+        short[] accumulated = values[top][color];
+        System.arraycopy(network.featureBiases, 0, accumulated, 0, hidden);
+        dirty[top][color] = false;
+        int king = position.kingSquare(color);
+        if (king == BitboardPosition.NO_SQUARE){
+            return;
+        }
+        short[] weights = network.featureWeights;
+        long pieces = position.occupied() & ~position.pieces(BitboardPosition.WHITE, BitboardPosition.KING)
+                & ~position.pieces(BitboardPosition.BLACK, BitboardPosition.KING);
+        while (pieces != 0){
+            int square = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            int offset = NnueNetwork.featureIndex(color, king, position.pieceAt(square), square) * hidden;
+            for (int i = 0; i < hidden; i++){
+                accumulated[i] += weights[offset + i];
+            }
+        }
+    }
+}
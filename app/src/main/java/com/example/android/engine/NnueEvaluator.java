@@ -0,0 +1,52 @@
+package com.example.android.engine;
+
+/**
+ * Evaluates with an NnueNetwork. Attaching to a position gives it an NnueAccumulator, so the
+ * network's first layer follows the moves of the search and only the small layers after it are
+ * computed per evaluation.
+ * @author Krysti Leong, April Dizon
+ */
+public class NnueEvaluator implements Evaluator {
+
+    private final NnueNetwork network;
+    private final NnueAccumulator accumulator;
+    private final int[] input;
+    private final int[] first;
+    private final int[] second;
+
+    /**
+     * Constructor for the NnueEvaluator.
+     * @param network Network to evaluate with, which may be shared with other evaluators.
+     */
+    public NnueEvaluator(NnueNetwork network){
+        this.network = network;
+        this.accumulator = new NnueAccumulator(network);
+        this.input = new int[2 * network.hidden];
+        this.first = new int[network.layer1];
+        this.second = new int[network.layer2];
+    }
+
+    @Override
+    public void attach(BitboardPosition position){
+        position.setAccumulator(accumulator);
+    }
+
+    @Override
+    public int evaluate(BitboardPosition position){
+        int us = position.getSideToMove();
+        NnueAccumulator attached = position.getAccumulator();
+        if (attached == null){
+            // Not attached, such as a one-off evaluation, so accumulate from scratch.
+            attach(position);
+            int score = evaluate(position);
+            position.setAccumulator(null);
+            return score;
+        }
+        return network.propagate(attached.get(position, us), attached.get(position, us ^ 1), input, first, second);
+    }
+
+    @Override
+    public Evaluator newInstance(){
+        return new NnueEvaluator(network);
+    }
+}
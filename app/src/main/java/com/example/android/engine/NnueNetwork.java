@@ -0,0 +1,196 @@
+package com.example.android.engine;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Weights of an efficiently updatable neural network (NNUE) with HalfKP inputs: one input for
+ * every square of the own king, combined with every non-king piece on every square. The first
+ * layer (the feature transformer) is wide and sparse, and is kept up to date as pieces move by
+ * an NnueAccumulator. The small layers after it are computed at every evaluation, in integers.
+ *
+ * The weights file is little endian: the int MAGIC, the int VERSION, the sizes of the hidden,
+ * first and second layers as ints, then the feature transformer biases (short[hidden]) and
+ * weights (short[FEATURES][hidden]), the first layer weights (byte[layer1][2 * hidden]) and
+ * biases (int[layer1]), the second layer weights (byte[layer2][layer1]) and biases (int[layer2]),
+ * and last the output weights (byte[layer2]) and bias (int).
+ * @author Krysti Leong, April Dizon
+ */
+public class NnueNetwork {
+
+    /** "NNUE" in ASCII, read as a little endian int. */
+    public static final int MAGIC = 0x45554E4E;
+    public static final int VERSION = 1;
+    /** Inputs per perspective: king squares times 10 non-king piece codes times squares. */
+    public static final int FEATURES = 64 * 10 * 64;
+
+    // Activations are clipped to 0..127, and the hidden layers shift their sums back down by
+    // WEIGHT_SHIFT so that they stay in that range. The output is in 1/OUTPUT_SCALE centipawns.
+    private static final int ACTIVATION_MAX = 127;
+    private static final int WEIGHT_SHIFT = 6;
+    private static final int OUTPUT_SCALE = 16;
+
+    final int hidden;
+    final int layer1;
+    final int layer2;
+    final short[] featureBiases;
+    final short[] featureWeights;
+    private final byte[] layer1Weights;
+    private final int[] layer1Biases;
+    private final byte[] layer2Weights;
+    private final int[] layer2Biases;
+    private final byte[] outputWeights;
+    private final int outputBias;
+
+    private NnueNetwork(ByteBuffer buffer) throws IOException{
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.remaining() < 20 || buffer.getInt() != MAGIC){
+            throw new IOException("Not a network file");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION){
+            throw new IOException("Unsupported network version " + version);
+        }
+        hidden = buffer.getInt();
+        layer1 = buffer.getInt();
+        layer2 = buffer.getInt();
+        if (hidden <= 0 || layer1 <= 0 || layer2 <= 0 || hidden > 4096 || layer1 > 4096 || layer2 > 4096){
+            throw new IOException("Bad layer sizes " + hidden + ", " + layer1 + ", " + layer2);
+        }
+        long expected = 2L * hidden + 2L * FEATURES * hidden + 2L * hidden * layer1 + 4L * layer1
+                + (long) layer1 * layer2 + 4L * layer2 + layer2 + 4;
+        if (buffer.remaining() != expected){
+            throw new IOException("Network file has " + buffer.remaining() + " bytes of weights, expected " + expected);
+        }
+
+        featureBiases = new short[hidden];
+        buffer.asShortBuffer().get(featureBiases);
+        buffer.position(buffer.position() + 2 * hidden);
+        featureWeights = new short[FEATURES * hidden];
+        buffer.asShortBuffer().get(featureWeights);
+        buffer.position(buffer.position() + 2 * featureWeights.length);
+
+        // Stored by output, kept by input, so that propagate() can skip the inputs that are 0.
+        byte[] byOutput = new byte[layer1 * 2 * hidden];
+        buffer.get(byOutput);
+        layer1Weights = new byte[byOutput.length];
+        for (int i = 0; i < layer1; i++){
+            for (int j = 0; j < 2 * hidden; j++){
+                layer1Weights[j * layer1 + i] = byOutput[i * 2 * hidden + j];
+            }
+        }
+        layer1Biases = new int[layer1];
+        buffer.asIntBuffer().get(layer1Biases);
+        buffer.position(buffer.position() + 4 * layer1);
+
+        layer2Weights = new byte[layer2 * layer1];
+        buffer.get(layer2Weights);
+        layer2Biases = new int[layer2];
+        buffer.asIntBuffer().get(layer2Biases);
+        buffer.position(buffer.position() + 4 * layer2);
+
+        outputWeights = new byte[layer2];
+        buffer.get(outputWeights);
+        outputBias = buffer.getInt();
+    }
+
+    /**
+     * Load a network from a weights file, in the format described above.
+     * @param file The weights file.
+     * @return The network.
+     * @throws IOException If the file can't be read or isn't a network of a supported version.
+     */
+    public static NnueNetwork load(File file) throws IOException{
+        try (FileInputStream in = new FileInputStream(file); FileChannel channel = in.getChannel()){
+            return new NnueNetwork(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Read a network from weights already in memory, such as an asset.
+     * @param buffer The weights, from its position to its limit.
+     * @return The network.
+     * @throws IOException If the weights aren't a network of a supported version.
+     */
+    public static NnueNetwork read(ByteBuffer buffer) throws IOException{
+        return new NnueNetwork(buffer.slice());
+    }
+
+    public int getHiddenSize(){
+        return hidden;
+    }
+
+    /**
+     * Get the input of a piece seen from one side. Black's side is the board flipped, so that
+     * the network always sees its own king at the bottom.
+     * @param perspective Color whose side is seen.
+     * @param king Square of that color's king.
+     * @param piece Piece code of a pawn through a queen.
+     * @param square Square of the piece.
+     * @return Index of the input.
+     */
+    static int featureIndex(int perspective, int king, int piece, int square){
+        int relative = BitboardPosition.colorOf(piece) == perspective ? 0 : 1;
+        if (perspective == BitboardPosition.BLACK){
+            king ^= 56;
+            square ^= 56;
+        }
+        return (king * 10 + BitboardPosition.typeOf(piece) * 2 + relative) * 64 + square;
+    }
+
+    /**
+     * Run the layers after the feature transformer. The buffers are the caller's, so that an
+     * evaluation allocates nothing.
+     * @param us Accumulated first layer of the side to move.
+     * @param them Accumulated first layer of the other side.
+     * @param input Buffer of 2 * hidden ints.
+     * @param first Buffer of layer1 ints.
+     * @param second Buffer of layer2 ints.
+     * @return Score for the side to move, in centipawns.
+     */
+    int propagate(short[] us, short[] them, int[] input, int[] first, int[] second){
+        for (int i = 0; i < hidden; i++){
+            input[i] = clip(us[i]);
+            input[hidden + i] = clip(them[i]);
+        }
+        // The clipped inputs are often 0, so the first layer goes input by input and skips those.
+        System.arraycopy(layer1Biases, 0, first, 0, layer1);
+        for (int j = 0, offset = 0; j < 2 * hidden; j++, offset += layer1){
+            int x = input[j];
+            if (x == 0){
+                continue;
+            }
+            for (int i = 0; i < layer1; i++){
+                first[i] += layer1Weights[offset + i] * x;
+            }
+        }
+        for (int i = 0; i < layer1; i++){
+            first[i] = clip(first[i] >> WEIGHT_SHIFT);
+        }
+        layer(first, layer1, layer2Weights, layer2Biases, second, layer2);
+        int output = outputBias;
+        for (int i = 0; i < layer2; i++){
+            output += outputWeights[i] * second[i];
+        }
+        return output / OUTPUT_SCALE;
+    }
+
+    // Plain loops over primitive arrays, which the JIT can turn into SIMD instructions itself.
+    private static void layer(int[] input, int inputs, byte[] weights, int[] biases, int[] output, int size){
+        for (int i = 0, offset = 0; i < size; i++, offset += inputs){
+            int sum = biases[i];
+            for (int j = 0; j < inputs; j++){
+                sum += weights[offset + j] * input[j];
+            }
+            output[i] = clip(sum >> WEIGHT_SHIFT);
+        }
+    }
+
+    private static int clip(int value){
+        return Math.max(0, Math.min(ACTIVATION_MAX, value));
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.android.engine;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Perft that splits the tree across cores with fork/join. The moves of the first plies are turned
+ * into tasks, and each task counts its sub-tree on its own copy of the position, so the threads
+ * share nothing but the optional hash table of sub-tree counts.
+ * @author Krysti Leong, April Dizon
+ */
+public class ParallelPerft {
+
+    private final ForkJoinPool pool;
+    private final int splitPlies;
+    private final PerftTable table;
+
+    // Leaf nodes counted and time spent counting by each worker thread, keyed by thread name.
+    // Each thread only ever writes to its own entry.
+    private final Map<String, long[]> threadStats = new ConcurrentHashMap<String, long[]>();
+
+    /**
+     * Constructor for the ParallelPerft.
+     * @param threads Number of worker threads.
+     * @param splitPlies Number of plies whose moves are split into tasks, 1 for the root moves
+     *                   only, or 2 to split the replies too.
+     * @param hashMegabytes Size of the shared hash table of sub-tree counts, or 0 for none.
+     */
+    public ParallelPerft(int threads, int splitPlies, int hashMegabytes){
+        this.pool = new ForkJoinPool(threads);
+        this.splitPlies = Math.max(1, splitPlies);
+        this.table = hashMegabytes > 0 ? new PerftTable(hashMegabytes) : null;
+    }
+
+    /**
+     * Count the leaf nodes down to the given depth.
+     * @param position Position to count from. It is not changed.
+     * @param depth Depth in plies, between 0 and Perft.MAX_DEPTH.
+     * @return The count, along with the per-thread statistics.
+     */
+    public Result perft(BitboardPosition position, int depth){
+        threadStats.clear();
+        long start = System.nanoTime();
+        long nodes = pool.invoke(new PerftTask(new BitboardPosition(position), depth, splitPlies));
+        long elapsed = System.nanoTime() - start;
+        return new Result(nodes, elapsed, new TreeMap<String, long[]>(threadStats));
+    }
+
+    /**
+     * Stop the worker threads once they're idle.
+     */
+    public void shutdown(){
+        pool.shutdown();
+    }
+
+    /**
+     * Task that counts the sub-tree below a position, either by splitting its moves into more
+     * tasks or by counting it sequentially.
+     */
+    private class PerftTask extends RecursiveTask<Long> {
+
+        private final BitboardPosition position;
+        private final int depth;
+        private final int split;
+
+        PerftTask(BitboardPosition position, int depth, int split){
+            this.position = position;
+            this.depth = depth;
+            this.split = split;
+        }
+
+        @Override
+        protected Long compute(){
+            if (split == 0 || depth <= 2){
+                long start = System.nanoTime();
+                long nodes = new Perft(position, table).perft(depth);
+                long[] stats = threadStats.get(Thread.currentThread().getName());
+                if (stats == null){
+                    stats = new long[2];
+                    threadStats.put(Thread.currentThread().getName(), stats);
+                }
+                stats[0] += nodes;
+                stats[1] += System.nanoTime() - start;
+                return nodes;
+            }
+
+            int[] moves = new int[MoveGenerator.MAX_MOVES];
+            int count = MoveGenerator.generateLegalMoves(position, moves);
+            PerftTask[] tasks = new PerftTask[count];
+            for (int i = 0; i < count; i++){
+                BitboardPosition child = new BitboardPosition(position);
+                child.makeMove(moves[i]);
+                tasks[i] = new PerftTask(child, depth - 1, split - 1);
+            }
+            invokeAll(tasks);
+            long nodes = 0;
+            for (PerftTask task : tasks){
+                nodes += task.join();
+            }
+            return nodes;
+        }
+    }
+
+    /**
+     * Result of a parallel perft run: the total count and how the work was spread over threads.
+     */
+    public static class Result {
+
+        public final long nodes;
+        public final long elapsedNanos;
+        // Per thread name: {leaf nodes counted, nanoseconds spent counting}.
+        public final Map<String, long[]> threadStats;
+
+        Result(long nodes, long elapsedNanos, Map<String, long[]> threadStats){
+            this.nodes = nodes;
+            this.elapsedNanos = elapsedNanos;
+            this.threadStats = threadStats;
+        }
+
+        public long nodesPerSecond(){
+            return nodes * 1000000000L / Math.max(1, elapsedNanos);
+        }
+
+        @Override
+        public String toString(){
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("%d nodes in %d ms, %d nodes/s", nodes, elapsedNanos / 1000000, nodesPerSecond()));
+            for (Map.Entry<String, long[]> entry : threadStats.entrySet()){
+                long[] stats = entry.getValue();
+                sb.append(System.lineSeparator());
+                sb.append(String.format("  %s: %d nodes, %d nodes/s", entry.getKey(), stats[0],
+                        stats[0] * 1000000000L / Math.max(1, stats[1])));
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.android.engine;
+
+/**
+ * Pawn structure terms of the evaluation: doubled, isolated, backward and passed pawns, and the
+ * pawn shields in front of the kings. They only depend on the pawns, so the search caches them
+ * in a PawnTable by the pawn key of the position. The shields depend on where the king is too,
+ * so what gets cached is how well every file is covered, and the king's files are looked up
+ * afterwards.
+ * @author Krysti Leong, April Dizon
+ */
+public final class PawnStructure {
+
+    private static final int DOUBLED_MIDDLEGAME = -10;
+    private static final int DOUBLED_ENDGAME = -20;
+    private static final int ISOLATED_MIDDLEGAME = -10;
+    private static final int ISOLATED_ENDGAME = -15;
+    private static final int BACKWARD_MIDDLEGAME = -8;
+    private static final int BACKWARD_ENDGAME = -10;
+    // Indexed by the rank from the pawn's own side, 0 for the 1st.
+    private static final int[] PASSED_MIDDLEGAME = {0, 5, 10, 15, 25, 40, 60, 0};
+    private static final int[] PASSED_ENDGAME = {0, 10, 20, 35, 60, 100, 150, 0};
+    // Indexed by the cover of a file in front of the king: none, a pawn 2 ranks up, 1 rank up.
+    private static final int[] SHIELD = {-15, 5, 15};
+
+    private static final long[] FILES = new long[8];
+    private static final long[] ADJACENT_FILES = new long[8];
+    // Squares in front of a pawn on its own and the adjacent files, by color and square.
+    private static final long[][] PASSED_SPAN = new long[2][64];
+    // Squares of the adjacent files beside and behind a pawn, where it can be supported from.
+    private static final long[][] SUPPORT_SPAN = new long[2][64];
+
+    static {
+        for (int file = 0; file < 8; file++){
+            FILES[file] = Bitboards.FILE_A << file;
+        }
+        for (int file = 0; file < 8; file++){
+            ADJACENT_FILES[file] = (file > 0 ? FILES[file - 1] : 0L) | (file < 7 ? FILES[file + 1] : 0L);
+        }
+        for (int square = 0; square < 64; square++){
+            long files = FILES[square & 7] | ADJACENT_FILES[square & 7];
+            int row = square >>> 3;
+            long above = row == 7 ? 0L : -1L << ((row + 1) * 8);
+            long below = (1L << (row * 8)) - 1;
+            long rankAndAbove = -1L << (row * 8);
+            long rankAndBelow = row == 7 ? -1L : (1L << ((row + 1) * 8)) - 1;
+            PASSED_SPAN[BitboardPosition.WHITE][square] = files & above;
+            PASSED_SPAN[BitboardPosition.BLACK][square] = files & below;
+            SUPPORT_SPAN[BitboardPosition.WHITE][square] = ADJACENT_FILES[square & 7] & rankAndBelow;
+            SUPPORT_SPAN[BitboardPosition.BLACK][square] = ADJACENT_FILES[square & 7] & rankAndAbove;
+        }
+    }
+
+    private PawnStructure(){
+    }
+
+    /**
+     * Evaluate the pawn structure, which doesn't include the shields.
+     * @param position Position in question.
+     * @return The middlegame score in the low 32 bits and the endgame score in the high 32 bits,
+     * positive for White. Read them with middlegame() and endgame().
+     */
+    public static long evaluate(BitboardPosition position){
+        long white = position.pieces(BitboardPosition.WHITE, BitboardPosition.PAWN);
+        long black = position.pieces(BitboardPosition.BLACK, BitboardPosition.PAWN);
+        int middlegame = 0;
+        int endgame = 0;
+        for (int color = BitboardPosition.WHITE; color <= BitboardPosition.BLACK; color++){
+            long ours = color == BitboardPosition.WHITE ? white : black;
+            long theirs = color == BitboardPosition.WHITE ? black : white;
+            long theirAttacks = Bitboards.pawnAttacks(theirs, color ^ 1);
+            int sign = color == BitboardPosition.WHITE ? 1 : -1;
+            int forward = color == BitboardPosition.WHITE ? 8 : -8;
+
+            for (int file = 0; file < 8; file++){
+                int count = Long.bitCount(ours & FILES[file]);
+                if (count > 1){
+                    middlegame += sign * DOUBLED_MIDDLEGAME * (count - 1);
+                    endgame += sign * DOUBLED_ENDGAME * (count - 1);
+                }
+            }
+
+            long pawns = ours;
+            while (pawns != 0){
+                int square = Long.numberOfTrailingZeros(pawns);
+                pawns &= pawns - 1;
+                int file = square & 7;
+
+                if ((ours & ADJACENT_FILES[file]) == 0){
+                    middlegame += sign * ISOLATED_MIDDLEGAME;
+                    endgame += sign * ISOLATED_ENDGAME;
+                }
+                else if ((ours & SUPPORT_SPAN[color][square]) == 0
+                        && (theirAttacks & (1L << (square + forward))) != 0){
+                    // No pawn can come up beside it, and it can't safely advance to them.
+                    middlegame += sign * BACKWARD_MIDDLEGAME;
+                    endgame += sign * BACKWARD_ENDGAME;
+                }
+
+                // Passed, unless a pawn of ours in front of it on the same file blocks it.
+                if ((theirs & PASSED_SPAN[color][square]) == 0
+                        && (ours & PASSED_SPAN[color][square] & FILES[file]) == 0){
+                    int rank = color == BitboardPosition.WHITE ? square >>> 3 : 7 - (square >>> 3);
+                    middlegame += sign * PASSED_MIDDLEGAME[rank];
+                    endgame += sign * PASSED_ENDGAME[rank];
+                }
+            }
+        }
+        return ((long) endgame << 32) | (middlegame & 0xFFFFFFFFL);
+    }
+
+    public static int middlegame(long score){
+        return (int) score;
+    }
+
+    public static int endgame(long score){
+        return (int) (score >>> 32);
+    }
+
+    /**
+     * Work out how well every file is covered by pawns for a king behind them.
+     * @param position Position in question.
+     * @return 2 bits per file and color, with White's files in the low 16 bits: 2 for a pawn on
+     * the 2nd rank (7th for Black), 1 for a pawn a rank further, 0 for neither.
+     */
+    public static int shieldCover(BitboardPosition position){
+        long white = position.pieces(BitboardPosition.WHITE, BitboardPosition.PAWN);
+        long black = position.pieces(BitboardPosition.BLACK, BitboardPosition.PAWN);
+        int cover = 0;
+        for (int file = 0; file < 8; file++){
+            cover |= fileCover(white & FILES[file], Bitboards.RANK_2, Bitboards.RANK_3) << (file * 2);
+            cover |= fileCover(black & FILES[file], Bitboards.RANK_7, Bitboards.RANK_6) << (16 + file * 2);
+        }
+        return cover;
+    }
+
+    private static int fileCover(long pawns, long near, long far){
+        return (pawns & near) != 0 ? 2 : (pawns & far) != 0 ? 1 : 0;
+    }
+
+    /**
+     * Score the shield of a king from the cached cover. Only counts while the king is still on
+     * its first two ranks, since a king further up has no shield to speak of.
+     * @param cover Result of shieldCover().
+     * @param color Color of the king.
+     * @param king Square of the king.
+     * @return Middlegame score of the shield, positive when good for the king's side.
+     */
+    public static int shield(int cover, int color, int king){
+        if (king == BitboardPosition.NO_SQUARE){
+            return 0;
+        }
+        int rank = color == BitboardPosition.WHITE ? king >>> 3 : 7 - (king >>> 3);
+        if (rank > 1){
+            return 0;
+        }
+        int center = Math.max(1, Math.min(6, king & 7));
+        int score = 0;
+        for (int file = center - 1; file <= center + 1; file++){
+            score += SHIELD[(cover >>> (color * 16 + file * 2)) & 3];
+        }
+        return score;
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.android.engine;
+
+/**
+ * Cache of pawn structure evaluations, keyed by the pawn key of the position. Pawns move rarely
+ * compared to the other pieces, so most lookups in a search find the structure already scored.
+ * Each search thread has its own table, so no care is taken for concurrent access.
+ * @author Krysti Leong, April Dizon
+ */
+public class PawnTable {
+
+    // 8 bytes of key, 8 of score and 4 of shield cover.
+    private static final int ENTRY_BYTES = 20;
+
+    private final long[] keys;
+    private final long[] scores;
+    private final int[] shieldCovers;
+    private final int mask;
+    private long probes;
+    private long hits;
+
+    /**
+     * Constructor for the PawnTable.
+     * @param kilobytes Memory budget. The number of entries is rounded down to a power of two.
+     */
+    public PawnTable(int kilobytes){
+        int count = Integer.highestOneBit(Math.max(1, (kilobytes << 10) / ENTRY_BYTES));
+        keys = new long[count];
+        scores = new long[count];
+        shieldCovers = new int[count];
+        mask = count - 1;
+        // An empty entry must not match a position whose pawn key happens to be 0.
+        for (int i = 0; i < count; i++){
+            keys[i] = ~i;
+        }
+    }
+
+    /**
+     * Find the pawn structure of a position, scoring it first if it isn't in the table.
+     * @param position Position in question.
+     * @return Index of the entry, for score() and shieldCover().
+     */
+    public int probe(BitboardPosition position){
+        long key = position.getPawnKey();
+        int index = (int) key & mask;
+        probes++;
+        if (keys[index] == key){
+            hits++;
+        }
+        else{
+            keys[index] = key;
+            scores[index] = PawnStructure.evaluate(position);
+            shieldCovers[index] = PawnStructure.shieldCover(position);
+        }
+        return index;
+    }
+
+    /**
+     * @param index Result of probe().
+     * @return Packed score, see PawnStructure.evaluate().
+     */
+    public long score(int index){
+        return scores[index];
+    }
+
+    /**
+     * @param index Result of probe().
+     * @return Shield cover, see PawnStructure.shieldCover().
+     */
+    public int shieldCover(int index){
+        return shieldCovers[index];
+    }
+
+    /**
+     * @return Fraction of the probes since the last resetStats() that found their entry.
+     */
+    public double hitRate(){
+        return probes == 0 ? 0 : hits / (double) probes;
+    }
+
+    public long getProbes(){
+        return probes;
+    }
+
+    public void resetStats(){
+        probes = 0;
+        hits = 0;
+    }
+}
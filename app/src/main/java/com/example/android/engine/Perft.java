@@ -0,0 +1,91 @@
+package com.example.android.engine;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Counts the leaf nodes of the legal move tree down to a fixed depth ("perft"). Comparing the
+ * counts with the known values of reference positions checks the move generator and make/unmake,
+ * and timing it gives the move generation throughput.
+ * @author Krysti Leong, April Dizon
+ */
+public class Perft {
+
+    public static final int MAX_DEPTH = 32;
+
+    private final BitboardPosition position;
+    private final PerftTable table;
+    private final int[][] moves = new int[MAX_DEPTH][MoveGenerator.MAX_MOVES];
+
+    /**
+     * Constructor for the Perft. It works on a copy of the position, so that the caller's attack
+     * maps aren't updated on every node.
+     * @param position Position to count from.
+     */
+    public Perft(BitboardPosition position){
+        this(position, null);
+    }
+
+    /**
+     * Constructor for a Perft that looks up and stores sub-tree counts in a hash table.
+     * @param position Position to count from.
+     * @param table Table of sub-tree counts, which may be shared with other threads, or null.
+     */
+    public Perft(BitboardPosition position, PerftTable table){
+        this.position = new BitboardPosition(position);
+        this.table = table;
+    }
+
+    /**
+     * Count the leaf nodes down to the given depth.
+     * @param depth Depth in plies, between 0 and MAX_DEPTH.
+     * @return Number of leaf nodes.
+     */
+    public long perft(int depth){
+        if (depth == 0){
+            return 1;
+        }
+        long key = 0L;
+        if (table != null && depth > 1){
+            key = position.getKey();
+            long stored = table.probe(key, depth);
+            if (stored >= 0){
+                return stored;
+            }
+        }
+        int[] buffer = moves[depth - 1];
+        int count = MoveGenerator.generateLegalMoves(position, buffer);
+        // Bulk counting: the moves at the last ply don't need to be made.
+        if (depth == 1){
+            return count;
+        }
+        long nodes = 0;
+        for (int i = 0; i < count; i++){
+            position.makeMove(buffer[i]);
+            nodes += perft(depth - 1);
+            position.unmakeMove();
+        }
+        if (table != null){
+            table.store(key, depth, nodes);
+        }
+        return nodes;
+    }
+
+    /**
+     * Count the leaf nodes below each root move, which narrows down a wrong count to the move
+     * that causes it.
+     * @param depth Depth in plies, at least 1.
+     * @return Map from each root move (in coordinate notation) to its number of leaf nodes.
+     */
+    public Map<String, Long> divide(int depth){
+        Map<String, Long> result = new LinkedHashMap<String, Long>();
+        int[] buffer = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generateLegalMoves(position, buffer);
+        for (int i = 0; i < count; i++){
+            position.makeMove(buffer[i]);
+            result.put(Move.toString(buffer[i]), perft(depth - 1));
+            position.unmakeMove();
+        }
+        return result;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.android.engine;
+
+/**
+ * Hash table of perft sub-tree counts, so that a position reached through a transposition is only
+ * counted once. It may be shared by several threads without locking: each entry is stored as two
+ * longs, the key XORed with the data and the data itself, so an entry torn by two threads writing
+ * at once no longer matches its key and is simply missed.
+ * @author Krysti Leong, April Dizon
+ */
+public class PerftTable {
+
+    private final long[] entries;
+    private final int mask;
+
+    /**
+     * Constructor for the PerftTable.
+     * @param megabytes Memory budget. The number of entries is rounded down to a power of two.
+     */
+    public PerftTable(int megabytes){
+        long count = Math.max(1L, ((long) megabytes << 20) / 16);
+        int size = Integer.highestOneBit((int) Math.min(count, 1 << 28));
+        entries = new long[size * 2];
+        mask = size - 1;
+    }
+
+    /**
+     * @param key Zobrist key of the position.
+     * @param depth Depth of the count.
+     * @return The stored number of leaf nodes, or -1 if there is none.
+     */
+    public long probe(long key, int depth){
+        int index = ((int) key & mask) << 1;
+        long data = entries[index + 1];
+        if ((entries[index] ^ data) == key && (data & 0xFF) == depth){
+            return data >>> 8;
+        }
+        return -1;
+    }
+
+    /**
+     * @param key Zobrist key of the position.
+     * @param depth Depth of the count.
+     * @param nodes Number of leaf nodes.
+     */
+    public void store(long key, int depth, long nodes){
+        int index = ((int) key & mask) << 1;
+        long data = (nodes << 8) | depth;
+        entries[index] = key ^ data;
+        entries[index + 1] = data;
+    }
+}
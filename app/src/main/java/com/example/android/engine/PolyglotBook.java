@@ -0,0 +1,180 @@
+package com.example.android.engine;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Random;
+
+/**
+ * An opening book in Polyglot's .bin format. The file is a list of 16 byte big endian entries
+ * sorted by key: the position's key (long), a move (short), its weight (short) and a learn value
+ * (int) that isn't used. The file is memory mapped, so a lookup only pages in the few entries
+ * the binary search touches, and a book of many megabytes costs no heap.
+ *
+ * A Polyglot move has the destination square in bits 0-5, the source square in bits 6-11 and the
+ * promotion piece (1 for a knight up to 4 for a queen) in bits 12-14. Castling is written as the
+ * king taking its own rook.
+ * @author Krysti Leong, April Dizon
+ */
+public class PolyglotBook {
+
+    public static final int ENTRY_SIZE = 16;
+    /** Most moves a book has for one position that probe() returns. */
+    public static final int MAX_BOOK_MOVES = 64;
+
+    private final ByteBuffer entries;
+    private final PolyglotKeys keys;
+    private final int size;
+    // Scratch buffers, so that a lookup allocates nothing.
+    private final int[] moves = new int[MAX_BOOK_MOVES];
+    private final int[] weights = new int[MAX_BOOK_MOVES];
+    private final int[] legalMoves = new int[MoveGenerator.MAX_MOVES];
+
+    private PolyglotBook(ByteBuffer entries, PolyglotKeys keys) throws IOException{
+        if (entries.remaining() % ENTRY_SIZE != 0){
+            throw new IOException("Book size " + entries.remaining() + " isn't a multiple of " + ENTRY_SIZE);
+        }
+        this.entries = entries.slice().order(ByteOrder.BIG_ENDIAN);
+        this.keys = keys;
+        this.size = this.entries.remaining() / ENTRY_SIZE;
+    }
+
+    /**
+     * Open a book file by memory mapping it.
+     * @param file The .bin file.
+     * @param keys Keys the book was hashed with: PolyglotKeys.ENGINE for books this engine
+     *             wrote, or Polyglot's own table for books from elsewhere.
+     * @return The book.
+     * @throws IOException If the file can't be mapped or isn't made of whole entries.
+     */
+    public static PolyglotBook open(File file, PolyglotKeys keys) throws IOException{
+        try (FileInputStream in = new FileInputStream(file); FileChannel channel = in.getChannel()){
+            return new PolyglotBook(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), keys);
+        }
+    }
+
+    /**
+     * Use a book that is already in memory.
+     * @param buffer The entries, from its position to its limit.
+     * @param keys Keys the book was hashed with.
+     * @return The book.
+     * @throws IOException If the buffer isn't made of whole entries.
+     */
+    public static PolyglotBook read(ByteBuffer buffer, PolyglotKeys keys) throws IOException{
+        return new PolyglotBook(buffer, keys);
+    }
+
+    /**
+     * @return Number of entries in the book.
+     */
+    public int size(){
+        return size;
+    }
+
+    /**
+     * Find the book moves of a position.
+     * @param position Position to look up, which is not changed.
+     * @param moves Buffer of MAX_BOOK_MOVES the legal book moves are written into, as packed
+     *              moves of the engine.
+     * @param weights Buffer of MAX_BOOK_MOVES their weights are written into.
+     * @return Number of moves written, 0 if the position isn't in the book.
+     */
+    public synchronized int probe(BitboardPosition position, int[] moves, int[] weights){
+        long key = keys.key(position);
+        int count = 0;
+        int legalCount = -1;
+        for (int i = lowerBound(key); i < size && keyAt(i) == key && count < MAX_BOOK_MOVES; i++){
+            int offset = i * ENTRY_SIZE;
+            int weight = entries.getShort(offset + 10) & 0xFFFF;
+            if (weight == 0){
+                continue;
+            }
+            if (legalCount < 0){
+                legalCount = MoveGenerator.generateLegalMoves(position, legalMoves);
+            }
+            // A move that isn't legal here means a key collision or a broken book, so skip it.
+            int move = fromPolyglot(entries.getShort(offset + 8) & 0xFFFF, legalMoves, legalCount);
+            if (move != Move.NONE){
+                moves[count] = move;
+                weights[count] = weight;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Choose a book move at random, each with a chance in proportion to its weight.
+     * @param position Position to look up, which is not changed.
+     * @param random Source of randomness.
+     * @return A packed move of the engine, or Move.NONE if the position isn't in the book.
+     */
+    public synchronized int pickMove(BitboardPosition position, Random random){
+        int count = probe(position, moves, weights);
+        int total = 0;
+        for (int i = 0; i < count; i++){
+            total += weights[i];
+        }
+        if (total == 0){
+            return Move.NONE;
+        }
+        int pick = random.nextInt(total);
+        for (int i = 0; i < count; i++){
+            pick -= weights[i];
+            if (pick < 0){
+                return moves[i];
+            }
+        }
+        return moves[count - 1];
+    }
+
+    /**
+     * Write a move of the engine the way Polyglot does.
+     * @param move Packed move of the engine.
+     * @return The Polyglot move.
+     */
+    public static int toPolyglot(int move){
+        int from = Move.from(move);
+        int to = Move.to(move);
+        switch (Move.flags(move)){
+            case Move.KING_CASTLE: to = from + 3; break;
+            case Move.QUEEN_CASTLE: to = from - 4; break;
+            default: break;
+        }
+        int promotion = Move.isPromotion(move) ? Move.promotionType(move) : 0;
+        return to | (from << 6) | (promotion << 12);
+    }
+
+    private static int fromPolyglot(int polyglotMove, int[] legalMoves, int count){
+        polyglotMove &= 0x7FFF;
+        for (int i = 0; i < count; i++){
+            if (toPolyglot(legalMoves[i]) == polyglotMove){
+                return legalMoves[i];
+            }
+        }
+        return Move.NONE;
+    }
+
+    private long keyAt(int index){
+        return entries.getLong(index * ENTRY_SIZE);
+    }
+
+    // First entry whose key isn't below the given one. Keys are sorted as unsigned numbers.
+    private int lowerBound(long key){
+        int low = 0;
+        int high = size;
+        while (low < high){
+            int middle = (low + high) >>> 1;
+            if (Long.compareUnsigned(keyAt(middle), key) < 0){
+                low = middle + 1;
+            }
+            else{
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
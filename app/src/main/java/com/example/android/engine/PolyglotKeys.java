@@ -0,0 +1,124 @@
+package com.example.android.engine;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The 781 random numbers that Polyglot opening books hash positions with: one for every piece on
+ * every square, then the four castling rights, the eight en passant files, and white to move.
+ *
+ * Books from other programs are hashed with Polyglot's own published table, which can be read
+ * with read() from a file of 781 big endian longs (the app looks for polyglot-keys.bin in its
+ * files and then in its assets), and recognized with isPolyglot(). Without it, ENGINE uses this
+ * engine's Zobrist keys laid out the Polyglot way, which is enough for books the engine writes
+ * itself but never finds a position of any other book.
+ * @author Krysti Leong, April Dizon
+ */
+public final class PolyglotKeys {
+
+    public static final int COUNT = 781;
+    private static final int CASTLING = 768;
+    private static final int EN_PASSANT = 772;
+    private static final int WHITE_TO_MOVE = 780;
+
+    /** Key of the starting position with Polyglot's table, as the book format gives it. */
+    public static final long STARTING_POSITION_KEY = 0x463B96181691FC9CL;
+    /** Key of the position after 1.e4 with Polyglot's table, as the book format gives it. */
+    public static final long AFTER_E4_KEY = 0x823C9B50FD114196L;
+    private static final String AFTER_E4 = "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1";
+
+    /** The engine's own Zobrist keys in Polyglot's layout. */
+    public static final PolyglotKeys ENGINE = engineKeys();
+
+    private final long[] random;
+
+    private PolyglotKeys(long[] random){
+        this.random = random;
+    }
+
+    /**
+     * Read a key table, such as Polyglot's published one.
+     * @param in Stream of COUNT big endian longs, in Polyglot's order.
+     * @return The keys.
+     * @throws IOException If the stream can't be read or is too short.
+     */
+    public static PolyglotKeys read(InputStream in) throws IOException{
+        DataInputStream data = new DataInputStream(in);
+        long[] random = new long[COUNT];
+        for (int i = 0; i < COUNT; i++){
+            random[i] = data.readLong();
+        }
+        return new PolyglotKeys(random);
+    }
+
+    /**
+     * Check the keys against the reference keys of the book format, which only Polyglot's own
+     * table gives, hashed the way key() does.
+     * @return True if these are Polyglot's keys, which books from other programs need.
+     */
+    public boolean isPolyglot(){
+        BitboardPosition position = new BitboardPosition();
+        Fen.parse(Fen.STARTING_POSITION, position);
+        if (key(position) != STARTING_POSITION_KEY){
+            return false;
+        }
+        Fen.parse(AFTER_E4, position);
+        return key(position) == AFTER_E4_KEY;
+    }
+
+    private static PolyglotKeys engineKeys(){
+        long[] random = new long[COUNT];
+        for (int piece = 0; piece < 12; piece++){
+            for (int square = 0; square < 64; square++){
+                random[64 * polyglotPiece(piece) + square] = Zobrist.pieceSquare(piece, square);
+            }
+        }
+        for (int right = 0; right < 4; right++){
+            random[CASTLING + right] = Zobrist.castling(1 << right);
+        }
+        for (int file = 0; file < 8; file++){
+            random[EN_PASSANT + file] = Zobrist.enPassantFile(file);
+        }
+        random[WHITE_TO_MOVE] = Zobrist.blackToMove();
+        return new PolyglotKeys(random);
+    }
+
+    // Polyglot counts black pawn, white pawn, black knight, ... where the engine counts white first.
+    private static int polyglotPiece(int piece){
+        return piece ^ 1;
+    }
+
+    /**
+     * Hash a position the Polyglot way. Unlike the engine's key, the en passant file only counts
+     * when a pawn of the side to move can really take en passant.
+     * @param position Position to hash.
+     * @return 64-bit Polyglot key.
+     */
+    public long key(BitboardPosition position){
+        long key = 0L;
+        long pieces = position.occupied();
+        while (pieces != 0){
+            int square = Long.numberOfTrailingZeros(pieces);
+            key ^= random[64 * polyglotPiece(position.pieceAt(square)) + square];
+            pieces &= pieces - 1;
+        }
+        // The engine's castling bits are in Polyglot's order too.
+        int castlingRights = position.getCastlingRights();
+        for (int right = 0; right < 4; right++){
+            if ((castlingRights & (1 << right)) != 0){
+                key ^= random[CASTLING + right];
+            }
+        }
+        int us = position.getSideToMove();
+        int epSquare = position.getEnPassantSquare();
+        if (epSquare != BitboardPosition.NO_SQUARE
+                && (LeaperAttacks.pawnAttacks(us ^ 1, epSquare) & position.pieces(us, BitboardPosition.PAWN)) != 0){
+            key ^= random[EN_PASSANT + Bitboards.file(epSquare)];
+        }
+        if (us == BitboardPosition.WHITE){
+            key ^= random[WHITE_TO_MOVE];
+        }
+        return key;
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.android.engine;
+
+import com.example.android.Board;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Thinks on the opponent's time. After the engine moves, start() searches the position after
+ * the reply the engine expects, on a background thread and without time limits. If the opponent
+ * plays that reply, ponderhit() puts the search on the clock and it finishes with everything it
+ * found so far. Otherwise stop() cancels it, which takes no longer than a search needs to notice
+ * a stop() (every 1024 nodes). Either way, the transposition table shared with the engine keeps
+ * what the ponder search stored.
+ * @author Krysti Leong, April Dizon
+ */
+public class Ponderer {
+
+    // A ponder search runs until ponderhit() or stop().
+    private static final SearchLimits PONDER_LIMITS = new SearchLimits(Search.MAX_PLY, Long.MAX_VALUE, Long.MAX_VALUE);
+
+    private final TranspositionTable table;
+    private final Search search;
+    private final ExecutorService executor;
+    private Future<SearchResult> future;
+    private int expectedMove = Move.NONE;
+    // Key of the position being pondered, or 0 when there's none. Cleared by cancel() without
+    // the lock, so that it never waits for a ponderhit() on another thread.
+    private volatile long expectedKey;
+
+    /**
+     * Constructor for the Ponderer.
+     * @param table Transposition table, which should be the one the engine searches with.
+     */
+    public Ponderer(TranspositionTable table){
+        this.table = table;
+        this.search = new Search(table);
+        this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable){
+                Thread thread = new Thread(runnable, "ponder");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Start pondering after the engine moved.
+     * @param board Board after the engine's move. The ponder search works on a snapshot of it,
+     *              so the board can be changed right away.
+     * @param result Result of the search that chose the engine's move. The expected reply is
+     *               the next move of its principal variation.
+     * @return True if pondering started, false if there is no reply to expect.
+     */
+    public boolean start(Board board, SearchResult result){
+        return start(board.getBitboards(), result.pv.length > 1 ? result.pv[1] : Move.NONE);
+    }
+
+    /**
+     * Start pondering on the position after an expected reply, stopping any earlier ponder search.
+     * @param position Position before the reply, which is not changed.
+     * @param reply Expected reply, or Move.NONE to take the best move stored in the
+     *              transposition table, if there is one.
+     * @return True if pondering started, false if there is no legal reply to expect.
+     */
+    public synchronized boolean start(BitboardPosition position, int reply){
+        stop();
+        if (reply == Move.NONE){
+            reply = TranspositionTable.move(table.probe(position.getKey()));
+        }
+        if (reply == Move.NONE || !MoveGenerator.isLegal(position, reply)){
+            return false;
+        }
+
+        final BitboardPosition snapshot = new BitboardPosition(position);
+        snapshot.makeMove(reply);
+        expectedMove = reply;
+        expectedKey = snapshot.getKey();
+        search.clearStop();
+        table.newSearch();
+        future = executor.submit(new Callable<SearchResult>() {
+            @Override
+            public SearchResult call(){
+                return search.iterate(snapshot, PONDER_LIMITS, 1);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * @param position Position the engine is about to search.
+     * @return True if a ponder search of this very position is running or done.
+     */
+    public synchronized boolean isPondering(BitboardPosition position){
+        return future != null && expectedKey != 0 && position.getKey() == expectedKey;
+    }
+
+    /**
+     * The opponent played the expected reply: let the ponder search go on with the given limits,
+     * and wait for its result.
+     * @param limits Limits of the engine's move, counted from now on.
+     * @return Result of the ponder search.
+     * @throws IllegalStateException If nothing is being pondered.
+     */
+    public synchronized SearchResult ponderhit(SearchLimits limits){
+        if (future == null){
+            throw new IllegalStateException("Not pondering");
+        }
+        search.ponderhit(limits);
+        try{
+            return await();
+        }
+        finally{
+            future = null;
+            expectedMove = Move.NONE;
+            expectedKey = 0;
+        }
+    }
+
+    /**
+     * Cancel the ponder search, if there is one, and wait until it has stopped.
+     */
+    public synchronized void stop(){
+        if (future == null){
+            return;
+        }
+        search.stop();
+        try{
+            await();
+        }
+        finally{
+            future = null;
+            expectedMove = Move.NONE;
+            expectedKey = 0;
+        }
+    }
+
+    /**
+     * Ask the ponder search to stop, without waiting for it. Unlike the other methods, this
+     * never blocks, so it's safe for the UI thread while another thread is in ponderhit().
+     */
+    public void cancel(){
+        expectedKey = 0;
+        search.stop();
+    }
+
+    /**
+     * A move was made: cancel() unless it led to the position being pondered. Never blocks.
+     * @param position Position after the move.
+     */
+    public void cancelUnless(BitboardPosition position){
+        if (position.getKey() != expectedKey){
+            cancel();
+        }
+    }
+
+    private SearchResult await(){
+        try{
+            return future.get();
+        }
+        catch (InterruptedException e){
+            search.stop();
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        catch (ExecutionException e){
+            throw new IllegalStateException("Ponder search failed", e.getCause());
+        }
+    }
+
+    /**
+     * @return The reply being pondered, or Move.NONE.
+     */
+    public synchronized int getExpectedMove(){
+        return expectedMove;
+    }
+
+    /**
+     * Choose the static evaluation of the ponder search.
+     * @param evaluator Evaluator for the ponder search alone, for the next start() on.
+     */
+    public synchronized void setEvaluator(Evaluator evaluator){
+        search.setEvaluator(evaluator);
+    }
+
+    /**
+     * Choose the endgame bitbases of the ponder search. Safe to call while pondering.
+     * @param bitbases The bitbases, or null to search every endgame.
+     */
+    public void setBitbases(Bitbases bitbases){
+        search.setBitbases(bitbases);
+    }
+
+    /**
+     * Choose the endgame tablebases of the ponder search. Safe to call while pondering.
+     * @param tablebases The tablebases, or null to search every endgame.
+     */
+    public void setTablebases(Tablebases tablebases){
+        search.setTablebases(tablebases);
+    }
+
+    /**
+     * Stop pondering and the background thread. The Ponderer can't be used afterwards.
+     */
+    public synchronized void shutdown(){
+        stop();
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,669 @@
+package com.example.android.engine;
+
+import com.example.android.Board;
+
+/**
+ * Alpha-beta search in the negamax form, with iterative deepening. Each iteration searches one
+ * ply deeper than the last, and stores its results in the transposition table so that the next
+ * one searches the best move first. The search can be bounded by depth, nodes and time, and
+ * always has the best move of the last finished iteration ready.
+ *
+ * Moves are ordered by a MovePicker per ply. Quiet moves that cause a cutoff are remembered as
+ * killers of their ply, as the counter move to the opponent's last move, and in the history
+ * table, which together put the likely refutations first.
+ *
+ * At the end of the depth, a quiescence search plays out the captures that don't lose material
+ * (and every move when in check), so that a position isn't judged in the middle of an exchange.
+ *
+ * The search is also selective: it prunes and reduces the moves that are unlikely to matter,
+ * and extends checks (see SearchOptions). Moves after the first are searched with a null window
+ * first, which is what makes reducing them cheap.
+ *
+ * Endgames that are in the tablebases or bitbases, if it has any, are not searched: a draw
+ * scores 0, and a win KNOWN_WIN plus the evaluation, which leads the search towards positions
+ * closer to mate. When the root itself is in the tablebases, their move is played right away.
+ * @author Krysti Leong, April Dizon
+ */
+public class Search {
+
+    public static final int MAX_PLY = 64;
+    public static final int INFINITE = 32001;
+    public static final int MATE = 32000;
+    /** Score of a position the bitbases say is won, before adding the evaluation. */
+    public static final int KNOWN_WIN = 10000;
+
+    // How often (in nodes) the clock is read.
+    private static final int CHECK_INTERVAL = 1024;
+    private static final int HISTORY_MAX = 16384;
+
+    // Selective search margins, in centipawns per ply of remaining depth.
+    private static final int REVERSE_FUTILITY_DEPTH = 6;
+    private static final int REVERSE_FUTILITY_MARGIN = 120;
+    private static final int FUTILITY_DEPTH = 3;
+    private static final int FUTILITY_MARGIN = 150;
+
+    // Late move reductions by depth and number of moves searched.
+    private static final int[][] REDUCTIONS = new int[MAX_PLY][MoveGenerator.MAX_MOVES];
+
+    static {
+        for (int depth = 1; depth < MAX_PLY; depth++){
+            for (int count = 1; count < MoveGenerator.MAX_MOVES; count++){
+                REDUCTIONS[depth][count] = (int) (0.75 + Math.log(depth) * Math.log(count) / 2.25);
+            }
+        }
+    }
+
+    private final TranspositionTable table;
+    private Evaluator evaluator = new HandCraftedEvaluator();
+    private volatile Bitbases bitbases;
+    private volatile Tablebases tablebases;
+    private SearchOptions options = SearchOptions.ALL;
+    private BitboardPosition position;
+    private final MovePicker[] pickers = new MovePicker[MAX_PLY];
+
+    // Move ordering: two killer moves per ply, the counter move to each piece arriving on each
+    // square, and butterfly history scores by side, from and to square.
+    private final int[][] killers = new int[MAX_PLY][2];
+    private final int[][] counterMoves = new int[12][64];
+    private final int[][] history = new int[2][64 * 64];
+    private final int[][] quietsTried = new int[MAX_PLY][MoveGenerator.MAX_MOVES];
+
+    // Triangular table of principal variations: pv[ply] holds the best line from that ply on.
+    private final int[][] pv = new int[MAX_PLY + 1][MAX_PLY + 1];
+    private final int[] pvLength = new int[MAX_PLY + 1];
+    // Scratch space of the endgame probes.
+    private final int[] endgameSquares = new int[5];
+
+    private long nodes;
+    private long bitbaseHits;
+    private long tablebaseHits;
+    private long betaCutoffs;
+    private long firstMoveCutoffs;
+    private long nodeLimit;
+    private boolean stopped;
+    private volatile boolean stopRequested;
+    // The clock of the running search. A ponder search starts without time limits, and gets them
+    // from ponderhit() on another thread.
+    private volatile long deadline;
+    private volatile long clockStart;
+    private volatile TimeManager timeManager;
+    private volatile SearchLimits ponderhitLimits;
+
+    /**
+     * Constructor for the Search.
+     * @param table Transposition table, which may be kept between searches.
+     */
+    public Search(TranspositionTable table){
+        this.table = table;
+        for (int i = 0; i < MAX_PLY; i++){
+            pickers[i] = new MovePicker();
+        }
+    }
+
+    /**
+     * Search the position on the board for the player whose turn it is. The board itself is not
+     * changed.
+     * @param board Board of the game.
+     * @param limits Limits on the search.
+     * @return The result of the last finished iteration.
+     */
+    public SearchResult search(Board board, SearchLimits limits){
+        return search(board.getBitboards(), limits);
+    }
+
+    /**
+     * Search a position for the side to move. The search works on a copy of the position.
+     * @param root Position to search.
+     * @param limits Limits on the search.
+     * @return The result of the last finished iteration.
+     */
+    public SearchResult search(BitboardPosition root, SearchLimits limits){
+        clearStop();
+        table.newSearch();
+        return iterate(root, limits, 1);
+    }
+
+    /**
+     * Run the iterative deepening loop, without clearing an earlier call to stop(). Used by the
+     * SmpSearch, which starts its threads at different depths.
+     * @param root Position to search.
+     * @param limits Limits on the search.
+     * @param firstDepth Depth of the first iteration.
+     * @return The result of the last finished iteration.
+     */
+    SearchResult iterate(BitboardPosition root, SearchLimits limits, int firstDepth){
+        long start = System.currentTimeMillis();
+        position = new BitboardPosition(root);
+        evaluator.attach(position);
+        nodes = 0;
+        bitbaseHits = 0;
+        tablebaseHits = 0;
+        betaCutoffs = 0;
+        firstMoveCutoffs = 0;
+        resetOrdering();
+        nodeLimit = limits.nodes;
+        startClock(limits, start);
+        // A ponderhit() that came before this search even started still counts.
+        SearchLimits hitLimits = ponderhitLimits;
+        if (hitLimits != null){
+            startClock(hitLimits, System.currentTimeMillis());
+        }
+        stopped = false;
+
+        // Perfect play needs no search.
+        Tablebases tables = tablebases;
+        if (tables != null && Long.bitCount(position.occupied()) <= tables.getMaxPieces()){
+            int move = tables.bestMove(position);
+            if (move != Move.NONE){
+                tablebaseHits++;
+                int score = tables.probeWdl(position) * KNOWN_WIN;
+                return new SearchResult(move, score, 1, nodes, System.currentTimeMillis() - start, new int[]{move});
+            }
+        }
+
+        int[] rootMoves = new int[MoveGenerator.MAX_MOVES];
+        int rootCount = MoveGenerator.generateLegalMoves(position, rootMoves);
+
+        SearchResult result = null;
+        for (int depth = Math.min(firstDepth, limits.depth); depth <= limits.depth; depth++){
+            int score = negamax(depth, -INFINITE, INFINITE, 0);
+            // An unfinished iteration can't be trusted, unless it's the only one.
+            if (stopped && result != null){
+                break;
+            }
+            int[] line = new int[pvLength[0]];
+            System.arraycopy(pv[0], 0, line, 0, line.length);
+            if (line.length == 0 && rootCount > 0){
+                // Stopped before the first move was searched, so play any legal move.
+                line = new int[]{rootMoves[0]};
+            }
+            result = new SearchResult(line.length > 0 ? line[0] : Move.NONE, score, depth, nodes,
+                    System.currentTimeMillis() - start, line);
+            // Stop early when there are no moves, or a forced mate was found.
+            if (stopped || line.length == 0 || result.isMate()){
+                break;
+            }
+            // On the clock, stop when another iteration isn't worth its time.
+            if (timeManager.shouldStop(result, System.currentTimeMillis() - clockStart)){
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Choose the selective search features to use, which are all on by default.
+     * @param options The features, for the next search on.
+     */
+    public void setOptions(SearchOptions options){
+        this.options = options;
+    }
+
+    public SearchOptions getOptions(){
+        return options;
+    }
+
+    /**
+     * Choose the static evaluation, which is the hand-crafted one by default.
+     * @param evaluator Evaluator for this search alone, for the next search on.
+     */
+    public void setEvaluator(Evaluator evaluator){
+        this.evaluator = evaluator;
+    }
+
+    public Evaluator getEvaluator(){
+        return evaluator;
+    }
+
+    /**
+     * Choose the endgame bitbases to probe. Safe to call from any thread.
+     * @param bitbases The bitbases, or null to search every endgame.
+     */
+    public void setBitbases(Bitbases bitbases){
+        this.bitbases = bitbases;
+    }
+
+    /**
+     * Choose the endgame tablebases to probe, before the bitbases. Safe to call from any thread.
+     * @param tablebases The tablebases, or null to search every endgame.
+     */
+    public void setTablebases(Tablebases tablebases){
+        this.tablebases = tablebases;
+    }
+
+    /**
+     * Ask a running search to stop as soon as possible. Safe to call from any thread.
+     */
+    public void stop(){
+        stopRequested = true;
+    }
+
+    /**
+     * Clear an earlier call to stop() or ponderhit(), before calling iterate().
+     */
+    void clearStop(){
+        stopRequested = false;
+        ponderhitLimits = null;
+    }
+
+    /**
+     * The move a ponder search was started for has been played. The search, which was running
+     * without time limits, goes on as a search on the clock with the given limits, and keeps
+     * everything it found so far. Safe to call from any thread.
+     * @param limits Time limits, counted from now on.
+     */
+    public void ponderhit(SearchLimits limits){
+        ponderhitLimits = limits;
+        startClock(limits, System.currentTimeMillis());
+    }
+
+    private void startClock(SearchLimits limits, long start){
+        clockStart = start;
+        timeManager = new TimeManager(limits);
+        deadline = limits.timeMillis == Long.MAX_VALUE ? Long.MAX_VALUE : start + limits.timeMillis;
+    }
+
+    /**
+     * @return Number of nodes searched so far by the current (or last) search.
+     */
+    public long getNodes(){
+        return nodes;
+    }
+
+    /**
+     * @return Number of nodes of the last search that were decided by the bitbases.
+     */
+    public long getBitbaseHits(){
+        return bitbaseHits;
+    }
+
+    /**
+     * @return Number of nodes of the last search that were decided by the tablebases.
+     */
+    public long getTablebaseHits(){
+        return tablebaseHits;
+    }
+
+    /**
+     * @return Fraction of the beta cutoffs of the last search that came from the first move
+     * searched, which shows how good the move ordering is.
+     */
+    public double getFirstMoveCutoffRate(){
+        return betaCutoffs == 0 ? 0 : firstMoveCutoffs / (double) betaCutoffs;
+    }
+
+    /**
+     * @return Fraction of the evaluations of the last search that found their pawn structure
+     * in the pawn table.
+     */
+    public double getPawnHitRate(){
+        return evaluator instanceof HandCraftedEvaluator ? ((HandCraftedEvaluator) evaluator).getPawnHitRate() : 0;
+    }
+
+    /**
+     * Look the position up in the tablebases, if it has few enough pieces, and else in the
+     * bitbases.
+     * @return Bitbases.WIN, DRAW or LOSS for the side to move, or Bitbases.UNKNOWN.
+     */
+    private int probeEndgame(){
+        int result = Bitbases.UNKNOWN;
+        int pieces = Long.bitCount(position.occupied());
+        // No endgame has more than 4 pieces, so most nodes stop here.
+        if (pieces > 4){
+            return result;
+        }
+        Tablebases tables = tablebases;
+        if (tables != null && pieces <= tables.getMaxPieces()){
+            result = tables.probeWdl(position, endgameSquares);
+            if (result != Bitbases.UNKNOWN){
+                tablebaseHits++;
+                return result;
+            }
+        }
+        Bitbases endgames = bitbases;
+        if (endgames != null){
+            result = endgames.probe(position, endgameSquares);
+            if (result != Bitbases.UNKNOWN){
+                bitbaseHits++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Search a position to the given depth.
+     * @param depth Remaining depth in plies.
+     * @param alpha Lower bound of the window.
+     * @param beta Upper bound of the window.
+     * @param ply Distance from the root.
+     * @return Score of the position for the side to move.
+     */
+    private int negamax(int depth, int alpha, int beta, int ply){
+        pvLength[ply] = 0;
+        if ((++nodes & (CHECK_INTERVAL - 1)) == 0 || nodes >= nodeLimit){
+            checkLimits();
+        }
+        if (stopped){
+            return 0;
+        }
+        if (ply > 0 && (position.getHalfmoveClock() >= 100 || position.isRepetition())){
+            return 0;
+        }
+        int us = position.getSideToMove();
+        boolean inCheck = position.isInCheck(us);
+        // Mates are left to the search, so that it still finds them.
+        if (ply > 0 && !inCheck){
+            int result = probeEndgame();
+            if (result != Bitbases.UNKNOWN){
+                return result == Bitbases.DRAW ? 0 : result * KNOWN_WIN + evaluator.evaluate(position);
+            }
+        }
+        if (inCheck && options.has(SearchOptions.CHECK_EXTENSIONS)){
+            depth++;
+        }
+        if (depth <= 0 || ply >= MAX_PLY - 1){
+            return quiesce(alpha, beta, ply);
+        }
+
+        // Use the result of an earlier search of this position if it's deep enough.
+        long key = position.getKey();
+        long entry = table.probe(key);
+        int hashMove = Move.NONE;
+        if (entry != 0){
+            hashMove = TranspositionTable.move(entry);
+            if (ply > 0 && TranspositionTable.depth(entry) >= depth){
+                int score = fromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.BOUND_EXACT
+                        || (bound == TranspositionTable.BOUND_LOWER && score >= beta)
+                        || (bound == TranspositionTable.BOUND_UPPER && score <= alpha)){
+                    return score;
+                }
+            }
+        }
+
+        int previous = ply > 0 ? position.getMove(position.getPly() - 1) : Move.NONE;
+        boolean pvNode = beta - alpha > 1;
+        int staticEval = inCheck ? -INFINITE : evaluator.evaluate(position);
+        if (!pvNode && !inCheck && Math.abs(beta) < MATE - MAX_PLY){
+            // Reverse futility: far enough above beta that the opponent can't catch up in time.
+            if (options.has(SearchOptions.REVERSE_FUTILITY) && depth <= REVERSE_FUTILITY_DEPTH
+                    && staticEval - REVERSE_FUTILITY_MARGIN * depth >= beta){
+                return staticEval - REVERSE_FUTILITY_MARGIN * depth;
+            }
+
+            // Null move: if passing still beats beta, a real move will too. Not in a row, and
+            // not with only pawns left, where passing may be the best move (zugzwang).
+            if (options.has(SearchOptions.NULL_MOVE) && depth >= 3 && previous != Move.NONE
+                    && staticEval >= beta && hasPieces(us)){
+                int reduction = 3 + depth / 4;
+                position.makeNullMove();
+                int score = -negamax(depth - 1 - reduction, -beta, -beta + 1, ply + 1);
+                position.unmakeNullMove();
+                if (stopped){
+                    return 0;
+                }
+                if (score >= beta){
+                    // A mate found after passing isn't proven.
+                    return score >= MATE - MAX_PLY ? beta : score;
+                }
+            }
+        }
+
+        // Futility: too far below alpha for a quiet move to help near the leaves.
+        boolean futile = options.has(SearchOptions.FUTILITY) && !pvNode && !inCheck
+                && depth <= FUTILITY_DEPTH && Math.abs(alpha) < MATE - MAX_PLY
+                && staticEval + FUTILITY_MARGIN * depth <= alpha;
+
+        int counterMove = previous == Move.NONE ? Move.NONE
+                : counterMoves[position.pieceAt(Move.to(previous))][Move.to(previous)];
+        MovePicker picker = pickers[ply];
+        picker.init(position, hashMove, killers[ply][0], killers[ply][1], counterMove, history);
+
+        int originalAlpha = alpha;
+        int bestScore = -INFINITE;
+        int bestMove = Move.NONE;
+        int searched = 0;
+        int quietCount = 0;
+        boolean pruned = false;
+        int move;
+        while ((move = picker.next()) != Move.NONE){
+            boolean quiet = !Move.isCapture(move) && !Move.isPromotion(move);
+            position.makeMove(move);
+            boolean givesCheck = position.isInCheck(us ^ 1);
+
+            if (futile && quiet && !givesCheck && searched > 0){
+                position.unmakeMove();
+                pruned = true;
+                continue;
+            }
+
+            // Principal variation search: the first move gets the full window, and the others
+            // only have to be shown worse with a null window, which is re-searched if they aren't.
+            int score;
+            if (searched == 0){
+                score = -negamax(depth - 1, -beta, -alpha, ply + 1);
+            }
+            else{
+                int reduction = 0;
+                if (options.has(SearchOptions.LATE_MOVE_REDUCTIONS) && depth >= 3 && searched >= 3
+                        && quiet && !inCheck && !givesCheck && move != killers[ply][0]
+                        && move != killers[ply][1] && move != counterMove){
+                    reduction = lateMoveReduction(depth, searched, pvNode, move, us);
+                }
+                score = -negamax(depth - 1 - reduction, -alpha - 1, -alpha, ply + 1);
+                if (score > alpha && reduction > 0){
+                    score = -negamax(depth - 1, -alpha - 1, -alpha, ply + 1);
+                }
+                if (score > alpha && score < beta){
+                    score = -negamax(depth - 1, -beta, -alpha, ply + 1);
+                }
+            }
+            position.unmakeMove();
+            if (stopped){
+                return 0;
+            }
+            searched++;
+
+            if (score > bestScore){
+                bestScore = score;
+                bestMove = move;
+                if (score > alpha){
+                    alpha = score;
+                    updatePv(ply, move);
+                    if (alpha >= beta){
+                        betaCutoffs++;
+                        if (searched == 1){
+                            firstMoveCutoffs++;
+                        }
+                        if (quiet){
+                            updateOrdering(ply, depth, move, previous, quietCount);
+                        }
+                        break;
+                    }
+                }
+            }
+            if (quiet){
+                quietsTried[ply][quietCount++] = move;
+            }
+        }
+        if (searched == 0){
+            // Checkmate, or stalemate.
+            return inCheck ? -MATE + ply : 0;
+        }
+        if (pruned && bestScore < alpha){
+            // The pruned moves were assumed to fail low, which bestScore has to allow for.
+            bestScore = Math.max(bestScore, staticEval + FUTILITY_MARGIN * depth);
+        }
+
+        int bound = bestScore >= beta ? TranspositionTable.BOUND_LOWER
+                : bestScore > originalAlpha ? TranspositionTable.BOUND_EXACT : TranspositionTable.BOUND_UPPER;
+        table.store(key, bestMove, toTable(bestScore, ply), depth, bound);
+        return bestScore;
+    }
+
+    /**
+     * How much shallower to search a late quiet move: more the later it comes and the deeper the
+     * node, less if its history is good, and never into the quiescence search.
+     */
+    private int lateMoveReduction(int depth, int searched, boolean pvNode, int move, int us){
+        int reduction = REDUCTIONS[Math.min(depth, MAX_PLY - 1)][Math.min(searched, MoveGenerator.MAX_MOVES - 1)];
+        if (pvNode){
+            reduction--;
+        }
+        reduction -= history[us][Move.from(move) << 6 | Move.to(move)] / (HISTORY_MAX / 2);
+        return Math.max(0, Math.min(reduction, depth - 2));
+    }
+
+    private boolean hasPieces(int color){
+        return (position.pieces(color) & ~position.pieces(color, BitboardPosition.PAWN)
+                & ~position.pieces(color, BitboardPosition.KING)) != 0;
+    }
+
+    /**
+     * Search only the captures and promotions that don't lose material, until the position is
+     * quiet. The side to move may also "stand pat" on the static evaluation instead of capturing,
+     * unless it is in check, in which case every evasion is searched.
+     * @param alpha Lower bound of the window.
+     * @param beta Upper bound of the window.
+     * @param ply Distance from the root.
+     * @return Score of the position for the side to move.
+     */
+    private int quiesce(int alpha, int beta, int ply){
+        pvLength[ply] = 0;
+        if ((++nodes & (CHECK_INTERVAL - 1)) == 0 || nodes >= nodeLimit){
+            checkLimits();
+        }
+        if (stopped){
+            return 0;
+        }
+        if (position.isRepetition()){
+            return 0;
+        }
+        boolean inCheck = position.isInCheck(position.getSideToMove());
+        if (ply >= MAX_PLY - 1){
+            return inCheck ? 0 : evaluator.evaluate(position);
+        }
+
+        long entry = table.probe(position.getKey());
+        int hashMove = Move.NONE;
+        if (entry != 0){
+            hashMove = TranspositionTable.move(entry);
+            int score = fromTable(TranspositionTable.score(entry), ply);
+            int bound = TranspositionTable.bound(entry);
+            if (bound == TranspositionTable.BOUND_EXACT
+                    || (bound == TranspositionTable.BOUND_LOWER && score >= beta)
+                    || (bound == TranspositionTable.BOUND_UPPER && score <= alpha)){
+                return score;
+            }
+        }
+
+        int bestScore = -INFINITE;
+        MovePicker picker = pickers[ply];
+        if (inCheck){
+            picker.init(position, hashMove, Move.NONE, Move.NONE, Move.NONE, history);
+        }
+        else{
+            bestScore = evaluator.evaluate(position);
+            if (bestScore >= beta){
+                return bestScore;
+            }
+            alpha = Math.max(alpha, bestScore);
+            picker.initQuiescence(position, hashMove);
+        }
+
+        int move;
+        while ((move = picker.next()) != Move.NONE){
+            position.makeMove(move);
+            int score = -quiesce(-beta, -alpha, ply + 1);
+            position.unmakeMove();
+            if (stopped){
+                return 0;
+            }
+            if (score > bestScore){
+                bestScore = score;
+                if (score > alpha){
+                    alpha = score;
+                    updatePv(ply, move);
+                    if (alpha >= beta){
+                        break;
+                    }
+                }
+            }
+        }
+        if (inCheck && bestScore == -INFINITE){
+            return -MATE + ply;
+        }
+        return bestScore;
+    }
+
+    /**
+     * Remember a quiet move that caused a cutoff, and make the quiet moves searched before it
+     * less likely to be tried first next time.
+     */
+    private void updateOrdering(int ply, int depth, int move, int previous, int quietCount){
+        if (killers[ply][0] != move){
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        if (previous != Move.NONE){
+            counterMoves[position.pieceAt(Move.to(previous))][Move.to(previous)] = move;
+        }
+        int[] scores = history[position.getSideToMove()];
+        int bonus = Math.min(depth * depth, HISTORY_MAX / 4);
+        addHistory(scores, move, bonus);
+        for (int i = 0; i < quietCount; i++){
+            addHistory(scores, quietsTried[ply][i], -bonus);
+        }
+    }
+
+    // The score moves towards +-HISTORY_MAX, more slowly the closer it gets, so it never
+    // overflows and recent results count for more than old ones.
+    private static void addHistory(int[] scores, int move, int bonus){
+        int index = Move.from(move) << 6 | Move.to(move);
+        scores[index] += bonus - scores[index] * Math.abs(bonus) / HISTORY_MAX;
+    }
+
+    /**
+     * Forget the killers, which belong to the previous root, and age the history.
+     */
+    private void resetOrdering(){
+        for (int[] pair : killers){
+            pair[0] = Move.NONE;
+            pair[1] = Move.NONE;
+        }
+        for (int[] scores : history){
+            for (int i = 0; i < scores.length; i++){
+                scores[i] /= 2;
+            }
+        }
+    }
+
+    private void updatePv(int ply, int move){
+        pv[ply][0] = move;
+        System.arraycopy(pv[ply + 1], 0, pv[ply], 1, pvLength[ply + 1]);
+        pvLength[ply] = pvLength[ply + 1] + 1;
+    }
+
+    private void checkLimits(){
+        long end = deadline;
+        if (stopRequested || nodes >= nodeLimit
+                || (end != Long.MAX_VALUE && System.currentTimeMillis() >= end)){
+            stopped = true;
+        }
+    }
+
+    // Mate scores are stored relative to the position rather than the root, so that they stay
+    // right when the position is reached at a different ply.
+    private static int toTable(int score, int ply){
+        if (score >= MATE - MAX_PLY) return score + ply;
+        if (score <= -MATE + MAX_PLY) return score - ply;
+        return score;
+    }
+
+    private static int fromTable(int score, int ply){
+        if (score >= MATE - MAX_PLY) return score - ply;
+        if (score <= -MATE + MAX_PLY) return score + ply;
+        return score;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.android.engine;
+
+/**
+ * Limits on how long a search may run. The search stops as soon as any of them is reached, and
+ * then plays the best move of the last finished iteration. A search on the clock also has a soft
+ * time limit, which the TimeManager stretches or shrinks between iterations.
+ * @author Krysti Leong, April Dizon
+ */
+public class SearchLimits {
+
+    public final int depth;
+    public final long nodes;
+    public final long timeMillis;
+    public final long softTimeMillis;
+
+    /**
+     * Constructor for the SearchLimits.
+     * @param depth Maximum depth in plies, at most Search.MAX_PLY.
+     * @param nodes Maximum number of nodes.
+     * @param timeMillis Maximum time in milliseconds.
+     */
+    public SearchLimits(int depth, long nodes, long timeMillis){
+        this(depth, nodes, timeMillis, Long.MAX_VALUE);
+    }
+
+    /**
+     * Constructor for the SearchLimits.
+     * @param depth Maximum depth in plies, at most Search.MAX_PLY.
+     * @param nodes Maximum number of nodes.
+     * @param timeMillis Maximum time in milliseconds, which is never gone over.
+     * @param softTimeMillis Time in milliseconds after which no new iteration should start,
+     * before the TimeManager's adjustments, or Long.MAX_VALUE to use all of timeMillis.
+     */
+    public SearchLimits(int depth, long nodes, long timeMillis, long softTimeMillis){
+        this.depth = Math.max(1, Math.min(depth, Search.MAX_PLY - 1));
+        this.nodes = nodes;
+        this.timeMillis = timeMillis;
+        this.softTimeMillis = softTimeMillis;
+    }
+
+    public static SearchLimits depth(int depth){
+        return new SearchLimits(depth, Long.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    public static SearchLimits nodes(long nodes){
+        return new SearchLimits(Search.MAX_PLY, nodes, Long.MAX_VALUE);
+    }
+
+    public static SearchLimits time(long timeMillis){
+        return new SearchLimits(Search.MAX_PLY, Long.MAX_VALUE, timeMillis);
+    }
+
+    @Override
+    public String toString(){
+        return "depth " + depth + ", nodes " + nodes + ", time " + timeMillis + " ms"
+                + (softTimeMillis != Long.MAX_VALUE ? ", soft time " + softTimeMillis + " ms" : "");
+    }
+}
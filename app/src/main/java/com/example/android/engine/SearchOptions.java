@@ -0,0 +1,83 @@
+package com.example.android.engine;
+
+/**
+ * Which of the selective search features the Search uses. They all make the search faster at
+ * the risk of missing something, so each can be turned off on its own to measure what it's worth.
+ * @author Krysti Leong, April Dizon
+ */
+public class SearchOptions {
+
+    /** Skip a turn with a reduced search, and cut off if that still beats beta. */
+    public static final int NULL_MOVE = 1;
+    /** Search the late quiet moves of a node less deeply, unless they turn out good. */
+    public static final int LATE_MOVE_REDUCTIONS = 2;
+    /** Cut off near the leaves when the evaluation is far above beta. */
+    public static final int REVERSE_FUTILITY = 4;
+    /** Skip quiet moves near the leaves when the evaluation is far below alpha. */
+    public static final int FUTILITY = 8;
+    /** Search one ply deeper when in check. */
+    public static final int CHECK_EXTENSIONS = 16;
+
+    public static final SearchOptions ALL = new SearchOptions(NULL_MOVE | LATE_MOVE_REDUCTIONS
+            | REVERSE_FUTILITY | FUTILITY | CHECK_EXTENSIONS);
+    public static final SearchOptions NONE = new SearchOptions(0);
+
+    private static final String[] NAMES = {"null move", "late move reductions", "reverse futility",
+            "futility", "check extensions"};
+
+    private final int features;
+
+    /**
+     * Constructor for the SearchOptions.
+     * @param features The features to use, OR'ed together.
+     */
+    public SearchOptions(int features){
+        this.features = features;
+    }
+
+    /**
+     * @param feature One of the feature constants.
+     * @return True if the feature is on.
+     */
+    public boolean has(int feature){
+        return (features & feature) != 0;
+    }
+
+    /**
+     * @param feature One of the feature constants.
+     * @return These options with the feature turned on.
+     */
+    public SearchOptions with(int feature){
+        return new SearchOptions(features | feature);
+    }
+
+    /**
+     * @param feature One of the feature constants.
+     * @return These options with the feature turned off.
+     */
+    public SearchOptions without(int feature){
+        return new SearchOptions(features & ~feature);
+    }
+
+    /**
+     * @param feature One of the feature constants.
+     * @return Name of the feature, for reports.
+     */
+    public static String name(int feature){
+        return NAMES[Integer.numberOfTrailingZeros(feature)];
+    }
+
+    @Override
+    public String toString(){
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < NAMES.length; i++){
+            if ((features & (1 << i)) != 0){
+                if (sb.length() > 0){
+                    sb.append(", ");
+                }
+                sb.append(NAMES[i]);
+            }
+        }
+        return sb.length() > 0 ? sb.toString() : "none";
+    }
+}
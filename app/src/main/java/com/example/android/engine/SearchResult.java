@@ -0,0 +1,50 @@
+package com.example.android.engine;
+
+/**
+ * Result of a search: the best move, its score and the principal variation, which is the line
+ * of play both sides are expected to follow.
+ * @author Krysti Leong, April Dizon
+ */
+public class SearchResult {
+
+    public final int bestMove;
+    public final int score;
+    public final int depth;
+    public final long nodes;
+    public final long timeMillis;
+    public final int[] pv;
+
+    public SearchResult(int bestMove, int score, int depth, long nodes, long timeMillis, int[] pv){
+        this.bestMove = bestMove;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.timeMillis = timeMillis;
+        this.pv = pv;
+    }
+
+    /**
+     * @return True if the score is a forced mate for either side.
+     */
+    public boolean isMate(){
+        return Math.abs(score) >= Search.MATE - Search.MAX_PLY;
+    }
+
+    @Override
+    public String toString(){
+        StringBuilder sb = new StringBuilder();
+        sb.append("depth ").append(depth);
+        if (isMate()){
+            int plies = Search.MATE - Math.abs(score);
+            sb.append(" score mate ").append(score > 0 ? (plies + 1) / 2 : -(plies + 1) / 2);
+        }
+        else{
+            sb.append(" score cp ").append(score);
+        }
+        sb.append(" nodes ").append(nodes).append(" time ").append(timeMillis).append(" pv");
+        for (int move : pv){
+            sb.append(' ').append(Move.toString(move));
+        }
+        return sb.toString();
+    }
+}
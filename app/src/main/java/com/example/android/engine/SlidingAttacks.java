@@ -0,0 +1,176 @@
+package com.example.android.engine;
+
+/**
+ * Magic bitboard lookup tables for the sliding pieces. The relevant blockers of a square are
+ * multiplied by a magic number and shifted so that every blocker configuration maps to a slot in
+ * a shared attack table, which means a rook, bishop or queen attack set costs one multiply, one
+ * shift and one array read. The magic numbers were found offline with a seeded random search, so
+ * loading the class only has to fill in the tables.
+ * @author Krysti Leong, April Dizon
+ */
+public final class SlidingAttacks {
+
+    private static final int[][] ROOK_DIRECTIONS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+    private static final int[][] BISHOP_DIRECTIONS = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+
+    private static final long[] ROOK_MASKS = new long[64];
+    private static final long[] ROOK_MAGICS = {
+            0x008000908064C000L, 0x0040200040001000L, 0x0180100080A0010AL, 0x8880041000800800L,
+            0x1200100201200804L, 0x0200020004011008L, 0x2180010000800600L, 0x0200005088210204L,
+            0x0000800080204001L, 0x1000804000802001L, 0x8240801000200080L, 0x8611001004200900L,
+            0x008180800C001800L, 0x0100800200800400L, 0x0A02000102000408L, 0x8020802300104280L,
+            0x0080004000402000L, 0xE010104000402000L, 0x0800808010002000L, 0xA280210008100100L,
+            0x0001818014000800L, 0xA002010100080400L, 0x0008040088020130L, 0x0001020004048845L,
+            0x0081826280004004L, 0x2020810900284000L, 0x0200100080802000L, 0x0200080080100080L,
+            0x8083080100100500L, 0x4406000901000400L, 0x0005020080800100L, 0x0090204200008114L,
+            0x0010400094800420L, 0x0900804000802002L, 0x0201001841002000L, 0x4100080080801000L,
+            0x4540040080800800L, 0x0000800400800200L, 0x9281800100808200L, 0x8004048102000854L,
+            0x4420802040008006L, 0x0880500020004002L, 0x0801200241050010L, 0x8400080010008080L,
+            0x0008000500090010L, 0x0082009084020008L, 0x4012000108020004L, 0x9000104D08860004L,
+            0x2004204114800100L, 0x0148802112400300L, 0x0202842000100880L, 0x001B080080900080L,
+            0x001A002008100600L, 0x0004008004020080L, 0x5181000600040300L, 0x0000044401128A00L,
+            0x8044110480002441L, 0x1023012082044112L, 0x00804080200A0012L, 0x000420310A004A42L,
+            0x0023001004020801L, 0x0882001008040102L, 0x000230088118020CL, 0x0000019025040042L
+    };
+    private static final int[] ROOK_SHIFTS = new int[64];
+    private static final int[] ROOK_OFFSETS = new int[64];
+    private static final long[] ROOK_TABLE;
+
+    private static final long[] BISHOP_MASKS = new long[64];
+    private static final long[] BISHOP_MAGICS = {
+            0x1010220204082A00L, 0x80E0020202002804L, 0x2008480104200020L, 0x000220920280002DL,
+            0x32040421000B0284L, 0x1002080404000400L, 0x0004160892080040L, 0x2203024206204201L,
+            0x0002404264010200L, 0x1120908408428124L, 0xB100424403002280L, 0x240008060440C288L,
+            0x2040040420490400L, 0x0100620210040022L, 0x0400084104202028L, 0x0010050080908820L,
+            0x0C90A04490824802L, 0x000200A008210130L, 0x0C08001000204010L, 0x0008000186014480L,
+            0x0601044820080021L, 0x0002000101013100L, 0x1400A08108080204L, 0x0250401104485410L,
+            0x4820240810142843L, 0x0009142A20182200L, 0x0848140048440020L, 0x2020120000400440L,
+            0x0108840200802003L, 0x0009070082009492L, 0x020C0C0038424245L, 0xCA44005808210410L,
+            0x8011212000500404L, 0x2028840510101008L, 0x0004042A00041400L, 0x0624020080980080L,
+            0x1820410040840040L, 0x2201004202050100L, 0x402A088A24040224L, 0x0242061040002400L,
+            0x90020202400821A0L, 0x00C9009004E01002L, 0x58C2060202023100L, 0x0000012214040800L,
+            0x0210846810100200L, 0x0004208081010200L, 0x01A4108404442100L, 0x8054082C80280106L,
+            0x0004144904104208L, 0x00324C0A11104000L, 0x1000020231040100L, 0x2080001042020004L,
+            0x0544021020288104L, 0x1103501408083020L, 0x4010451004960002L, 0x003010091C44902CL,
+            0x0102402884202000L, 0x0480804C00841086L, 0x04602C8602210400L, 0x0000004000420200L,
+            0x0040000020442C18L, 0x4483804089094100L, 0x80000B0248020400L, 0x0045010808008680L
+    };
+    private static final int[] BISHOP_SHIFTS = new int[64];
+    private static final int[] BISHOP_OFFSETS = new int[64];
+    private static final long[] BISHOP_TABLE;
+
+    static {
+        ROOK_TABLE = new long[initMasks(ROOK_DIRECTIONS, ROOK_MASKS, ROOK_SHIFTS, ROOK_OFFSETS)];
+        BISHOP_TABLE = new long[initMasks(BISHOP_DIRECTIONS, BISHOP_MASKS, BISHOP_SHIFTS, BISHOP_OFFSETS)];
+        for (int square = 0; square < 64; square++){
+            fillTable(square, ROOK_DIRECTIONS, ROOK_MASKS, ROOK_MAGICS, ROOK_SHIFTS, ROOK_OFFSETS, ROOK_TABLE);
+            fillTable(square, BISHOP_DIRECTIONS, BISHOP_MASKS, BISHOP_MAGICS, BISHOP_SHIFTS, BISHOP_OFFSETS, BISHOP_TABLE);
+        }
+    }
+
+    private SlidingAttacks(){
+    }
+
+    /**
+     * Get the squares a rook on the given square attacks, including the first blocker in every
+     * direction.
+     * @param square Square of the rook.
+     * @param occupied Bitboard of all occupied squares.
+     * @return Bitboard of attacked squares.
+     */
+    public static long rookAttacks(int square, long occupied){
+        int index = (int) (((occupied & ROOK_MASKS[square]) * ROOK_MAGICS[square]) >>> ROOK_SHIFTS[square]);
+        return ROOK_TABLE[ROOK_OFFSETS[square] + index];
+    }
+
+    /**
+     * Get the squares a bishop on the given square attacks, including the first blocker in every
+     * direction.
+     * @param square Square of the bishop.
+     * @param occupied Bitboard of all occupied squares.
+     * @return Bitboard of attacked squares.
+     */
+    public static long bishopAttacks(int square, long occupied){
+        int index = (int) (((occupied & BISHOP_MASKS[square]) * BISHOP_MAGICS[square]) >>> BISHOP_SHIFTS[square]);
+        return BISHOP_TABLE[BISHOP_OFFSETS[square] + index];
+    }
+
+    public static long queenAttacks(int square, long occupied){
+        return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+    }
+
+    //region TABLE GENERATION
+
+    /**
+     * Compute the relevant blocker masks (every square on the rays except the board edge), the
+     * shifts and the table offsets of every square.
+     * @return Total size of the attack table.
+     */
+    private static int initMasks(int[][] directions, long[] masks, int[] shifts, int[] offsets){
+        int size = 0;
+        for (int square = 0; square < 64; square++){
+            long mask = 0L;
+            for (int[] direction : directions){
+                int row = Bitboards.row(square) + direction[0];
+                int file = Bitboards.file(square) + direction[1];
+                // Stop one square early, since the square on the edge never blocks anything.
+                while (row + direction[0] >= 0 && row + direction[0] < 8
+                        && file + direction[1] >= 0 && file + direction[1] < 8){
+                    mask |= 1L << ((row << 3) | file);
+                    row += direction[0];
+                    file += direction[1];
+                }
+            }
+            int bits = Long.bitCount(mask);
+            masks[square] = mask;
+            shifts[square] = 64 - bits;
+            offsets[square] = size;
+            size += 1 << bits;
+        }
+        return size;
+    }
+
+    /**
+     * Fill in the attack table of a square by enumerating every subset of its blocker mask
+     * (Carry-Rippler) and storing the attacks at the slot the magic number maps it to.
+     */
+    private static void fillTable(int square, int[][] directions, long[] masks, long[] magics,
+                                  int[] shifts, int[] offsets, long[] table){
+        long mask = masks[square];
+        boolean[] filled = new boolean[1 << Long.bitCount(mask)];
+        long subset = 0L;
+        do {
+            int index = (int) ((subset * magics[square]) >>> shifts[square]);
+            long attacks = slowAttacks(square, subset, directions);
+            if (filled[index] && table[offsets[square] + index] != attacks){
+                throw new IllegalStateException("Bad magic number for square " + square);
+            }
+            filled[index] = true;
+            table[offsets[square] + index] = attacks;
+            subset = (subset - mask) & mask;
+        } while (subset != 0);
+    }
+
+    /**
+     * Compute the attacks of a slider by walking each ray. Only used to fill in the tables.
+     */
+    private static long slowAttacks(int square, long occupied, int[][] directions){
+        long attacks = 0L;
+        for (int[] direction : directions){
+            int row = Bitboards.row(square) + direction[0];
+            int file = Bitboards.file(square) + direction[1];
+            while (row >= 0 && row < 8 && file >= 0 && file < 8){
+                long bit = 1L << ((row << 3) | file);
+                attacks |= bit;
+                if ((occupied & bit) != 0){
+                    break;
+                }
+                row += direction[0];
+                file += direction[1];
+            }
+        }
+        return attacks;
+    }
+
+    //endregion
+}
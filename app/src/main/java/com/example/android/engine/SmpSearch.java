@@ -0,0 +1,191 @@
+package com.example.android.engine;
+
+import com.example.android.Board;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Multi-threaded search in the "Lazy SMP" style. Every thread runs its own iterative deepening
+ * search of the same root on its own copy of the position, and the threads only share the
+ * transposition table. The helper threads fill the table with results that the main thread then
+ * finds, and every other helper starts one ply deeper so that the threads don't all search the
+ * same tree in lockstep. The main thread's limits decide when everyone stops.
+ * @author Krysti Leong, April Dizon
+ */
+public class SmpSearch {
+
+    private final TranspositionTable table;
+    private final Search[] searches;
+    private final ExecutorService helpers;
+
+    /**
+     * Constructor for the SmpSearch.
+     * @param table Transposition table shared by every thread.
+     * @param threads Number of search threads, including the calling thread.
+     */
+    public SmpSearch(TranspositionTable table, int threads){
+        this.table = table;
+        this.searches = new Search[Math.max(1, threads)];
+        for (int i = 0; i < searches.length; i++){
+            searches[i] = new Search(table);
+        }
+        if (searches.length > 1){
+            helpers = Executors.newFixedThreadPool(searches.length - 1, new ThreadFactory() {
+                private int count;
+
+                @Override
+                public synchronized Thread newThread(Runnable runnable){
+                    Thread thread = new Thread(runnable, "search-helper-" + (++count));
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        else{
+            helpers = null;
+        }
+    }
+
+    /**
+     * Search the position on the board for the player whose turn it is.
+     * @param board Board of the game, which is not changed.
+     * @param limits Limits on the search.
+     * @return The result of the main thread.
+     */
+    public SearchResult search(Board board, SearchLimits limits){
+        return search(board.getBitboards(), limits);
+    }
+
+    /**
+     * Search a position on every thread, until the main thread reaches its limits.
+     * @param root Position to search, which is not changed.
+     * @param limits Limits on the search.
+     * @return The result of the main thread.
+     */
+    public SearchResult search(final BitboardPosition root, SearchLimits limits){
+        table.newSearch();
+        for (Search search : searches){
+            search.clearStop();
+        }
+
+        // The helpers have no limits of their own, the main thread stops them.
+        final SearchLimits helperLimits = new SearchLimits(limits.depth, Long.MAX_VALUE, Long.MAX_VALUE);
+        Future<?>[] futures = new Future<?>[searches.length];
+        for (int i = 1; i < searches.length; i++){
+            final Search helper = searches[i];
+            final int firstDepth = 1 + (i & 1);
+            futures[i] = helpers.submit(new Runnable() {
+                @Override
+                public void run(){
+                    helper.iterate(root, helperLimits, firstDepth);
+                }
+            });
+        }
+
+        SearchResult result = searches[0].iterate(root, limits, 1);
+
+        for (int i = 1; i < searches.length; i++){
+            searches[i].stop();
+        }
+        for (int i = 1; i < searches.length; i++){
+            try{
+                futures[i].get();
+            }
+            catch (InterruptedException e){
+                Thread.currentThread().interrupt();
+            }
+            catch (ExecutionException e){
+                throw new IllegalStateException("Search helper failed", e.getCause());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Choose the selective search features every thread uses.
+     * @param options The features, for the next search on.
+     */
+    public void setOptions(SearchOptions options){
+        for (Search search : searches){
+            search.setOptions(options);
+        }
+    }
+
+    /**
+     * Choose the static evaluation. The main thread uses the given evaluator and every helper
+     * a new instance of it.
+     * @param evaluator Evaluator, for the next search on.
+     */
+    public void setEvaluator(Evaluator evaluator){
+        searches[0].setEvaluator(evaluator);
+        for (int i = 1; i < searches.length; i++){
+            searches[i].setEvaluator(evaluator.newInstance());
+        }
+    }
+
+    /**
+     * Choose the endgame bitbases every thread probes.
+     * @param bitbases The bitbases, or null to search every endgame.
+     */
+    public void setBitbases(Bitbases bitbases){
+        for (Search search : searches){
+            search.setBitbases(bitbases);
+        }
+    }
+
+    /**
+     * Choose the endgame tablebases every thread probes. They are shared, and probed one thread
+     * at a time.
+     * @param tablebases The tablebases, or null to search every endgame.
+     */
+    public void setTablebases(Tablebases tablebases){
+        for (Search search : searches){
+            search.setTablebases(tablebases);
+        }
+    }
+
+    /**
+     * Ask a running search to stop as soon as possible. Safe to call from any thread.
+     */
+    public void stop(){
+        for (Search search : searches){
+            search.stop();
+        }
+    }
+
+    /**
+     * @return Number of nodes each thread searched in the last search, the main thread first.
+     */
+    public long[] getThreadNodes(){
+        long[] nodes = new long[searches.length];
+        for (int i = 0; i < searches.length; i++){
+            nodes[i] = searches[i].getNodes();
+        }
+        return nodes;
+    }
+
+    /**
+     * @return Fraction of the main thread's beta cutoffs that came from the first move searched.
+     */
+    public double getFirstMoveCutoffRate(){
+        return searches[0].getFirstMoveCutoffRate();
+    }
+
+    public int getThreadCount(){
+        return searches.length;
+    }
+
+    /**
+     * Stop the helper threads. The SmpSearch can't be used afterwards.
+     */
+    public void shutdown(){
+        stop();
+        if (helpers != null){
+            helpers.shutdown();
+        }
+    }
+}
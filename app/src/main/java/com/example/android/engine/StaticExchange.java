@@ -0,0 +1,118 @@
+package com.example.android.engine;
+
+/**
+ * Static exchange evaluation (SEE): the material a capture wins or loses once both sides have
+ * recaptured on its square with their least valuable attacker for as long as that pays off.
+ * Attackers hidden behind other pieces (x-rays) join in as the pieces in front of them leave.
+ * Pins and checks are ignored, so the result is an estimate, but it's cheap and needs no moves
+ * to be made.
+ * @author Krysti Leong, April Dizon
+ */
+public final class StaticExchange {
+
+    /** Size of the gain buffer evaluate() needs: one entry for every piece that can take part. */
+    public static final int GAIN_SIZE = 32;
+
+    // The king is worth more than everything else together, so trading it is never good.
+    private static final int[] VALUES = {
+            Evaluation.PIECE_VALUES[BitboardPosition.PAWN], Evaluation.PIECE_VALUES[BitboardPosition.KNIGHT],
+            Evaluation.PIECE_VALUES[BitboardPosition.BISHOP], Evaluation.PIECE_VALUES[BitboardPosition.ROOK],
+            Evaluation.PIECE_VALUES[BitboardPosition.QUEEN], 20000};
+
+    private StaticExchange(){
+    }
+
+    /**
+     * Evaluate the exchange a move starts.
+     * @param position Position the move is played in, which is not changed.
+     * @param move A legal move. Quiet moves are evaluated too, as the loss of the moved piece
+     * when the square is attacked.
+     * @return Material won by the side making the move, in centipawns. Negative if it loses material.
+     */
+    public static int evaluate(BitboardPosition position, int move){
+        return evaluate(position, move, new int[GAIN_SIZE]);
+    }
+
+    /**
+     * Evaluate the exchange a move starts without allocating, for the move pickers of the search.
+     * @param position Position the move is played in, which is not changed.
+     * @param move A legal move.
+     * @param gain Scratch space of GAIN_SIZE ints, which only the calling thread uses.
+     * @return Material won by the side making the move, in centipawns. Negative if it loses material.
+     */
+    public static int evaluate(BitboardPosition position, int move, int[] gain){
+        if (Move.isCastle(move)){
+            return 0;
+        }
+        int from = Move.from(move);
+        int to = Move.to(move);
+        long occupied = position.occupied() ^ (1L << from);
+
+        int captured = position.pieceAt(to);
+        if (Move.flags(move) == Move.EN_PASSANT){
+            occupied ^= 1L << (to ^ 8);
+            gain[0] = VALUES[BitboardPosition.PAWN];
+        }
+        else if (captured != BitboardPosition.NO_PIECE){
+            gain[0] = VALUES[BitboardPosition.typeOf(captured)];
+        }
+        int onSquare = BitboardPosition.typeOf(position.pieceAt(from));
+        if (Move.isPromotion(move)){
+            onSquare = Move.promotionType(move);
+            gain[0] += VALUES[onSquare] - VALUES[BitboardPosition.PAWN];
+        }
+
+        long queens = position.pieces(BitboardPosition.WHITE, BitboardPosition.QUEEN)
+                | position.pieces(BitboardPosition.BLACK, BitboardPosition.QUEEN);
+        long diagonal = position.pieces(BitboardPosition.WHITE, BitboardPosition.BISHOP)
+                | position.pieces(BitboardPosition.BLACK, BitboardPosition.BISHOP) | queens;
+        long straight = position.pieces(BitboardPosition.WHITE, BitboardPosition.ROOK)
+                | position.pieces(BitboardPosition.BLACK, BitboardPosition.ROOK) | queens;
+        long attackers = position.attackersTo(to, occupied) & occupied;
+        int side = position.getSideToMove() ^ 1;
+
+        int depth = 0;
+        while (true){
+            long sideAttackers = attackers & position.pieces(side);
+            if (sideAttackers == 0){
+                break;
+            }
+            int type = BitboardPosition.PAWN;
+            long attacker = 0L;
+            for (; type <= BitboardPosition.KING; type++){
+                attacker = sideAttackers & position.pieces(side, type);
+                if (attacker != 0){
+                    break;
+                }
+            }
+            // The king may only take last.
+            if (type == BitboardPosition.KING && (attackers & position.pieces(side ^ 1)) != 0){
+                break;
+            }
+
+            depth++;
+            gain[depth] = VALUES[onSquare] - gain[depth - 1];
+            // Neither side can do better by going on, so stop early.
+            if (Math.max(-gain[depth - 1], gain[depth]) < 0){
+                break;
+            }
+            occupied ^= attacker & -attacker;
+            if (type == BitboardPosition.PAWN || type == BitboardPosition.BISHOP || type == BitboardPosition.QUEEN){
+                attackers |= SlidingAttacks.bishopAttacks(to, occupied) & diagonal;
+            }
+            if (type == BitboardPosition.ROOK || type == BitboardPosition.QUEEN){
+                attackers |= SlidingAttacks.rookAttacks(to, occupied) & straight;
+            }
+            attackers &= occupied;
+            onSquare = type;
+            side ^= 1;
+        }
+
+        // Either side may stop recapturing when going on would lose more.
+        while (depth > 0){
+            gain[depth - 1] = -Math.max(-gain[depth - 1], gain[depth]);
+            depth--;
+        }
+        return gain[0];
+    }
+}
@@ -0,0 +1,242 @@
+package com.example.android.engine;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Works out the WDL and DTZ tables of the endgames from their bitbases, and writes them as
+ * tablebase files. WDL is the result for the side to move: 2 for a win, 0 for a draw and -2 for a
+ * loss. DTZ is the number of plies to the next pawn move or mate with best play, which in
+ * these endgames is never more than the 50 move rule allows, and 0 for a draw.
+ *
+ * DTZ is found level by level: mates are level 0, and every pass finds the positions of the next
+ * level from those of the levels before. A pass splits the index range among the threads of a
+ * ForkJoinPool, and each thread only writes the positions of its own part.
+ *
+ * Impossible positions are never probed, so they get the value of the position before them,
+ * which makes longer runs of equal values and smaller files.
+ * @author Krysti Leong, April Dizon
+ */
+public class TablebaseGenerator {
+
+    // Positions one task goes over itself instead of splitting them further.
+    private static final int POSITIONS_PER_TASK = 4096;
+    // DTZ of a decided position whose level isn't found yet.
+    private static final int UNRESOLVED = 0xFF;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructor for the TablebaseGenerator.
+     * @param pool Pool the passes run on.
+     */
+    public TablebaseGenerator(ForkJoinPool pool){
+        this.pool = pool;
+    }
+
+    /**
+     * Constructor for a TablebaseGenerator on the common pool.
+     */
+    public TablebaseGenerator(){
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Write the WDL and DTZ files of every endgame there is a bitbase of.
+     * @param bitbases The bitbases, of which KPK needs KQK and KRK.
+     * @param directory Directory to write the files to, with the names Tablebases looks for.
+     * @throws IOException If a file can't be written.
+     */
+    public void writeAll(Bitbases bitbases, File directory) throws IOException{
+        for (int material = 0; material < Bitbase.COUNT; material++){
+            if (bitbases.get(material) == null){
+                continue;
+            }
+            Tablebases.write(new File(directory, Tablebases.fileName(material, Tablebases.WDL)),
+                    Tablebases.WDL, material, wdl(bitbases, material));
+            Tablebases.write(new File(directory, Tablebases.fileName(material, Tablebases.DTZ)),
+                    Tablebases.DTZ, material, dtz(bitbases, material));
+        }
+    }
+
+    /**
+     * @return The WDL value of every index of an endgame.
+     */
+    public byte[] wdl(final Bitbases bitbases, final int material){
+        final byte[] values = new byte[Bitbase.size(material)];
+        forEach(values.length, new Range() {
+            @Override
+            public boolean run(int start, int end, int[] squares){
+                EndgameMoves moves = new EndgameMoves(material);
+                Bitbase bitbase = bitbases.get(material);
+                byte previous = 0;
+                for (int index = start; index < end; index++){
+                    Bitbase.decode(material, index, squares);
+                    if (moves.isLegal(squares)){
+                        previous = !bitbase.get(index) ? 0 : squares[0] == 1 ? (byte) 2 : (byte) -2;
+                    }
+                    values[index] = previous;
+                }
+                return true;
+            }
+        });
+        return values;
+    }
+
+    /**
+     * @return The DTZ value of every index of an endgame.
+     */
+    public byte[] dtz(final Bitbases bitbases, final int material){
+        final byte[] values = new byte[Bitbase.size(material)];
+        final EndgameMoves moves = new EndgameMoves(material);
+        final Bitbase bitbase = bitbases.get(material);
+        forEach(values.length, new Range() {
+            @Override
+            public boolean run(int start, int end, int[] squares){
+                for (int index = start; index < end; index++){
+                    Bitbase.decode(material, index, squares);
+                    values[index] = moves.isLegal(squares) && bitbase.get(index) ? (byte) UNRESOLVED : 0;
+                }
+                return true;
+            }
+        });
+
+        for (int level = 0; ; level++){
+            if (level == UNRESOLVED){
+                throw new IllegalStateException(Bitbase.NAMES[material] + " has no DTZ below " + UNRESOLVED);
+            }
+            final int current = level;
+            boolean found = forEach(values.length, new Range() {
+                @Override
+                public boolean run(int start, int end, int[] squares){
+                    return resolve(bitbases, moves, material, values, current, start, end, squares);
+                }
+            });
+            // There are no mates in KPK, so its first level is 1.
+            if (!found && level > 0){
+                break;
+            }
+        }
+
+        // Fill in the impossible positions once every level is known.
+        forEach(values.length, new Range() {
+            @Override
+            public boolean run(int start, int end, int[] squares){
+                byte previous = 0;
+                for (int index = start; index < end; index++){
+                    if ((values[index] & 0xFF) == UNRESOLVED){
+                        throw new IllegalStateException(Bitbase.NAMES[material] + " index " + index + " has no DTZ");
+                    }
+                    Bitbase.decode(material, index, squares);
+                    if (moves.isLegal(squares)){
+                        previous = values[index];
+                    }
+                    else{
+                        values[index] = previous;
+                    }
+                }
+                return true;
+            }
+        });
+        return values;
+    }
+
+    /**
+     * Find the positions of one level in a range of indexes. A position with the strong side to
+     * move is on the level after the first of its moves that leads to a loss, or on level 1 if a
+     * pawn move wins. A position with the lone king to move is on the level after the last of its
+     * moves, once all of them are known.
+     * @return Whether any were found.
+     */
+    private static boolean resolve(Bitbases bitbases, EndgameMoves moves, int material, byte[] values,
+                                   int level, int start, int end, int[] squares){
+        int[] children = new int[EndgameMoves.MAX_MOVES];
+        int[] tables = new int[EndgameMoves.MAX_MOVES];
+        boolean[] zeroing = new boolean[EndgameMoves.MAX_MOVES];
+        boolean found = false;
+        for (int index = start; index < end; index++){
+            if ((values[index] & 0xFF) != UNRESOLVED){
+                continue;
+            }
+            Bitbase.decode(material, index, squares);
+            boolean resolved;
+            if (squares[0] == 1){
+                resolved = false;
+                int count = moves.strongMoves(squares, children, tables, zeroing);
+                for (int i = 0; i < count && !resolved; i++){
+                    // A draw has a DTZ of 0 too, so the bitbase says which moves win.
+                    boolean wins = bitbases.get(tables[i]).get(children[i]);
+                    resolved = wins && (zeroing[i] ? level == 1 : isBelow(values, children[i], level));
+                }
+            }
+            else{
+                // Every move of the lone king in a lost position leads to a win, and none takes.
+                int count = moves.weakMoves(squares, children);
+                resolved = count != EndgameMoves.CAPTURE;
+                for (int i = 0; i < count && resolved; i++){
+                    resolved = isBelow(values, children[i], level);
+                }
+            }
+            if (resolved){
+                values[index] = (byte) level;
+                found = true;
+            }
+        }
+        return found;
+    }
+
+    // Whether a decided position was found on an earlier level.
+    private static boolean isBelow(byte[] values, int index, int level){
+        int value = values[index] & 0xFF;
+        return value != UNRESOLVED && value < level;
+    }
+
+    /**
+     * Work on a range of indexes, done by one task.
+     */
+    private interface Range {
+        /**
+         * @param squares Buffer for Bitbase.decode().
+         * @return Whether anything was found.
+         */
+        boolean run(int start, int end, int[] squares);
+    }
+
+    /**
+     * Run over all the indexes on the pool.
+     * @return Whether any part found anything.
+     */
+    private boolean forEach(int size, Range range){
+        return pool.invoke(new RangeTask(range, 0, size));
+    }
+
+    /**
+     * Runs over a range of indexes, split in halves as long as it's big.
+     */
+    private static class RangeTask extends RecursiveTask<Boolean> {
+
+        private final Range range;
+        private final int start;
+        private final int end;
+
+        RangeTask(Range range, int start, int end){
+            this.range = range;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected Boolean compute(){
+            if (end - start <= POSITIONS_PER_TASK){
+                return range.run(start, end, new int[5]);
+            }
+            int middle = (start + end) >>> 1;
+            RangeTask low = new RangeTask(range, start, middle);
+            low.fork();
+            boolean high = new RangeTask(range, middle, end).compute();
+            return low.join() | high;
+        }
+    }
+}
@@ -0,0 +1,434 @@
+package com.example.android.engine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Endgame tablebases in the style of Syzygy: a WDL file with the result of every position of an
+ * endgame, and a DTZ file with the number of plies to the next pawn move or mate, which is what
+ * perfect play needs. The files are named like Syzygy's (KQvK.wdl, KQvK.dtz) and looked for in a
+ * directory of the caller's choice, but the format is this engine's own: positions in the order
+ * of Bitbase's index, one byte each, cut into blocks that are compressed with Deflate.
+ *
+ * A file is little endian: the int MAGIC, the int VERSION, the kind (WDL or DTZ), the material,
+ * the number of positions, the positions per block and the number of blocks as ints, then the
+ * offsets of the blocks and the end of the last one as ints, counted from the end of the
+ * offsets, and the blocks. Files are memory mapped when the Tablebases is made, and a probe only
+ * inflates the block it needs. Inflated blocks are kept in a cache of a fixed number of blocks,
+ * where each block has one slot it can be in. The search threads all probe the same Tablebases,
+ * so a block found in the cache is read without a lock, and only inflating one locks a stripe
+ * of the cache.
+ * @author Krysti Leong, April Dizon
+ */
+public class Tablebases {
+
+    /** "TBLK" in ASCII, read as a little endian int. */
+    public static final int MAGIC = 0x4B4C4254;
+    public static final int VERSION = 1;
+    public static final int WDL = 0;
+    public static final int DTZ = 1;
+    public static final int BLOCK_SIZE = 4096;
+    public static final int DEFAULT_CACHE_BLOCKS = 256;
+
+    private static final String[] NAMES = {"KPvK", "KRvK", "KQvK", "KBNvK"};
+    private static final String[] SUFFIXES = {".wdl", ".dtz"};
+    private static final int HEADER_SIZE = 28;
+    private static final int STRIPES = 16;
+
+    private final File directory;
+    private final int maxPieces;
+    // Files by material and kind, or null when missing or broken.
+    private final Table[] tables = new Table[Bitbase.COUNT * 2];
+    // Inflated blocks, in the slot their key hashes to.
+    private final AtomicReferenceArray<CachedBlock> cache;
+    private final int cacheMask;
+    // A miss inflates its block with the Inflater of the stripe of its slot.
+    private final Stripe[] stripes;
+
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder probeNanos = new LongAdder();
+
+    /**
+     * Constructor for the Tablebases.
+     * @param directory Directory with the tablebase files.
+     * @param cacheBlocks Most inflated blocks to keep, rounded up to a power of two.
+     */
+    public Tablebases(File directory, int cacheBlocks){
+        this.directory = directory;
+        int capacity = Integer.highestOneBit(Math.max(cacheBlocks, 1) * 2 - 1);
+        this.cache = new AtomicReferenceArray<>(capacity);
+        this.cacheMask = capacity - 1;
+        this.stripes = new Stripe[Math.min(STRIPES, capacity)];
+        for (int i = 0; i < stripes.length; i++){
+            stripes[i] = new Stripe();
+        }
+        int pieces = 0;
+        for (int material = 0; material < Bitbase.COUNT; material++){
+            if (new File(directory, fileName(material, WDL)).exists()){
+                pieces = Math.max(pieces, material == Bitbase.KBNK ? 4 : 3);
+            }
+            for (int kind = WDL; kind <= DTZ; kind++){
+                File file = new File(directory, fileName(material, kind));
+                if (file.exists()){
+                    try{
+                        tables[material * 2 + kind] = Table.open(file, material, kind);
+                    } catch (IOException e){
+                        // Left out, like a missing file.
+                        e.printStackTrace();
+                    }
+                }
+            }
+        }
+        this.maxPieces = pieces;
+    }
+
+    /**
+     * @return Name of the file of an endgame, such as KQvK.wdl.
+     */
+    public static String fileName(int material, int kind){
+        return NAMES[material] + SUFFIXES[kind];
+    }
+
+    public File getDirectory(){
+        return directory;
+    }
+
+    /**
+     * @return Most pieces, kings included, of the positions there are files for, or 0 if the
+     * directory has none.
+     */
+    public int getMaxPieces(){
+        return maxPieces;
+    }
+
+    /**
+     * Look up the result of a position. Safe to call from any thread.
+     * @param position Position to look up, which is not changed.
+     * @return Bitbases.WIN, DRAW or LOSS for the side to move, or Bitbases.UNKNOWN if there's no
+     * file for it.
+     */
+    public int probeWdl(BitboardPosition position){
+        return probeWdl(position, new int[5]);
+    }
+
+    /**
+     * Look up the result of a position without allocating, for the search.
+     * @param position Position to look up, which is not changed.
+     * @param squares Scratch space of 5 ints, which only the calling thread uses.
+     * @return Bitbases.WIN, DRAW or LOSS for the side to move, or Bitbases.UNKNOWN if there's no
+     * file for it.
+     */
+    public int probeWdl(BitboardPosition position, int[] squares){
+        int value = probe(position, WDL, squares);
+        return value == Integer.MIN_VALUE ? Bitbases.UNKNOWN : Integer.signum(value);
+    }
+
+    /**
+     * Look up the distance to the next pawn move or mate of a position. Safe to call from any
+     * thread.
+     * @param position Position to look up, which is not changed.
+     * @return Plies with best play, 0 for a draw, or -1 if there's no file for it.
+     */
+    public int probeDtz(BitboardPosition position){
+        int value = probe(position, DTZ, new int[5]);
+        return value == Integer.MIN_VALUE ? -1 : value & 0xFF;
+    }
+
+    /**
+     * Find the move of perfect play: the one that wins the quickest, keeps the draw, or loses
+     * the slowest, counted in plies to the next pawn move or mate.
+     * @param position Position to look up, which is not changed.
+     * @return A legal move, or Move.NONE if there's no file for the position or one after it.
+     */
+    public int bestMove(BitboardPosition position){
+        int result = probeWdl(position);
+        if (result == Bitbases.UNKNOWN){
+            return Move.NONE;
+        }
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generateLegalMoves(position, moves);
+        BitboardPosition child = new BitboardPosition(position);
+        int best = Move.NONE;
+        int bestRank = Integer.MAX_VALUE;
+        for (int i = 0; i < count; i++){
+            int move = moves[i];
+            boolean zeroing = Move.isCapture(move)
+                    || BitboardPosition.typeOf(position.pieceAt(Move.from(move))) == BitboardPosition.PAWN;
+            child.makeMove(move);
+            int childResult = isDrawnMaterial(child) ? Bitbases.DRAW : probeWdl(child);
+            int rank = Integer.MAX_VALUE;
+            if (childResult == Bitbases.UNKNOWN){
+                child.unmakeMove();
+                return Move.NONE;
+            }
+            if (-childResult == result){
+                int dtz = Math.max(probeDtz(child), 0);
+                if (result == Bitbases.WIN){
+                    // A pawn move starts the count again, so it's the quickest way to progress.
+                    rank = zeroing ? dtz : 256 + dtz;
+                }
+                else if (result == Bitbases.LOSS){
+                    rank = 256 - dtz;
+                }
+                else{
+                    rank = 0;
+                }
+            }
+            child.unmakeMove();
+            if (rank < bestRank){
+                bestRank = rank;
+                best = move;
+            }
+        }
+        return best;
+    }
+
+    // Only kings, or kings and one knight or bishop, which can't mate.
+    private static boolean isDrawnMaterial(BitboardPosition position){
+        long others = position.occupied() & ~position.pieces(BitboardPosition.WHITE, BitboardPosition.KING)
+                & ~position.pieces(BitboardPosition.BLACK, BitboardPosition.KING);
+        if (others == 0){
+            return true;
+        }
+        if (Long.bitCount(others) > 1){
+            return false;
+        }
+        int type = BitboardPosition.typeOf(position.pieceAt(Long.numberOfTrailingZeros(others)));
+        return type == BitboardPosition.KNIGHT || type == BitboardPosition.BISHOP;
+    }
+
+    /**
+     * @return The byte of a position in a file, or Integer.MIN_VALUE if there's no file for it.
+     */
+    private int probe(BitboardPosition position, int kind, int[] squares){
+        long start = System.nanoTime();
+        int material = Bitbases.material(position, squares);
+        Table table = material < 0 ? null : tables[material * 2 + kind];
+        if (table == null){
+            return Integer.MIN_VALUE;
+        }
+        int index = Bitbase.index(material, squares[0] == 1, squares[1], squares[2], squares[3], squares[4]);
+        int block = index / table.blockSize;
+        byte[] values = block(table, block);
+        probes.increment();
+        probeNanos.add(System.nanoTime() - start);
+        return values == null ? Integer.MIN_VALUE : values[index - block * table.blockSize];
+    }
+
+    /**
+     * @return A block of a file, from the cache or inflated, or null if the file is broken.
+     */
+    private byte[] block(Table table, int block){
+        long key = ((long) (table.material * 2 + table.kind) << 32) | block;
+        long hash = key * 0x9E3779B97F4A7C15L;
+        int slot = (int) (hash >>> 32) & cacheMask;
+        CachedBlock cached = cache.get(slot);
+        if (cached != null && cached.key == key){
+            cacheHits.increment();
+            return cached.values;
+        }
+        Stripe stripe = stripes[slot & (stripes.length - 1)];
+        synchronized (stripe){
+            // Another thread may have inflated it meanwhile.
+            cached = cache.get(slot);
+            if (cached != null && cached.key == key){
+                cacheHits.increment();
+                return cached.values;
+            }
+            byte[] values = stripe.inflate(table, block);
+            if (values != null){
+                cache.set(slot, new CachedBlock(key, values));
+            }
+            return values;
+        }
+    }
+
+    /**
+     * @return Number of probes that found a file, since the last resetMetrics().
+     */
+    public long getProbes(){
+        return probes.sum();
+    }
+
+    /**
+     * @return Fraction of those probes whose block was in the cache.
+     */
+    public double getCacheHitRate(){
+        long count = probes.sum();
+        return count == 0 ? 0 : cacheHits.sum() / (double) count;
+    }
+
+    /**
+     * @return Average time of those probes in microseconds, inflating included.
+     */
+    public double getAverageProbeMicros(){
+        long count = probes.sum();
+        return count == 0 ? 0 : probeNanos.sum() / 1000.0 / count;
+    }
+
+    public void resetMetrics(){
+        probes.reset();
+        cacheHits.reset();
+        probeNanos.reset();
+    }
+
+    /**
+     * Write a tablebase file, first to a temporary file and then renamed, so that a file that is
+     * open (and memory mapped) stays readable meanwhile.
+     * @param file File to write.
+     * @param kind WDL or DTZ.
+     * @param material One of the materials of Bitbase.
+     * @param values One byte for every index of the endgame.
+     * @throws IOException If the file can't be written.
+     */
+    public static void write(File file, int kind, int material, byte[] values) throws IOException{
+        int blockCount = (values.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        ByteArrayOutputStream blocks = new ByteArrayOutputStream();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + 4 * (blockCount + 1)).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(kind).putInt(material).putInt(values.length)
+                .putInt(BLOCK_SIZE).putInt(blockCount);
+
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        byte[] buffer = new byte[BLOCK_SIZE * 2];
+        for (int block = 0; block < blockCount; block++){
+            header.putInt(blocks.size());
+            int start = block * BLOCK_SIZE;
+            deflater.reset();
+            deflater.setInput(values, start, Math.min(BLOCK_SIZE, values.length - start));
+            deflater.finish();
+            while (!deflater.finished()){
+                blocks.write(buffer, 0, deflater.deflate(buffer));
+            }
+        }
+        deflater.end();
+        header.putInt(blocks.size());
+
+        File temporary = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temporary)){
+            out.write(header.array());
+            blocks.writeTo(out);
+        }
+        if (!temporary.renameTo(file)){
+            temporary.delete();
+            throw new IOException("Could not replace " + file);
+        }
+    }
+
+    /**
+     * An inflated block and the file and number it's the block of, which never change, so that
+     * it can be read by any thread once it's in the cache.
+     */
+    private static final class CachedBlock {
+
+        final long key;
+        final byte[] values;
+
+        CachedBlock(long key, byte[] values){
+            this.key = key;
+            this.values = values;
+        }
+    }
+
+    /**
+     * What inflating a block needs, for the misses of one stripe of the cache at a time.
+     */
+    private static final class Stripe {
+
+        private final Inflater inflater = new Inflater();
+        private byte[] compressed = new byte[BLOCK_SIZE];
+
+        /**
+         * @return The block, or null if the file is broken.
+         */
+        byte[] inflate(Table table, int block){
+            int from = table.offset(block);
+            int length = table.offset(block + 1) - from;
+            if (compressed.length < length){
+                compressed = new byte[length];
+            }
+            ByteBuffer data = table.data.duplicate();
+            data.position(from);
+            data.get(compressed, 0, length);
+
+            byte[] values = new byte[Math.min(table.blockSize, table.positions - block * table.blockSize)];
+            inflater.reset();
+            inflater.setInput(compressed, 0, length);
+            try{
+                int inflated = 0;
+                while (inflated < values.length && !inflater.finished()){
+                    int count = inflater.inflate(values, inflated, values.length - inflated);
+                    if (count == 0 && inflater.needsInput()){
+                        break;
+                    }
+                    inflated += count;
+                }
+                return inflated == values.length ? values : null;
+            } catch (DataFormatException e){
+                return null;
+            }
+        }
+    }
+
+    /**
+     * One memory mapped file.
+     */
+    private static final class Table {
+
+        final int kind;
+        final int material;
+        final int positions;
+        final int blockSize;
+        final int blockCount;
+        private final ByteBuffer offsets;
+        final ByteBuffer data;
+
+        private Table(ByteBuffer buffer, int material, int kind) throws IOException{
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC){
+                throw new IOException("Not a tablebase file");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION){
+                throw new IOException("Unsupported tablebase version " + version);
+            }
+            this.kind = buffer.getInt();
+            this.material = buffer.getInt();
+            this.positions = buffer.getInt();
+            this.blockSize = buffer.getInt();
+            this.blockCount = buffer.getInt();
+            if (this.kind != kind || this.material != material || positions != Bitbase.size(material)
+                    || blockSize <= 0 || blockCount != (positions + blockSize - 1) / blockSize
+                    || buffer.remaining() < 4 * (blockCount + 1)){
+                throw new IOException("Tablebase file doesn't match " + fileName(material, kind));
+            }
+            offsets = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+            buffer.position(buffer.position() + 4 * (blockCount + 1));
+            data = buffer.slice();
+            if (offset(blockCount) > data.remaining()){
+                throw new IOException("Tablebase file is cut short");
+            }
+        }
+
+        static Table open(File file, int material, int kind) throws IOException{
+            try (FileInputStream in = new FileInputStream(file); FileChannel channel = in.getChannel()){
+                return new Table(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), material, kind);
+            }
+        }
+
+        int offset(int block){
+            return offsets.getInt(4 * block);
+        }
+    }
+}
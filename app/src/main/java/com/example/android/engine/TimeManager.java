@@ -0,0 +1,93 @@
+package com.example.android.engine;
+
+/**
+ * Decides how much of the clock a move may use. Before the search, limits() splits the time
+ * left into a soft limit, which is what a move normally takes, and a hard limit, which the
+ * search never goes over. During the search, the TimeManager looks at every finished iteration:
+ * it stops early when the best move has stayed the same for a while, and allows more time when
+ * the score drops, since that's when a longer look pays off most.
+ * @author Krysti Leong, April Dizon
+ */
+public class TimeManager {
+
+    // Moves the rest of the game is assumed to take when the time control doesn't say.
+    private static final int EXPECTED_MOVES = 30;
+    // Time kept back for the UI and the engine's own overhead on every move.
+    private static final long MOVE_OVERHEAD_MILLIS = 50;
+    // Most of the time left that one move may take, even the last move before the time control.
+    private static final int MAX_SHARE_DIVISOR = 2;
+    // A drop in score (in centipawns) between iterations that is worth more time.
+    private static final int SCORE_DROP = 30;
+    private static final int BIG_SCORE_DROP = 100;
+
+    private final long softMillis;
+    private final long hardMillis;
+    private int previousMove = Move.NONE;
+    private int previousScore;
+    private int stability;
+
+    /**
+     * Constructor for the TimeManager of one search.
+     * @param limits Limits of the search.
+     */
+    public TimeManager(SearchLimits limits){
+        this.softMillis = limits.softTimeMillis;
+        this.hardMillis = limits.timeMillis;
+    }
+
+    /**
+     * Work out the limits of a search on the clock.
+     * @param clock Clock of the game.
+     * @param color Player the engine is moving for.
+     * @return Limits with a soft and a hard time limit.
+     */
+    public static SearchLimits limits(ChessClock clock, int color){
+        long left = Math.max(0, clock.remainingMillis(color) - MOVE_OVERHEAD_MILLIS);
+        long increment = clock.getIncrementMillis();
+        int movesToGo = clock.movesToGo(color);
+        int moves = movesToGo > 0 ? Math.min(movesToGo, EXPECTED_MOVES) : EXPECTED_MOVES;
+
+        long soft = left / moves + increment * 3 / 4;
+        // Never more than a good part of what's left, so there's time for the rest of the game.
+        long hard = Math.min(soft * 5, left / Math.min(3, moves) + increment / 2);
+        hard = Math.max(1, Math.min(hard, left / MAX_SHARE_DIVISOR));
+        soft = Math.max(1, Math.min(soft, hard));
+        return new SearchLimits(Search.MAX_PLY, Long.MAX_VALUE, hard, soft);
+    }
+
+    /**
+     * Look at the result of an iteration and decide whether to start another.
+     * @param result Result of the iteration that just finished.
+     * @param elapsedMillis Time since the search started.
+     * @return True if the search should stop now.
+     */
+    public boolean shouldStop(SearchResult result, long elapsedMillis){
+        if (softMillis == Long.MAX_VALUE){
+            return false;
+        }
+        if (result.bestMove == previousMove){
+            stability++;
+        }
+        else{
+            stability = 0;
+        }
+
+        double scale = stability >= 4 ? 0.5 : stability >= 2 ? 0.75 : 1.0;
+        if (previousMove != Move.NONE){
+            int drop = previousScore - result.score;
+            if (drop >= BIG_SCORE_DROP){
+                scale *= 2.0;
+            }
+            else if (drop >= SCORE_DROP){
+                scale *= 1.5;
+            }
+        }
+        previousMove = result.bestMove;
+        previousScore = result.score;
+
+        // The next iteration takes longer than all the ones before it together, so don't start
+        // one that is unlikely to finish in time.
+        long budget = Math.min(hardMillis, (long) (softMillis * scale));
+        return elapsedMillis >= budget / 2;
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.android.engine;
+
+/**
+ * Fixed-size hash table of search results, keyed by the Zobrist key of the position. Entries are
+ * packed into a long[] two longs at a time: the data (best move, score, depth, bound and age) and
+ * the key XORed with the data. A probe only accepts an entry whose two halves XOR back to the key,
+ * so threads can probe and store at the same time without locks, and an entry torn by two writers
+ * is simply treated as a miss.
+ *
+ * The table is split into buckets of BUCKET_SIZE entries. A new result replaces the entry of the
+ * same position, unless that one is from the current search, deeper, and the new result isn't
+ * exact, or else the entry that is shallowest and from the oldest search.
+ * @author Krysti Leong, April Dizon
+ */
+public class TranspositionTable {
+
+    public static final int BOUND_UPPER = 1;
+    public static final int BOUND_LOWER = 2;
+    public static final int BOUND_EXACT = 3;
+
+    private static final int BUCKET_SIZE = 4;
+    private static final int ENTRY_BYTES = 16;
+    private static final int AGE_MASK = 63;
+
+    private final long[] entries;
+    private final int bucketMask;
+    private volatile int age;
+
+    /**
+     * Constructor for the TranspositionTable.
+     * @param megabytes Memory budget. The number of buckets is rounded down to a power of two.
+     */
+    public TranspositionTable(int megabytes){
+        long buckets = Math.max(1L, ((long) megabytes << 20) / (ENTRY_BYTES * BUCKET_SIZE));
+        int count = Integer.highestOneBit((int) Math.min(buckets, 1 << 26));
+        entries = new long[count * BUCKET_SIZE * 2];
+        bucketMask = count - 1;
+    }
+
+    /**
+     * Start a new search, which makes the entries of the previous searches easier to replace.
+     */
+    public void newSearch(){
+        age = (age + 1) & AGE_MASK;
+    }
+
+    /**
+     * Remove every entry.
+     */
+    public void clear(){
+        for (int i = 0; i < entries.length; i++){
+            entries[i] = 0L;
+        }
+        age = 0;
+    }
+
+    /**
+     * Look up a position.
+     * @param key Zobrist key of the position.
+     * @return The packed entry data, to be read with move(), score(), depth() and bound(), or 0
+     * if the position isn't in the table.
+     */
+    public long probe(long key){
+        int index = bucketIndex(key);
+        for (int i = 0; i < BUCKET_SIZE; i++, index += 2){
+            long data = entries[index + 1];
+            if (data != 0 && (entries[index] ^ data) == key){
+                return data;
+            }
+        }
+        return 0L;
+    }
+
+    /**
+     * Store the result of searching a position.
+     * @param key Zobrist key of the position.
+     * @param move Best move found, or Move.NONE.
+     * @param score Score of the position, between Short.MIN_VALUE and Short.MAX_VALUE.
+     * @param depth Depth searched, between 0 and 255.
+     * @param bound BOUND_UPPER, BOUND_LOWER or BOUND_EXACT.
+     */
+    public void store(long key, int move, int score, int depth, int bound){
+        int currentAge = age;
+        int first = bucketIndex(key);
+        int replace = first;
+        int lowestValue = Integer.MAX_VALUE;
+        for (int i = 0, index = first; i < BUCKET_SIZE; i++, index += 2){
+            long data = entries[index + 1];
+            if (data != 0 && (entries[index] ^ data) == key){
+                // A deeper result of this search is worth more than a bound from a shallower one.
+                if (bound != BOUND_EXACT && age(data) == currentAge && depth(data) > depth){
+                    return;
+                }
+                // Same position: keep the old best move rather than forgetting it.
+                if (move == Move.NONE){
+                    move = move(data);
+                }
+                replace = index;
+                break;
+            }
+            // Prefer empty entries, then the ones that are shallow or left over from older searches.
+            int value = data == 0 ? Integer.MIN_VALUE : depth(data) - 8 * ((currentAge - age(data)) & AGE_MASK);
+            if (value < lowestValue){
+                lowestValue = value;
+                replace = index;
+            }
+        }
+        long data = pack(move, score, depth, bound, currentAge);
+        entries[replace] = key ^ data;
+        entries[replace + 1] = data;
+    }
+
+    /**
+     * Estimate how full the table is from a sample of its buckets.
+     * @return Permille of the sampled entries that were stored by the current search.
+     */
+    public int hashfull(){
+        int buckets = Math.min(250, bucketMask + 1);
+        int used = 0;
+        for (int i = 0; i < buckets * BUCKET_SIZE; i++){
+            long data = entries[i * 2 + 1];
+            if (data != 0 && age(data) == age){
+                used++;
+            }
+        }
+        return used * 1000 / (buckets * BUCKET_SIZE);
+    }
+
+    private int bucketIndex(long key){
+        return ((int) (key >>> 32) & bucketMask) * (BUCKET_SIZE * 2);
+    }
+
+    //region ENTRY DATA
+
+    // Bits 0-15 hold the move, 16-31 the score, 32-39 the depth, 40-41 the bound and 42-47 the age.
+    private static long pack(int move, int score, int depth, int bound, int age){
+        return (move & 0xFFFFL) | ((score & 0xFFFFL) << 16) | ((long) (depth & 0xFF) << 32)
+                | ((long) bound << 40) | ((long) age << 42);
+    }
+
+    public static int move(long data){
+        return (int) (data & 0xFFFF);
+    }
+
+    public static int score(long data){
+        return (short) (data >>> 16);
+    }
+
+    public static int depth(long data){
+        return (int) ((data >>> 32) & 0xFF);
+    }
+
+    public static int bound(long data){
+        return (int) ((data >>> 40) & 3);
+    }
+
+    private static int age(long data){
+        return (int) ((data >>> 42) & AGE_MASK);
+    }
+
+    //endregion
+}
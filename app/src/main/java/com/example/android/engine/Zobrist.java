@@ -0,0 +1,117 @@
+package com.example.android.engine;
+
+/**
+ * Zobrist keys, which identify a position by a 64-bit hash: the XOR of one random key for every
+ * piece on its square, plus keys for the side to move, the castling rights and the en passant
+ * file. The keys come from a fixed seed, so hashes are the same on every run and every device.
+ * @author Krysti Leong, April Dizon
+ */
+public final class Zobrist {
+
+    private static final long[][] PIECE_SQUARE = new long[12][64];
+    private static final long[] CASTLING = new long[16];
+    private static final long[] EN_PASSANT_FILE = new long[8];
+    private static final long BLACK_TO_MOVE;
+
+    static {
+        long seed = 0x2545F4914F6CDD1DL;
+        for (int piece = 0; piece < 12; piece++){
+            for (int square = 0; square < 64; square++){
+                seed = next(seed);
+                PIECE_SQUARE[piece][square] = scramble(seed);
+            }
+        }
+        // Each castling right gets a key, and a set of rights is the XOR of its keys.
+        long[] rightKeys = new long[4];
+        for (int right = 0; right < 4; right++){
+            seed = next(seed);
+            rightKeys[right] = scramble(seed);
+        }
+        for (int rights = 0; rights < 16; rights++){
+            for (int right = 0; right < 4; right++){
+                if ((rights & (1 << right)) != 0){
+                    CASTLING[rights] ^= rightKeys[right];
+                }
+            }
+        }
+        for (int file = 0; file < 8; file++){
+            seed = next(seed);
+            EN_PASSANT_FILE[file] = scramble(seed);
+        }
+        seed = next(seed);
+        BLACK_TO_MOVE = scramble(seed);
+    }
+
+    private Zobrist(){
+    }
+
+    public static long pieceSquare(int piece, int square){
+        return PIECE_SQUARE[piece][square];
+    }
+
+    public static long castling(int rights){
+        return CASTLING[rights];
+    }
+
+    public static long enPassantFile(int file){
+        return EN_PASSANT_FILE[file];
+    }
+
+    public static long blackToMove(){
+        return BLACK_TO_MOVE;
+    }
+
+    /**
+     * Compute the key of a position from scratch. BitboardPosition keeps its key up to date as
+     * it changes, so this is only needed to check that key.
+     * @param position Position to hash.
+     * @return 64-bit Zobrist key.
+     */
+    public static long compute(BitboardPosition position){
+        long key = 0L;
+        long pieces = position.occupied();
+        while (pieces != 0){
+            int square = Long.numberOfTrailingZeros(pieces);
+            key ^= PIECE_SQUARE[position.pieceAt(square)][square];
+            pieces &= pieces - 1;
+        }
+        key ^= CASTLING[position.getCastlingRights()];
+        if (position.getEnPassantSquare() != BitboardPosition.NO_SQUARE){
+            key ^= EN_PASSANT_FILE[Bitboards.file(position.getEnPassantSquare())];
+        }
+        if (position.getSideToMove() == BitboardPosition.BLACK){
+            key ^= BLACK_TO_MOVE;
+        }
+        return key;
+    }
+
+    /**
+     * Compute the key of the pawns of a position from scratch, to check the pawn key that
+     * BitboardPosition keeps.
+     * @param position Position to hash.
+     * @return 64-bit Zobrist key of the pawns alone.
+     */
+    public static long computePawnKey(BitboardPosition position){
+        long key = 0L;
+        long pawns = position.pieces(BitboardPosition.WHITE, BitboardPosition.PAWN)
+                | position.pieces(BitboardPosition.BLACK, BitboardPosition.PAWN);
+        while (pawns != 0){
+            int square = Long.numberOfTrailingZeros(pawns);
+            key ^= PIECE_SQUARE[position.pieceAt(square)][square];
+            pawns &= pawns - 1;
+        }
+        return key;
+    }
+
+    // xorshift64* generator, which is plenty random for hash keys.
+    private static long next(long seed){
+        seed ^= seed >>> 12;
+        seed ^= seed << 25;
+        seed ^= seed >>> 27;
+        return seed;
+    }
+
+    private static long scramble(long seed){
+        return seed * 0x2545F4914F6CDD1DL;
+    }
+}
@@ -2,8 +2,8 @@ package com.example.android.model;
 
 import com.example.android.Board;
 import com.example.android.R;
+import com.example.android.engine.SlidingAttacks;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -12,48 +12,54 @@ import java.util.List;
  */
 public class Bishop extends Piece {
 
+    // Saved games were written with the UID Java computed for the first version of the class.
+    private static final long serialVersionUID = -9066666209278893506L;
+
     /**
-     * Constructor for the Bishop. Sets the color, position, and direction vectors, which are
-     * vectors that represent all the diagonals on the board.
+     * Constructor for the Bishop. Sets the color and position. Its moves along the diagonals
+     * come from the magic bitboard tables.
      * @param color Color of the piece, either "White" or "Black."
      * @param position Current position of this piece.
      */
     public Bishop(String color, Position position){
         super("Bishop", color, position);
 
-        List<Position> directions = new ArrayList<Position>();
-        directions.add(new Position(-1, 1));
-        directions.add(new Position(-1, -1));
-        directions.add(new Position(1,1));
-        directions.add(new Position(1, -1));
-
         if (color.equals("White")){
             setImageResource(R.mipmap.white_bishop_foreground);
         }
         else{
             setImageResource(R.mipmap.black_bishop_foreground);
         }
-        setDirectionVectors(directions);
     }
 
 
     /**
-     * Use the isContinuousPathClear for the Bishop to check if the path is clear.
+     * Use the magic bitboard tables to get all the moves of the Bishop.
+     * @param chessBoard Board of the game.
+     * @return List of positions this piece can move to.
+     */
+    public List<Position> getAllMoves(Board chessBoard){
+        return toPositions(getAttacks(chessBoard));
+    }
+
+    /**
+     * Use the magic bitboard tables to check if the Bishop can reach its destination.
      * @param chessBoard Board of the game.
      * @param destination Position of the destination.
-     * @return Null if the path is clear. Else, return the Position of an obstacle in the way.
+     * @return True if this piece can reach the destination, false if it cannot.
      */
-    public Position isPathClear(Board chessBoard, Position destination){
-        return super.isContinuousPathClear(chessBoard, destination);
+    @Override
+    public boolean canReachDestination(Board chessBoard, Position destination){
+        return canReachSquare(chessBoard, destination, getAttacks(chessBoard));
     }
 
     /**
-     * Use the getAllContinuousMoves for the Bishop to get all its moves.
+     * Look up the squares the Bishop attacks along the diagonals.
      * @param chessBoard Board of the game.
-     * @return List of positions this piece can move to.
+     * @return Bitboard of attacked squares.
      */
-    public List<Position> getAllMoves(Board chessBoard){
-        return getAllContinuousMoves(chessBoard);
+    private long getAttacks(Board chessBoard){
+        return SlidingAttacks.bishopAttacks(getSquare(), chessBoard.getBitboards().occupied());
     }
 
 
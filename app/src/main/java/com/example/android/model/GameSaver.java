@@ -31,6 +31,15 @@ public class GameSaver implements Serializable {
     private GameStates currentGame;
 
 
+    /**
+     * Get the file the saved games are written to, such as to see when it last changed.
+     * @param context Context from the app.
+     * @return The file, which may not exist yet.
+     */
+    public static File getSavedGamesFile(Context context){
+        return context.getFileStreamPath(savedGamesFilename);
+    }
+
     /**
      * Get ALL the saved games that are saved to file.
      * @return List of game states found on the file.
@@ -197,10 +206,8 @@ public class GameSaver implements Serializable {
             this.gameStates = new ArrayList<GameStates>();
             return this.gameStates;
         }
-        GameSaver gameSaver = null;
         try {
-            gameSaver = (GameSaver)ois.readObject();
-            this.gameStates = gameSaver.gameStates;
+            this.gameStates = readGames(ois);
         } catch (ClassNotFoundException | IOException e) {
             // File isn't found. Create a new one!
             File file = context.getDir(savedGamesFilename, Context.MODE_PRIVATE);
@@ -210,6 +217,17 @@ public class GameSaver implements Serializable {
         return this.gameStates;
     }
 
+    /**
+     * Read the saved games the way they are written to the file.
+     * @param ois Stream of the file's contents.
+     * @return The list of gameStates in it.
+     * @throws IOException If it can't be read, such as when a class changed in a way that can't load.
+     * @throws ClassNotFoundException If it has a class that no longer exists.
+     */
+    public static List<GameStates> readGames(ObjectInputStream ois) throws IOException, ClassNotFoundException{
+        return ((GameSaver) ois.readObject()).gameStates;
+    }
+
 //    /**
 //     * Find a file with the given file name.
 //     * @param fileName File name.
@@ -5,6 +5,7 @@ import android.content.Context;
 import androidx.annotation.NonNull;
 
 import com.example.android.Board;
+import com.example.android.engine.Move;
 
 import java.io.IOException;
 import java.io.Serializable;
@@ -72,12 +73,33 @@ public class GameStates implements Serializable {
         return states.get(index);
     }
 
+    /**
+     * Get the most recently added state.
+     * @return The current state.
+     */
+    public State getCurrentState() throws IndexOutOfBoundsException{
+        return states.get(states.size() - 1);
+    }
+
+    /**
+     * Add a new state that was not reached by a move (such as the start of the game, or a resign)
+     * to the gameStates.
+     * @param state Cell[][] from the Board class.
+     * @param pieces List of pieces from the Board class.
+     * @param hashKey Zobrist key of the position.
+     */
+    public void addState(Board.Cell[][] state, List<Piece> pieces, int turn, String title, long hashKey){
+        addState(state, pieces, turn, title, Move.NONE, hashKey);
+    }
+
     /**
      * Add a new state to the gameStates.
      * @param state Cell[][] from the Board class.
      * @param pieces List of pieces from the Board class.
+     * @param move Packed move (see the Move class) that led to this state, or Move.NONE.
+     * @param hashKey Zobrist key of the position.
      */
-    public void addState(Board.Cell[][] state, List<Piece> pieces, int turn, String title){
+    public void addState(Board.Cell[][] state, List<Piece> pieces, int turn, String title, int move, long hashKey){
 
         // Make sure that this state is not already in the list.
         // The list is kept in order until the most recent item.
@@ -108,7 +130,7 @@ public class GameStates implements Serializable {
                 boardState[i][j] = cell;
             }
         }
-        states.add(new State(boardState, piecesState, turn, title));
+        states.add(new State(boardState, piecesState, turn, title, move, hashKey));
     }
 
     public void addState(State state){
@@ -223,16 +245,23 @@ public class GameStates implements Serializable {
     }
 
     public static class State implements Serializable{
+        // Fixed to the UID of the State without a move or key, so older saves still load, with
+        // move left as Move.NONE and hashKey as 0.
+        private static final long serialVersionUID = -3722465038552816102L;
         public Board.Cell[][] board;
         public List<Piece> pieces;
         public int turn;
         public String title;
+        public int move;
+        public long hashKey;
 
-        public State(Board.Cell[][] board, List<Piece> pieces, int turn, String title){
+        public State(Board.Cell[][] board, List<Piece> pieces, int turn, String title, int move, long hashKey){
             this.board = board;
             this.pieces = pieces;
             this.turn = turn;
             this.title = title;
+            this.move = move;
+            this.hashKey = hashKey;
         }
 
         @NonNull
@@ -2,8 +2,10 @@ package com.example.android.model;
 
 import com.example.android.Board;
 import com.example.android.R;
+import com.example.android.engine.BitboardPosition;
+import com.example.android.engine.Bitboards;
+import com.example.android.engine.LeaperAttacks;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -12,32 +14,25 @@ import java.util.List;
  */
 public class Pawn extends Piece {
 
+    // The UID Java computed for the first version of the class, which the saved games were written with.
+    private static final long serialVersionUID = -7067307705465890659L;
+
     /**
-     * Constructor for the Knight. Sets the color, position, and direction vectors, which are 1
-     * space forward, 2 spaces forward, and 1 space diagonal. The sign of the vectors depend on its color.
+     * Constructor for the Pawn. Sets the color and position. The diagonal captures come from the
+     * precomputed LeaperAttacks tables, and the pushes 1 and 2 spaces forward are found with a
+     * shift whose direction depends on its color.
      * @param color Color of the piece, either "White" or "Black."
      * @param position Current position of this piece.
      */
     public Pawn(String color, Position position){
         super("Pawn", color, position);
 
-        List<Position> directions = new ArrayList<Position>();
-
         if (color.equals("White")){
-            directions.add(new Position(-2,0));
-            directions.add(new Position(-1, 0));
-            directions.add(new Position(-1, 1));
-            directions.add(new Position(-1, -1));
             setImageResource(R.mipmap.white_pawn_foreground);
         }
         else{
-            directions.add(new Position(2,0));
-            directions.add(new Position(1, 0));
-            directions.add(new Position(1, -1));
-            directions.add(new Position(1,1));
             setImageResource(R.mipmap.black_pawn_foreground);
         }
-        setDirectionVectors(directions);
 
     }
 
@@ -49,96 +44,46 @@ public class Pawn extends Piece {
      * @return True if this piece can reach the destination, false if it cannot.
      */
     public boolean isValidMovement(Board chessBoard, Position destination){
-        int srcRank = getPosition().rank;
-        int srcFile = getPosition().file;
-        int destRank = destination.rank;
-        int destFile = destination.file;
-        int[][] prevMove = chessBoard.getPrevMove();
+        long target = toBit(destination);
+        BitboardPosition bitboards = chessBoard.getBitboards();
 
-        int multiplier = getColor().equals("White")? 1 : -1;
-        int verticalDistance = multiplier * (srcRank - destRank);
-        int horizontalDistance =  multiplier * (srcFile - destFile);
-        if(verticalDistance > 2){
-            //Not capable of moving more than two ranks
-            return false;
-        }
-        if(verticalDistance == 2){
-            //Not capable of moving two ranks if pawn is not at its original rank
-            if(getColor().equals("White") && srcRank != 6){
-                return false;
-            }
-            if(getColor().equals("Black") && srcRank != 1){
-                return false;
-            }
-        }
-        if(horizontalDistance > 1){
-            //Not capable of moving more than one file (only applies with en passant)
-            return false;
-        }
-        Piece destPiece = chessBoard.getPieceByFileRank(destFile, destRank);
-        if(Math.abs(horizontalDistance) == 1 && verticalDistance == 1){
-            //Moving diagonally
-            if(destPiece != null && !destPiece.color.equals(getColor())){
-                //Check if destination is an opponent's piece
+        if((LeaperAttacks.pawnAttacks(getColorIndex(), getSquare()) & target) != 0){
+            //Moving diagonally, which needs an opponent's piece or the en passant cell
+            if((bitboards.pieces(getColorIndex() ^ 1) & target) != 0){
                 return true;
             }
-            if(!enPassant(srcRank, destFile, prevMove)){
-                return false;
-            }
-        }
-        //Check if destination cell contains a piece
-        if(destPiece != null){
-            return false;
+            return Bitboards.square(destination.rank, destination.file) == bitboards.getEnPassantSquare();
         }
 
-        return true;
+        //Otherwise the pawn must be pushed onto an empty cell
+        return (getPushes(bitboards.occupied()) & target) != 0;
     }
 
     /**
-     * Check if the path is clear by checking if the move is valid through
-     * isValidMovement().
-     * @param chessBoard Board of the game.
-     * @param destination Position of the destination.
-     * @return True if this piece can reach the destination, false if it cannot.
+     * Get the cells this pawn can be pushed to: 1 space forward if it's empty, and 2 spaces
+     * forward if the pawn is on its original rank and both cells are empty.
+     * @param occupied Bitboard of all occupied cells.
+     * @return Bitboard of the cells this pawn can be pushed to.
      */
-    public Position isPathClear(Board chessBoard, Position destination){
-
-        // Check if the pawn can move to its destination, using the isValidMove().
-        if (isValidMovement(chessBoard, destination)){
-            return null;
-        }
-        else{
-            return destination;
+    private long getPushes(long occupied){
+        long empty = ~occupied;
+        long pawn = Bitboards.bit(getSquare());
+        if (getColorIndex() == BitboardPosition.WHITE){
+            long single = Bitboards.north(pawn) & empty;
+            return single | (Bitboards.north(single & Bitboards.RANK_3) & empty);
         }
-
+        long single = Bitboards.south(pawn) & empty;
+        return single | (Bitboards.south(single & Bitboards.RANK_6) & empty);
     }
 
     /**
-     * Use the getAllDiscreteMoves for the Pawn to get all its moves.
+     * Use the pawn attack table and the pushes to get all its moves.
      * @param chessBoard Board of the game.
      * @return List of positions this piece can move to.
      */
     public List<Position> getAllMoves(Board chessBoard){
-        return getAllDiscreteMoves(chessBoard);
-    }
-
-    /**
-     *
-     * @param srcRank Rank of the moving piece.
-     * @param destFile File of the destination.
-     * @param prevMove A record of the previous move from the other player.
-     *                 2D int array
-     *                 [0][0] = source file
-     *                 [0][1] = source rank
-     *                 [1][0] = destination file
-     *                 [1][1] = destination rank
-     * @return true if valid en passant move
-     */
-    public static boolean enPassant(int srcRank, int destFile, int[][] prevMove) {
-        Boolean fromSameRank = srcRank == prevMove[1][1];
-        Boolean toSameFile = destFile == prevMove[1][0];
-        Boolean prevMovedTwoRanks = Math.abs(prevMove[0][1] - prevMove[1][1]) == 2;
-        return fromSameRank && toSameFile && prevMovedTwoRanks;
+        long attacks = LeaperAttacks.pawnAttacks(getColorIndex(), getSquare());
+        return toPositions(attacks | getPushes(chessBoard.getBitboards().occupied()));
     }
 
 }
@@ -1,6 +1,8 @@
 package com.example.android.model;
 
 import com.example.android.Board;
+import com.example.android.engine.BitboardPosition;
+import com.example.android.engine.Bitboards;
 
 import java.io.Serializable;
 import java.util.ArrayList;
@@ -18,7 +20,6 @@ public abstract class Piece implements Serializable {
     public String color;
     public boolean hasMoved;
     private Position position;
-    private List<Position> directionVectors = null;
     private int imageResource;
 
     /**
@@ -81,26 +82,30 @@ public abstract class Piece implements Serializable {
     }
 
     /**
-     * Get this piece's direction vectors, which are vectors representing this piece's movement paths.
-     * These vectors are added to the piece through the children's constructors.
-     * @return List of the vectors, or null if there are no vectors.
+     * @return This piece's current position as a bitboard square index.
      */
-    public List<Position> getDirectionVectors(){
-        return directionVectors;
+    protected int getSquare(){
+        return Bitboards.square(position.rank, position.file);
     }
 
     /**
-     * Set this piece's direction vectors.
-     * @param directions List of the vectors.
+     * @return This piece's color as used by the BitboardPosition.
      */
-    public void setDirectionVectors(List<Position> directions){
-        directionVectors = directions;
+    protected int getColorIndex(){
+        return color.equals("White") ? BitboardPosition.WHITE : BitboardPosition.BLACK;
     }
 
     /**
-     * See if this piece can reach its destination from its current position by checking the following positions:
-     * 1. The path to the destination from its current position is in its valid movements.
-     * 2. The path is clear of any other pieces.
+     * @param position A position on the board.
+     * @return Bitboard with only the square of the given position set.
+     */
+    protected static long toBit(Position position){
+        return Bitboards.bit(Bitboards.square(position.rank, position.file));
+    }
+
+    /**
+     * See if this piece can reach its destination from its current position, which is when the
+     * destination is in its valid movements and isn't held by a piece of the same color.
      * @param chessBoard Board of the game.
      * @param destination Position of the destination.
      * @return True if this piece can reach the destination, false if it cannot.
@@ -109,18 +114,8 @@ public abstract class Piece implements Serializable {
         if (!isValidMovement(chessBoard, destination)){
             return false;
         }
-        Position obstacle = isPathClear(chessBoard, destination);
-        if (obstacle != null){
-            Board.Cell[][] cells = chessBoard.getCells();
-            // This piece can reach the destination if the there's an obstacle, ONLY
-            // if the obstacle is at the destination, and its the opposing color
-            if (destination.equals(obstacle)){
-                if (cells[obstacle.rank][obstacle.file].piece.color.equals(getColor())){
-                    return false;
-                }
-            }
-        }
-        return true;
+        long ownPieces = chessBoard.getBitboards().pieces(getColorIndex());
+        return (toBit(destination) & ownPieces) == 0;
     }
 
     /**
@@ -133,15 +128,6 @@ public abstract class Piece implements Serializable {
     public abstract boolean isValidMovement(Board chessBoard, Position destination);
 
 
-    /**
-     * Check if the path to the destination is clear of any obstacles (other chess pieces).
-     * Note that this also checks if the destination is clear or capturable.
-     * @param chessBoard Board of the game.
-     * @param destination Position of the destination.
-     * @return Null if the path is clear. Else, return the Position of an obstacle in the way.
-     */
-    public abstract Position isPathClear(Board chessBoard, Position destination);
-
     /**
      * Get all the Positions this piece can move to, given its current position.
      * @param chessBoard Board of the game.
@@ -150,183 +136,39 @@ public abstract class Piece implements Serializable {
     public abstract List<Position> getAllMoves(Board chessBoard);
 
     /**
-     * Used by a piece's getAllMoves(). Use the piece's vectors, and find all the moves it can move to
-     * by simply checking if the position at (current position + vector) has an obstacle.
-     * All moves that are free of obstacles are added to the returned list.
-     * @param chessBoard Board of the game.
-     * @return List of Positions that this piece can move to.
+     * Used by a piece's getAllMoves(). Turn a bitboard of the squares this piece attacks into a
+     * list of Positions. Squares held by pieces of either color are included, since they are
+     * still threatened by this piece.
+     * @param attacks Bitboard of attacked squares.
+     * @return List of Positions that this piece can move to, or null if there are none.
      */
-    protected List<Position> getAllDiscreteMoves(Board chessBoard){
-
-        List<Position> moves = new ArrayList<Position>();
-        List<Position> directions = getDirectionVectors();
-
-        // Iterate through this piece's directions.
-        for (Position direction : directions){
-            Position destination = Position.add(getPosition(), direction);
-            // Make sure not to go beyond the board.
-            if (!Position.withinBounds(destination)){
-                continue;
-            }
-
-            // If there are no obstacles, add this to the moves!
-            Position obstacle = isPathClear(chessBoard, destination);
-            if (obstacle == null){
-                moves.add(destination);
-            }
-            else{
-                moves.add(destination);
-                // If there's an obstacle, then you can move to this position
-                // only if capture is possible
-//                Board.Cell[][] cells = chessBoard.getCells();
-//                Piece obstaclePiece = cells[obstacle.rank][obstacle.file].piece;
-//                if (obstaclePiece != null){
-//                    if (!obstaclePiece.color.equals(getColor())){
-//                        moves.add(destination);
-//                    }
-//                }
-            }
-        }
-
-        // We're done!
-        if (moves.size() == 0){
-            return null;
-        }
-        else{
-            return moves;
-        }
-    }
-
-    /**
-     * Used by a piece's getAllMoves. Use the piece's vectors, and find all the positions it can
-     * move to by first finding the furthest positions on the board this piece can get to, depending
-     * on its current position, then checking if there are any obstacles in between the current position
-     * and the furthest position. All positions free of obstacles are returned in this list.
-     * @param chessBoard Board of the game.
-     * @return List of Positions that this piece can move to.
-     */
-    protected List<Position> getAllContinuousMoves(Board chessBoard){
-
-        // Setup
-        Position source = getPosition();
-        Board.Cell[][] board = chessBoard.getBoard();
-        List<Position> movements = new ArrayList<Position>();
-        List<Position> directions = getDirectionVectors();
-
-        // Find the furthest cells that this piece can travel to and add them to a list.
-        List<Position> bounds = new ArrayList<Position>();
-        for (Position direction : directions){
-            bounds.add(Position.getMaxDistance(direction, source));
-        }
-
-        // Attempt to travel to these positions.
-        for (int i = 0; i < bounds.size(); i++){
-
-            // Check if the path is clear between this max position.
-            Position obstacle = isPathClear(chessBoard, bounds.get(i));
-            List<Position> newMovements;
-
-            // If it's not clear, then add the positions that are between the source, up to this obstacle.
-            if (obstacle != null){
-                newMovements = source.getPositionsBetween(directions.get(i), obstacle);
-                movements.add(obstacle);
-                // Depending on the color of the obstacle, this piece can still travel to the obstacle's position
-                // It cannot move any further though.
-//                if (!board[obstacle.rank][obstacle.file].piece.color.equals(getColor())){
-//                    movements.add(obstacle);
-//                }
-            }
-            // Else, add all the movements between the source and the max position.
-            else{
-                newMovements = source.getPositionsBetweenMax(directions.get(i));
-            }
-            movements.addAll(newMovements);
-        }
-
-        // If no movements are found, return null.
-        if (movements.size() == 0){
+    protected static List<Position> toPositions(long attacks){
+        if (attacks == 0){
             return null;
         }
-        else{
-            return movements;
+        List<Position> moves = new ArrayList<Position>(Long.bitCount(attacks));
+        while (attacks != 0){
+            int square = Long.numberOfTrailingZeros(attacks);
+            moves.add(new Position(Bitboards.boardRank(square), Bitboards.file(square)));
+            attacks &= attacks - 1;
         }
+        return moves;
     }
 
     /**
-     * Used by a piece's isPathClear(). Find if the path between this piece's current position and the
-     * destination by checking each position between the current and the destination, as well as the
-     * destination. Note that a piece at the destination is not an obstacle if it has the opposing color.
+     * Used by a piece's canReachDestination(). The destination can be reached if it is one of the
+     * attacked squares and it isn't held by a piece of the same color.
      * @param chessBoard Board of the game.
      * @param destination Position of the destination.
-     * @return Null if the path is clear. Else, return the Position of an obstacle in the way.
-     */
-    protected Position isContinuousPathClear(Board chessBoard, Position destination){
-
-        // Create a vector to express the direction from the starting position to the destination
-        Board.Cell[][] board = chessBoard.getBoard();
-        Position source = getPosition();
-        Position distance = Position.distance(source, destination);
-        int rank = 0;
-        int file = 0;
-        if (distance.rank < 0){
-            rank = 1;
-        }
-        else if (distance.rank > 0){
-            rank = -1;
-        }
-
-        if (distance.file < 0){
-            file = 1;
-        }
-        else if (distance.file > 0){
-            file = -1;
-        }
-
-        // Use the vector to iterate to the destination
-        int obstacles = 0;
-        Position direction = new Position(rank, file);
-        Position bounds = Position.add(destination, direction);
-        for (Position i = Position.add(direction, source); (!Position.equals(i, bounds) && Position.withinBounds(i)); i = Position.add(i, direction)){
-            Board.Cell cell = board[i.rank][i.file];
-            if (cell.piece != null){
-                // There is something in the way!
-                return i;
-//                if (!cell.piece.color.equals(getColor()) && obstacles != 1){
-//                    // If there's an obstacle of the opposing color, and it's the first obstacle, this piece
-//                    // can still travel to this spot, because this spot can be captured.
-//                    obstacles++;
-//                    continue;
-//                }
-//                else{
-//                    return i;
-//                }
-            }
-        }
-        return null;
-    }
-
-    /**
-     * Used by a piece's isPathClear(). Find if this piece can reach its destination by simply checking if the
-     * destination is clear of any pieces of the same color.
-     * @param chessBoard Board of the game.
-     * @param destination Position of the destination.
-     * @return Null if the path is clear. Else, return the Position of an obstacle in the way.
+     * @param attacks Bitboard of the squares this piece attacks.
+     * @return True if this piece can reach the destination, false if it cannot.
      */
-    protected Position isDiscretePathClear(Board chessBoard, Position destination){
-        Board.Cell[][] board = chessBoard.getBoard();
-        Piece piece = board[destination.rank][destination.file].piece;
-        if (piece != null){
-            return destination;
-            // If this piece has the same color, then it is an obstacle.
-//            if (piece.color.equals(getColor())){
-//                return destination;
-//            }
-        }
-        return null;
+    protected boolean canReachSquare(Board chessBoard, Position destination, long attacks){
+        long target = toBit(destination);
+        long ownPieces = chessBoard.getBitboards().pieces(getColorIndex());
+        return (attacks & target & ~ownPieces) != 0;
     }
 
-
-
     @Override
     public String toString() {
         return "" + Character.toLowerCase(this.color.charAt(0)) + (this.name=="Knight"? "N" : this.name.charAt(0));
@@ -2,8 +2,8 @@ package com.example.android.model;
 
 import com.example.android.Board;
 import com.example.android.R;
+import com.example.android.engine.SlidingAttacks;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -12,26 +12,18 @@ import java.util.List;
  */
 public class Queen extends Piece {
 
+    // Same UID as the first version of the class, so that older saved games load.
+    private static final long serialVersionUID = 5718969224656335097L;
+
     /**
-     * Constructor for the Queen. Sets the color, position, and direction vectors, which are
-     * vectors that represent all the diagonals, verticals, and horizontals on the board.
+     * Constructor for the Queen. Sets the color and position. Its moves along the diagonals,
+     * verticals, and horizontals come from the magic bitboard tables.
      * @param color Color of the piece, either "White" or "Black."
      * @param position Current position of this piece.
      */
     public Queen(String color, Position position){
         super("Queen", color, position);
 
-        List<Position> directions = new ArrayList<Position>();
-        directions.add(new Position(0,1));
-        directions.add(new Position(1, 0));
-        directions.add(new Position(0, -1));
-        directions.add(new Position(-1, 0));
-        directions.add(new Position(-1, 1));
-        directions.add(new Position(-1, -1));
-        directions.add(new Position(1,1));
-        directions.add(new Position(1, -1));
-        setDirectionVectors(directions);
-
         if (color.equals("White")){
             setImageResource(R.mipmap.white_queen_foreground);
         }
@@ -55,22 +47,32 @@ public class Queen extends Piece {
     }
 
     /**
-     * Use the isContinuousPathClear for the Queen to check if the path is clear.
+     * Use the magic bitboard tables to get all the moves of the Queen.
+     * @param chessBoard Board of the game.
+     * @return List of positions this piece can move to.
+     */
+    public List<Position> getAllMoves(Board chessBoard){
+        return toPositions(getAttacks(chessBoard));
+    }
+
+    /**
+     * Use the magic bitboard tables to check if the Queen can reach its destination.
      * @param chessBoard Board of the game.
      * @param destination Position of the destination.
-     * @return Null if the path is clear. Else, return the Position of an obstacle in the way.
+     * @return True if this piece can reach the destination, false if it cannot.
      */
-    public Position isPathClear(Board chessBoard, Position destination){
-        return super.isContinuousPathClear(chessBoard, destination);
+    @Override
+    public boolean canReachDestination(Board chessBoard, Position destination){
+        return canReachSquare(chessBoard, destination, getAttacks(chessBoard));
     }
 
     /**
-     * Use the getAllContinuousMoves for the Queen to get all its moves.
+     * Look up the squares the Queen attacks along the diagonals, verticals and horizontals.
      * @param chessBoard Board of the game.
-     * @return List of positions this piece can move to.
+     * @return Bitboard of attacked squares.
      */
-    public List<Position> getAllMoves(Board chessBoard){
-        return super.getAllContinuousMoves(chessBoard);
+    private long getAttacks(Board chessBoard){
+        return SlidingAttacks.queenAttacks(getSquare(), chessBoard.getBitboards().occupied());
     }
 
 }
@@ -0,0 +1,89 @@
+package com.example.android;
+
+import com.example.android.engine.BackgroundSearch;
+import com.example.android.engine.Fen;
+import com.example.android.engine.SearchLimits;
+import com.example.android.engine.SearchResult;
+import com.example.android.engine.TranspositionTable;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the engine's searches never hold up the thread that starts or cancels them, and
+ * that a cancelled search never delivers its move.
+ * @author Krysti Leong, April Dizon
+ */
+public class BackgroundSearchTest {
+
+    private static final long SEARCH_MILLIS = 2000;
+    // Far more than a frame of the UI, so that a GC pause or a busy machine doesn't fail the
+    // test, and still far less than the search the caller would wait for if it blocked.
+    private static final long MAX_BLOCK_MILLIS = 500;
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command){
+            command.run();
+        }
+    };
+
+    @Test
+    public void thinkDoesNotBlock() throws Exception{
+        Board board = new Board();
+        board.setPosition(Fen.STARTING_POSITION);
+        BackgroundSearch engine = new BackgroundSearch(new TranspositionTable(16), DIRECT);
+        try{
+            final CountDownLatch done = new CountDownLatch(1);
+            long start = System.nanoTime();
+            engine.think(board, SearchLimits.time(SEARCH_MILLIS), true, new BackgroundSearch.Callback() {
+                @Override
+                public void onResult(SearchResult result){
+                    done.countDown();
+                }
+            });
+            long thinkMillis = (System.nanoTime() - start) / 1000000;
+            System.out.println("think() returned in " + thinkMillis + " ms");
+            // The direct executor would have run the callback before think() returned otherwise.
+            assertEquals(1, done.getCount());
+            assertTrue(thinkMillis < MAX_BLOCK_MILLIS);
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+        }
+        finally{
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    public void cancelledResultIsDropped() throws Exception{
+        Board board = new Board();
+        board.setPosition(Fen.STARTING_POSITION);
+        BackgroundSearch engine = new BackgroundSearch(new TranspositionTable(16), DIRECT);
+        try{
+            final AtomicInteger delivered = new AtomicInteger();
+            engine.think(board, SearchLimits.time(SEARCH_MILLIS), false, new BackgroundSearch.Callback() {
+                @Override
+                public void onResult(SearchResult result){
+                    delivered.incrementAndGet();
+                }
+            });
+            Thread.sleep(100);
+            long start = System.nanoTime();
+            engine.cancel();
+            long cancelMillis = (System.nanoTime() - start) / 1000000;
+            System.out.println("cancel() returned in " + cancelMillis + " ms");
+            assertTrue(cancelMillis < MAX_BLOCK_MILLIS);
+            // Long enough for the search to notice it was stopped and finish
+            Thread.sleep(200);
+            assertEquals(0, delivered.get());
+        }
+        finally{
+            engine.shutdown();
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.android;
+
+import com.example.android.engine.Bitbase;
+import com.example.android.engine.BitbaseGenerator;
+import com.example.android.engine.BitboardPosition;
+import com.example.android.engine.Bitbases;
+import com.example.android.engine.Fen;
+import com.example.android.engine.LeaperAttacks;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+/**
+ * Generates the KQK and KRK bitbases and writes them to a temporary bitbases.bin, the file the app
+ * reads from its files directory. Checks positions with known results, that every KRK and KQK
+ * position with the strong side to move is a win, and that the file reads back the same. With
+ * -Dendgames.generate=true, KPK and KBNK are generated too, and mirrored positions checked to
+ * agree, which takes a while. -Dendgames.output=path generates all four and writes the file to
+ * the path instead, which is how the app's assets/bitbases.bin is made.
+ * @author Krysti Leong, April Dizon
+ */
+public class BitbaseGeneratorTest {
+
+    private static final String OUTPUT = System.getProperty("endgames.output", "");
+    private static final boolean ALL_ENDGAMES = Boolean.getBoolean("endgames.generate") || !OUTPUT.isEmpty();
+    private static final String[] NAMES = {"KPK", "KRK", "KQK", "KBNK"};
+    private static final int[] ORDER = ALL_ENDGAMES
+            ? new int[]{Bitbase.KQK, Bitbase.KRK, Bitbase.KPK, Bitbase.KBNK}
+            : new int[]{Bitbase.KQK, Bitbase.KRK};
+
+    private static final String[] WINS = {
+            "4k3/8/4K3/4P3/8/8/8/8 w - - 0 1",      // King on the sixth in front of the pawn
+            "8/8/8/8/8/8/P6k/K7 w - - 0 1",         // Outside the square of the pawn
+            "8/8/8/8/8/8/8/KBN4k w - - 0 1",
+            "8/8/8/8/8/8/6r1/k6K b - - 0 1",        // Black has the rook
+    };
+    private static final String[] DRAWS = {
+            "4k3/4P3/4K3/8/8/8/8/8 b - - 0 1",      // Stalemate
+            "k7/8/8/8/8/8/P7/K7 w - - 0 1",         // Rook pawn with the king in the corner
+            "8/8/8/8/8/4k3/4P3/4K3 w - - 0 1",      // Opposition
+            "8/8/8/8/8/8/6Rk/K7 b - - 0 1",         // The rook hangs
+            "8/8/8/8/8/8/6BN/K6k b - - 0 1",        // The bishop hangs
+    };
+    private static final String[] LOSSES = {
+            "4k3/8/4K3/4P3/8/8/8/8 b - - 0 1",
+            "8/8/8/8/8/8/8/KBN4k b - - 0 1",
+            "7k/8/5K2/8/8/8/8/Q7 b - - 0 1",
+    };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void generateAndWrite() throws IOException{
+        int threads = Runtime.getRuntime().availableProcessors();
+        if (ALL_ENDGAMES && threads > 1){
+            ForkJoinPool pool = new ForkJoinPool(1);
+            long start = System.currentTimeMillis();
+            new BitbaseGenerator(pool).generateAll();
+            System.out.println("All bitbases with 1 thread: " + (System.currentTimeMillis() - start) + " ms");
+            pool.shutdown();
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        BitbaseGenerator generator = new BitbaseGenerator(pool);
+        Bitbase[] done = new Bitbase[Bitbase.COUNT];
+        Bitbase[] generated = new Bitbase[ORDER.length];
+        for (int i = 0; i < ORDER.length; i++){
+            int material = ORDER[i];
+            long start = System.currentTimeMillis();
+            done[material] = generator.generate(material, done);
+            generated[i] = done[material];
+            System.out.println(String.format("%s with %d thread(s): %d positions, %d passes, %d ms", NAMES[material],
+                    threads, Bitbase.size(material), generator.getPasses(), System.currentTimeMillis() - start));
+        }
+        pool.shutdown();
+        Bitbases bitbases = new Bitbases(generated);
+
+        File file = OUTPUT.isEmpty() ? folder.newFile("bitbases.bin") : new File(OUTPUT);
+        if (file.getParentFile() != null){
+            file.getParentFile().mkdirs();
+        }
+        bitbases.write(file);
+        Bitbases mapped = Bitbases.open(file);
+        System.out.println("Wrote " + file.length() + " bytes to " + file.getAbsolutePath());
+
+        for (Bitbases probed : new Bitbases[]{bitbases, mapped}){
+            for (String fen : WINS){
+                assertEquals(fen, expected(Bitbases.WIN, fen), probed.probe(position(fen)));
+            }
+            for (String fen : DRAWS){
+                assertEquals(fen, expected(Bitbases.DRAW, fen), probed.probe(position(fen)));
+            }
+            for (String fen : LOSSES){
+                assertEquals(fen, expected(Bitbases.LOSS, fen), probed.probe(position(fen)));
+            }
+            assertEquals(Bitbases.UNKNOWN, probed.probe(position("8/8/8/4k3/8/8/8/4K3 w - - 0 1")));
+            assertEquals(Bitbases.UNKNOWN, probed.probe(position("8/8/8/4k3/8/8/8/R3K3 w Q - 0 1")));
+        }
+
+        assertAllWon(mapped, BitboardPosition.ROOK);
+        assertAllWon(mapped, BitboardPosition.QUEEN);
+        if (ALL_ENDGAMES){
+            assertMirrorsAgree(mapped);
+        }
+    }
+
+    /**
+     * @return The result, or Bitbases.UNKNOWN for a position with a pawn or a bishop and knight
+     * when only KQK and KRK are generated.
+     */
+    private static int expected(int result, String fen){
+        String pieces = fen.split(" ")[0].toUpperCase();
+        return ALL_ENDGAMES || (pieces.indexOf('P') < 0 && pieces.indexOf('B') < 0) ? result : Bitbases.UNKNOWN;
+    }
+
+    /**
+     * With the strong side to move, every legal KRK or KQK position is a win.
+     */
+    private static void assertAllWon(Bitbases bitbases, int type){
+        BitboardPosition position = new BitboardPosition();
+        for (int strongKing = 0; strongKing < 64; strongKing++){
+            for (int weakKing = 0; weakKing < 64; weakKing++){
+                if (weakKing == strongKing || (LeaperAttacks.kingAttacks(strongKing) & (1L << weakKing)) != 0){
+                    continue;
+                }
+                for (int piece = 0; piece < 64; piece++){
+                    if (piece == strongKing || piece == weakKing){
+                        continue;
+                    }
+                    set(position, BitboardPosition.WHITE, strongKing, weakKing, type, piece, -1, -1);
+                    if (!position.isInCheck(BitboardPosition.BLACK)){
+                        assertEquals(position.toString(), Bitbases.WIN, bitbases.probe(position));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * A position and the same one with the colors swapped, or mirrored left to right, have the
+     * same result.
+     */
+    private static void assertMirrorsAgree(Bitbases bitbases){
+        Random random = new Random(3);
+        BitboardPosition position = new BitboardPosition();
+        BitboardPosition mirror = new BitboardPosition();
+        int checked = 0;
+        while (checked < 100000){
+            boolean pawn = random.nextBoolean();
+            int strongKing = random.nextInt(64);
+            int weakKing = random.nextInt(64);
+            int first = pawn ? 8 + random.nextInt(48) : random.nextInt(64);
+            int second = pawn ? -1 : random.nextInt(64);
+            int toMove = random.nextInt(2);
+            if (strongKing == weakKing || first == strongKing || first == weakKing || second == strongKing
+                    || second == weakKing || second == first
+                    || (LeaperAttacks.kingAttacks(strongKing) & (1L << weakKing)) != 0){
+                continue;
+            }
+            int firstType = pawn ? BitboardPosition.PAWN : BitboardPosition.BISHOP;
+            set(position, toMove, strongKing, weakKing, firstType, first, BitboardPosition.KNIGHT, second);
+            if (position.isInCheck(toMove ^ 1)){
+                continue;
+            }
+            int result = bitbases.probe(position);
+            set(mirror, toMove ^ 1, strongKing ^ 56, weakKing ^ 56, firstType, first ^ 56, BitboardPosition.KNIGHT,
+                    second < 0 ? -1 : second ^ 56);
+            swapColors(mirror);
+            assertEquals(position.toString(), result, bitbases.probe(mirror));
+            set(mirror, toMove, strongKing ^ 7, weakKing ^ 7, firstType, first ^ 7, BitboardPosition.KNIGHT,
+                    second < 0 ? -1 : second ^ 7);
+            assertEquals(position.toString(), result, bitbases.probe(mirror));
+            checked++;
+        }
+    }
+
+    /**
+     * Set up a position of white's pieces against the black king.
+     */
+    private static void set(BitboardPosition position, int toMove, int strongKing, int weakKing,
+                            int firstType, int first, int secondType, int second){
+        position.clear();
+        position.putPiece(strongKing, BitboardPosition.piece(BitboardPosition.WHITE, BitboardPosition.KING));
+        position.putPiece(weakKing, BitboardPosition.piece(BitboardPosition.BLACK, BitboardPosition.KING));
+        position.putPiece(first, BitboardPosition.piece(BitboardPosition.WHITE, firstType));
+        if (second >= 0){
+            position.putPiece(second, BitboardPosition.piece(BitboardPosition.WHITE, secondType));
+        }
+        position.setSideToMove(toMove);
+    }
+
+    private static void swapColors(BitboardPosition position){
+        int[] pieces = new int[64];
+        for (int square = 0; square < 64; square++){
+            pieces[square] = position.pieceAt(square);
+        }
+        int toMove = position.getSideToMove();
+        position.clear();
+        for (int square = 0; square < 64; square++){
+            if (pieces[square] != BitboardPosition.NO_PIECE){
+                position.putPiece(square, pieces[square] ^ 1);
+            }
+        }
+        position.setSideToMove(toMove);
+    }
+
+    private static BitboardPosition position(String fen){
+        BitboardPosition position = new BitboardPosition();
+        Fen.parse(fen, position);
+        return position;
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.android;
+
+import com.example.android.engine.BitboardPosition;
+import com.example.android.engine.BookBuilder;
+import com.example.android.engine.Fen;
+import com.example.android.engine.Move;
+import com.example.android.engine.MoveGenerator;
+import com.example.android.engine.PolyglotBook;
+import com.example.android.engine.PolyglotKeys;
+import com.example.android.model.GameSaver;
+import com.example.android.model.GameStates;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+/**
+ * Builds a book from games of random moves, checks the weights of the first moves against a
+ * plain count, and reports how long the build takes with one thread and with all of them. A game
+ * that ended in mate counts as a loss for the mated side, whatever its title says, and games
+ * saved before the states recorded their moves still go into the book.
+ * @author Krysti Leong, April Dizon
+ */
+public class BookBuilderTest {
+
+    private static final int GAMES = 5000;
+    private static final int PLIES = 30;
+    private static final String[] RESULTS = {"White resigns. Black wins!", "Black resigns. White wins!",
+            "Draw. No one wins.", "White's turn"};
+
+    @Test
+    public void buildFromSavedGames() throws IOException{
+        Random random = new Random(7);
+        List<GameStates> games = new ArrayList<>();
+        Map<Integer, Integer> expectedWeights = new HashMap<>();
+        for (int i = 0; i < GAMES; i++){
+            games.add(randomGame(random, expectedWeights));
+        }
+
+        File file = File.createTempFile("savedGamesBook", ".bin");
+        try{
+            int entries = 0;
+            for (int threads : new int[]{1, Runtime.getRuntime().availableProcessors()}){
+                ForkJoinPool pool = new ForkJoinPool(threads);
+                long start = System.currentTimeMillis();
+                entries = new BookBuilder(PolyglotKeys.ENGINE, BookBuilder.DEFAULT_MAX_PLIES, pool).build(games, file);
+                System.out.println(String.format("%d games, %d thread(s): %d entries in %d ms",
+                        GAMES, threads, entries, System.currentTimeMillis() - start));
+                pool.shutdown();
+            }
+
+            PolyglotBook book = PolyglotBook.open(file, PolyglotKeys.ENGINE);
+            assertEquals(entries, book.size());
+            BitboardPosition position = new BitboardPosition();
+            Fen.parse(Fen.STARTING_POSITION, position);
+            int[] moves = new int[PolyglotBook.MAX_BOOK_MOVES];
+            int[] weights = new int[PolyglotBook.MAX_BOOK_MOVES];
+            int count = book.probe(position, moves, weights);
+            int expectedCount = 0;
+            for (int weight : expectedWeights.values()){
+                if (weight > 0){
+                    expectedCount++;
+                }
+            }
+            assertEquals(expectedCount, count);
+            for (int i = 0; i < count; i++){
+                assertEquals(Move.toString(moves[i]), (int) expectedWeights.get(moves[i]), weights[i]);
+                if (i > 0){
+                    assertTrue(weights[i] <= weights[i - 1]);
+                }
+            }
+        }
+        finally{
+            file.delete();
+        }
+    }
+
+    @Test
+    public void matedGameIsLost() throws IOException{
+        List<GameStates> games = new ArrayList<>();
+        // Fool's mate, saved while it was still white's turn.
+        games.add(game("White's turn", "f2f3", "e7e5", "g2g4", "d8h4"));
+        games.add(game("Black resigns. White wins!", "e2e4"));
+
+        File file = File.createTempFile("savedGamesBook", ".bin");
+        try{
+            new BookBuilder().build(games, file);
+            PolyglotBook book = PolyglotBook.open(file, PolyglotKeys.ENGINE);
+            BitboardPosition position = new BitboardPosition();
+            Fen.parse(Fen.STARTING_POSITION, position);
+            int[] moves = new int[PolyglotBook.MAX_BOOK_MOVES];
+            int[] weights = new int[PolyglotBook.MAX_BOOK_MOVES];
+            // White's f2f3 only lost, so it's left out.
+            assertEquals(1, book.probe(position, moves, weights));
+            assertEquals("e2e4", Move.toString(moves[0]));
+
+            position.makeMove(parse(position, "f2f3"));
+            assertEquals(1, book.probe(position, moves, weights));
+            assertEquals("e7e5", Move.toString(moves[0]));
+            assertEquals(2, weights[0]);
+        }
+        finally{
+            file.delete();
+        }
+    }
+
+    @Test
+    public void gamesSavedWithoutMoves() throws IOException, ClassNotFoundException{
+        List<GameStates> games;
+        try (InputStream in = BookBuilderTest.class.getResourceAsStream("/savedGamesBeforeBitboards.dat")){
+            games = GameSaver.readGames(new ObjectInputStream(in));
+        }
+        File file = File.createTempFile("savedGamesBook", ".bin");
+        try{
+            // 1.e4 e5 2.Nf3, and black resigns, which leaves e5 out.
+            assertEquals(2, new BookBuilder().build(games, file));
+            PolyglotBook book = PolyglotBook.open(file, PolyglotKeys.ENGINE);
+            BitboardPosition position = new BitboardPosition();
+            Fen.parse(Fen.STARTING_POSITION, position);
+            int[] moves = new int[PolyglotBook.MAX_BOOK_MOVES];
+            int[] weights = new int[PolyglotBook.MAX_BOOK_MOVES];
+            assertEquals(1, book.probe(position, moves, weights));
+            assertEquals("e2e4", Move.toString(moves[0]));
+            assertEquals(2, weights[0]);
+            position.makeMove(moves[0]);
+            position.makeMove(parse(position, "e7e5"));
+            assertEquals(1, book.probe(position, moves, weights));
+            assertEquals("g1f3", Move.toString(moves[0]));
+        }
+        finally{
+            file.delete();
+        }
+    }
+
+    private static GameStates game(String title, String... moves){
+        BitboardPosition position = new BitboardPosition();
+        Fen.parse(Fen.STARTING_POSITION, position);
+        GameStates game = new GameStates();
+        game.addState(new GameStates.State(null, null, 0, "Game start!", Move.NONE, position.getKey()));
+        for (int ply = 0; ply < moves.length; ply++){
+            int move = parse(position, moves[ply]);
+            position.makeMove(move);
+            game.addState(new GameStates.State(null, null, ply + 1, "", move, position.getKey()));
+        }
+        game.addState(new GameStates.State(null, null, moves.length, title, Move.NONE, position.getKey()));
+        return game;
+    }
+
+    private static int parse(BitboardPosition position, String name){
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generateLegalMoves(position, moves);
+        for (int i = 0; i < count; i++){
+            if (Move.toString(moves[i]).equals(name)){
+                return moves[i];
+            }
+        }
+        throw new IllegalArgumentException(name);
+    }
+
+    /**
+     * Play random moves from the start, and add the first move's weight to the expected ones.
+     */
+    private static GameStates randomGame(Random random, Map<Integer, Integer> expectedWeights){
+        BitboardPosition position = new BitboardPosition();
+        Fen.parse(Fen.STARTING_POSITION, position);
+        GameStates game = new GameStates();
+        game.addState(new GameStates.State(null, null, 0, "Game start!", Move.NONE, position.getKey()));
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int firstMove = Move.NONE;
+        for (int ply = 0; ply < PLIES; ply++){
+            int count = MoveGenerator.generateLegalMoves(position, moves);
+            if (count == 0){
+                break;
+            }
+            int move = moves[random.nextInt(count)];
+            if (ply == 0){
+                firstMove = move;
+            }
+            position.makeMove(move);
+            game.addState(new GameStates.State(null, null, ply + 1, "", move, position.getKey()));
+        }
+        String title = RESULTS[random.nextInt(RESULTS.length)];
+        game.addState(new GameStates.State(null, null, PLIES, title, Move.NONE, position.getKey()));
+
+        // The first move is white's: 2 for a win, 1 for a draw or no result, 0 for a loss. A mate
+        // decides the game whatever the title.
+        int weight = title.contains("White wins") ? 2 : title.contains("Black wins") ? 0 : 1;
+        int us = position.getSideToMove();
+        if (position.isInCheck(us) && MoveGenerator.generateLegalMoves(position, moves) == 0){
+            weight = us == BitboardPosition.WHITE ? 0 : 2;
+        }
+        Integer sum = expectedWeights.get(firstMove);
+        expectedWeights.put(firstMove, (sum == null ? 0 : sum) + weight);
+        return game;
+    }
+}
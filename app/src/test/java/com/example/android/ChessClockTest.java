@@ -0,0 +1,67 @@
+package com.example.android;
+
+import com.example.android.engine.BitboardPosition;
+import com.example.android.engine.ChessClock;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the chess clock: a move adds the increment, the end of a period adds the base time
+ * again, and a player whose time runs out is flagged and gets nothing added.
+ * @author Krysti Leong, April Dizon
+ */
+public class ChessClockTest {
+
+    // Slack for the time that passes while the test runs.
+    private static final long SLACK_MILLIS = 100;
+
+    @Test
+    public void incrementIsAdded(){
+        ChessClock clock = ChessClock.increment(10000, 2000);
+        clock.start(BitboardPosition.WHITE);
+        clock.press();
+        assertEquals(BitboardPosition.BLACK, clock.getRunning());
+        assertAbout(12000, clock.remainingMillis(BitboardPosition.WHITE));
+        clock.press();
+        assertAbout(12000, clock.remainingMillis(BitboardPosition.BLACK));
+        assertEquals(0, clock.movesToGo(BitboardPosition.WHITE));
+    }
+
+    @Test
+    public void periodAddsBaseTime(){
+        ChessClock clock = ChessClock.movesToGo(10000, 2);
+        clock.start(BitboardPosition.WHITE);
+        assertEquals(2, clock.movesToGo(BitboardPosition.WHITE));
+        clock.press();
+        assertEquals(1, clock.movesToGo(BitboardPosition.WHITE));
+        assertAbout(10000, clock.remainingMillis(BitboardPosition.WHITE));
+        clock.press();
+        clock.press();
+        assertEquals(2, clock.movesToGo(BitboardPosition.WHITE));
+        assertAbout(20000, clock.remainingMillis(BitboardPosition.WHITE));
+        assertEquals(1, clock.movesToGo(BitboardPosition.BLACK));
+    }
+
+    @Test
+    public void flagFallsAtZero() throws InterruptedException{
+        ChessClock clock = ChessClock.increment(30, 1000);
+        clock.start(BitboardPosition.WHITE);
+        assertFalse(clock.isFlagged(BitboardPosition.WHITE));
+        Thread.sleep(60);
+        assertTrue(clock.isFlagged(BitboardPosition.WHITE));
+        assertEquals(0, clock.remainingMillis(BitboardPosition.WHITE));
+        assertFalse(clock.isFlagged(BitboardPosition.BLACK));
+
+        // Moving after the flag fell doesn't bring the time back.
+        clock.press();
+        assertTrue(clock.isFlagged(BitboardPosition.WHITE));
+        clock.stop();
+        assertEquals(ChessClock.NOT_RUNNING, clock.getRunning());
+    }
+
+    private static void assertAbout(long expected, long actual){
+        assertTrue(actual + " is not about " + expected, actual <= expected && actual > expected - SLACK_MILLIS);
+    }
+}
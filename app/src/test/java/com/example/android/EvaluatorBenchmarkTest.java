@@ -0,0 +1,147 @@
+package com.example.android;
+
+import com.example.android.engine.BitboardPosition;
+import com.example.android.engine.Evaluator;
+import com.example.android.engine.Fen;
+import com.example.android.engine.HandCraftedEvaluator;
+import com.example.android.engine.MoveGenerator;
+import com.example.android.engine.NnueEvaluator;
+import com.example.android.engine.NnueNetwork;
+import com.example.android.engine.Search;
+import com.example.android.engine.SearchLimits;
+import com.example.android.engine.SearchResult;
+import com.example.android.engine.TranspositionTable;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares the evaluators: checks that the NNUE accumulator kept up to date through make and
+ * unmake matches one computed from scratch, and prints the evaluation speed and the time to
+ * depth of a search with each evaluator. There's no trained network in the repository, so the
+ * NNUE runs on random weights of a realistic size, which is enough to measure its cost.
+ * @author Krysti Leong, April Dizon
+ */
+public class EvaluatorBenchmarkTest {
+
+    private static final int HIDDEN = 256;
+    private static final int LAYER_1 = 32;
+    private static final int LAYER_2 = 32;
+    private static final int NODES = 200000;
+
+    @Test
+    public void incrementalMatchesScratch() throws IOException{
+        NnueNetwork network = randomNetwork();
+        Random random = new Random(3);
+        BitboardPosition position = new BitboardPosition();
+        Fen.parse("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1", position);
+        NnueEvaluator incremental = new NnueEvaluator(network);
+        NnueEvaluator scratch = new NnueEvaluator(network);
+        incremental.attach(position);
+
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        for (int game = 0; game < 20; game++){
+            int plies = 0;
+            for (; plies < 60; plies++){
+                int count = MoveGenerator.generateLegalMoves(position, moves);
+                if (count == 0){
+                    break;
+                }
+                position.makeMove(moves[random.nextInt(count)]);
+                assertEquals(evaluateFromScratch(scratch, position), incremental.evaluate(position));
+            }
+            for (; plies > 0; plies--){
+                position.unmakeMove();
+                assertEquals(evaluateFromScratch(scratch, position), incremental.evaluate(position));
+            }
+        }
+    }
+
+    @Test
+    public void compareEvaluators() throws IOException{
+        NnueNetwork network = randomNetwork();
+        report("hand-crafted", new HandCraftedEvaluator());
+        report("nnue", new NnueEvaluator(network));
+    }
+
+    private static void report(String name, Evaluator evaluator){
+        BitboardPosition position = new BitboardPosition();
+        Fen.parse("r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10", position);
+        evaluator.attach(position);
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generateLegalMoves(position, moves);
+
+        // Make a move and evaluate, the way the search does at its leaves.
+        int evaluations = 0;
+        long checksum = 0;
+        long start = System.nanoTime();
+        for (int round = 0; round < 200000; round++){
+            int move = moves[round % count];
+            position.makeMove(move);
+            checksum += evaluator.evaluate(position);
+            position.unmakeMove();
+            evaluations++;
+        }
+        long evaluationNanos = System.nanoTime() - start;
+
+        Search search = new Search(new TranspositionTable(16));
+        search.setEvaluator(evaluator);
+        SearchResult result = search.search(position, SearchLimits.nodes(NODES));
+        System.out.println(String.format("%-12s %d evaluations/s (checksum %d), %d nodes in %d ms, depth %d", name,
+                evaluations * 1000000000L / Math.max(1, evaluationNanos), checksum, result.nodes,
+                result.timeMillis, result.depth));
+    }
+
+    private static int evaluateFromScratch(NnueEvaluator evaluator, BitboardPosition position){
+        BitboardPosition copy = new BitboardPosition(position);
+        return evaluator.evaluate(copy);
+    }
+
+    /**
+     * Write a network of random weights in the weights file format, and load it.
+     */
+    private static NnueNetwork randomNetwork() throws IOException{
+        Random random = new Random(7);
+        int size = 20 + 2 * HIDDEN + 2 * NnueNetwork.FEATURES * HIDDEN + 2 * HIDDEN * LAYER_1 + 4 * LAYER_1
+                + LAYER_1 * LAYER_2 + 4 * LAYER_2 + LAYER_2 + 4;
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(NnueNetwork.MAGIC).putInt(NnueNetwork.VERSION).putInt(HIDDEN).putInt(LAYER_1).putInt(LAYER_2);
+        for (int i = 0; i < HIDDEN; i++){
+            buffer.putShort((short) (random.nextInt(64)));
+        }
+        for (int i = 0; i < NnueNetwork.FEATURES * HIDDEN; i++){
+            buffer.putShort((short) (random.nextInt(33) - 16));
+        }
+        for (int i = 0; i < 2 * HIDDEN * LAYER_1; i++){
+            buffer.put((byte) (random.nextInt(15) - 7));
+        }
+        for (int i = 0; i < LAYER_1; i++){
+            buffer.putInt(random.nextInt(2000) - 1000);
+        }
+        for (int i = 0; i < LAYER_1 * LAYER_2; i++){
+            buffer.put((byte) (random.nextInt(15) - 7));
+        }
+        for (int i = 0; i < LAYER_2; i++){
+            buffer.putInt(random.nextInt(200) - 100);
+        }
+        for (int i = 0; i < LAYER_2; i++){
+            buffer.put((byte) (random.nextInt(255) - 127));
+        }
+        buffer.putInt(0);
+
+        File file = File.createTempFile("network", ".nnue");
+        file.deleteOnExit();
+        try (FileOutputStream out = new FileOutputStream(file)){
+            out.write(buffer.array());
+        }
+        return NnueNetwork.load(file);
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.android;
+
+import com.example.android.engine.BitboardPosition;
+import com.example.android.engine.Fen;
+import com.example.android.engine.Move;
+import com.example.android.engine.MoveGenerator;
+import com.example.android.engine.ParallelPerft;
+import com.example.android.engine.Perft;
+import com.example.android.engine.Zobrist;
+
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Perft suite over the standard reference positions. Checks the node counts of the move generator
+ * against the published values and reports the nodes per second of each position.
+ * @author Krysti Leong, April Dizon
+ */
+public class PerftTest {
+
+    // FEN, depth and expected number of leaf nodes.
+    private static final Object[][] POSITIONS = {
+            {Fen.STARTING_POSITION, 5, 4865609L},
+            {"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1", 4, 4085603L},
+            {"8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1", 5, 674624L},
+            {"r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1", 4, 422333L},
+            {"rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8", 4, 2103487L},
+            {"r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10", 4, 3894594L},
+    };
+
+    @Test
+    public void referencePositions(){
+        Board board = new Board();
+        for (Object[] position : POSITIONS){
+            String fen = (String) position[0];
+            int depth = (Integer) position[1];
+            long expected = (Long) position[2];
+
+            board.setPosition(fen);
+            Perft perft = new Perft(board.getBitboards());
+            long start = System.nanoTime();
+            long nodes = perft.perft(depth);
+            long elapsed = Math.max(1, System.nanoTime() - start);
+
+            System.out.println(String.format("perft(%d) = %d in %d ms, %d nodes/s  [%s]",
+                    depth, nodes, elapsed / 1000000, nodes * 1000000000L / elapsed, fen));
+            assertEquals(fen, expected, nodes);
+        }
+    }
+
+    /**
+     * The keys kept up to date by every move are the ones computed from scratch, over random
+     * games from every position, with null moves now and then, and back again.
+     */
+    @Test
+    public void incrementalKeysMatchScratch(){
+        Random random = new Random(11);
+        BitboardPosition position = new BitboardPosition();
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        // Move.NONE on the stack stands for a null move.
+        int[] played = new int[80];
+        for (Object[] reference : POSITIONS){
+            String fen = (String) reference[0];
+            for (int game = 0; game < 10; game++){
+                Fen.parse(fen, position);
+                assertKeys(fen, position);
+                int plies = 0;
+                for (; plies < played.length; plies++){
+                    int count = MoveGenerator.generateLegalMoves(position, moves);
+                    if (count == 0){
+                        break;
+                    }
+                    if (random.nextInt(8) == 0 && !position.isInCheck(position.getSideToMove())){
+                        position.makeNullMove();
+                        played[plies] = Move.NONE;
+                    }
+                    else{
+                        played[plies] = moves[random.nextInt(count)];
+                        position.makeMove(played[plies]);
+                    }
+                    assertKeys(fen, position);
+                }
+                while (plies > 0){
+                    if (played[--plies] == Move.NONE){
+                        position.unmakeNullMove();
+                    }
+                    else{
+                        position.unmakeMove();
+                    }
+                    assertKeys(fen, position);
+                }
+            }
+        }
+    }
+
+    private static void assertKeys(String fen, BitboardPosition position){
+        assertEquals(fen, Zobrist.compute(position), position.getKey());
+        assertEquals(fen, Zobrist.computePawnKey(position), position.getPawnKey());
+    }
+
+    @Test
+    public void divideAddsUpToPerft(){
+        Board board = new Board();
+        board.setPosition((String) POSITIONS[1][0]);
+        Perft perft = new Perft(board.getBitboards());
+
+        Map<String, Long> divide = perft.divide(3);
+        long total = 0;
+        for (long nodes : divide.values()){
+            total += nodes;
+        }
+        assertEquals(48, divide.size());
+        assertEquals(97862L, total);
+        assertEquals(perft.perft(3), total);
+    }
+
+    @Test
+    public void parallelMatchesReference(){
+        int threads = Runtime.getRuntime().availableProcessors();
+        ParallelPerft withoutHash = new ParallelPerft(threads, 2, 0);
+        ParallelPerft withHash = new ParallelPerft(threads, 1, 16);
+        Board board = new Board();
+        try{
+            for (Object[] position : POSITIONS){
+                board.setPosition((String) position[0]);
+                int depth = (Integer) position[1];
+                long expected = (Long) position[2];
+
+                ParallelPerft.Result result = withoutHash.perft(board.getBitboards(), depth);
+                System.out.println("parallel perft(" + depth + ") = " + result);
+                assertEquals(expected, result.nodes);
+
+                result = withHash.perft(board.getBitboards(), depth);
+                System.out.println("parallel hashed perft(" + depth + ") = " + result);
+                assertEquals(expected, result.nodes);
+            }
+        }
+        finally{
+            withoutHash.shutdown();
+            withHash.shutdown();
+        }
+    }
+
+    /**
+     * A copy, such as the one a search starts from, still sees the positions played before it.
+     */
+    @Test
+    public void copyKeepsRepetitionHistory(){
+        BitboardPosition position = new BitboardPosition();
+        Fen.parse(Fen.STARTING_POSITION, position);
+        int[] knights = {Move.encode(6, 21, Move.QUIET), Move.encode(62, 45, Move.QUIET), Move.encode(21, 6, Move.QUIET)};
+        for (int move : knights){
+            position.makeMove(move);
+        }
+        BitboardPosition copy = new BitboardPosition(position);
+        assertEquals(3, copy.getPly());
+        assertFalse(copy.isRepetition());
+        copy.makeMove(Move.encode(45, 62, Move.QUIET));
+        assertTrue(copy.isRepetition());
+        while (copy.getPly() > 0){
+            copy.unmakeMove();
+        }
+        assertEquals(Fen.STARTING_POSITION, Fen.toFen(copy));
+
+        // Nothing before a pawn move can come up again, so it isn't kept.
+        position.makeMove(Move.encode(12, 28, Move.DOUBLE_PUSH));
+        assertEquals(0, new BitboardPosition(position).getPly());
+    }
+
+    @Test
+    public void fenRoundTrip(){
+        Board board = new Board();
+        for (Object[] position : POSITIONS){
+            board.setPosition((String) position[0]);
+            assertEquals(position[0], Fen.toFen(board.getBitboards()));
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.android;
+
+import com.example.android.engine.BitboardPosition;
+import com.example.android.engine.Fen;
+import com.example.android.engine.Move;
+import com.example.android.engine.PolyglotBook;
+import com.example.android.engine.PolyglotKeys;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the Polyglot book reader on a small book file: lookups by binary search among
+ * unrelated entries, castling written as the king taking its rook, illegal book moves skipped,
+ * weighted random selection, and the Polyglot key layout of a key table read from a file.
+ * @author Krysti Leong, April Dizon
+ */
+public class PolyglotBookTest {
+
+    private static final String CASTLING_POSITION = "r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1";
+
+    @Test
+    public void probeAndPick() throws IOException{
+        BitboardPosition start = position(Fen.STARTING_POSITION);
+        BitboardPosition castling = position(CASTLING_POSITION);
+        long startKey = PolyglotKeys.ENGINE.key(start);
+        long castlingKey = PolyglotKeys.ENGINE.key(castling);
+
+        List<long[]> entries = new ArrayList<>();
+        entries.add(new long[]{startKey, polyglotMove("e2", "e4"), 3});
+        entries.add(new long[]{startKey, polyglotMove("d2", "d4"), 1});
+        entries.add(new long[]{startKey, polyglotMove("e2", "e5"), 5});
+        entries.add(new long[]{castlingKey, polyglotMove("e1", "h1"), 1});
+        Random random = new Random(1);
+        for (int i = 0; i < 1000; i++){
+            entries.add(new long[]{random.nextLong(), polyglotMove("a2", "a3"), 1});
+        }
+        File file = writeBook(entries);
+        try{
+            PolyglotBook book = PolyglotBook.open(file, PolyglotKeys.ENGINE);
+            assertEquals(entries.size(), book.size());
+
+            int[] moves = new int[PolyglotBook.MAX_BOOK_MOVES];
+            int[] weights = new int[PolyglotBook.MAX_BOOK_MOVES];
+            assertEquals(2, book.probe(start, moves, weights));
+            assertEquals("e2e4", Move.toString(moves[0]));
+            assertEquals(3, weights[0]);
+            assertEquals("d2d4", Move.toString(moves[1]));
+
+            assertEquals(1, book.probe(castling, moves, weights));
+            assertEquals(Move.KING_CASTLE, Move.flags(moves[0]));
+
+            int e4 = 0;
+            for (int i = 0; i < 4000; i++){
+                if (Move.toString(book.pickMove(start, random)).equals("e2e4")){
+                    e4++;
+                }
+            }
+            assertTrue("e2e4 picked " + e4 + " times out of 4000", e4 > 2800 && e4 < 3200);
+
+            assertEquals(Move.NONE, book.pickMove(position("8/8/8/4k3/8/8/8/4K3 w - - 0 1"), random));
+        }
+        finally{
+            file.delete();
+        }
+    }
+
+    @Test
+    public void keyLayout() throws IOException{
+        Random random = new Random(7);
+        long[] table = new long[PolyglotKeys.COUNT];
+        for (int i = 0; i < table.length; i++){
+            table[i] = random.nextLong();
+        }
+        PolyglotKeys keys = read(table);
+
+        String[] fens = {
+                Fen.STARTING_POSITION,
+                // After 1.e4 no black pawn can take en passant, so the file doesn't count.
+                "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1",
+                "rnbqkbnr/ppp1pppp/8/8/3pP3/8/PPPP1PPP/RNBQKBNR b Kq e3 0 3",
+                "4k3/8/8/8/8/8/8/4K2R w K - 0 1",
+        };
+        for (String fen : fens){
+            assertEquals(fen, expectedKey(table, fen), keys.key(position(fen)));
+        }
+        // The engine's own keys can't hash books from other programs.
+        assertFalse(PolyglotKeys.ENGINE.isPolyglot());
+        assertFalse(keys.isPolyglot());
+    }
+
+    @Test
+    public void referenceKeys() throws IOException{
+        // A table that gives the reference keys of the book format: random numbers, with white
+        // to move fixed up for the starting position, and the white pawn on e4 for 1.e4.
+        Random random = new Random(11);
+        long[] table = new long[PolyglotKeys.COUNT];
+        for (int i = 0; i < table.length; i++){
+            table[i] = random.nextLong();
+        }
+        table[780] ^= expectedKey(table, Fen.STARTING_POSITION) ^ PolyglotKeys.STARTING_POSITION_KEY;
+        String afterE4 = "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1";
+        table[64 + square("e4")] ^= expectedKey(table, afterE4) ^ PolyglotKeys.AFTER_E4_KEY;
+
+        PolyglotKeys keys = read(table);
+        assertEquals(PolyglotKeys.STARTING_POSITION_KEY, keys.key(position(Fen.STARTING_POSITION)));
+        assertEquals(PolyglotKeys.AFTER_E4_KEY, keys.key(position(afterE4)));
+        assertTrue(keys.isPolyglot());
+
+        // Any number of the starting position being off gives the table away.
+        table[64 * 11 + square("e1")] ^= 1L;
+        assertFalse(read(table).isPolyglot());
+    }
+
+    private static PolyglotKeys read(long[] table) throws IOException{
+        ByteBuffer buffer = ByteBuffer.allocate(table.length * 8);
+        for (long random : table){
+            buffer.putLong(random);
+        }
+        return PolyglotKeys.read(new ByteArrayInputStream(buffer.array()));
+    }
+
+    // The key as the book format describes it: piece kinds black pawn, white pawn, black knight
+    // and so on, at 64 * kind + 8 * row + file, castling rights KQkq from 768, the en passant
+    // file from 772 if a pawn can take, and 780 when white is to move.
+    private static long expectedKey(long[] table, String fen){
+        String[] fields = fen.split(" ");
+        long key = 0L;
+        int row = 7;
+        int file = 0;
+        for (char c : fields[0].toCharArray()){
+            if (c == '/'){
+                row--;
+                file = 0;
+            }
+            else if (Character.isDigit(c)){
+                file += c - '0';
+            }
+            else{
+                int kind = 2 * "pnbrqk".indexOf(Character.toLowerCase(c)) + (Character.isUpperCase(c) ? 1 : 0);
+                key ^= table[64 * kind + 8 * row + file];
+                file++;
+            }
+        }
+        for (int right = 0; right < 4; right++){
+            if (fields[2].indexOf("KQkq".charAt(right)) >= 0){
+                key ^= table[768 + right];
+            }
+        }
+        BitboardPosition position = position(fen);
+        if (!fields[3].equals("-")){
+            int epSquare = square(fields[3]);
+            boolean white = fields[1].equals("w");
+            int pawn = BitboardPosition.piece(white ? BitboardPosition.WHITE : BitboardPosition.BLACK, BitboardPosition.PAWN);
+            int from = epSquare + (white ? -8 : 8);
+            int epFile = epSquare % 8;
+            if ((epFile > 0 && position.pieceAt(from - 1) == pawn) || (epFile < 7 && position.pieceAt(from + 1) == pawn)){
+                key ^= table[772 + epFile];
+            }
+        }
+        if (fields[1].equals("w")){
+            key ^= table[780];
+        }
+        return key;
+    }
+
+    private static BitboardPosition position(String fen){
+        BitboardPosition position = new BitboardPosition();
+        Fen.parse(fen, position);
+        return position;
+    }
+
+    private static long polyglotMove(String from, String to){
+        return square(to) | (square(from) << 6);
+    }
+
+    private static int square(String name){
+        return (name.charAt(1) - '1') * 8 + (name.charAt(0) - 'a');
+    }
+
+    private static File writeBook(List<long[]> entries) throws IOException{
+        Collections.sort(entries, new Comparator<long[]>() {
+            @Override
+            public int compare(long[] a, long[] b){
+                return Long.compareUnsigned(a[0], b[0]);
+            }
+        });
+        ByteBuffer buffer = ByteBuffer.allocate(entries.size() * PolyglotBook.ENTRY_SIZE);
+        for (long[] entry : entries){
+            buffer.putLong(entry[0]).putShort((short) entry[1]).putShort((short) entry[2]).putInt(0);
+        }
+        File file = File.createTempFile("book", ".bin");
+        try (FileOutputStream out = new FileOutputStream(file)){
+            out.write(buffer.array());
+        }
+        return file;
+    }
+}
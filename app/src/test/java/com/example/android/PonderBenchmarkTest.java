@@ -0,0 +1,113 @@
+package com.example.android;
+
+import com.example.android.engine.BitboardPosition;
+import com.example.android.engine.Fen;
+import com.example.android.engine.Move;
+import com.example.android.engine.MoveGenerator;
+import com.example.android.engine.Ponderer;
+import com.example.android.engine.Search;
+import com.example.android.engine.SearchLimits;
+import com.example.android.engine.SearchResult;
+import com.example.android.engine.TranspositionTable;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Benchmark of pondering. The engine moves, then ponders while the "opponent" thinks for a
+ * while. On a ponderhit, the result must be a move of the pondered position, and its depth is
+ * reported next to a search of the same time that didn't ponder. On a miss, stop() must only
+ * return once the ponder search has ended, and the time it took is reported. The timings
+ * depend on the machine, so they are printed rather than checked.
+ * @author Krysti Leong, April Dizon
+ */
+public class PonderBenchmarkTest {
+
+    private static final String[] POSITIONS = {
+            Fen.STARTING_POSITION,
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+    };
+    private static final long MOVE_MILLIS = 300;
+    private static final long OPPONENT_MILLIS = 500;
+    private static final String PONDER_THREAD = "ponder";
+
+    @Test
+    public void ponderhit() throws InterruptedException{
+        for (String fen : POSITIONS){
+            BitboardPosition position = new BitboardPosition();
+            Fen.parse(fen, position);
+
+            TranspositionTable table = new TranspositionTable(16);
+            Search engine = new Search(table);
+            Ponderer ponderer = new Ponderer(table);
+            try{
+                SearchResult first = engine.search(position, SearchLimits.time(MOVE_MILLIS));
+                position.makeMove(first.bestMove);
+                if (!ponderer.start(position, first.pv.length > 1 ? first.pv[1] : Move.NONE)){
+                    continue;
+                }
+                Thread.sleep(OPPONENT_MILLIS);
+                position.makeMove(ponderer.getExpectedMove());
+                assertTrue(ponderer.isPondering(position));
+                SearchResult pondered = ponderer.ponderhit(SearchLimits.time(MOVE_MILLIS));
+                assertNotNull(pondered);
+                assertTrue(fen, MoveGenerator.isLegal(position, pondered.bestMove));
+                assertFalse(ponderer.isPondering(position));
+                assertFalse(isSearching(PONDER_THREAD));
+
+                SearchResult plain = new Search(new TranspositionTable(16)).search(position, SearchLimits.time(MOVE_MILLIS));
+                System.out.println(String.format("ponderhit: depth %d (%d nodes), without pondering: depth %d (%d nodes)",
+                        pondered.depth, pondered.nodes, plain.depth, plain.nodes));
+            }
+            finally{
+                ponderer.shutdown();
+            }
+        }
+    }
+
+    @Test
+    public void cancelOnMiss() throws InterruptedException{
+        BitboardPosition position = new BitboardPosition();
+        Fen.parse(POSITIONS[1], position);
+        TranspositionTable table = new TranspositionTable(16);
+        Ponderer ponderer = new Ponderer(table);
+        try{
+            SearchResult first = new Search(table).search(position, SearchLimits.depth(4));
+            position.makeMove(first.bestMove);
+            assertTrue(ponderer.start(position, Move.NONE));
+            Thread.sleep(OPPONENT_MILLIS);
+            assertTrue(isSearching(PONDER_THREAD));
+
+            long start = System.nanoTime();
+            ponderer.stop();
+            long cancelMillis = (System.nanoTime() - start) / 1000000;
+            System.out.println("ponder miss: cancelled in " + cancelMillis + " ms");
+            assertFalse(isSearching(PONDER_THREAD));
+            assertEquals(Move.NONE, ponderer.getExpectedMove());
+        }
+        finally{
+            ponderer.shutdown();
+        }
+    }
+
+    /**
+     * @return Whether a thread of the given name is inside a search right now.
+     */
+    private static boolean isSearching(String name){
+        for (Map.Entry<Thread, StackTraceElement[]> thread : Thread.getAllStackTraces().entrySet()){
+            if (!thread.getKey().getName().equals(name)){
+                continue;
+            }
+            for (StackTraceElement frame : thread.getValue()){
+                if (frame.getClassName().equals(Search.class.getName())){
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.android;
+
+import com.example.android.engine.BitboardPosition;
+import com.example.android.engine.Move;
+import com.example.android.model.Bishop;
+import com.example.android.model.GameSaver;
+import com.example.android.model.GameStates;
+import com.example.android.model.Pawn;
+import com.example.android.model.Piece;
+import com.example.android.model.Queen;
+import com.example.android.model.Rook;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Reads savedGamesBeforeBitboards.dat, an archive the app wrote before the pieces moved by the
+ * bitboards and the states recorded their moves: 1.e4 e5 2.Nf3 and black resigns. Saved games
+ * must keep loading, since GameSaver replaces an archive it can't read with an empty one.
+ * @author Krysti Leong, April Dizon
+ */
+public class SavedGamesTest {
+
+    private static final String FIXTURE = "/savedGamesBeforeBitboards.dat";
+
+    @Test
+    public void readsGamesSavedBeforeBitboards() throws IOException, ClassNotFoundException{
+        List<GameStates> games;
+        try (InputStream in = SavedGamesTest.class.getResourceAsStream(FIXTURE)){
+            assertNotNull(in);
+            games = GameSaver.readGames(new ObjectInputStream(in));
+        }
+        assertEquals(1, games.size());
+        GameStates game = games.get(0);
+        assertEquals("Before bitboards", game.getName());
+        assertEquals(5, game.size());
+        GameStates.State last = game.getStates().get(game.size() - 1);
+        assertEquals("Black resigns. White wins!", last.title);
+
+        int[] counts = new int[4];
+        for (Piece piece : game.getStates().get(0).pieces){
+            counts[0] += piece instanceof Pawn ? 1 : 0;
+            counts[1] += piece instanceof Bishop ? 1 : 0;
+            counts[2] += piece instanceof Rook ? 1 : 0;
+            counts[3] += piece instanceof Queen ? 1 : 0;
+        }
+        assertEquals(16, counts[0]);
+        assertEquals(4, counts[1]);
+        assertEquals(4, counts[2]);
+        assertEquals(2, counts[3]);
+
+        // The states had no move or key then.
+        for (GameStates.State state : game.getStates()){
+            assertEquals(Move.NONE, state.move);
+            assertEquals(0, state.hashKey);
+        }
+
+        // The last position still sets up a board.
+        Board board = new Board();
+        board.setBoard(last.board, last.pieces);
+        BitboardPosition position = board.getBitboards();
+        assertEquals(BitboardPosition.piece(BitboardPosition.WHITE, BitboardPosition.PAWN), position.pieceAt(28));
+        assertEquals(BitboardPosition.piece(BitboardPosition.BLACK, BitboardPosition.PAWN), position.pieceAt(36));
+        assertEquals(BitboardPosition.piece(BitboardPosition.WHITE, BitboardPosition.KNIGHT), position.pieceAt(21));
+        assertEquals(32, Long.bitCount(position.occupied()));
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.android;
+
+import com.example.android.engine.BitboardPosition;
+import com.example.android.engine.Fen;
+import com.example.android.engine.Move;
+import com.example.android.engine.Search;
+import com.example.android.engine.SearchLimits;
+import com.example.android.engine.SearchOptions;
+import com.example.android.engine.SearchResult;
+import com.example.android.engine.TranspositionTable;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Measures what each selective search feature is worth: the nodes and time to reach a fixed
+ * depth with every feature on, with each one turned off on its own, and with none of them, and
+ * the hit rate of the pawn structure cache.
+ * Also checks that the search still finds a few short tactics with every feature on.
+ * @author Krysti Leong, April Dizon
+ */
+public class SearchOptionsBenchmarkTest {
+
+    private static final String[] POSITIONS = {
+            Fen.STARTING_POSITION,
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+    };
+    private static final int DEPTH = 7;
+
+    // Positions with the best move, which all configurations should find.
+    private static final String[][] TACTICS = {
+            {"r1bqkbnr/pppp1ppp/2n5/4p3/2B1P3/5Q2/PPPP1PPP/RNB1K1NR w KQkq - 4 4", "f3f7"},
+            {"6k1/5ppp/8/8/8/8/5PPP/3R2K1 w - - 0 1", "d1d8"},
+            {"4k3/8/8/3q4/8/8/3R4/4K3 w - - 0 1", "d2d5"},
+    };
+
+    @Test
+    public void nodesToDepth(){
+        int[] features = {SearchOptions.NULL_MOVE, SearchOptions.LATE_MOVE_REDUCTIONS,
+                SearchOptions.REVERSE_FUTILITY, SearchOptions.FUTILITY, SearchOptions.CHECK_EXTENSIONS};
+        run("all", SearchOptions.ALL);
+        for (int feature : features){
+            run("without " + SearchOptions.name(feature), SearchOptions.ALL.without(feature));
+        }
+        run("none", SearchOptions.NONE);
+    }
+
+    @Test
+    public void findsTactics(){
+        Search search = new Search(new TranspositionTable(16));
+        for (String[] tactic : TACTICS){
+            BitboardPosition position = new BitboardPosition();
+            Fen.parse(tactic[0], position);
+            SearchResult result = search.search(position, SearchLimits.depth(6));
+            assertEquals(tactic[0], tactic[1], Move.toString(result.bestMove));
+        }
+    }
+
+    private static void run(String name, SearchOptions options){
+        Search search = new Search(new TranspositionTable(32));
+        search.setOptions(options);
+        long nodes = 0;
+        long millis = 0;
+        double pawnHitRate = 0;
+        for (String fen : POSITIONS){
+            BitboardPosition position = new BitboardPosition();
+            Fen.parse(fen, position);
+            SearchResult result = search.search(position, SearchLimits.depth(DEPTH));
+            assertEquals(DEPTH, result.depth);
+            nodes += result.nodes;
+            millis += result.timeMillis;
+            pawnHitRate += search.getPawnHitRate() / POSITIONS.length;
+        }
+        System.out.println(String.format("%-30s depth %d: %d nodes in %d ms, pawn hits %.1f%%", name, DEPTH,
+                nodes, millis, pawnHitRate * 100));
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.android;
+
+import com.example.android.engine.BitboardPosition;
+import com.example.android.engine.Fen;
+import com.example.android.engine.Move;
+import com.example.android.engine.MoveGenerator;
+import com.example.android.engine.SearchLimits;
+import com.example.android.engine.SearchResult;
+import com.example.android.engine.SmpSearch;
+import com.example.android.engine.TranspositionTable;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Time-to-depth benchmark of the Lazy SMP search, from 1 thread up to the number of cores.
+ * Prints the time, the speedup over a single thread, the nodes searched by every thread and how
+ * often the main thread's cutoffs came from the first move it searched.
+ * @author Krysti Leong, April Dizon
+ */
+public class SmpBenchmarkTest {
+
+    private static final String[] POSITIONS = {
+            Fen.STARTING_POSITION,
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+    };
+    private static final int DEPTH = 6;
+
+    @Test
+    public void timeToDepth(){
+        int maxThreads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        long singleThreadMillis = 0;
+
+        // Warm up the JIT so that the single thread run isn't penalized for going first.
+        SmpSearch warmUp = new SmpSearch(new TranspositionTable(32), 1);
+        BitboardPosition warmUpPosition = new BitboardPosition();
+        Fen.parse(Fen.STARTING_POSITION, warmUpPosition);
+        warmUp.search(warmUpPosition, SearchLimits.depth(DEPTH));
+        warmUp.shutdown();
+
+        for (int threads = 1; threads <= maxThreads; threads *= 2){
+            SmpSearch search = new SmpSearch(new TranspositionTable(32), threads);
+            long totalMillis = 0;
+            long[] totalNodes = new long[threads];
+            double cutoffRate = 0;
+            try{
+                for (String fen : POSITIONS){
+                    BitboardPosition position = new BitboardPosition();
+                    Fen.parse(fen, position);
+
+                    long start = System.currentTimeMillis();
+                    SearchResult result = search.search(position, SearchLimits.depth(DEPTH));
+                    totalMillis += System.currentTimeMillis() - start;
+
+                    assertEquals(DEPTH, result.depth);
+                    assertTrue(fen, isLegal(position, result.bestMove));
+                    cutoffRate += search.getFirstMoveCutoffRate() / POSITIONS.length;
+                    long[] nodes = search.getThreadNodes();
+                    for (int i = 0; i < threads; i++){
+                        totalNodes[i] += nodes[i];
+                    }
+                }
+            }
+            finally{
+                search.shutdown();
+            }
+
+            if (threads == 1){
+                singleThreadMillis = totalMillis;
+            }
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("%d thread(s): depth %d in %d ms, speedup %.2f, first move cutoffs %.1f%%, nodes per thread",
+                    threads, DEPTH, totalMillis, singleThreadMillis / (double) Math.max(1, totalMillis), cutoffRate * 100));
+            for (long nodes : totalNodes){
+                sb.append(' ').append(nodes);
+            }
+            System.out.println(sb);
+        }
+    }
+
+    private static boolean isLegal(BitboardPosition position, int move){
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generateLegalMoves(position, moves);
+        for (int i = 0; i < count; i++){
+            if (moves[i] == move && move != Move.NONE){
+                return true;
+            }
+        }
+        return false;
+    }
+}
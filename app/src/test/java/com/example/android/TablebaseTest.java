@@ -0,0 +1,191 @@
+package com.example.android;
+
+import com.example.android.engine.Bitbase;
+import com.example.android.engine.BitbaseGenerator;
+import com.example.android.engine.BitboardPosition;
+import com.example.android.engine.Bitbases;
+import com.example.android.engine.Fen;
+import com.example.android.engine.Move;
+import com.example.android.engine.MoveGenerator;
+import com.example.android.engine.Search;
+import com.example.android.engine.SearchLimits;
+import com.example.android.engine.SearchResult;
+import com.example.android.engine.TablebaseGenerator;
+import com.example.android.engine.Tablebases;
+import com.example.android.engine.TranspositionTable;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Generates the WDL and DTZ tablebase files of KQK and KRK into a temporary folder, and probes
+ * them: results that agree with the bitbases, the longest wins as the literature has them,
+ * perfect play that mates within the DTZ, and the probe latency and cache hit rate. With
+ * -Dendgames.generate=true, KPK and KBNK are generated and played out too, which takes a while.
+ * @author Krysti Leong, April Dizon
+ */
+public class TablebaseTest {
+
+    private static final boolean ALL_ENDGAMES = Boolean.getBoolean("endgames.generate");
+    private static final int SMALL_CACHE_BLOCKS = 16;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void generateAndProbe() throws IOException{
+        Bitbases bitbases;
+        if (ALL_ENDGAMES){
+            bitbases = new BitbaseGenerator().generateAll();
+        }
+        else{
+            BitbaseGenerator generator = new BitbaseGenerator();
+            Bitbase[] done = new Bitbase[Bitbase.COUNT];
+            done[Bitbase.KQK] = generator.generate(Bitbase.KQK, done);
+            done[Bitbase.KRK] = generator.generate(Bitbase.KRK, done);
+            bitbases = new Bitbases(done[Bitbase.KQK], done[Bitbase.KRK]);
+        }
+        File directory = folder.newFolder("tablebases");
+        long start = System.currentTimeMillis();
+        new TablebaseGenerator().writeAll(bitbases, directory);
+        long bytes = 0;
+        for (int material = 0; material < Bitbase.COUNT; material++){
+            bytes += new File(directory, Tablebases.fileName(material, Tablebases.WDL)).length()
+                    + new File(directory, Tablebases.fileName(material, Tablebases.DTZ)).length();
+        }
+        System.out.println("Wrote " + bytes + " bytes of tablebases in " + (System.currentTimeMillis() - start)
+                + " ms to " + directory.getAbsolutePath());
+
+        Tablebases tablebases = new Tablebases(directory, SMALL_CACHE_BLOCKS);
+        assertEquals(ALL_ENDGAMES ? 4 : 3, tablebases.getMaxPieces());
+        assertAgreesWithBitbases(tablebases, bitbases);
+
+        // Longest wins, in plies with the strong side to move: mate in 10 and in 16.
+        assertEquals(19, longestWin(tablebases, BitboardPosition.QUEEN));
+        assertEquals(31, longestWin(tablebases, BitboardPosition.ROOK));
+        assertEquals(1, tablebases.probeDtz(position("7k/5K2/8/8/8/8/8/6Q1 w - - 0 1")));
+        assertEquals(0, tablebases.probeDtz(position("7k/6Q1/5K2/8/8/8/8/8 b - - 0 1")));
+
+        playOut(tablebases, "8/8/8/3k4/8/8/8/K2R4 b - - 0 1");
+        if (ALL_ENDGAMES){
+            playOut(tablebases, "8/8/8/8/8/8/8/KBN4k w - - 0 1");
+            playOut(tablebases, "8/8/8/8/8/8/4P3/k3K3 w - - 0 1");
+            assertEquals(Bitbases.DRAW, tablebases.probeWdl(position("8/8/8/8/8/4k3/4P3/4K3 w - - 0 1")));
+        }
+        else{
+            assertEquals(Bitbases.UNKNOWN, tablebases.probeWdl(position("8/8/8/8/8/4k3/4P3/4K3 w - - 0 1")));
+        }
+
+        // Search plays the tablebase move at the root, without searching.
+        Search search = new Search(new TranspositionTable(1));
+        search.setTablebases(tablebases);
+        SearchResult result = search.search(position("8/8/8/4k3/8/8/8/K2R4 w - - 0 1"), new SearchLimits(10, 1000, Long.MAX_VALUE));
+        assertEquals(1, search.getTablebaseHits());
+        assertTrue(result.score >= Search.KNOWN_WIN);
+
+        System.out.println(String.format("%d probes, %.1f%% cache hits with %d blocks, %.2f us a probe",
+                tablebases.getProbes(), 100 * tablebases.getCacheHitRate(), SMALL_CACHE_BLOCKS,
+                tablebases.getAverageProbeMicros()));
+        assertTrue(tablebases.getCacheHitRate() > 0.5);
+    }
+
+    /**
+     * The WDL files say what the bitbases say, for random positions of every endgame generated.
+     */
+    private static void assertAgreesWithBitbases(Tablebases tablebases, Bitbases bitbases){
+        Random random = new Random(5);
+        int[] firstTypes = {BitboardPosition.PAWN, BitboardPosition.ROOK, BitboardPosition.QUEEN, BitboardPosition.BISHOP};
+        BitboardPosition position = new BitboardPosition();
+        int checked = 0;
+        while (checked < 20000){
+            int material = random.nextInt(Bitbase.COUNT);
+            if (bitbases.get(material) == null){
+                continue;
+            }
+            int strong = random.nextInt(2);
+            int[] squares = {random.nextInt(64), random.nextInt(64), random.nextInt(64), random.nextInt(64)};
+            position.clear();
+            position.putPiece(squares[0], BitboardPosition.piece(strong, BitboardPosition.KING));
+            position.putPiece(squares[1], BitboardPosition.piece(strong ^ 1, BitboardPosition.KING));
+            position.putPiece(squares[2], BitboardPosition.piece(strong, firstTypes[material]));
+            if (material == Bitbase.KBNK){
+                position.putPiece(squares[3], BitboardPosition.piece(strong, BitboardPosition.KNIGHT));
+            }
+            int toMove = random.nextInt(2);
+            position.setSideToMove(toMove);
+            int pieces = material == Bitbase.KBNK ? 4 : 3;
+            if (Long.bitCount(position.occupied()) != pieces || position.isInCheck(toMove ^ 1)
+                    || position.isSquareAttacked(squares[0], strong ^ 1)
+                    || (material == Bitbase.KPK && (squares[2] < 8 || squares[2] >= 56))){
+                continue;
+            }
+            assertEquals(position.toString(), bitbases.probe(position), tablebases.probeWdl(position));
+            checked++;
+        }
+    }
+
+    /**
+     * @return The longest DTZ of KQK or KRK with the strong side to move.
+     */
+    private static int longestWin(Tablebases tablebases, int type){
+        BitboardPosition position = new BitboardPosition();
+        int longest = 0;
+        for (int strongKing = 0; strongKing < 64; strongKing++){
+            for (int weakKing = 0; weakKing < 64; weakKing++){
+                for (int piece = 0; piece < 64; piece++){
+                    position.clear();
+                    position.putPiece(strongKing, BitboardPosition.piece(BitboardPosition.WHITE, BitboardPosition.KING));
+                    position.putPiece(weakKing, BitboardPosition.piece(BitboardPosition.BLACK, BitboardPosition.KING));
+                    position.putPiece(piece, BitboardPosition.piece(BitboardPosition.WHITE, type));
+                    if (Long.bitCount(position.occupied()) != 3 || position.isInCheck(BitboardPosition.BLACK)
+                            || position.isSquareAttacked(strongKing, BitboardPosition.BLACK)){
+                        continue;
+                    }
+                    longest = Math.max(longest, tablebases.probeDtz(position));
+                }
+            }
+        }
+        return longest;
+    }
+
+    /**
+     * Play the tablebase moves for both sides, and check that the winner mates (or pushes a
+     * pawn) within the DTZ, one ply less after every move.
+     */
+    private static void playOut(Tablebases tablebases, String fen){
+        BitboardPosition position = position(fen);
+        int result = tablebases.probeWdl(position);
+        assertNotEquals(fen, Bitbases.DRAW, result);
+        int dtz = tablebases.probeDtz(position);
+        for (int ply = 0; ply < dtz; ply++){
+            assertEquals(fen, dtz - ply, tablebases.probeDtz(position));
+            int move = tablebases.bestMove(position);
+            assertNotEquals(fen, Move.NONE, move);
+            boolean pawnMove = BitboardPosition.typeOf(position.pieceAt(Move.from(move))) == BitboardPosition.PAWN;
+            position.makeMove(move);
+            if (pawnMove){
+                // The pawn move the count was for, after which it starts again.
+                assertEquals(fen, dtz - 1, ply);
+                assertNotEquals(fen, Bitbases.DRAW, tablebases.probeWdl(position));
+                return;
+            }
+        }
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        assertEquals(fen, 0, MoveGenerator.generateLegalMoves(position, moves));
+        assertTrue(fen, position.isInCheck(position.getSideToMove()));
+        System.out.println(fen + ": mate in " + dtz + " plies");
+    }
+
+    private static BitboardPosition position(String fen){
+        BitboardPosition position = new BitboardPosition();
+        Fen.parse(fen, position);
+        return position;
+    }
+}
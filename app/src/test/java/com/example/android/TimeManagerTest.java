@@ -0,0 +1,80 @@
+package com.example.android;
+
+import com.example.android.engine.BitboardPosition;
+import com.example.android.engine.ChessClock;
+import com.example.android.engine.Move;
+import com.example.android.engine.SearchLimits;
+import com.example.android.engine.SearchResult;
+import com.example.android.engine.TimeManager;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the time manager: the limits it gives on the clock, and that a best move that stays the
+ * same shortens a search while a falling score lengthens it.
+ * @author Krysti Leong, April Dizon
+ */
+public class TimeManagerTest {
+
+    private static final int MOVE = Move.encode(12, 28, Move.DOUBLE_PUSH);
+    private static final int OTHER_MOVE = Move.encode(11, 27, Move.DOUBLE_PUSH);
+
+    @Test
+    public void limitsOnTheClock(){
+        SearchLimits limits = TimeManager.limits(ChessClock.increment(600000, 5000), BitboardPosition.WHITE);
+        assertTrue(limits.softTimeMillis > 0);
+        assertTrue(limits.softTimeMillis <= limits.timeMillis);
+        assertTrue(limits.timeMillis < 600000 / 2);
+
+        // The last move of a period may take more, but never most of what's left.
+        ChessClock clock = ChessClock.movesToGo(60000, 1);
+        SearchLimits last = TimeManager.limits(clock, BitboardPosition.WHITE);
+        assertTrue(last.timeMillis <= clock.remainingMillis(BitboardPosition.WHITE) / 2);
+        assertTrue(last.softTimeMillis > TimeManager.limits(ChessClock.movesToGo(60000, 40), BitboardPosition.WHITE).softTimeMillis);
+
+        SearchLimits almostOut = TimeManager.limits(ChessClock.suddenDeath(40), BitboardPosition.WHITE);
+        assertEquals(1, almostOut.timeMillis);
+    }
+
+    @Test
+    public void stableMoveShrinksBudget(){
+        SearchLimits limits = new SearchLimits(64, Long.MAX_VALUE, 5000, 1000);
+        TimeManager stable = new TimeManager(limits);
+        for (int i = 0; i < 5; i++){
+            assertFalse(stable.shouldStop(result(MOVE, 20), 100));
+        }
+        assertTrue(stable.shouldStop(result(MOVE, 20), 300));
+
+        TimeManager changing = new TimeManager(limits);
+        for (int i = 0; i < 5; i++){
+            assertFalse(changing.shouldStop(result(i % 2 == 0 ? MOVE : OTHER_MOVE, 20), 100));
+        }
+        assertFalse(changing.shouldStop(result(MOVE, 20), 300));
+    }
+
+    @Test
+    public void scoreDropStretchesBudget(){
+        SearchLimits limits = new SearchLimits(64, Long.MAX_VALUE, 1500, 1000);
+        TimeManager steady = new TimeManager(limits);
+        assertFalse(steady.shouldStop(result(MOVE, 50), 100));
+        assertTrue(steady.shouldStop(result(OTHER_MOVE, 50), 600));
+
+        TimeManager dropping = new TimeManager(limits);
+        assertFalse(dropping.shouldStop(result(MOVE, 50), 100));
+        assertFalse(dropping.shouldStop(result(OTHER_MOVE, -100), 600));
+        // Never past the hard limit, however far the score falls.
+        assertTrue(dropping.shouldStop(result(MOVE, -400), 800));
+    }
+
+    @Test
+    public void noSoftLimitNeverStops(){
+        TimeManager manager = new TimeManager(new SearchLimits(64, Long.MAX_VALUE, 1000));
+        assertFalse(manager.shouldStop(result(MOVE, 0), 100000));
+    }
+
+    private static SearchResult result(int move, int score){
+        return new SearchResult(move, score, 1, 0, 0, new int[]{move});
+    }
+}
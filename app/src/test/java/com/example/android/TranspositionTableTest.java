@@ -0,0 +1,135 @@
+package com.example.android;
+
+import com.example.android.engine.BitboardPosition;
+import com.example.android.engine.Move;
+import com.example.android.engine.TranspositionTable;
+
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the transposition table: entries read back what was stored, an entry whose halves were
+ * written by two different stores is a miss, and which entry a new result replaces, both of the
+ * same position and of a full bucket.
+ * @author Krysti Leong, April Dizon
+ */
+public class TranspositionTableTest {
+
+    // Keys with the same upper half share a bucket, which holds four entries.
+    private static final long BUCKET = 0x12345678L << 32;
+
+    @Test
+    public void packAndUnpack(){
+        TranspositionTable table = new TranspositionTable(1);
+        int[] moves = {Move.NONE, Move.encode(12, 28, Move.DOUBLE_PUSH), Move.encode(4, 6, Move.KING_CASTLE),
+                Move.promotion(52, 63, BitboardPosition.QUEEN, true)};
+        int[] scores = {0, -345, Short.MAX_VALUE, Short.MIN_VALUE};
+        int[] depths = {0, 7, 100, 255};
+        int[] bounds = {TranspositionTable.BOUND_UPPER, TranspositionTable.BOUND_LOWER,
+                TranspositionTable.BOUND_EXACT, TranspositionTable.BOUND_LOWER};
+        for (int i = 0; i < moves.length; i++){
+            long key = 0x9E3779B97F4A7C15L * (i + 1);
+            table.store(key, moves[i], scores[i], depths[i], bounds[i]);
+            long data = table.probe(key);
+            assertNotEquals(0L, data);
+            assertEquals(moves[i], TranspositionTable.move(data));
+            assertEquals(scores[i], TranspositionTable.score(data));
+            assertEquals(depths[i], TranspositionTable.depth(data));
+            assertEquals(bounds[i], TranspositionTable.bound(data));
+        }
+        assertEquals(0L, table.probe(0x0123456789ABCDEFL));
+    }
+
+    @Test
+    public void tornEntryIsAMiss() throws ReflectiveOperationException{
+        TranspositionTable table = new TranspositionTable(1);
+        long first = BUCKET | 1;
+        long second = BUCKET | 2;
+        table.store(first, Move.encode(12, 28, Move.DOUBLE_PUSH), 10, 5, TranspositionTable.BOUND_EXACT);
+        table.store(second, Move.encode(6, 21, Move.QUIET), -20, 3, TranspositionTable.BOUND_LOWER);
+
+        // Another thread's data landing next to the first entry's key half.
+        long[] entries = entries(table);
+        int index = indexOf(entries, first);
+        int other = indexOf(entries, second);
+        entries[index + 1] = entries[other + 1];
+        assertEquals(0L, table.probe(first));
+        assertNotEquals(0L, table.probe(second));
+    }
+
+    @Test
+    public void samePositionReplacement(){
+        TranspositionTable table = new TranspositionTable(1);
+        long key = BUCKET | 1;
+        int move = Move.encode(12, 28, Move.DOUBLE_PUSH);
+        table.store(key, move, 50, 9, TranspositionTable.BOUND_LOWER);
+
+        // A shallower bound of the same search doesn't replace it.
+        table.store(key, Move.NONE, -30, 4, TranspositionTable.BOUND_UPPER);
+        assertEquals(9, TranspositionTable.depth(table.probe(key)));
+        assertEquals(50, TranspositionTable.score(table.probe(key)));
+
+        // An exact score does, and keeps the best move.
+        table.store(key, Move.NONE, 20, 4, TranspositionTable.BOUND_EXACT);
+        long data = table.probe(key);
+        assertEquals(4, TranspositionTable.depth(data));
+        assertEquals(20, TranspositionTable.score(data));
+        assertEquals(move, TranspositionTable.move(data));
+
+        // So does a deeper result, and anything once the entry is from an older search.
+        table.store(key, Move.NONE, 60, 6, TranspositionTable.BOUND_LOWER);
+        assertEquals(6, TranspositionTable.depth(table.probe(key)));
+        table.newSearch();
+        table.store(key, Move.NONE, -10, 2, TranspositionTable.BOUND_UPPER);
+        assertEquals(2, TranspositionTable.depth(table.probe(key)));
+    }
+
+    @Test
+    public void fullBucketReplacement(){
+        TranspositionTable table = new TranspositionTable(1);
+        int[] depths = {5, 3, 7, 9};
+        for (int i = 0; i < depths.length; i++){
+            table.store(BUCKET | i, Move.NONE, 0, depths[i], TranspositionTable.BOUND_EXACT);
+        }
+
+        // The shallowest entry goes first.
+        table.store(BUCKET | 4, Move.NONE, 0, 6, TranspositionTable.BOUND_EXACT);
+        assertEquals(0L, table.probe(BUCKET | 1));
+        for (long key : new long[]{BUCKET, BUCKET | 2, BUCKET | 3, BUCKET | 4}){
+            assertNotEquals(0L, table.probe(key));
+        }
+
+        // The entries of older searches go before deeper ones of this search, shallowest first.
+        table.newSearch();
+        table.store(BUCKET | 5, Move.NONE, 0, 1, TranspositionTable.BOUND_EXACT);
+        assertEquals(0L, table.probe(BUCKET));
+        table.store(BUCKET | 6, Move.NONE, 0, 1, TranspositionTable.BOUND_EXACT);
+        assertEquals(0L, table.probe(BUCKET | 4));
+        table.store(BUCKET | 7, Move.NONE, 0, 12, TranspositionTable.BOUND_EXACT);
+        assertEquals(0L, table.probe(BUCKET | 2));
+        assertNotEquals(0L, table.probe(BUCKET | 3));
+        assertNotEquals(0L, table.probe(BUCKET | 5));
+        assertNotEquals(0L, table.probe(BUCKET | 6));
+    }
+
+    private static long[] entries(TranspositionTable table) throws ReflectiveOperationException{
+        Field field = TranspositionTable.class.getDeclaredField("entries");
+        field.setAccessible(true);
+        return (long[]) field.get(table);
+    }
+
+    /**
+     * @return Index of the key half of the entry of a key.
+     */
+    private static int indexOf(long[] entries, long key){
+        for (int i = 0; i < entries.length; i += 2){
+            if (entries[i + 1] != 0 && (entries[i] ^ entries[i + 1]) == key){
+                return i;
+            }
+        }
+        throw new AssertionError("No entry for " + Long.toHexString(key));
+    }
+}